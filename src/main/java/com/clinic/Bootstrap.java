@@ -0,0 +1,154 @@
+package com.clinic;
+
+import akka.javasdk.DependencyProvider;
+import akka.javasdk.ServiceSetup;
+import akka.javasdk.annotations.Setup;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.timer.TimerScheduler;
+import com.clinic.api.common.ValidatorCache;
+import com.clinic.application.AppointmentReminderWorkflow;
+import com.clinic.application.DoctorAbsenceWorkflow;
+import com.clinic.application.DoctorDirectory;
+import com.clinic.application.MissedAppointmentSweepWorkflow;
+import com.clinic.application.ScheduleMigrationConsumer;
+import com.clinic.application.WaitlistIndex;
+import com.clinic.application.WaitlistService;
+import com.clinic.application.ai.ModelHedges;
+import com.clinic.application.ai.TriageRules;
+import com.clinic.application.ai.TriageService;
+import com.clinic.application.export.AppointmentExportConsumer;
+import com.clinic.application.export.NdjsonExportWriter;
+import com.clinic.application.reminders.LogReminderSender;
+import com.clinic.application.reminders.RateLimitedSender;
+import com.clinic.application.reminders.ReminderSender;
+import com.clinic.domain.AppointmentTypes;
+import com.clinic.domain.ChatSession;
+import com.typesafe.config.Config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+@Setup
+public class Bootstrap implements ServiceSetup {
+    private final Config config;
+    private final ModelHedges modelHedges;
+    private final TriageService triageService;
+    private final ChatSession.Limits chatLimits;
+    private final DoctorAbsenceWorkflow.Settings absenceSettings;
+    private final WaitlistService waitlistService;
+    private final MissedAppointmentSweepWorkflow.Settings sweepSettings;
+    private final AppointmentReminderWorkflow.Settings reminderSettings;
+    private final ReminderSender reminderSender;
+    private NdjsonExportWriter exportWriter;
+    private final ValidatorCache validatorCache;
+    private final DoctorDirectory doctorDirectory;
+    private final AppointmentTypes appointmentTypes;
+    private final ComponentClient componentClient;
+    private final TimerScheduler timerScheduler;
+
+    public Bootstrap(Config config, ComponentClient componentClient, TimerScheduler timerScheduler) {
+        this.config = config;
+        this.componentClient = componentClient;
+        this.timerScheduler = timerScheduler;
+        var chatMemory = config.getConfig("clinic.chat-memory");
+        this.chatLimits = new ChatSession.Limits(
+                chatMemory.getInt("window-tokens"),
+                chatMemory.getInt("summarize-after-tokens"),
+                chatMemory.getInt("max-summary-tokens"),
+                chatMemory.getInt("max-evicted-tokens"));
+        this.waitlistService = new WaitlistService(new WaitlistIndex(), componentClient);
+        this.absenceSettings = DoctorAbsenceWorkflow.Settings.fromConfig(config.getConfig("clinic.absence"));
+        this.sweepSettings = MissedAppointmentSweepWorkflow.Settings.fromConfig(config.getConfig("clinic.missed-sweep"));
+        this.reminderSettings = AppointmentReminderWorkflow.Settings.fromConfig(config.getConfig("clinic.reminders"));
+        var reminderLogFile = config.getString("clinic.reminders.log-file");
+        this.reminderSender = new RateLimitedSender(
+                new LogReminderSender(reminderLogFile.isEmpty() ? Optional.empty() : Optional.of(Path.of(reminderLogFile))),
+                reminderSettings.ratePerSecond());
+        this.validatorCache = new ValidatorCache(ValidatorCache.Settings.fromConfig(config.getConfig("clinic.http.validator-cache")));
+        this.appointmentTypes = appointmentTypes(config.getConfig("clinic.appointment-types"));
+        this.doctorDirectory = new DoctorDirectory(componentClient, DoctorDirectory.Settings.fromConfig(config.getConfig("clinic.doctor-cache")));
+        this.modelHedges = ModelHedges.fromConfig(config);
+        this.triageService = new TriageService(
+                TriageRules.fromConfig(config),
+                config.getBoolean("clinic.triage.rules-enabled"),
+                modelHedges.priority(),
+                componentClient);
+    }
+
+    @Override
+    public void onStartup() {
+        // every node does this; the timer names are unique, so there is still one run per night
+        MissedAppointmentSweepWorkflow.scheduleNextSweep(timerScheduler, componentClient, sweepSettings);
+        AppointmentReminderWorkflow.scheduleNextRun(timerScheduler, componentClient, reminderSettings);
+    }
+
+    @Override
+    public Set<Class<?>> disabledComponents() {
+        var disabled = new HashSet<Class<?>>();
+        if (!config.getBoolean("clinic.schedule-migration.enabled"))
+            disabled.add(ScheduleMigrationConsumer.class);
+        if (!config.getBoolean("clinic.export.enabled"))
+            disabled.add(AppointmentExportConsumer.class);
+        return disabled;
+    }
+
+    private static AppointmentTypes appointmentTypes(Config config) {
+        var durations = config.getConfig("durations");
+        var byType = new HashMap<String, Duration>();
+        for (var type : durations.root().keySet())
+            byType.put(type, durations.getDuration(type));
+        return new AppointmentTypes(byType, config.getString("default"));
+    }
+
+    /**
+     * Only created when the export runs, it starts a flusher thread. Closed when the JVM shuts down, so the files open
+     * at the time get finished instead of left truncated.
+     */
+    private synchronized NdjsonExportWriter exportWriter() {
+        if (exportWriter == null) {
+            var writer = new NdjsonExportWriter(NdjsonExportWriter.Settings.fromConfig(config.getConfig("clinic.export")));
+            Runtime.getRuntime().addShutdownHook(new Thread(writer::close, "ndjson-export-shutdown"));
+            exportWriter = writer;
+        }
+        return exportWriter;
+    }
+
+    @Override
+    public DependencyProvider createDependencyProvider() {
+        return new DependencyProvider() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T getDependency(Class<T> clazz) {
+                if (clazz == TriageService.class)
+                    return (T) triageService;
+                if (clazz == ModelHedges.class)
+                    return (T) modelHedges;
+                if (clazz == ChatSession.Limits.class)
+                    return (T) chatLimits;
+                if (clazz == DoctorAbsenceWorkflow.Settings.class)
+                    return (T) absenceSettings;
+                if (clazz == WaitlistService.class)
+                    return (T) waitlistService;
+                if (clazz == MissedAppointmentSweepWorkflow.Settings.class)
+                    return (T) sweepSettings;
+                if (clazz == AppointmentReminderWorkflow.Settings.class)
+                    return (T) reminderSettings;
+                if (clazz == ReminderSender.class)
+                    return (T) reminderSender;
+                if (clazz == NdjsonExportWriter.class)
+                    return (T) exportWriter();
+                if (clazz == ValidatorCache.class)
+                    return (T) validatorCache;
+                if (clazz == DoctorDirectory.class)
+                    return (T) doctorDirectory;
+                if (clazz == AppointmentTypes.class)
+                    return (T) appointmentTypes;
+                throw new IllegalArgumentException("Unknown dependency type " + clazz);
+            }
+        };
+    }
+}
@@ -1,41 +1,74 @@
 package com.clinic.api;
 
 import akka.javasdk.annotations.Acl;
+import akka.javasdk.annotations.http.Get;
 import akka.javasdk.annotations.http.HttpEndpoint;
 import akka.javasdk.annotations.http.Put;
 import akka.javasdk.client.ComponentClient;
 import akka.javasdk.http.AbstractHttpEndpoint;
 import com.clinic.application.ai.ChatAgent;
-import com.clinic.application.ai.PriorityAgent;
+import com.clinic.application.ai.ChatSessionEntity;
+import com.clinic.application.ai.LatencyHedge;
+import com.clinic.application.ai.ModelHedges;
+import com.clinic.application.ai.TriageService;
+import com.clinic.domain.Appointment;
+import com.clinic.domain.ChatSession;
 
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletionStage;
 
 @HttpEndpoint("ai")
 @Acl(allow = @Acl.Matcher(principal = Acl.Principal.INTERNET))
 public class AiEndpoint extends AbstractHttpEndpoint {
 
     private final ComponentClient componentClient;
-    public AiEndpoint(ComponentClient componentClient) {
+    private final TriageService triageService;
+    private final ModelHedges modelHedges;
+    private final ChatSession.Limits chatLimits;
+    public AiEndpoint(ComponentClient componentClient, TriageService triageService, ModelHedges modelHedges,
+                      ChatSession.Limits chatLimits) {
         this.componentClient = componentClient;
+        this.triageService = triageService;
+        this.modelHedges = modelHedges;
+        this.chatLimits = chatLimits;
     }
     @Put("/ask")
-    public String urgency(String issue){
+    public CompletionStage<Appointment.Urgency> urgency(String issue){
         var session = UUID.randomUUID().toString();
-        return componentClient
-                .forAgent()
-                .inSession(session)
-                .method(PriorityAgent::urgency)
-                .invoke(issue);
+        return triageService.urgency(session, issue);
+    }
+
+    @Get("/triage/metrics")
+    public TriageService.Metrics triageMetrics() {
+        return triageService.metrics();
     }
 
     @Put("/chat")
-    public String chat(String issue){
+    public CompletionStage<String> chat(String issue){
         var session = requestContext().queryParams().getString("session").orElse(UUID.randomUUID().toString());
-        return componentClient
-                .forAgent()
-                .inSession(session)
-                .method(ChatAgent::ask)
-                .invoke(issue);
+        var context = componentClient
+                .forKeyValueEntity(session)
+                .method(ChatSessionEntity::getContext)
+                .invoke();
+        return modelHedges.chat()
+                .call(route -> componentClient
+                        .forAgent()
+                        .inSession(session)
+                        .method(ChatAgent::ask)
+                        .invokeAsync(new ChatAgent.ChatRequest(issue, context, Optional.of(route.model()))))
+                .thenCompose(reply -> componentClient
+                        .forKeyValueEntity(session)
+                        .method(ChatSessionEntity::addTurn)
+                        .invokeAsync(new ChatSessionEntity.AddTurnCmd(issue, reply, chatLimits))
+                        .thenApply(done -> reply));
+    }
+
+    public record HedgingMetrics(LatencyHedge.Metrics priority, LatencyHedge.Metrics chat) {}
+
+    @Get("/hedging/metrics")
+    public HedgingMetrics hedgingMetrics() {
+        return new HedgingMetrics(modelHedges.priority().metrics(), modelHedges.chat().metrics());
     }
 
 }
@@ -1,5 +1,8 @@
 package com.clinic.api;
 
+import akka.http.javadsl.model.HttpHeader;
+import akka.http.javadsl.model.HttpResponse;
+import akka.http.javadsl.model.StatusCodes;
 import akka.javasdk.annotations.Acl;
 import akka.javasdk.annotations.http.Get;
 import akka.javasdk.annotations.http.HttpEndpoint;
@@ -8,11 +11,17 @@ import akka.javasdk.annotations.http.Put;
 import akka.javasdk.client.ComponentClient;
 import akka.javasdk.http.AbstractHttpEndpoint;
 import akka.javasdk.http.HttpException;
+import com.clinic.api.common.ETags;
+import com.clinic.api.common.Validation;
+import com.clinic.api.common.ValidatorCache;
 import com.clinic.application.*;
 import com.clinic.domain.Appointment;
+import com.clinic.domain.AppointmentTypes;
+import com.clinic.domain.MissedSweepState;
+import com.clinic.domain.ReminderRunState;
 import com.clinic.application.AppointmentsByPatientView;
 
-import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -26,44 +35,94 @@ import static com.clinic.api.common.Validation.parseTime;
 @Acl(allow = @Acl.Matcher(principal = Acl.Principal.INTERNET))
 public class AppointmentEndpoint extends AbstractHttpEndpoint {
 
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final ComponentClient componentClient;
+    private final ValidatorCache validators;
+    private final AppointmentTypes appointmentTypes;
 
-    public AppointmentEndpoint(ComponentClient componentClient) {
+    public AppointmentEndpoint(ComponentClient componentClient, ValidatorCache validators, AppointmentTypes appointmentTypes) {
         this.componentClient = componentClient;
+        this.validators = validators;
+        this.appointmentTypes = appointmentTypes;
     }
 
-    public record CreateAppointmentRequest(String doctorId, String date, String startTime, String issue, String patientId) {
+    /**
+     * @param startTime optional: without it the appointment gets the best fitting free time of the day, see
+     *                  GET /doctors/{doctorId}/slot-suggestions
+     * @param type      appointment type, which sets the duration; the default type when empty
+     */
+    public record CreateAppointmentRequest(String doctorId, String date, String startTime, String issue, String patientId,
+                                           Optional<String> type) {
     }
 
     public record CreateAppointmentResponse(String id) {
     }
 
 
+    /**
+     * Retries that carry the same Idempotency-Key header (per patient) map to the same workflow id, so they return
+     * the original appointment id instead of starting a second booking.
+     */
     @Post
     public CreateAppointmentResponse scheduleAppointment(CreateAppointmentRequest body) {
         LocalDate date = parseDate(body.date);
         if (date.isBefore(LocalDate.now())) {
             throw HttpException.badRequest("Cannot schedule an appointment for past dates");
         }
-        var appointmentId = UUID.randomUUID().toString();
+        var idempotencyKey = requestContext()
+                .requestHeader(IDEMPOTENCY_KEY_HEADER)
+                .map(HttpHeader::value);
+        var appointmentId = idempotencyKey
+                .map(key -> idempotentAppointmentId(body.patientId, key))
+                .orElseGet(() -> UUID.randomUUID().toString());
+        var duration = DoctorEndpoint.durationOf(appointmentTypes, body.type == null ? Optional.empty() : body.type);
+        var startTime = body.startTime != null
+                ? parseTime(body.startTime)
+                : DoctorEndpoint.suggestStarts(componentClient, body.doctorId, date, duration, 1).stream()
+                        .findFirst()
+                        .orElseThrow(() -> HttpException.badRequest("No free time left for this appointment type on " + date));
+        var dateTime = date.atTime(startTime);
         try {
             componentClient
                     .forWorkflow(appointmentId) // workflowId stays as the appointment id in your design
                     .method(ScheduleAppointmentWorkflow::schedule)
                     .invoke(new ScheduleAppointmentWorkflow.ScheduleAppointmentCommand(
-                            date.atTime(parseTime(body.startTime)),
+                            dateTime,
                             body.doctorId,
                             body.patientId,
-                            body.issue
+                            body.issue,
+                            duration
                     ));
         } catch (IllegalArgumentException e) {
-            // Errors thrown via effects().error(...) or entity errors land here
-            throw HttpException.badRequest(e.getMessage());
+            // Errors thrown via effects().error(...) or entity errors land here; with a key they may also mean the
+            // workflow was already started by an earlier try of this request
+            var original = idempotencyKey.isPresent()
+                    ? componentClient
+                            .forWorkflow(appointmentId)
+                            .method(ScheduleAppointmentWorkflow::getState)
+                            .invoke()
+                    : null;
+            if (original == null)
+                throw HttpException.badRequest(e.getMessage());
+
+            // without a start time the retry got a time of its own, the original one stands for it
+            var requested = body.startTime == null && original.dateTime().toLocalDate().equals(date)
+                    ? original.dateTime()
+                    : dateTime;
+            if (!original.isSameRequest(requested, body.doctorId, body.patientId, body.issue, duration))
+                throw HttpException.error(StatusCodes.UNPROCESSABLE_ENTITY, "Idempotency-Key was already used for a different appointment");
         }
 
         return new CreateAppointmentResponse(appointmentId);
     }
 
+    /** Deterministic appointment (and workflow) id for a client supplied idempotency key. */
+    static String idempotentAppointmentId(String patientId, String idempotencyKey) {
+        var name = "appointment:" + patientId + ":" + idempotencyKey;
+        return UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
     public record RescheduleAppointmentRequest(String doctorId, String date, String startTime) {
     }
     public record RescheduleAppointmentResponse(String id) {}
@@ -107,6 +166,8 @@ public class AppointmentEndpoint extends AbstractHttpEndpoint {
                 .forEventSourcedEntity(id)
                 .method(AppointmentEntity::addNotes)
                 .invoke(body.notes());
+
+        validators.invalidate(validatorKey(id));
     }
 
 
@@ -119,6 +180,8 @@ public class AppointmentEndpoint extends AbstractHttpEndpoint {
                 .forEventSourcedEntity(id)
                 .method(AppointmentEntity::addPrescription)
                 .invoke(body.prescription());
+
+        validators.invalidate(validatorKey(id));
     }
 
     @Put("{id}/complete")
@@ -127,6 +190,7 @@ public class AppointmentEndpoint extends AbstractHttpEndpoint {
                 .forEventSourcedEntity(id)
                 .method(AppointmentEntity::complete)
                 .invoke();
+        validators.invalidate(validatorKey(id));
     }
 
     @Put("{id}/cancel")
@@ -155,6 +219,8 @@ public class AppointmentEndpoint extends AbstractHttpEndpoint {
                         dateTime,
                         doctorId
                 ));
+        // no invalidate: the workflow cancels the appointment after this returns, dropping the ETag now would let a
+        // read in between cache the old one again; the change shows up once the cached ETag expires
     }
 
     @Put("{id}/missed")
@@ -163,23 +229,113 @@ public class AppointmentEndpoint extends AbstractHttpEndpoint {
                 .forEventSourcedEntity(id)
                 .method(AppointmentEntity::markAsMissed)
                 .invoke();
+        validators.invalidate(validatorKey(id));
     }
 
-    @Get("{id}")
-    public Appointment getAppointment(String id) {
+    /**
+     * PUT /appointments/missed-sweeps/{date}
+     * Marks the day's appointments that are still scheduled as missed, like the nightly sweep does; a day is swept once.
+     */
+    @Put("missed-sweeps/{date}")
+    public void sweepMissed(String date) {
+        var day = parseDate(date);
+        if (!day.isBefore(LocalDate.now())) {
+            throw HttpException.badRequest("Only past days can be swept");
+        }
+        componentClient
+                .forWorkflow(day.toString())
+                .method(MissedAppointmentSweepWorkflow::sweep)
+                .invoke(day);
+    }
+
+    /** GET /appointments/missed-sweeps/{date} - progress of a day's sweep */
+    @Get("missed-sweeps/{date}")
+    public MissedSweepState getMissedSweep(String date) {
+        return componentClient
+                .forWorkflow(parseDate(date).toString())
+                .method(MissedAppointmentSweepWorkflow::getState)
+                .invoke();
+    }
+
+    /**
+     * PUT /appointments/reminders/{date}
+     * Sends the reminders for the date's scheduled appointments, like the evening run does; a date is reminded once.
+     */
+    @Put("reminders/{date}")
+    public void sendReminders(String date) {
+        var day = parseDate(date);
+        if (day.isBefore(LocalDate.now())) {
+            throw HttpException.badRequest("Cannot remind of past appointments");
+        }
+        componentClient
+                .forWorkflow(day.toString())
+                .method(AppointmentReminderWorkflow::remind)
+                .invoke(day);
+    }
+
+    /** GET /appointments/reminders/{date} - progress of a date's reminders */
+    @Get("reminders/{date}")
+    public ReminderRunState getReminders(String date) {
         return componentClient
+                .forWorkflow(parseDate(date).toString())
+                .method(AppointmentReminderWorkflow::getState)
+                .invoke();
+    }
+
+    /**
+     * GET /appointments/{id}
+     * Answers with an ETag; a request whose If-None-Match still matches gets 304 Not Modified, without a body. The
+     * ETag of the last response is kept for a short while, so a poll that matches it doesn't reach the entity.
+     */
+    @Get("{id}")
+    public HttpResponse getAppointment(String id) {
+        var ifNoneMatch = requestContext().requestHeader(ETags.IF_NONE_MATCH).map(HttpHeader::value);
+        var key = validatorKey(id);
+        var known = validators.get(key);
+        if (known.isPresent() && ETags.matches(ifNoneMatch, known.get()))
+            return ETags.notModified(known.get());
+
+        var versioned = componentClient
                 .forEventSourcedEntity(id)
-                .method(AppointmentEntity::getAppointment)
+                .method(AppointmentEntity::getVersionedAppointment)
                 .invoke()
                 .orElseThrow(HttpException::notFound);
+        var etag = ETags.ofVersion(versioned.version());
+        validators.put(key, etag);
+        if (ETags.matches(ifNoneMatch, etag))
+            return ETags.notModified(etag);
+        return ETags.ok(versioned.appointment(), etag);
+    }
+
+    private static String validatorKey(String appointmentId) {
+        return "appointment:" + appointmentId;
     }
+
+    /**
+     * GET /appointments/{doctorId}/{date}?status=SCHEDULED&priority=false
+     * 'status' defaults to all statuses, 'priority' filters on whether the appointment was triaged.
+     */
     @Get("{doctorId}/{date}")
     public List<AppointmentsByPatientView.AppointmentRow> findByDoctorAndDate(String doctorId, String date) {
-        var query = new AppointmentsByPatientView.FindApptDoctorDate(doctorId, date);
-        return componentClient
-                .forView()
-                .method(AppointmentsByPatientView::findByDoctorAndDate)
-                .invoke(query)
-                .appointments();
+        var qp = requestContext().queryParams();
+        var statuses = qp.getString("status").map(Validation::parseStatuses);
+        var hasPriority = qp.getString("priority").map(Boolean::parseBoolean);
+        if (statuses.isEmpty() && hasPriority.isEmpty()) {
+            var query = new AppointmentsByPatientView.FindApptDoctorDate(doctorId, date);
+            return componentClient
+                    .forView()
+                    .method(AppointmentsByPatientView::findByDoctorAndDate)
+                    .invoke(query)
+                    .appointments();
+        }
+
+        var query = new AppointmentsByPatientView.FindApptDoctorDateStatus(doctorId, date,
+                statuses.orElse(List.of(Appointment.Status.values())));
+        var view = componentClient.forView();
+        var rows = hasPriority.map(priority -> priority
+                ? view.method(AppointmentsByPatientView::findWithPriority).invoke(query)
+                : view.method(AppointmentsByPatientView::findWithoutPriority).invoke(query)
+        ).orElseGet(() -> view.method(AppointmentsByPatientView::findByDoctorDateAndStatus).invoke(query));
+        return rows.appointments();
     }
 }
\ No newline at end of file
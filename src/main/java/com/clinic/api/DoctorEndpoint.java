@@ -1,28 +1,64 @@
 package com.clinic.api;
 
+import akka.http.javadsl.model.HttpHeader;
+import akka.http.javadsl.model.HttpResponse;
 import akka.javasdk.annotations.Acl;
 import akka.javasdk.annotations.http.Get;
 import akka.javasdk.annotations.http.HttpEndpoint;
 import akka.javasdk.annotations.http.Post;
+import akka.javasdk.annotations.http.Put;
 import akka.javasdk.client.ComponentClient;
 import akka.javasdk.http.AbstractHttpEndpoint;
 import akka.javasdk.http.HttpException;
+import akka.javasdk.http.HttpResponses;
+import com.clinic.api.common.ETags;
+import com.clinic.api.common.Validation;
+import com.clinic.api.common.ValidatorCache;
+import com.clinic.application.DoctorDirectory;
 import com.clinic.application.DoctorEntity;
-import com.clinic.application.DoctorsView;
+import com.clinic.application.OccupancyView;
+import com.clinic.application.ScheduleEntity;
 import com.clinic.application.SchedulesByDoctorView;
+import com.clinic.application.WeeklyTemplateEntity;
+import com.clinic.domain.AppointmentTypes;
 import com.clinic.domain.Doctor;
+import com.clinic.domain.Schedule;
+import com.clinic.domain.WeeklyTemplate;
 
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @HttpEndpoint("doctors")
 @Acl(allow = @Acl.Matcher(principal = Acl.Principal.INTERNET))
 public class DoctorEndpoint extends AbstractHttpEndpoint {
 
+    private static final int DEFAULT_RANGE_DAYS = 30;
+    private static final int MAX_RANGE_DAYS = 366;
+    private static final int DEFAULT_SUGGESTIONS = 5;
+    private static final int MAX_SUGGESTIONS = 20;
+
     private ComponentClient componentClient;
+    private final ValidatorCache validators;
+    private final DoctorDirectory doctorDirectory;
+    private final AppointmentTypes appointmentTypes;
 
-    public DoctorEndpoint(ComponentClient componentClient) {
+    public DoctorEndpoint(ComponentClient componentClient, ValidatorCache validators, DoctorDirectory doctorDirectory,
+                          AppointmentTypes appointmentTypes) {
         this.componentClient = componentClient;
+        this.validators = validators;
+        this.doctorDirectory = doctorDirectory;
+        this.appointmentTypes = appointmentTypes;
     }
 
     public record CreateDoctorRequest(
@@ -43,6 +79,8 @@ public class DoctorEndpoint extends AbstractHttpEndpoint {
         componentClient.forKeyValueEntity(id)
                 .method(DoctorEntity::create)
                 .invoke(doctor);
+        validators.invalidate(validatorKey(id));
+        doctorDirectory.invalidate();
     }
 
     public record DoctorSummary(String id, String name, List<String> specialities) {
@@ -52,17 +90,19 @@ public class DoctorEndpoint extends AbstractHttpEndpoint {
     public List<DoctorSummary> getDoctors() {
         Optional<String> optionalSpeciality = requestContext().queryParams().getString("speciality");
 
-        var doctors = optionalSpeciality.map(speciality ->
-                componentClient.forView().method(DoctorsView::findBySpeciality).invoke(speciality)
-        ).orElseGet(() ->
-                componentClient.forView().method(DoctorsView::getDoctors).invoke()
-        );
+        var doctors = optionalSpeciality.map(doctorDirectory::bySpeciality).orElseGet(doctorDirectory::all);
 
-        return doctors.doctors()
+        return doctors
                 .stream().map(doctor -> new DoctorSummary(doctor.id(), doctor.firstName() + " " + doctor.lastName(), doctor.specialities()))
                 .toList();
     }
 
+    /** GET /doctors/cache/metrics - hit rates of the cached roster and speciality lists */
+    @Get("cache/metrics")
+    public DoctorDirectory.Metrics getCacheMetrics() {
+        return doctorDirectory.metrics();
+    }
+
     public record DoctorDetails(
             String id,
             String firstName,
@@ -73,20 +113,203 @@ public class DoctorEndpoint extends AbstractHttpEndpoint {
     ) {
     }
 
+    /**
+     * GET /doctors/{id}
+     * Answers with an ETag of the details; a request whose If-None-Match still matches gets 304 Not Modified.
+     */
     @Get("{id}")
-    public DoctorDetails getDoctor(String id) {
+    public HttpResponse getDoctor(String id) {
+        var ifNoneMatch = requestContext().requestHeader(ETags.IF_NONE_MATCH).map(HttpHeader::value);
+        var key = validatorKey(id);
+        var known = validators.get(key);
+        if (known.isPresent() && ETags.matches(ifNoneMatch, known.get()))
+            return ETags.notModified(known.get());
+
         var optionalDoctor = componentClient
                 .forKeyValueEntity(id)
                 .method(DoctorEntity::getDoctor)
                 .invoke();
-        return optionalDoctor.map(doctor ->
+        var details = optionalDoctor.map(doctor ->
                 new DoctorDetails(id, doctor.firstName(), doctor.lastName(), doctor.specialities(), doctor.description(), doctor.contact().map(c -> new Contact(c.phone(), c.email())))
         ).orElseThrow(HttpException::notFound);
+        // key value entities have no version, the details are hashed instead
+        var etag = ETags.ofBody(details);
+        validators.put(key, etag);
+        if (ETags.matches(ifNoneMatch, etag))
+            return ETags.notModified(etag);
+        return ETags.ok(details, etag);
     }
 
+    private static String validatorKey(String doctorId) {
+        return "doctor:" + doctorId;
+    }
+
+    /**
+     * GET /doctors/{doctorId}/schedules?from=YYYY-MM-DD&to=YYYY-MM-DD&slots=true
+     * Both bounds are inclusive. 'from' defaults to today and 'to' to 'from' + 30 days.
+     * Without slots=true only (doctorId, date) summaries are returned.
+     * Days without a stored schedule are answered from the doctor's weekly template, as active days without slots.
+     */
     @Get("{doctorId}/schedules")
-    public List<SchedulesByDoctorView.ScheduleSummary> getSchedulesByDoctor(String doctorId) {
-        return componentClient.forView().method(SchedulesByDoctorView::getSummaries).invoke(new SchedulesByDoctorView.FindScheduleSummary(doctorId, "2025-10-20", "2025-10-30")).schedules();
+    public HttpResponse getSchedulesByDoctor(String doctorId) {
+        var qp = requestContext().queryParams();
+        var from = qp.getString("from").map(Validation::parseDate).orElse(LocalDate.now());
+        var to = qp.getString("to").map(Validation::parseDate).orElse(from.plusDays(DEFAULT_RANGE_DAYS));
+        Validation.validateRange(from, to, MAX_RANGE_DAYS);
+        var includeSlots = qp.getString("slots").map(Boolean::parseBoolean).orElse(false);
+        var template = componentClient.forKeyValueEntity(doctorId).method(WeeklyTemplateEntity::getTemplate).invoke();
+
+        if (includeSlots) {
+            var query = new SchedulesByDoctorView.FindSchedules(doctorId, SchedulesByDoctorView.dayOf(from), SchedulesByDoctorView.dayOf(to));
+            var schedules = componentClient.forView().method(SchedulesByDoctorView::getSchedulesInRange).invoke(query).schedules();
+            var fromTemplate = templateDays(template, from, to, schedules.stream().map(SchedulesByDoctorView.ScheduleRow::date).toList())
+                    .map(date -> new SchedulesByDoctorView.ScheduleRow(doctorId, date.toString(), SchedulesByDoctorView.dayOf(date), Schedule.Status.ACTIVE, List.of()));
+            return HttpResponses.ok(Stream.concat(schedules.stream(), fromTemplate)
+                    .sorted(Comparator.comparing(SchedulesByDoctorView.ScheduleRow::date))
+                    .toList());
+        }
+        var query = new SchedulesByDoctorView.FindScheduleSummary(doctorId, from, to);
+        var summaries = componentClient.forView().method(SchedulesByDoctorView::getSummaries).invoke(query).schedules();
+        var fromTemplate = templateDays(template, from, to, summaries.stream().map(SchedulesByDoctorView.ScheduleSummary::date).toList())
+                .map(date -> new SchedulesByDoctorView.ScheduleSummary(doctorId, date.toString()));
+        return HttpResponses.ok(Stream.concat(summaries.stream(), fromTemplate)
+                .sorted(Comparator.comparing(SchedulesByDoctorView.ScheduleSummary::date))
+                .toList());
+    }
+
+    /** Working days of the template in the range that have no stored schedule. */
+    private static Stream<LocalDate> templateDays(Optional<WeeklyTemplate> template, LocalDate from, LocalDate to, List<String> storedDates) {
+        if (template.isEmpty())
+            return Stream.empty();
+        var stored = new HashSet<>(storedDates);
+        return from.datesUntil(to.plusDays(1))
+                .filter(date -> !stored.contains(date.toString()))
+                .filter(date -> template.get().workingHoursOn(date).isPresent());
+    }
+
+    public record SlotSuggestion(String startTime, String endTime) {
+    }
+
+    /**
+     * GET /doctors/{doctorId}/slot-suggestions?date=YYYY-MM-DD&type=consult&limit=5
+     * Free start times for an appointment of the type on the date, best fit first: the ones that fill a gap between
+     * appointments most closely, so the long free stretches stay bookable. 'type' defaults to the default appointment
+     * type and 'limit' to 5.
+     */
+    @Get("{doctorId}/slot-suggestions")
+    public List<SlotSuggestion> getSlotSuggestions(String doctorId) {
+        var qp = requestContext().queryParams();
+        var date = qp.getString("date").map(Validation::parseDate)
+                .orElseThrow(() -> HttpException.badRequest("Missing 'date' query param (YYYY-MM-DD)"));
+        if (date.isBefore(LocalDate.now()))
+            throw HttpException.badRequest("Cannot suggest times for past dates");
+        var duration = durationOf(appointmentTypes, qp.getString("type"));
+        var limit = qp.getString("limit").map(DoctorEndpoint::parseLimit).orElse(DEFAULT_SUGGESTIONS);
+
+        return suggestStarts(componentClient, doctorId, date, duration, limit).stream()
+                .map(start -> new SlotSuggestion(start.toString(), start.plus(duration).toString()))
+                .toList();
+    }
+
+    /** Suggested start times, best fit first; for today only the ones from the next whole minute on. */
+    static List<LocalTime> suggestStarts(ComponentClient componentClient, String doctorId, LocalDate date,
+                                         Duration duration, int limit) {
+        var now = LocalDateTime.now();
+        var notBefore = LocalTime.MIN;
+        if (date.equals(now.toLocalDate())) {
+            notBefore = now.toLocalTime().truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+            if (notBefore.isBefore(now.toLocalTime()))
+                // the last minute of the day, nothing is left of it
+                return List.of();
+        }
+        var templateHours = componentClient.forKeyValueEntity(doctorId)
+                .method(WeeklyTemplateEntity::getWorkingHours)
+                .invoke(date);
+        return componentClient.forKeyValueEntity(new Schedule.ScheduleId(doctorId, date).toString())
+                .method(ScheduleEntity::suggestStarts)
+                .invoke(new ScheduleEntity.SuggestStartsData(duration, limit, templateHours, notBefore));
+    }
+
+    static Duration durationOf(AppointmentTypes appointmentTypes, Optional<String> type) {
+        try {
+            return appointmentTypes.durationOf(type);
+        } catch (IllegalArgumentException e) {
+            throw HttpException.badRequest(e.getMessage());
+        }
+    }
+
+    private static int parseLimit(String limit) {
+        try {
+            var parsed = Integer.parseInt(limit);
+            if (parsed < 1 || parsed > MAX_SUGGESTIONS)
+                throw HttpException.badRequest("'limit' must be between 1 and " + MAX_SUGGESTIONS);
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw HttpException.badRequest("Invalid limit: " + limit);
+        }
+    }
+
+    public record WeeklyTemplateRequest(Map<DayOfWeek, ScheduleEndpoint.WorkingHours> weekdays) {
+    }
+
+    /**
+     * PUT /doctors/{doctorId}/template
+     * Regular working hours per weekday, e.g. {"weekdays": {"MONDAY": {"startTime": "09:00", "endTime": "17:00"}}}.
+     * Days following the template don't need a schedule of their own; it is created on the first booking.
+     */
+    @Put("{doctorId}/template")
+    public void updateTemplate(String doctorId, WeeklyTemplateRequest body) {
+        var weekdays = new EnumMap<DayOfWeek, Schedule.WorkingHours>(DayOfWeek.class);
+        body.weekdays().forEach((weekday, hours) -> weekdays.put(weekday, workingHours(hours)));
+        componentClient.forKeyValueEntity(doctorId)
+                .method(WeeklyTemplateEntity::updateWeekdays)
+                .invoke(weekdays);
+    }
+
+    public record TemplateExceptionRequest(Optional<ScheduleEndpoint.WorkingHours> workingHours) {
+    }
+
+    /**
+     * PUT /doctors/{doctorId}/template/exceptions/{day}
+     * Overrides the template for a single date; without working hours in the body the doctor is off that day.
+     */
+    @Put("{doctorId}/template/exceptions/{day}")
+    public void addTemplateException(String doctorId, String day, TemplateExceptionRequest body) {
+        var exception = new WeeklyTemplate.DayException(Validation.parseDate(day), body.workingHours().map(DoctorEndpoint::workingHours));
+        componentClient.forKeyValueEntity(doctorId)
+                .method(WeeklyTemplateEntity::addException)
+                .invoke(exception);
+    }
+
+    @Get("{doctorId}/template")
+    public WeeklyTemplate getTemplate(String doctorId) {
+        return componentClient.forKeyValueEntity(doctorId)
+                .method(WeeklyTemplateEntity::getTemplate)
+                .invoke()
+                .orElseThrow(HttpException::notFound);
+    }
+
+    private static Schedule.WorkingHours workingHours(ScheduleEndpoint.WorkingHours hours) {
+        try {
+            return new Schedule.WorkingHours(Validation.parseTime(hours.startTime()), Validation.parseTime(hours.endTime()));
+        } catch (IllegalArgumentException e) {
+            throw HttpException.badRequest(e.getMessage());
+        }
+    }
+
+    /**
+     * GET /doctors/{doctorId}/occupancy?from=YYYY-MM-DD&to=YYYY-MM-DD
+     * Per-day booked/free minutes and utilization, with the same inclusive bounds and defaults as the schedules.
+     */
+    @Get("{doctorId}/occupancy")
+    public List<OccupancyView.OccupancyRow> getOccupancy(String doctorId) {
+        var qp = requestContext().queryParams();
+        var from = qp.getString("from").map(Validation::parseDate).orElse(LocalDate.now());
+        var to = qp.getString("to").map(Validation::parseDate).orElse(from.plusDays(DEFAULT_RANGE_DAYS));
+        Validation.validateRange(from, to, MAX_RANGE_DAYS);
+
+        var query = new OccupancyView.FindDoctorOccupancy(doctorId, SchedulesByDoctorView.dayOf(from), SchedulesByDoctorView.dayOf(to));
+        return componentClient.forView().method(OccupancyView::getDoctorOccupancy).invoke(query).days();
     }
 
 }
\ No newline at end of file
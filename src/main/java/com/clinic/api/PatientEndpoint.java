@@ -5,6 +5,7 @@ import akka.javasdk.annotations.http.Get;
 import akka.javasdk.annotations.http.HttpEndpoint;
 import akka.javasdk.client.ComponentClient;
 import akka.javasdk.http.AbstractHttpEndpoint;
+import com.clinic.api.common.Validation;
 import com.clinic.application.AppointmentsByPatientView;
 
 import java.util.List;
@@ -19,8 +20,20 @@ public class PatientEndpoint extends AbstractHttpEndpoint {
         this.componentClient = componentClient;
     }
 
+    /**
+     * GET /patients/{patientId}/appointments?status=SCHEDULED,PENDING
+     * The optional status filter is applied by the view.
+     */
     @Get("{patientId}/appointments")
     public List<AppointmentsByPatientView.AppointmentRow> findAppointments(String patientId) {
+        var statuses = requestContext().queryParams().getString("status").map(Validation::parseStatuses);
+        if (statuses.isPresent()) {
+            return componentClient
+                    .forView()
+                    .method(AppointmentsByPatientView::findByPatientAndStatus)
+                    .invoke(new AppointmentsByPatientView.FindApptPatientStatus(patientId, statuses.get()))
+                    .appointments();
+        }
         return componentClient
                 .forView()
                 .method(AppointmentsByPatientView::findByPatient)
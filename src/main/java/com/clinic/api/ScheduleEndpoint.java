@@ -8,30 +8,40 @@ import akka.javasdk.annotations.http.Put;
 import akka.javasdk.client.ComponentClient;
 import akka.javasdk.http.AbstractHttpEndpoint;
 import akka.javasdk.http.HttpException;
+import com.clinic.api.common.Validation;
 import com.clinic.application.*;
+import com.clinic.domain.DoctorAbsenceState;
+import com.clinic.domain.Occupancy;
 import com.clinic.domain.Schedule;
 import com.clinic.application.AppointmentsByPatientView;
 
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
 import java.util.List;
 
 import static com.clinic.api.common.Validation.parseDate;
 import static com.clinic.api.common.Validation.parseTime;
+import static com.clinic.api.common.Validation.validateRange;
 
 @HttpEndpoint("schedules")
 @Acl(allow = @Acl.Matcher(principal = Acl.Principal.INTERNET))
 public class ScheduleEndpoint extends AbstractHttpEndpoint {
 
     private ComponentClient componentClient;
+    private final DoctorDirectory doctorDirectory;
 
-    public ScheduleEndpoint(ComponentClient componentClient) {
+    public ScheduleEndpoint(ComponentClient componentClient, DoctorDirectory doctorDirectory) {
         this.componentClient = componentClient;
+        this.doctorDirectory = doctorDirectory;
     }
 
     public static final String DOCTOR_ID_HEADER = "doctorId";
+    private static final int MAX_RANGE_DAYS = 366;
+    private static final int MAX_ABSENCE_DAYS = 31;
 
     public record WorkingHours(String startTime, String endTime) {
     }
@@ -77,22 +87,49 @@ public class ScheduleEndpoint extends AbstractHttpEndpoint {
                 .invoke(new CancelScheduleWorkflow.CancelScheduleCommand(dateTime, doctorId));
     }
 
+    /**
+     * PUT /schedules/{doctorId}/absence/{from}/{to}
+     * Cancels every day of an absence (both dates inclusive) in one workflow, see {@link DoctorAbsenceWorkflow}.
+     */
+    @Put("{doctorId}/absence/{from}/{to}")
+    public void cancelAbsence(String doctorId, String from, String to) {
+        var fromDate = parseDate(from);
+        var toDate = parseDate(to);
+        validateRange(fromDate, toDate, MAX_ABSENCE_DAYS);
+        if (fromDate.isBefore(LocalDate.now())) {
+            throw HttpException.badRequest("Cannot cancel schedule for past dates");
+        }
+        componentClient
+                .forWorkflow(absenceId(doctorId, fromDate, toDate))
+                .method(DoctorAbsenceWorkflow::cancelAbsence)
+                .invoke(new DoctorAbsenceWorkflow.CancelAbsenceCommand(doctorId, fromDate, toDate));
+    }
+
+    /** GET /schedules/{doctorId}/absence/{from}/{to} - progress of each day of the absence */
+    @Get("{doctorId}/absence/{from}/{to}")
+    public DoctorAbsenceState getAbsence(String doctorId, String from, String to) {
+        return componentClient
+                .forWorkflow(absenceId(doctorId, parseDate(from), parseDate(to)))
+                .method(DoctorAbsenceWorkflow::getState)
+                .invoke();
+    }
+
+    private static String absenceId(String doctorId, LocalDate from, LocalDate to) {
+        return doctorId + ":" + from + ":" + to;
+    }
+
     @Get("by-speciality/{speciality}")
     public List<SchedulesByDoctorView.ScheduleRow> getSchedulesBySpeciality(String speciality) {
         // 1) Get doctors for the speciality
-        var doctors = componentClient
-                .forView() // DoctorsView @Component(id="doctors")
-                .method(DoctorsView::findBySpeciality)
-                .invoke(speciality)
-                .doctors();
+        var doctorIds = doctorDirectory.idsBySpeciality(speciality);
 
         // 2) For each doctor, fetch schedules and flatten
-        return doctors.stream()
-                .flatMap(doc ->
+        return doctorIds.stream()
+                .flatMap(doctorId ->
                         componentClient
                                 .forView() // SchedulesByDoctorView @Component(id="schedules-by-doctor")
                                 .method(SchedulesByDoctorView::getSchedules)
-                                .invoke(doc.id())
+                                .invoke(doctorId)
                                 .schedules()
                                 .stream()
                 )
@@ -102,7 +139,7 @@ public class ScheduleEndpoint extends AbstractHttpEndpoint {
     /**
      * GET /schedules/by-speciality/{speciality}/summaries?from=YYYY-MM-DD&to=YYYY-MM-DD
      * Returns (doctorId, date) summaries for all doctors with the speciality within the date range.
-     * NOTE: The underlying view uses exclusive bounds (> from, < to).
+     * Both bounds are inclusive.
      */
     @Get("by-speciality/{speciality}/summaries")
     public List<SchedulesByDoctorView.ScheduleSummary> getSchedulesBySpecialitySummaries(String speciality) {
@@ -114,23 +151,15 @@ public class ScheduleEndpoint extends AbstractHttpEndpoint {
 
         var from = parseDate(fromStr);
         var to = parseDate(toStr);
-        if (!from.isBefore(to)) {
-            throw HttpException.badRequest("'from' must be before 'to'");
-        }
+        validateRange(from, to, MAX_RANGE_DAYS);
 
         // 1) Get doctors for the speciality
-        var doctors = componentClient
-                .forView()
-                .method(DoctorsView::findBySpeciality)
-                .invoke(speciality)
-                .doctors();
+        var doctorIds = doctorDirectory.idsBySpeciality(speciality);
 
         // 2) Query summaries for each doctor and flatten
-        return doctors.stream()
-                .flatMap(doc -> {
-                    var query = new SchedulesByDoctorView.FindScheduleSummary(
-                            doc.id(), from.toString(), to.toString()
-                    );
+        return doctorIds.stream()
+                .flatMap(doctorId -> {
+                    var query = new SchedulesByDoctorView.FindScheduleSummary(doctorId, from, to);
                     return componentClient
                             .forView()
                             .method(SchedulesByDoctorView::getSummaries)
@@ -141,4 +170,38 @@ public class ScheduleEndpoint extends AbstractHttpEndpoint {
                 .toList();
     }
 
+    public record SpecialityWeekOccupancy(String speciality, String weekStart, int doctors, int days,
+                                          long workingMinutes, long bookedMinutes, long freeMinutes, int slotCount,
+                                          double utilization) {
+    }
+
+    /**
+     * GET /schedules/by-speciality/{speciality}/occupancy?week=YYYY-MM-DD
+     * Sums the precomputed doctor-day occupancy of the week containing 'week' (defaults to the current week).
+     */
+    @Get("by-speciality/{speciality}/occupancy")
+    public SpecialityWeekOccupancy getSpecialityOccupancy(String speciality) {
+        var week = requestContext().queryParams().getString("week")
+                .map(Validation::parseDate)
+                .orElse(LocalDate.now());
+        var weekStart = week.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+
+        var doctorIds = doctorDirectory.idsBySpeciality(speciality);
+        if (doctorIds.isEmpty()) {
+            return new SpecialityWeekOccupancy(speciality, weekStart.toString(), 0, 0, 0, 0, 0, 0, 0);
+        }
+
+        var days = componentClient
+                .forView()
+                .method(OccupancyView::getWeekOccupancy)
+                .invoke(new OccupancyView.FindWeekOccupancy(doctorIds, SchedulesByDoctorView.dayOf(weekStart)))
+                .days();
+        var total = days.stream()
+                .map(OccupancyView.OccupancyRow::occupancy)
+                .reduce(Occupancy.EMPTY, Occupancy::plus);
+
+        return new SpecialityWeekOccupancy(speciality, weekStart.toString(), doctorIds.size(), days.size(),
+                total.workingMinutes(), total.bookedMinutes(), total.freeMinutes(), total.slotCount(), total.utilization());
+    }
+
 }
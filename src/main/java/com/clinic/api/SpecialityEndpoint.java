@@ -0,0 +1,30 @@
+package com.clinic.api;
+
+import akka.javasdk.annotations.Acl;
+import akka.javasdk.annotations.http.Get;
+import akka.javasdk.annotations.http.HttpEndpoint;
+import akka.javasdk.http.AbstractHttpEndpoint;
+import com.clinic.application.DoctorDirectory;
+
+import java.util.List;
+
+@HttpEndpoint("specialities")
+@Acl(allow = @Acl.Matcher(principal = Acl.Principal.INTERNET))
+public class SpecialityEndpoint extends AbstractHttpEndpoint {
+
+    private final DoctorDirectory doctorDirectory;
+
+    public SpecialityEndpoint(DoctorDirectory doctorDirectory) {
+        this.doctorDirectory = doctorDirectory;
+    }
+
+    /**
+     * GET /specialities
+     * The specialities practised, by normalized key, with the number of doctors; the key or any spelling of it can be
+     * used wherever a speciality is expected.
+     */
+    @Get
+    public List<DoctorDirectory.CatalogEntry> getCatalog() {
+        return doctorDirectory.catalog();
+    }
+}
@@ -0,0 +1,99 @@
+package com.clinic.api;
+
+import akka.javasdk.annotations.Acl;
+import akka.javasdk.annotations.http.Delete;
+import akka.javasdk.annotations.http.Get;
+import akka.javasdk.annotations.http.HttpEndpoint;
+import akka.javasdk.annotations.http.Post;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.http.AbstractHttpEndpoint;
+import akka.javasdk.http.HttpException;
+import com.clinic.application.DoctorDirectory;
+import com.clinic.application.WaitlistEntity;
+import com.clinic.application.ai.TriageService;
+import com.clinic.domain.Waitlist;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static com.clinic.api.common.Validation.parseDate;
+import static com.clinic.api.common.Validation.validateRange;
+
+@HttpEndpoint("waitlist")
+@Acl(allow = @Acl.Matcher(principal = Acl.Principal.INTERNET))
+public class WaitlistEndpoint extends AbstractHttpEndpoint {
+
+    private static final int MAX_WINDOW_DAYS = 90;
+
+    private final ComponentClient componentClient;
+    private final TriageService triageService;
+    private final DoctorDirectory doctorDirectory;
+
+    public WaitlistEndpoint(ComponentClient componentClient, TriageService triageService, DoctorDirectory doctorDirectory) {
+        this.componentClient = componentClient;
+        this.triageService = triageService;
+        this.doctorDirectory = doctorDirectory;
+    }
+
+    /**
+     * Either doctorId or speciality; with a speciality the patient waits with every doctor of it.
+     * Both dates are inclusive.
+     */
+    public record RegisterRequest(String patientId, String issue, Optional<String> doctorId,
+                                  Optional<String> speciality, String from, String to) {
+    }
+
+    public record RegisterResponse(String id, List<String> doctorIds) {
+    }
+
+    /**
+     * POST /waitlist
+     * The patient is booked automatically into the first freed slot in the window they are the best candidate for.
+     */
+    @Post
+    public RegisterResponse register(RegisterRequest body) {
+        var from = parseDate(body.from());
+        var to = parseDate(body.to());
+        validateRange(from, to, MAX_WINDOW_DAYS);
+        if (to.isBefore(LocalDate.now()))
+            throw HttpException.badRequest("The window must not end in the past");
+
+        var doctorIds = body.doctorId().map(List::of)
+                .or(() -> body.speciality().map(doctorDirectory::idsBySpeciality))
+                .orElseThrow(() -> HttpException.badRequest("Either doctorId or speciality is required"));
+        if (doctorIds.isEmpty())
+            throw HttpException.badRequest("No doctors found for speciality " + body.speciality().orElse(""));
+
+        var id = UUID.randomUUID().toString();
+        var urgency = triageService.urgency(id, body.issue()).toCompletableFuture().join();
+        var entry = new Waitlist.Entry(id, body.patientId(), body.issue(), from, to, urgency, Instant.now(), doctorIds);
+        for (var doctorId : doctorIds)
+            componentClient
+                    .forKeyValueEntity(doctorId)
+                    .method(WaitlistEntity::register)
+                    .invoke(entry);
+        return new RegisterResponse(id, doctorIds);
+    }
+
+    @Get("{doctorId}")
+    public Waitlist getWaitlist(String doctorId) {
+        return componentClient
+                .forKeyValueEntity(doctorId)
+                .method(WaitlistEntity::getWaitlist)
+                .invoke();
+    }
+
+    /** DELETE /waitlist/{doctorId}/{entryId} - also removes the entry from the other doctors it was registered with */
+    @Delete("{doctorId}/{entryId}")
+    public void remove(String doctorId, String entryId) {
+        var entry = getWaitlist(doctorId).find(entryId).orElseThrow(HttpException::notFound);
+        for (var entryDoctorId : entry.doctorIds())
+            componentClient
+                    .forKeyValueEntity(entryDoctorId)
+                    .method(WaitlistEntity::remove)
+                    .invoke(entryId);
+    }
+}
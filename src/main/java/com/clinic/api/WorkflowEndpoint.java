@@ -0,0 +1,111 @@
+package com.clinic.api;
+
+import akka.NotUsed;
+import akka.http.javadsl.model.HttpResponse;
+import akka.http.javadsl.model.StatusCodes;
+import akka.javasdk.annotations.Acl;
+import akka.javasdk.annotations.http.Get;
+import akka.javasdk.annotations.http.HttpEndpoint;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.http.AbstractHttpEndpoint;
+import akka.javasdk.http.HttpException;
+import akka.javasdk.http.HttpResponses;
+import akka.stream.Materializer;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import com.clinic.application.WorkflowStatusView;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Status of the booking workflows, pushed from {@link WorkflowStatusView}.
+ * Workflow types: schedule-appointment, cancel-appointment, cancel-schedule and reschedule-appointment.
+ */
+@HttpEndpoint("workflows")
+@Acl(allow = @Acl.Matcher(principal = Acl.Principal.INTERNET))
+public class WorkflowEndpoint extends AbstractHttpEndpoint {
+    private static final int DEFAULT_WAIT_SECONDS = 20;
+    private static final int MAX_WAIT_SECONDS = 60;
+    /** longest a status stream stays open */
+    private static final Duration STREAM_TIMEOUT = Duration.ofMinutes(5);
+
+    private final ComponentClient componentClient;
+    private final Materializer materializer;
+
+    public WorkflowEndpoint(ComponentClient componentClient, Materializer materializer) {
+        this.componentClient = componentClient;
+        this.materializer = materializer;
+    }
+
+    /**
+     * GET /workflows/{type}/{id}/status?wait=20
+     * Long-poll: answers as soon as the workflow reaches a terminal status, or with the latest status after
+     * 'wait' seconds. 'wait=0' reads the current status without waiting.
+     */
+    @Get("{type}/{id}/status")
+    public CompletionStage<WorkflowStatusView.WorkflowStatus> status(String type, String id) {
+        var waitSeconds = requestContext().queryParams().getString("wait")
+                .map(wait -> {
+                    try {
+                        return Integer.parseInt(wait);
+                    } catch (NumberFormatException e) {
+                        throw HttpException.badRequest("Invalid 'wait', expected seconds");
+                    }
+                })
+                .orElse(DEFAULT_WAIT_SECONDS);
+        if (waitSeconds < 0 || waitSeconds > MAX_WAIT_SECONDS)
+            throw HttpException.badRequest("'wait' must be between 0 and " + MAX_WAIT_SECONDS + " seconds");
+
+        if (waitSeconds == 0)
+            return currentStatus(type, id)
+                    .thenApply(statuses -> statuses.statuses().stream()
+                            .findFirst()
+                            .orElseThrow(() -> notFound(type, id)));
+
+        return statusUpdates(type, id)
+                .takeWhile(status -> !status.terminal(), true)
+                .takeWithin(Duration.ofSeconds(waitSeconds))
+                .runWith(Sink.lastOption(), materializer)
+                .thenApply(last -> last.orElseThrow(() -> notFound(type, id)));
+    }
+
+    /**
+     * GET /workflows/{type}/{id}/status/stream
+     * Server-sent events with each status transition; the stream completes after a terminal status, or after
+     * {@link #STREAM_TIMEOUT} when the workflow doesn't finish, and the client reconnects to keep following it.
+     */
+    @Get("{type}/{id}/status/stream")
+    public HttpResponse statusStream(String type, String id) {
+        return HttpResponses.serverSentEvents(
+                statusUpdates(type, id)
+                        .takeWhile(status -> !status.terminal(), true)
+                        .takeWithin(STREAM_TIMEOUT));
+    }
+
+    private static HttpException notFound(String type, String id) {
+        return HttpException.error(StatusCodes.NOT_FOUND, "No " + type + " workflow with id " + id);
+    }
+
+    private CompletionStage<WorkflowStatusView.WorkflowStatuses> currentStatus(String type, String id) {
+        var view = componentClient.forView();
+        return switch (type) {
+            case "schedule-appointment" -> view.method(WorkflowStatusView::getScheduleAppointmentStatus).invokeAsync(id);
+            case "cancel-appointment" -> view.method(WorkflowStatusView::getCancelAppointmentStatus).invokeAsync(id);
+            case "cancel-schedule" -> view.method(WorkflowStatusView::getCancelScheduleStatus).invokeAsync(id);
+            case "reschedule-appointment" -> view.method(WorkflowStatusView::getRescheduleAppointmentStatus).invokeAsync(id);
+            default -> throw HttpException.badRequest("Unknown workflow type '" + type + "'");
+        };
+    }
+
+    private Source<WorkflowStatusView.WorkflowStatus, NotUsed> statusUpdates(String type, String id) {
+        var view = componentClient.forView();
+        return switch (type) {
+            case "schedule-appointment" -> view.stream(WorkflowStatusView::scheduleAppointmentUpdates).source(id);
+            case "cancel-appointment" -> view.stream(WorkflowStatusView::cancelAppointmentUpdates).source(id);
+            case "cancel-schedule" -> view.stream(WorkflowStatusView::cancelScheduleUpdates).source(id);
+            case "reschedule-appointment" -> view.stream(WorkflowStatusView::rescheduleAppointmentUpdates).source(id);
+            default -> throw HttpException.badRequest("Unknown workflow type '" + type + "'");
+        };
+    }
+}
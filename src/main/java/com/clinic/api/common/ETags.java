@@ -0,0 +1,59 @@
+package com.clinic.api.common;
+
+import akka.http.javadsl.model.HttpResponse;
+import akka.http.javadsl.model.StatusCodes;
+import akka.http.javadsl.model.headers.RawHeader;
+import akka.javasdk.JsonSupport;
+import akka.javasdk.http.HttpResponses;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/** Strong ETags and If-None-Match handling for conditional GETs. */
+public class ETags {
+
+    public static final String IF_NONE_MATCH = "If-None-Match";
+
+    /** An ETag from a version that changes with every write, e.g. an event sourced entity's sequence number. */
+    public static String ofVersion(long version) {
+        return "\"v" + version + "\"";
+    }
+
+    /** An ETag from the JSON the body is served as, for state without a version. */
+    public static String ofBody(Object body) {
+        try {
+            var json = JsonSupport.getObjectMapper().writeValueAsBytes(body);
+            var digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 12) + "\"";
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Cannot compute ETag", e);
+        }
+    }
+
+    /** True when the If-None-Match header lists the ETag, or is {@code *}. Weak validators compare like strong ones. */
+    public static boolean matches(Optional<String> ifNoneMatch, String etag) {
+        if (ifNoneMatch.isEmpty())
+            return false;
+        for (var candidate : ifNoneMatch.get().split(",")) {
+            var trimmed = candidate.trim();
+            if (trimmed.startsWith("W/"))
+                trimmed = trimmed.substring(2);
+            if (trimmed.equals("*") || trimmed.equals(etag))
+                return true;
+        }
+        return false;
+    }
+
+    public static HttpResponse notModified(String etag) {
+        return HttpResponse.create()
+                .withStatus(StatusCodes.NOT_MODIFIED)
+                .addHeader(RawHeader.create("ETag", etag));
+    }
+
+    public static HttpResponse ok(Object body, String etag) {
+        return HttpResponses.ok(body).addHeader(RawHeader.create("ETag", etag));
+    }
+}
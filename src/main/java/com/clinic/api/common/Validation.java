@@ -1,9 +1,13 @@
 package com.clinic.api.common;
 
 import akka.javasdk.http.HttpException;
+import com.clinic.domain.Appointment;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
 
 public class Validation {
     public static LocalDate parseDate(String day) {
@@ -21,4 +25,27 @@ public class Validation {
             throw HttpException.badRequest("Invalid time format");
         }
     }
-}
\ No newline at end of file
+
+    /** Checks an inclusive date range: 'from' must not be after 'to' and the range must span at most maxDays. */
+    public static void validateRange(LocalDate from, LocalDate to, int maxDays) {
+        if (to.isBefore(from)) {
+            throw HttpException.badRequest("'from' must not be after 'to'");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxDays) {
+            throw HttpException.badRequest("Date range must not exceed " + maxDays + " days");
+        }
+    }
+
+    /** Parses a comma separated list of appointment statuses, e.g. "scheduled,pending". */
+    public static List<Appointment.Status> parseStatuses(String statuses) {
+        try {
+            return Arrays.stream(statuses.split(","))
+                    .map(String::trim)
+                    .filter(status -> !status.isEmpty())
+                    .map(status -> Appointment.Status.valueOf(status.toUpperCase()))
+                    .toList();
+        } catch (IllegalArgumentException e) {
+            throw HttpException.badRequest("Invalid status, expected any of " + Arrays.toString(Appointment.Status.values()));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.clinic.api.common;
+
+import com.typesafe.config.Config;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The last ETag served per resource, so a conditional GET that matches can be answered with 304 without asking the
+ * entity. Entries live for {@code ttl}: changes made elsewhere, e.g. by workflows or on other nodes, show up at most
+ * that late. Writes an endpoint of this node makes itself drop their entry right away; those it hands to a workflow
+ * don't, the workflow writes later.
+ */
+public class ValidatorCache {
+
+    /**
+     * @param ttl        how long an ETag is trusted without asking the entity; zero turns the cache off
+     * @param maxEntries least recently used entries are dropped beyond this
+     */
+    public record Settings(Duration ttl, int maxEntries) {
+        public static Settings fromConfig(Config config) {
+            return new Settings(config.getDuration("ttl"), config.getInt("max-entries"));
+        }
+    }
+
+    private record Entry(String etag, long expiresAt) {}
+
+    private final long ttlNanos;
+    private final Map<String, Entry> entries;
+
+    public ValidatorCache(Settings settings) {
+        this.ttlNanos = settings.ttl().toNanos();
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > settings.maxEntries();
+            }
+        };
+    }
+
+    public synchronized Optional<String> get(String key) {
+        var entry = entries.get(key);
+        if (entry == null)
+            return Optional.empty();
+        if (entry.expiresAt() - System.nanoTime() <= 0) {
+            entries.remove(key);
+            return Optional.empty();
+        }
+        return Optional.of(entry.etag());
+    }
+
+    public synchronized void put(String key, String etag) {
+        if (ttlNanos > 0)
+            entries.put(key, new Entry(etag, System.nanoTime() + ttlNanos));
+    }
+
+    public synchronized void invalidate(String key) {
+        entries.remove(key);
+    }
+}
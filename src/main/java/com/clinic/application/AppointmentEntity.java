@@ -8,6 +8,7 @@ import akka.javasdk.eventsourcedentity.EventSourcedEntityContext;
 import com.clinic.domain.Appointment;
 import com.clinic.domain.AppointmentEvents;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -22,7 +23,10 @@ public class AppointmentEntity extends EventSourcedEntity<Appointment, Appointme
     }
     // Create appointment command
     public record CreateAppointmentCmd(LocalDateTime dateTime, String doctorId, String patientId,
-                                       String issue) {
+                                       String issue, Duration duration) {
+        public CreateAppointmentCmd(LocalDateTime dateTime, String doctorId, String patientId, String issue) {
+            this(dateTime, doctorId, patientId, issue, Appointment.DEFAULT_DURATION);
+        }
     }
     // We expect to return an effect Done from the command
     public Effect<Done> createAppointment(CreateAppointmentCmd cmd) {
@@ -32,7 +36,7 @@ public class AppointmentEntity extends EventSourcedEntity<Appointment, Appointme
         // In effects, we expect to persis the event, if no, return error
         // Here we have a lambda function
         return effects()
-                .persist(new AppointmentEvents.AppointmentCreated(commandContext().entityId(), cmd.dateTime(), cmd.doctorId(), cmd.patientId(), cmd.issue()))
+                .persist(new AppointmentEvents.AppointmentCreated(commandContext().entityId(), cmd.dateTime(), cmd.doctorId(), cmd.patientId(), cmd.issue(), cmd.duration()))
                 .thenReply(__ -> Done.getInstance());
     }
 
@@ -64,7 +68,7 @@ public class AppointmentEntity extends EventSourcedEntity<Appointment, Appointme
                 .persist(new AppointmentEvents.AddedPrescription(prescription))
                 .thenReply(__ -> Done.getInstance());
     }
-    public Effect<Done> addPriority(String priority) {
+    public Effect<Done> addPriority(Appointment.Urgency priority) {
         if (currentState() == null)
             return effects().error("Appointment doesn't exist");
         return effects()
@@ -116,13 +120,22 @@ public class AppointmentEntity extends EventSourcedEntity<Appointment, Appointme
         return effects().reply(Optional.ofNullable(currentState()));
     }
 
+    /** The appointment with the sequence number of its last event, which changes with every write. */
+    public record VersionedAppointment(Appointment appointment, long version) {
+    }
+
+    public Effect<Optional<VersionedAppointment>> getVersionedAppointment() {
+        return effects().reply(Optional.ofNullable(currentState())
+                .map(appointment -> new VersionedAppointment(appointment, commandContext().sequenceNumber())));
+    }
+
     // currentState() -> apply event -> return newState()
     @Override
     public Appointment applyEvent(AppointmentEvents event) {
         System.out.println("Applying event: " + event);
         switch (event) {
             case AppointmentEvents.AppointmentCreated e: // currentState() is null
-                return new Appointment(entityId, e.dateTime(), e.doctorId(), e.patientId(), e.issue());
+                return new Appointment(entityId, e.dateTime(), e.doctorId(), e.patientId(), e.issue(), e.duration());
             case AppointmentEvents.AddedDoctorNotes e:
                 return currentState().addNotes(e.notes());
             case AppointmentEvents.AddedPrescription e:
@@ -0,0 +1,212 @@
+package com.clinic.application;
+
+import akka.Done;
+import akka.javasdk.annotations.Component;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.timer.TimerScheduler;
+import akka.javasdk.workflow.Workflow;
+import com.clinic.application.reminders.ReminderSender;
+import com.clinic.domain.Appointment;
+import com.clinic.domain.Reminder;
+import com.clinic.domain.ReminderRunState;
+import com.typesafe.config.Config;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends the day-before reminders for the scheduled appointments of a date, one reminder per patient. The workflow id
+ * is the date. Appointments are read from {@link AppointmentsByPatientView} in pages ordered by patient, and the
+ * position reached is saved after each page. Within a page every delivered reminder is recorded in
+ * {@link ReminderDeliveryEntity}, so a run resumed after a crash skips the ones it already sent; only a reminder
+ * delivered right before the crash, and not yet recorded, goes out again.
+ * <p>
+ * Runs every evening from a timer: {@link #scheduleNextRun} is called on startup and whenever a run ends.
+ */
+@Component(id = "appointment-reminders")
+public class AppointmentReminderWorkflow extends Workflow<ReminderRunState> {
+
+    /** One timer for the whole service; scheduling it again replaces it. */
+    static final String TIMER_NAME = "appointment-reminders";
+
+    /**
+     * @param runAt         time of day the reminders for the next day are sent
+     * @param pageSize      appointments read per step, the progress is saved after each page
+     * @param concurrency   reminders in flight at the same time
+     * @param ratePerSecond reminders handed to the sender per second on each node
+     * @param maxAttempts   attempts per reminder before it is counted as failed
+     * @param retryBackoff  wait before the second attempt, growing linearly after that
+     * @param window        how long after the start reminders are still sent
+     * @param pageTimeout   time limit of a page
+     */
+    public record Settings(LocalTime runAt, int pageSize, int concurrency, int ratePerSecond, int maxAttempts,
+                           Duration retryBackoff, Duration window, Duration pageTimeout) {
+        public static Settings fromConfig(Config config) {
+            return new Settings(
+                    LocalTime.parse(config.getString("run-at")),
+                    config.getInt("page-size"),
+                    config.getInt("concurrency"),
+                    config.getInt("rate-per-second"),
+                    config.getInt("max-attempts"),
+                    config.getDuration("retry-backoff"),
+                    config.getDuration("window"),
+                    config.getDuration("page-timeout"));
+        }
+
+        /** The next run after the given time. */
+        public LocalDateTime nextRun(LocalDateTime now) {
+            var today = now.toLocalDate().atTime(runAt);
+            return today.isAfter(now) ? today : today.plusDays(1);
+        }
+    }
+
+    private final ComponentClient componentClient;
+    private final ReminderSender sender;
+    private final Settings reminderSettings;
+
+    public AppointmentReminderWorkflow(ComponentClient componentClient, ReminderSender sender, Settings reminderSettings) {
+        this.componentClient = componentClient;
+        this.sender = sender;
+        this.reminderSettings = reminderSettings;
+    }
+
+    /** Schedules the reminders for the day after the next run. */
+    public static void scheduleNextRun(TimerScheduler timers, ComponentClient componentClient, Settings settings) {
+        var now = LocalDateTime.now();
+        var nextRun = settings.nextRun(now);
+        var day = nextRun.toLocalDate().plusDays(1);
+        timers.createSingleTimer(
+                TIMER_NAME,
+                Duration.between(now, nextRun),
+                componentClient
+                        .forWorkflow(day.toString())
+                        .method(AppointmentReminderWorkflow::remind)
+                        .deferred(day));
+    }
+
+    public Effect<Done> remind(LocalDate date) {
+        // already sent or sending, e.g. triggered by hand as well; the timer that got here still needs a successor
+        if (currentState() != null) {
+            scheduleNextRun(timers(), componentClient, reminderSettings);
+            return effects().reply(Done.getInstance());
+        }
+        if (date.isBefore(LocalDate.now()))
+            return effects().error("Cannot remind of past appointments");
+
+        var deadline = Instant.now().plus(reminderSettings.window());
+        return effects()
+                .updateState(ReminderRunState.initial(date, deadline))
+                .transitionTo(AppointmentReminderWorkflow::sendPage)
+                .thenReply(Done.getInstance());
+    }
+
+    public Effect<ReminderRunState> getState() {
+        if (currentState() == null)
+            return effects().error("Reminders not found");
+        return effects().reply(currentState());
+    }
+
+    /** Sends the reminders of the next page and saves the position reached. */
+    public StepEffect sendPage() {
+        var state = currentState();
+        if (Instant.now().isAfter(state.deadline()))
+            return stepEffects()
+                    .updateState(state.withStatus(ReminderRunState.Status.Expired))
+                    .thenTransitionTo(AppointmentReminderWorkflow::scheduleNext);
+
+        var rows = componentClient
+                .forView()
+                .method(AppointmentsByPatientView::findPageByDateOrderedByPatient)
+                .invoke(new AppointmentsByPatientView.FindApptByPatientPage(
+                        Appointment.Status.SCHEDULED, state.date().toString(), state.afterPatientId(), state.afterId(),
+                        reminderSettings.pageSize()))
+                .appointments()
+                .stream()
+                .map(row -> new Reminder.Row(row.id(), row.patientId(), row.doctorId(), LocalTime.parse(row.time())))
+                .toList();
+        System.out.println("## reminders.sendPage " + state.date() + " after " + state.afterPatientId() + " " + rows.size());
+        if (rows.isEmpty())
+            return stepEffects()
+                    .updateState(state.withStatus(ReminderRunState.Status.Completed))
+                    .thenTransitionTo(AppointmentReminderWorkflow::scheduleNext);
+
+        var reminders = Reminder.byPatient(state.date(), rows, rows.size() < reminderSettings.pageSize());
+        var delivered = Set.copyOf(componentClient
+                .forKeyValueEntity(state.date().toString())
+                .method(ReminderDeliveryEntity::getDelivered)
+                .invoke(state.cursor()));
+        // delivered before the page was interrupted
+        int sent = (int) reminders.stream().filter(reminder -> delivered.contains(reminder.key())).count();
+        var pending = reminders.stream().filter(reminder -> !delivered.contains(reminder.key())).toList();
+        for (int i = 0; i < pending.size(); i += reminderSettings.concurrency()) {
+            var batch = pending.subList(i, Math.min(pending.size(), i + reminderSettings.concurrency()));
+            var futures = batch.stream()
+                    .map(reminder -> sendWithRetry(reminder, 1)
+                            .thenCompose(ok -> ok ? recordDelivered(state, reminder) : CompletableFuture.completedFuture(false))
+                            .toCompletableFuture())
+                    .toList();
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+            for (var future : futures)
+                if (future.join())
+                    sent++;
+        }
+
+        var last = reminders.getLast();
+        return stepEffects()
+                .updateState(state.afterPage(last.patientId(), last.last().appointmentId(), sent, reminders.size() - sent))
+                .thenTransitionTo(AppointmentReminderWorkflow::sendPage);
+    }
+
+    public StepEffect sendFailed() {
+        System.out.println("## reminders.sendFailed " + currentState().date());
+        return stepEffects()
+                .updateState(currentState().withStatus(ReminderRunState.Status.Failed))
+                .thenTransitionTo(AppointmentReminderWorkflow::scheduleNext);
+    }
+
+    /** Keeps the evening timer going, also after a failed or manual run. */
+    public StepEffect scheduleNext() {
+        scheduleNextRun(timers(), componentClient, reminderSettings);
+        return stepEffects().thenEnd();
+    }
+
+    private CompletionStage<Boolean> recordDelivered(ReminderRunState state, Reminder reminder) {
+        return componentClient
+                .forKeyValueEntity(state.date().toString())
+                .method(ReminderDeliveryEntity::delivered)
+                .invokeAsync(new ReminderDeliveryEntity.Delivered(state.cursor(), reminder.key()))
+                .thenApply(__ -> true);
+    }
+
+    /** Completes with false once all attempts failed. */
+    private CompletionStage<Boolean> sendWithRetry(Reminder reminder, int attempt) {
+        return sender.send(reminder)
+                .thenApply(__ -> true)
+                .exceptionallyCompose(e -> {
+                    if (attempt >= reminderSettings.maxAttempts()) {
+                        System.out.println("Reminder " + reminder.key() + " failed: " + e.getMessage());
+                        return CompletableFuture.completedFuture(false);
+                    }
+                    var backoff = reminderSettings.retryBackoff().multipliedBy(attempt);
+                    var delayed = CompletableFuture.delayedExecutor(backoff.toMillis(), TimeUnit.MILLISECONDS);
+                    return CompletableFuture.runAsync(() -> {}, delayed)
+                            .thenCompose(__ -> sendWithRetry(reminder, attempt + 1));
+                });
+    }
+
+    @Override
+    public WorkflowSettings settings() {
+        return WorkflowSettingsBuilder
+                .newBuilder()
+                .stepTimeout(AppointmentReminderWorkflow::sendPage, reminderSettings.pageTimeout())
+                .stepRecovery(AppointmentReminderWorkflow::sendPage, RecoverStrategy.maxRetries(3).failoverTo(AppointmentReminderWorkflow::sendFailed))
+                .build();
+    }
+}
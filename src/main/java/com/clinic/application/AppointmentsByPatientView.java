@@ -14,22 +14,26 @@ import java.util.OptionalInt;
 
 @Component(id = "appointments-by-patient")
 public class AppointmentsByPatientView extends View {
+    /**
+     * @param prioritySortKey {@link Appointment.Urgency#sortKey()} of the priority, precomputed so a day's appointments
+     *                        can be ordered by (urgency, time) in the query
+     */
     public record AppointmentRow(String id, String patientId, String doctorId, String issue, String date, String time,
-                                 Optional<String> priority, Appointment.Status status) {
+                                 Optional<Appointment.Urgency> priority, int prioritySortKey, Appointment.Status status) {
         public AppointmentRow withStatus(Appointment.Status status) {
-            return new AppointmentRow(id, patientId, doctorId, issue, date, time, priority, status);
+            return new AppointmentRow(id, patientId, doctorId, issue, date, time, priority, prioritySortKey, status);
         }
 
         public AppointmentRow withDate(String date, String time) {
-            return new AppointmentRow(id, patientId, doctorId, issue, date, time, priority,status);
+            return new AppointmentRow(id, patientId, doctorId, issue, date, time, priority, prioritySortKey, status);
         }
 
         public AppointmentRow withDoctorId(String doctorId) {
-            return new AppointmentRow(id, patientId, doctorId, issue, date, time, priority, status);
+            return new AppointmentRow(id, patientId, doctorId, issue, date, time, priority, prioritySortKey, status);
         }
 
-        public AppointmentRow withPriority(String priority) {
-            return new AppointmentRow(id, patientId, doctorId, issue, date, time, Optional.of(priority),status);
+        public AppointmentRow withPriority(Appointment.Urgency priority) {
+            return new AppointmentRow(id, patientId, doctorId, issue, date, time, Optional.of(priority), priority.sortKey(), status);
         }
     }
 
@@ -38,7 +42,7 @@ public class AppointmentsByPatientView extends View {
         public Effect<AppointmentRow> onEvent(AppointmentEvents event) {
             return switch (event) {
                 case AppointmentEvents.AppointmentCreated e -> {
-                    var row = new AppointmentRow(e.id(),e.patientId(), e.doctorId(), e.issue(), e.dateTime().toLocalDate().toString(), e.dateTime().toLocalTime().toString(), Optional.empty(), Appointment.Status.PENDING);
+                    var row = new AppointmentRow(e.id(),e.patientId(), e.doctorId(), e.issue(), e.dateTime().toLocalDate().toString(), e.dateTime().toLocalTime().toString(), Optional.empty(), Appointment.Urgency.UNKNOWN.sortKey(), Appointment.Status.PENDING);
                     yield effects().updateRow(row);
                 }
                 case AppointmentEvents.AddedDoctorNotes e -> effects().ignore();
@@ -87,4 +91,77 @@ public class AppointmentsByPatientView extends View {
         return queryResult();
     }
 
+    public record FindApptPatientStatus(String patientId, List<Appointment.Status> statuses){}
+
+    @Query("SELECT * AS appointments FROM appointments WHERE patientId = :patientId AND status = ANY(:statuses)")
+    public QueryEffect<AppointmentRows> findByPatientAndStatus(FindApptPatientStatus query) {
+        return queryResult();
+    }
+
+    public record FindApptDoctorDateStatus(String doctorId, String date, List<Appointment.Status> statuses){}
+
+    @Query("SELECT * AS appointments FROM appointments WHERE doctorId = :doctorId AND date = :date AND status = ANY(:statuses)")
+    public QueryEffect<AppointmentRows> findByDoctorDateAndStatus(FindApptDoctorDateStatus query) {
+        return queryResult();
+    }
+
+    @Query("SELECT * AS appointments FROM appointments WHERE doctorId = :doctorId AND date = :date AND status = ANY(:statuses) AND priority IS NOT NULL")
+    public QueryEffect<AppointmentRows> findWithPriority(FindApptDoctorDateStatus query) {
+        return queryResult();
+    }
+
+    @Query("SELECT * AS appointments FROM appointments WHERE doctorId = :doctorId AND date = :date AND status = ANY(:statuses) AND priority IS NULL")
+    public QueryEffect<AppointmentRows> findWithoutPriority(FindApptDoctorDateStatus query) {
+        return queryResult();
+    }
+
+    // Slim projections for callers that only need a few columns
+
+    public record AppointmentIssue(String id, String issue){}
+    public record AppointmentIssues(List<AppointmentIssue> appointments){}
+
+    /** Appointments of the day that still need triage: only id and issue are returned. */
+    @Query("SELECT (id, issue) AS appointments FROM appointments WHERE doctorId = :doctorId AND date = :date AND status = ANY(:statuses) AND priority IS NULL")
+    public QueryEffect<AppointmentIssues> findIssuesWithoutPriority(FindApptDoctorDateStatus query) {
+        return queryResult();
+    }
+
+    public record AppointmentRef(String id, String time){}
+    public record AppointmentRefs(List<AppointmentRef> appointments){}
+
+    /**
+     * @param afterTime with afterId, the (time, id) of the last row of the previous page; empty strings for the first page
+     */
+    public record FindApptStatusDatePage(Appointment.Status status, String date, String afterTime, String afterId, int limit){}
+
+    /** One page of a day's appointments in a status, ordered by (time, id) so the next page starts after the last row. */
+    @Query("SELECT (id, time) AS appointments FROM appointments WHERE status = :status AND date = :date AND (time > :afterTime OR (time = :afterTime AND id > :afterId)) ORDER BY time, id LIMIT :limit")
+    public QueryEffect<AppointmentRefs> findPageByStatusAndDate(FindApptStatusDatePage query) {
+        return queryResult();
+    }
+
+    public record PatientAppointment(String id, String patientId, String doctorId, String time){}
+    public record PatientAppointments(List<PatientAppointment> appointments){}
+
+    /**
+     * @param afterPatientId with afterId, the (patientId, id) of the last row of the previous page; empty strings for
+     *                       the first page
+     */
+    public record FindApptByPatientPage(Appointment.Status status, String date, String afterPatientId, String afterId, int limit){}
+
+    /** One page of a day's appointments in a status, ordered by (patientId, id) so each patient's rows are together. */
+    @Query("SELECT (id, patientId, doctorId, time) AS appointments FROM appointments WHERE status = :status AND date = :date AND (patientId > :afterPatientId OR (patientId = :afterPatientId AND id > :afterId)) ORDER BY patientId, id LIMIT :limit")
+    public QueryEffect<PatientAppointments> findPageByDateOrderedByPatient(FindApptByPatientPage query) {
+        return queryResult();
+    }
+
+    public record AppointmentSlot(String id, String doctorId, String time, Optional<Appointment.Urgency> priority){}
+    public record AppointmentSlots(List<AppointmentSlot> appointments){}
+
+    /** Ordered by urgency, most urgent first, then by time. */
+    @Query("SELECT (id, doctorId, time, priority) AS appointments FROM appointments WHERE doctorId = :doctorId AND date = :date AND status = ANY(:statuses) ORDER BY prioritySortKey, time")
+    public QueryEffect<AppointmentSlots> findSlotsByDoctorDateAndStatus(FindApptDoctorDateStatus query) {
+        return queryResult();
+    }
+
 }
\ No newline at end of file
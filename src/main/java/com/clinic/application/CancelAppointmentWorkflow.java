@@ -4,6 +4,7 @@ import akka.Done;
 import akka.javasdk.annotations.Component;
 import akka.javasdk.client.ComponentClient;
 import akka.javasdk.workflow.Workflow;
+import com.clinic.domain.Appointment;
 import com.clinic.domain.CancelAppointmentState;
 import com.clinic.domain.Schedule;
 
@@ -14,9 +15,11 @@ import java.time.LocalTime;
 @Component(id = "cancel-appointment")
 public class CancelAppointmentWorkflow extends Workflow<CancelAppointmentState> {
     private final ComponentClient componentClient;
+    private final WaitlistService waitlistService;
 
-    public CancelAppointmentWorkflow(ComponentClient componentClient) {
+    public CancelAppointmentWorkflow(ComponentClient componentClient, WaitlistService waitlistService) {
         this.componentClient = componentClient;
+        this.waitlistService = waitlistService;
     }
     public record CancelAppointmentCommand(String appointmentId, LocalDateTime dateTime, String doctorId) {}
 
@@ -38,7 +41,7 @@ public class CancelAppointmentWorkflow extends Workflow<CancelAppointmentState>
 
     public Effect<Boolean> isCompleted() {
         return effects()
-                .reply(currentState().status() == CancelAppointmentState.Status.Failed || currentState().status() == CancelAppointmentState.Status.SlotDeleted);
+                .reply(currentState().status().isTerminal());
     }
     public StepEffect updateAppointment() {
         System.out.println("Updating appointment state");
@@ -51,7 +54,9 @@ public class CancelAppointmentWorkflow extends Workflow<CancelAppointmentState>
                     .updateState(currentState().withStatus(CancelAppointmentState.Status.AppointmentCancelled))
                     .thenTransitionTo(CancelAppointmentWorkflow::deleteTimeSlot);
         }catch(IllegalArgumentException e){
+            // doesn't exist, or is no longer pending or scheduled
             return stepEffects()
+                    .updateState(currentState().withStatus(CancelAppointmentState.Status.Failed))
                     .thenEnd();
         }
 
@@ -63,6 +68,15 @@ public class CancelAppointmentWorkflow extends Workflow<CancelAppointmentState>
                 currentState().dateTime().toLocalDate()
                 );
         LocalTime startTime = currentState().dateTime().toLocalTime();
+        var freedDuration = componentClient
+                .forKeyValueEntity(scheduleId.toString())
+                .method(ScheduleEntity::getSchedule)
+                .invoke()
+                .flatMap(schedule -> schedule.timeSlots().stream()
+                        .filter(slot -> slot.startTime().equals(startTime))
+                        .findFirst())
+                .map(slot -> Duration.between(slot.startTime(), slot.endTime()))
+                .orElse(Appointment.DEFAULT_DURATION);
         try{
             componentClient
                     .forKeyValueEntity(scheduleId.toString())
@@ -71,10 +85,21 @@ public class CancelAppointmentWorkflow extends Workflow<CancelAppointmentState>
         } catch (IllegalArgumentException e){
             throw e;
         }
+        offerToWaitlist(currentState().DoctorId(), currentState().dateTime(), freedDuration);
         return  stepEffects()
                 .updateState(currentState().withStatus(CancelAppointmentState.Status.SlotDeleted))
                 .thenEnd();
     }
+    /** Best effort: a failed offer must not undo or retry the cancellation. */
+    private void offerToWaitlist(String doctorId, LocalDateTime start, Duration duration) {
+        try {
+            waitlistService.offer(doctorId, start, duration)
+                    .ifPresent(appointmentId -> System.out.println("Freed slot offered to waitlist, appointment " + appointmentId));
+        } catch (RuntimeException e) {
+            System.out.println("Waitlist offer failed: " + e.getMessage());
+        }
+    }
+
     @Override
     public WorkflowSettings settings() {
         return WorkflowSettingsBuilder
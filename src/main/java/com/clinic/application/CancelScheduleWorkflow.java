@@ -5,35 +5,42 @@ import akka.javasdk.annotations.Component;
 import akka.javasdk.client.ComponentClient;
 import akka.javasdk.impl.WorkflowExceptions;
 import akka.javasdk.workflow.Workflow;
-import com.clinic.application.ai.PriorityAgent;
+import com.clinic.application.ai.TriageService;
+import com.clinic.domain.Appointment;
 import com.clinic.domain.CancelScheduleState;
 import com.clinic.domain.Schedule;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.Comparator;
 import java.util.List;
-import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.atomic.AtomicInteger;
 
 @Component(id = "cancel-schedule")
 public class CancelScheduleWorkflow extends Workflow<CancelScheduleState> {
 
     private final ComponentClient componentClient;
+    private final TriageService triageService;
 
-    public CancelScheduleWorkflow(ComponentClient componentClient) {
+    public CancelScheduleWorkflow(ComponentClient componentClient, TriageService triageService) {
         this.componentClient = componentClient;
+        this.triageService = triageService;
     }
 
-    public record CancelScheduleCommand(LocalDateTime dateTime, String doctorId){}
+    /**
+     * @param triaged skip the triage step, the caller already prioritized the appointments of the day
+     */
+    public record CancelScheduleCommand(LocalDateTime dateTime, String doctorId, boolean triaged){
+        public CancelScheduleCommand(LocalDateTime dateTime, String doctorId) {
+            this(dateTime, doctorId, false);
+        }
+    }
 
     public Effect<Done> cancelSchedule(CancelScheduleCommand cmd) {
         if (currentState() != null){
             return effects().error("Cancel already in progress or finished for this workflow");
         }
-        var state = new CancelScheduleState(cmd.dateTime, cmd.doctorId, CancelScheduleState.Status.Initial);
+        var state = new CancelScheduleState(cmd.dateTime, cmd.doctorId, CancelScheduleState.Status.Initial, cmd.triaged);
         return effects()
                 .updateState(state)
                 .transitionTo(CancelScheduleWorkflow::blockSchedule)
@@ -46,7 +53,7 @@ public class CancelScheduleWorkflow extends Workflow<CancelScheduleState> {
 
     public Effect<Boolean> isCompleted(){
         return effects()
-                .reply(currentState().status() == CancelScheduleState.Status.scheduleCancelled || currentState().status() == CancelScheduleState.Status.Failed);
+                .reply(currentState().status().isTerminal());
     }
     public StepEffect blockSchedule(){
         System.out.println("## Block Schedule");
@@ -63,25 +70,41 @@ public class CancelScheduleWorkflow extends Workflow<CancelScheduleState> {
                     .updateState(currentState().withStatus(CancelScheduleState.Status.scheduleBlocked))
                     .thenTransitionTo(CancelScheduleWorkflow::addPriorityAppointments);
         } catch (IllegalArgumentException e) {
-            return stepEffects().thenEnd();
+            // nothing booked yet, the day only exists in the weekly template; close it there so no booking opens it
+            componentClient
+                    .forKeyValueEntity(currentState().doctorId())
+                    .method(WeeklyTemplateEntity::closeDay)
+                    .invoke(scheduleId.date());
+            return stepEffects()
+                    .updateState(currentState().withStatus(CancelScheduleState.Status.scheduleCancelled))
+                    .thenEnd();
         }
 
     }
 
+    private AppointmentsByPatientView.FindApptDoctorDateStatus scheduledOfTheDay() {
+        return new AppointmentsByPatientView.FindApptDoctorDateStatus(
+                currentState().doctorId(),
+                currentState().dateTime().toLocalDate().toString(),
+                List.of(Appointment.Status.SCHEDULED));
+    }
+
     public StepEffect addPriorityAppointments(){
         System.out.println("## List appointments");
+        if (currentState().triaged())
+            return stepEffects()
+                    .thenTransitionTo(CancelScheduleWorkflow::orderAppointments);
         try {
-            AppointmentsByPatientView.AppointmentRows appointmentsDay = componentClient
+            // only scheduled appointments that weren't triaged yet, e.g. by a previous attempt of this step
+            var untriaged = componentClient
                     .forView()
-                    .method(AppointmentsByPatientView::findByDoctorAndDate)
-                    .invoke(new AppointmentsByPatientView.FindApptDoctorDate(currentState().doctorId(), currentState().dateTime().toLocalDate().toString()));
-            if (!appointmentsDay.appointments().isEmpty()) {
-                var futures = appointmentsDay.appointments().stream()
+                    .method(AppointmentsByPatientView::findIssuesWithoutPriority)
+                    .invoke(scheduledOfTheDay());
+            if (!untriaged.appointments().isEmpty()) {
+                var futures = untriaged.appointments().stream()
                         .map(appointment ->
-                                componentClient.forAgent()
-                                        .inSession(appointment.id())
-                                        .method(PriorityAgent::urgency)
-                                        .invokeAsync(appointment.issue())
+                                triageService
+                                        .urgency(appointment.id(), appointment.issue())
                                         .thenCompose(priority ->
                                                 componentClient.forEventSourcedEntity(appointment.id())
                                                         .method(AppointmentEntity::addPriority)
@@ -94,12 +117,9 @@ public class CancelScheduleWorkflow extends Workflow<CancelScheduleState> {
                 );
                 all.join();
                 System.out.println(all);
-
-                return stepEffects()
-                        .thenTransitionTo(CancelScheduleWorkflow::orderAppointments);
             }
             return stepEffects()
-                    .thenTransitionTo(CancelScheduleWorkflow::cancelScheduleStatus);
+                    .thenTransitionTo(CancelScheduleWorkflow::orderAppointments);
         }
         catch (IllegalArgumentException e) {
             return stepEffects()
@@ -107,56 +127,39 @@ public class CancelScheduleWorkflow extends Workflow<CancelScheduleState> {
         }
     }
 
-    private int getPriorityOrder(String priority) {
-        return switch (priority.toLowerCase()) {
-            case "high" -> 1;
-            case "medium" -> 2;
-            case "low" -> 3;
-            default -> 99; // Default or unassigned priority goes last
-        };
-    }
-    private static String safeLower(Optional<String> s) { return s == null ? "" : s.toString().toLowerCase(); }
-
-
     public StepEffect orderAppointments() {
         System.out.println("## Reschedule Appointments");
-        AppointmentsByPatientView.AppointmentRows appointmentsDay = componentClient
+        AppointmentsByPatientView.AppointmentSlots appointmentsDay = componentClient
                 .forView()
-                .method(AppointmentsByPatientView::findByDoctorAndDate)
-                .invoke(new AppointmentsByPatientView.FindApptDoctorDate(currentState().doctorId(), currentState().dateTime().toLocalDate().toString()));
+                .method(AppointmentsByPatientView::findSlotsByDoctorDateAndStatus)
+                .invoke(scheduledOfTheDay());
 
         if (appointmentsDay == null || appointmentsDay.appointments().isEmpty()) {
             System.out.println("No appointments to order.");
             return stepEffects()
-                    .updateState(currentState().withStatus(CancelScheduleState.Status.Failed))
-                    .thenEnd();
+                    .thenTransitionTo(CancelScheduleWorkflow::cancelScheduleStatus);
         }
-        List<AppointmentsByPatientView.AppointmentRow> appointments =
-                new java.util.ArrayList<>(appointmentsDay.appointments());
-        appointments.sort(
-                Comparator
-                        .comparing((AppointmentsByPatientView.AppointmentRow a) ->
-                                getPriorityOrder(safeLower(a.priority())))
-                        .thenComparing(AppointmentsByPatientView.AppointmentRow::time)
-        );
+        // already ordered by (urgency, time) in the view
+        List<AppointmentsByPatientView.AppointmentSlot> appointments = appointmentsDay.appointments();
 
 
         try {
             // Build a sequential async chain: each step starts after the previous completes
             CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
-            AtomicInteger seq = new AtomicInteger(1);
 
             for (var appt : appointments) {
-                int order = seq.getAndIncrement();
-
-                    componentClient
-                            .forWorkflow(appt.id())  // <- target workflow per appointment
-                            .method(CancelAppointmentWorkflow::cancel) // your method
-                            .invokeAsync(new CancelAppointmentWorkflow.CancelAppointmentCommand(
-                                    appt.id(),
-                                    LocalDateTime.of(currentState().dateTime().toLocalDate(), LocalTime.parse(appt.time())),
-                                    appt.doctorId()
-                ));
+                var cmd = new CancelAppointmentWorkflow.CancelAppointmentCommand(
+                        appt.id(),
+                        LocalDateTime.of(currentState().dateTime().toLocalDate(), LocalTime.parse(appt.time())),
+                        appt.doctorId()
+                );
+                chain = chain.thenCompose(__ ->
+                        componentClient
+                                .forWorkflow(appt.id())  // <- target workflow per appointment
+                                .method(CancelAppointmentWorkflow::cancel)
+                                .invokeAsync(cmd)
+                                .thenAccept(done -> {})
+                                .toCompletableFuture());
             }
 
             // wait for the whole chain (you can add a timeout)
@@ -166,7 +169,9 @@ public class CancelScheduleWorkflow extends Workflow<CancelScheduleState> {
                     .updateState(currentState().withStatus(CancelScheduleState.Status.scheduleCancelled))
                     .thenTransitionTo(CancelScheduleWorkflow::cancelScheduleStatus);
         } catch (WorkflowExceptions.WorkflowException e) {
-            return stepEffects().thenEnd();
+            return stepEffects()
+                    .updateState(currentState().withStatus(CancelScheduleState.Status.Failed))
+                    .thenEnd();
         }
 
     }
@@ -0,0 +1,274 @@
+package com.clinic.application;
+
+import akka.Done;
+import akka.javasdk.annotations.Component;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.workflow.Workflow;
+import com.clinic.application.ai.TriageService;
+import com.clinic.domain.Appointment;
+import com.clinic.domain.CancelScheduleState;
+import com.clinic.domain.DoctorAbsenceState;
+import com.clinic.domain.Schedule;
+import com.typesafe.config.Config;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cancels every day of a doctor's absence. All days are blocked first so no new bookings come in, the appointments
+ * of all days are triaged against one shared agent budget, and then a bounded number of
+ * {@link CancelScheduleWorkflow}s re-book the days at a time.
+ * Per-day workflows use the schedule id as their id, the same as single-day cancellations.
+ */
+@Component(id = "doctor-absence")
+public class DoctorAbsenceWorkflow extends Workflow<DoctorAbsenceState> {
+
+    private static final Duration POLL_INTERVAL = Duration.ofSeconds(1);
+
+    /**
+     * @param maxConcurrentDays  per-day cancellations running at the same time
+     * @param triageConcurrency  triage requests in flight at the same time
+     * @param triageAgentBudget  agent calls for the whole absence; issues the rules can't classify afterwards are
+     *                           re-booked with unknown urgency
+     * @param triageTimeout      time limit of the triage step
+     * @param dayTimeout         how long to wait for a day's cancellation before it is reported as failed
+     */
+    public record Settings(int maxConcurrentDays, int triageConcurrency, int triageAgentBudget, Duration triageTimeout,
+                           Duration dayTimeout) {
+        public static Settings fromConfig(Config config) {
+            return new Settings(
+                    config.getInt("max-concurrent-days"),
+                    config.getInt("triage-concurrency"),
+                    config.getInt("triage-agent-budget"),
+                    config.getDuration("triage-timeout"),
+                    config.getDuration("day-timeout"));
+        }
+    }
+
+    private final ComponentClient componentClient;
+    private final TriageService triageService;
+    private final Settings absenceSettings;
+
+    public DoctorAbsenceWorkflow(ComponentClient componentClient, TriageService triageService, Settings absenceSettings) {
+        this.componentClient = componentClient;
+        this.triageService = triageService;
+        this.absenceSettings = absenceSettings;
+    }
+
+    /**
+     * @param from inclusive
+     * @param to   inclusive
+     */
+    public record CancelAbsenceCommand(String doctorId, LocalDate from, LocalDate to) {}
+
+    public Effect<Done> cancelAbsence(CancelAbsenceCommand cmd) {
+        if (currentState() != null)
+            return effects().error("Absence already in progress or finished for this workflow");
+        if (cmd.to().isBefore(cmd.from()))
+            return effects().error("'from' must not be after 'to'");
+
+        var state = DoctorAbsenceState.initial(cmd.doctorId(), cmd.from(), cmd.to(), absenceSettings.triageAgentBudget());
+        return effects()
+                .updateState(state)
+                .transitionTo(DoctorAbsenceWorkflow::blockDays)
+                .thenReply(Done.getInstance());
+    }
+
+    public Effect<DoctorAbsenceState> getState() {
+        if (currentState() == null)
+            return effects().error("Absence not found");
+        return effects().reply(currentState());
+    }
+
+    public StepEffect blockDays() {
+        System.out.println("## absence.blockDays");
+        var state = currentState();
+        for (var date : state.datesWithStatus(DoctorAbsenceState.DayStatus.Pending)) {
+            try {
+                componentClient
+                        .forKeyValueEntity(scheduleId(date))
+                        .method(ScheduleEntity::blockDay)
+                        .invoke();
+                state = state.withDayStatus(date, DoctorAbsenceState.DayStatus.Blocked);
+            } catch (IllegalArgumentException e) {
+                // nothing booked yet; keep the weekly template from opening the day on a later booking
+                componentClient
+                        .forKeyValueEntity(state.doctorId())
+                        .method(WeeklyTemplateEntity::closeDay)
+                        .invoke(date);
+                state = state.withDayStatus(date, DoctorAbsenceState.DayStatus.NoSchedule);
+            }
+        }
+        return stepEffects()
+                .updateState(state.withStatus(DoctorAbsenceState.Status.DaysBlocked))
+                .thenTransitionTo(DoctorAbsenceWorkflow::triageAppointments);
+    }
+
+    /**
+     * Triages the appointments of all blocked days, a few at a time, against the budget shared by the absence. The
+     * budget left is saved when the step ends; should it fail, the absence goes on without triage, see
+     * {@link #settings}.
+     */
+    public StepEffect triageAppointments() {
+        System.out.println("## absence.triageAppointments");
+        var budget = new AtomicInteger(currentState().triageBudgetLeft());
+        for (var date : currentState().datesWithStatus(DoctorAbsenceState.DayStatus.Blocked)) {
+            var untriaged = componentClient
+                    .forView()
+                    .method(AppointmentsByPatientView::findIssuesWithoutPriority)
+                    .invoke(new AppointmentsByPatientView.FindApptDoctorDateStatus(
+                            currentState().doctorId(), date.toString(), List.of(Appointment.Status.SCHEDULED)))
+                    .appointments();
+
+            for (int i = 0; i < untriaged.size(); i += absenceSettings.triageConcurrency()) {
+                var batch = untriaged.subList(i, Math.min(untriaged.size(), i + absenceSettings.triageConcurrency()));
+                var futures = batch.stream()
+                        .map(appointment -> triageService
+                                .urgency(appointment.id(), appointment.issue(), budget)
+                                .thenCompose(urgency -> componentClient
+                                        .forEventSourcedEntity(appointment.id())
+                                        .method(AppointmentEntity::addPriority)
+                                        .invokeAsync(urgency))
+                                .toCompletableFuture())
+                        .toArray(CompletableFuture[]::new);
+                CompletableFuture.allOf(futures).join();
+            }
+        }
+        return stepEffects()
+                .updateState(currentState()
+                        .withTriageBudgetLeft(budget.get())
+                        .withStatus(DoctorAbsenceState.Status.AppointmentsTriaged))
+                .thenTransitionTo(DoctorAbsenceWorkflow::startDays);
+    }
+
+    /** Starts the cancellation of the next days, keeping at most maxConcurrentDays running. */
+    public StepEffect startDays() {
+        System.out.println("## absence.startDays");
+        var running = currentState().datesWithStatus(DoctorAbsenceState.DayStatus.Cancelling).size();
+        var next = currentState().datesWithStatus(DoctorAbsenceState.DayStatus.Blocked).stream()
+                .limit(Math.max(0, absenceSettings.maxConcurrentDays() - running))
+                .toList();
+        if (next.isEmpty() && running == 0)
+            return stepEffects()
+                    .updateState(currentState().withStatus(DoctorAbsenceState.Status.Completed))
+                    .thenEnd();
+
+        var state = currentState();
+        var deadline = Instant.now().plus(absenceSettings.dayTimeout());
+        for (var date : next) {
+            var cmd = new CancelScheduleWorkflow.CancelScheduleCommand(date.atStartOfDay(), state.doctorId(), true);
+            try {
+                componentClient
+                        .forWorkflow(scheduleId(date))
+                        .method(CancelScheduleWorkflow::cancelSchedule)
+                        .invoke(cmd);
+            } catch (IllegalArgumentException e) {
+                // already cancelled on its own, e.g. by a single-day request; its outcome is awaited all the same
+            }
+            state = state.withDayCancelling(date, deadline);
+        }
+        return stepEffects()
+                .updateState(state)
+                .thenTransitionTo(DoctorAbsenceWorkflow::awaitDays);
+    }
+
+    /**
+     * Records the outcome of the running days that finished or ran out of time. While none did, the workflow pauses
+     * and a timer brings it back here through {@link #checkDays} a poll interval later.
+     */
+    public StepEffect awaitDays() {
+        System.out.println("## absence.awaitDays");
+        var running = currentState().datesWithStatus(DoctorAbsenceState.DayStatus.Cancelling);
+        var outcomes = running.stream()
+                .map(date -> cancellationState(scheduleId(date)).toCompletableFuture())
+                .toList();
+        CompletableFuture.allOf(outcomes.toArray(CompletableFuture[]::new)).join();
+
+        var state = currentState();
+        var expired = state.cancellingPast(Instant.now());
+        var finished = false;
+        for (int i = 0; i < running.size(); i++) {
+            var outcome = outcomes.get(i).join();
+            if (outcome != null && outcome.status().isTerminal()) {
+                var cancelled = outcome.status() == CancelScheduleState.Status.scheduleCancelled;
+                state = state.withDayStatus(running.get(i),
+                        cancelled ? DoctorAbsenceState.DayStatus.Cancelled : DoctorAbsenceState.DayStatus.Failed);
+                finished = true;
+            } else if (expired.contains(running.get(i))) {
+                state = state.withDayStatus(running.get(i), DoctorAbsenceState.DayStatus.Failed);
+                finished = true;
+            }
+        }
+        if (finished)
+            return stepEffects()
+                    .updateState(state)
+                    .thenTransitionTo(DoctorAbsenceWorkflow::startDays);
+
+        timers().createSingleTimer(
+                timerName(),
+                POLL_INTERVAL,
+                componentClient
+                        .forWorkflow(commandContext().workflowId())
+                        .method(DoctorAbsenceWorkflow::checkDays)
+                        .deferred());
+        return stepEffects().thenPause();
+    }
+
+    /** Resumes waiting for the running days; called by the poll timer. */
+    public Effect<Done> checkDays() {
+        if (currentState() == null || currentState().status().isTerminal())
+            return effects().reply(Done.getInstance());
+        return effects()
+                .transitionTo(DoctorAbsenceWorkflow::awaitDays)
+                .thenReply(Done.getInstance());
+    }
+
+    /** Ends the absence after a step failed for good, reporting the days that didn't finish as failed. */
+    public StepEffect failRemainingDays() {
+        System.out.println("## absence.failRemainingDays");
+        var state = currentState();
+        for (var date : state.datesWithStatus(DoctorAbsenceState.DayStatus.Cancelling))
+            state = state.withDayStatus(date, DoctorAbsenceState.DayStatus.Failed);
+        for (var date : state.datesWithStatus(DoctorAbsenceState.DayStatus.Blocked))
+            state = state.withDayStatus(date, DoctorAbsenceState.DayStatus.Failed);
+        return stepEffects()
+                .updateState(state.withStatus(DoctorAbsenceState.Status.Completed))
+                .thenEnd();
+    }
+
+    /** The state of a day's cancellation; null when unknown, e.g. not started yet. */
+    private CompletionStage<CancelScheduleState> cancellationState(String workflowId) {
+        return componentClient
+                .forWorkflow(workflowId)
+                .method(CancelScheduleWorkflow::getState)
+                .invokeAsync()
+                .exceptionally(e -> null);
+    }
+
+    private String timerName() {
+        return "absence-" + commandContext().workflowId();
+    }
+
+    private String scheduleId(LocalDate date) {
+        return new Schedule.ScheduleId(currentState().doctorId(), date).toString();
+    }
+
+    @Override
+    public WorkflowSettings settings() {
+        return WorkflowSettingsBuilder
+                .newBuilder()
+                .stepTimeout(DoctorAbsenceWorkflow::blockDays, Duration.ofSeconds(30))
+                .stepTimeout(DoctorAbsenceWorkflow::triageAppointments, absenceSettings.triageTimeout())
+                .stepTimeout(DoctorAbsenceWorkflow::awaitDays, Duration.ofSeconds(30))
+                // untriaged appointments are re-booked after the triaged ones rather than holding up the absence; not
+                // retried, since the budget spent is only saved when the step succeeds and a retry would spend it again
+                .stepRecovery(DoctorAbsenceWorkflow::triageAppointments, RecoverStrategy.maxRetries(0).failoverTo(DoctorAbsenceWorkflow::startDays))
+                .defaultStepRecovery(RecoverStrategy.maxRetries(2).failoverTo(DoctorAbsenceWorkflow::failRemainingDays))
+                .build();
+    }
+}
@@ -0,0 +1,130 @@
+package com.clinic.application;
+
+import akka.javasdk.client.ComponentClient;
+import com.clinic.domain.Doctor;
+import com.clinic.domain.Speciality;
+import com.typesafe.config.Config;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The doctor roster, the doctors per speciality and the speciality catalog, read from {@link DoctorsView} through a
+ * {@link NearCache} on this node. Specialities are looked up by their normalized {@link Speciality#key}; the index
+ * withdraws a speciality a doctor dropped, see {@link SpecialityIndexConsumer}.
+ * <p>
+ * The roster changes a few times a day: {@link DoctorDirectoryConsumer} drops the cached lists when a doctor changes,
+ * on the node it runs on. Other nodes, and this one until the change reaches the consumer, serve the old lists for at
+ * most {@code freshFor} plus {@code maxStale}, the last part while reloading them. The view is updated independently
+ * of the consumer, so a list reloaded right after a change may still miss it for {@code freshFor}.
+ */
+public class DoctorDirectory {
+
+    /**
+     * @param freshFor   lists are served without asking the view for this long
+     * @param maxStale   then they are still served for this long while being reloaded in the background
+     * @param maxEntries specialities kept, least recently used ones are dropped first
+     */
+    public record Settings(Duration freshFor, Duration maxStale, int maxEntries) {
+        public static Settings fromConfig(Config config) {
+            return new Settings(
+                    config.getDuration("fresh-for"),
+                    config.getDuration("max-stale"),
+                    config.getInt("max-entries"));
+        }
+    }
+
+    public record Metrics(NearCache.Metrics roster, NearCache.Metrics specialities, NearCache.Metrics catalog) {
+    }
+
+    /** @param name the spelling most doctors of the speciality use */
+    public record CatalogEntry(String key, String name, int doctors) {
+    }
+
+    private static final String ALL = "all";
+
+    private final NearCache<String, List<Doctor>> roster;
+    private final NearCache<String, List<String>> byKey;
+    private final NearCache<String, List<CatalogEntry>> catalog;
+
+    public DoctorDirectory(ComponentClient componentClient, Settings settings) {
+        this.roster = new NearCache<>(
+                __ -> componentClient
+                        .forView()
+                        .method(DoctorsView::getDoctors)
+                        .invokeAsync()
+                        .thenApply(DoctorsView.Doctors::doctors),
+                settings.freshFor(), settings.maxStale(), 1);
+        this.byKey = new NearCache<>(
+                key -> componentClient
+                        .forView()
+                        .method(DoctorsView::findBySpecialityKey)
+                        .invokeAsync(key)
+                        .thenApply(assignments -> assignments.entries().stream().map(Speciality.Assignment::doctorId).toList()),
+                settings.freshFor(), settings.maxStale(), settings.maxEntries());
+        this.catalog = new NearCache<>(
+                __ -> componentClient
+                        .forView()
+                        .method(DoctorsView::getAssignments)
+                        .invokeAsync()
+                        .thenApply(assignments -> catalogOf(assignments.entries())),
+                settings.freshFor(), settings.maxStale(), 1);
+    }
+
+    public List<Doctor> all() {
+        return roster.get(ALL);
+    }
+
+    /** The doctors practising the speciality, in any spelling of it. */
+    public List<Doctor> bySpeciality(String speciality) {
+        var key = Speciality.key(speciality);
+        var indexed = new HashSet<>(byKey.get(key));
+        if (indexed.isEmpty())
+            return List.of();
+        return all().stream()
+                .filter(doctor -> indexed.contains(doctor.id()))
+                .toList();
+    }
+
+    public List<String> idsBySpeciality(String speciality) {
+        return bySpeciality(speciality).stream().map(Doctor::id).toList();
+    }
+
+    public List<CatalogEntry> catalog() {
+        return catalog.get(ALL);
+    }
+
+    /** A doctor was added or changed, any of the cached lists may be out of date. */
+    public void invalidate() {
+        roster.invalidateAll();
+        byKey.invalidateAll();
+        catalog.invalidateAll();
+    }
+
+    public Metrics metrics() {
+        return new Metrics(roster.metrics(), byKey.metrics(), catalog.metrics());
+    }
+
+    static List<CatalogEntry> catalogOf(List<Speciality.Assignment> assignments) {
+        var byKey = assignments.stream()
+                .collect(Collectors.groupingBy(Speciality.Assignment::specialityKey, LinkedHashMap::new, Collectors.toList()));
+        return byKey.entrySet().stream()
+                .map(entry -> new CatalogEntry(entry.getKey(), commonName(entry.getValue()), entry.getValue().size()))
+                .sorted(Comparator.comparing(CatalogEntry::key))
+                .toList();
+    }
+
+    private static String commonName(List<Speciality.Assignment> assignments) {
+        Map<String, Long> counts = assignments.stream()
+                .collect(Collectors.groupingBy(Speciality.Assignment::name, Collectors.counting()));
+        return counts.entrySet().stream()
+                .max(Map.Entry.<String, Long>comparingByValue().thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder())))
+                .map(Map.Entry::getKey)
+                .orElseThrow();
+    }
+}
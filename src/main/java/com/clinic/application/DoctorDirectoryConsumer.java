@@ -0,0 +1,22 @@
+package com.clinic.application;
+
+import akka.javasdk.annotations.Component;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.consumer.Consumer;
+import com.clinic.domain.Doctor;
+
+/** Drops the lists cached by the {@link DoctorDirectory} of this node when a doctor changes. */
+@Component(id = "doctor-directory")
+@Consume.FromKeyValueEntity(DoctorEntity.class)
+public class DoctorDirectoryConsumer extends Consumer {
+    private final DoctorDirectory doctorDirectory;
+
+    public DoctorDirectoryConsumer(DoctorDirectory doctorDirectory) {
+        this.doctorDirectory = doctorDirectory;
+    }
+
+    public Effect onChange(Doctor doctor) {
+        doctorDirectory.invalidate();
+        return effects().done();
+    }
+}
@@ -0,0 +1,26 @@
+package com.clinic.application;
+
+import akka.Done;
+import akka.javasdk.annotations.Component;
+import akka.javasdk.keyvalueentity.KeyValueEntity;
+import com.clinic.domain.Speciality;
+
+/**
+ * One doctor practising one speciality, the source of a row of the speciality index in {@link DoctorsView}. The
+ * entity id is {@link Speciality.Assignment#id}; written by {@link SpecialityIndexConsumer} only.
+ */
+@Component(id = "doctor-speciality")
+public class DoctorSpecialityEntity extends KeyValueEntity<Speciality.Assignment> {
+
+    public Effect<Done> assign(Speciality.Assignment assignment) {
+        if (assignment.equals(currentState()))
+            return effects().reply(Done.getInstance());
+        return effects().updateState(assignment).thenReply(Done.getInstance());
+    }
+
+    public Effect<Done> withdraw() {
+        if (currentState() == null || !currentState().active())
+            return effects().reply(Done.getInstance());
+        return effects().updateState(currentState().withdrawn()).thenReply(Done.getInstance());
+    }
+}
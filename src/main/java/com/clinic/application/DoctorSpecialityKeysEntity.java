@@ -0,0 +1,26 @@
+package com.clinic.application;
+
+import akka.Done;
+import akka.javasdk.annotations.Component;
+import akka.javasdk.keyvalueentity.KeyValueEntity;
+import com.clinic.domain.Speciality;
+
+import java.util.Optional;
+
+/**
+ * The speciality keys a doctor was last assigned to, by doctor id, so {@link SpecialityIndexConsumer} knows what to
+ * withdraw when a doctor drops a speciality; written by that consumer only.
+ */
+@Component(id = "doctor-speciality-keys")
+public class DoctorSpecialityKeysEntity extends KeyValueEntity<Speciality.DoctorKeys> {
+
+    public Effect<Done> record(Speciality.DoctorKeys keys) {
+        if (keys.equals(currentState()))
+            return effects().reply(Done.getInstance());
+        return effects().updateState(keys).thenReply(Done.getInstance());
+    }
+
+    public Effect<Optional<Speciality.DoctorKeys>> getKeys() {
+        return effects().reply(Optional.ofNullable(currentState()));
+    }
+}
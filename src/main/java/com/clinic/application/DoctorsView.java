@@ -1,23 +1,31 @@
 package com.clinic.application;
 
-import akka.Done;
 import akka.javasdk.annotations.Component;
 import akka.javasdk.annotations.Consume;
 import akka.javasdk.annotations.Query;
-import akka.javasdk.keyvalueentity.KeyValueEntity;
+import akka.javasdk.annotations.Table;
 import akka.javasdk.view.TableUpdater;
 import akka.javasdk.view.View;
 import com.clinic.domain.Doctor;
+import com.clinic.domain.Speciality;
 
 import java.util.List;
-import java.util.Optional;
 
 @Component(id = "doctors")
 public class DoctorsView extends View {
 
+    @Table("doctors")
     @Consume.FromKeyValueEntity(DoctorEntity.class)
     public static class Updator extends TableUpdater<Doctor> {}
 
+    /**
+     * The speciality index: one row per doctor and normalized speciality, see {@link Speciality#key}, so doctors are
+     * looked up by equality on the key instead of scanning the specialities of every doctor.
+     */
+    @Table("doctor_specialities")
+    @Consume.FromKeyValueEntity(DoctorSpecialityEntity.class)
+    public static class SpecialityUpdater extends TableUpdater<Speciality.Assignment> {}
+
     public record Doctors(List<Doctor> doctors) {}
 
     @Query("SELECT * AS doctors FROM doctors")
@@ -25,8 +33,22 @@ public class DoctorsView extends View {
         return queryResult();
     }
 
-    @Query("SELECT * AS doctors FROM doctors WHERE :speciality = ANY(specialities)")
-    public QueryEffect<Doctors> findBySpeciality(String speciality) {
+    public record Assignments(List<Speciality.Assignment> entries) {}
+
+    /** @param specialityKey a normalized key, see {@link Speciality#key} */
+    @Query("SELECT * AS entries FROM doctor_specialities WHERE specialityKey = :specialityKey AND active = true")
+    public QueryEffect<Assignments> findBySpecialityKey(String specialityKey) {
+        return queryResult();
+    }
+
+    @Query("SELECT * AS entries FROM doctor_specialities WHERE doctorId = :doctorId AND active = true")
+    public QueryEffect<Assignments> findSpecialitiesOfDoctor(String doctorId) {
+        return queryResult();
+    }
+
+    /** All practised specialities, one row per doctor; the catalog is built from these. */
+    @Query("SELECT * AS entries FROM doctor_specialities WHERE active = true ORDER BY specialityKey")
+    public QueryEffect<Assignments> getAssignments() {
         return queryResult();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,111 @@
+package com.clinic.application;
+
+import akka.Done;
+import akka.javasdk.annotations.Component;
+import akka.javasdk.eventsourcedentity.EventSourcedEntity;
+import akka.javasdk.eventsourcedentity.EventSourcedEntityContext;
+import com.clinic.domain.Schedule;
+import com.clinic.domain.ScheduleEvents;
+
+import java.time.LocalTime;
+import java.util.Optional;
+
+/**
+ * Event-sourced alternative to {@link ScheduleEntity} with the same commands and the same ids (doctorId:date).
+ * Each command persists a single slot or status event instead of rewriting the whole day.
+ */
+@Component(id = "schedule-journal")
+public class EventSourcedScheduleEntity extends EventSourcedEntity<Schedule, ScheduleEvents> {
+    private final Schedule.ScheduleId entityId;
+
+    public EventSourcedScheduleEntity(EventSourcedEntityContext context) {
+        this.entityId = Schedule.ScheduleId.fromString(context.entityId());
+    }
+
+    public Effect<Done> createSchedule(Schedule.WorkingHours workingHours) {
+        if (currentState() != null)
+            return effects().error("Schedule already exists");
+        return effects()
+                .persist(new ScheduleEvents.ScheduleCreated(workingHours))
+                .thenReply(__ -> Done.getInstance());
+    }
+
+    public Effect<Done> scheduleAppointment(ScheduleEntity.ScheduleAppointmentData data) {
+        if (currentState() == null)
+            return effects().error("Working hours aren't defined for the selected date");
+        try {
+            // validate against the current slots before persisting
+            var slot = currentState()
+                    .scheduleAppointment(data.startTime(), data.duration(), data.appointmentId())
+                    .timeSlots()
+                    .getLast();
+            return effects()
+                    .persist(new ScheduleEvents.SlotBooked(slot.startTime(), slot.endTime(), slot.appointmentId()))
+                    .thenReply(__ -> Done.getInstance());
+        } catch (IllegalArgumentException e) {
+            return effects().error(e.getMessage());
+        }
+    }
+
+    public Effect<Done> cancelAppointmentByStartTime(LocalTime startTime) {
+        if (currentState() == null)
+            return effects().error("Schedule does not exist");
+        var exists = currentState().timeSlots().stream().anyMatch(ts -> ts.startTime().equals(startTime));
+        if (!exists)
+            return effects().error("No timeslot found starting at " + startTime);
+        return effects()
+                .persist(new ScheduleEvents.SlotReleased(startTime))
+                .thenReply(__ -> Done.getInstance());
+    }
+
+    public Effect<Done> blockDay() {
+        if (currentState() == null) return effects().error("Schedule does not exist");
+        return effects()
+                .persist(new ScheduleEvents.DayBlocked())
+                .thenReply(__ -> Done.getInstance());
+    }
+
+    public Effect<Done> cancelDay() {
+        if (currentState() == null) return effects().error("Schedule does not exist");
+        return effects()
+                .persist(new ScheduleEvents.DayCancelled())
+                .thenReply(__ -> Done.getInstance());
+    }
+
+    public Effect<Done> reactivateDay() {
+        if (currentState() == null) return effects().error("Schedule does not exist");
+        return effects()
+                .persist(new ScheduleEvents.DayReactivated())
+                .thenReply(__ -> Done.getInstance());
+    }
+
+    /**
+     * Brings this entity in line with a key-value {@link Schedule}, persisting only the differences.
+     * On an empty entity this writes the initial events of a migrated schedule; afterwards it is a no-op
+     * unless the key-value state changed.
+     */
+    public Effect<Done> syncFrom(Schedule schedule) {
+        var events = ScheduleEvents.diff(currentState(), schedule);
+        if (events.isEmpty())
+            return effects().reply(Done.getInstance());
+        return effects()
+                .persistAll(events)
+                .thenReply(__ -> Done.getInstance());
+    }
+
+    public Effect<Optional<Schedule>> getSchedule() {
+        return effects().reply(Optional.ofNullable(currentState()));
+    }
+
+    @Override
+    public Schedule applyEvent(ScheduleEvents event) {
+        return switch (event) {
+            case ScheduleEvents.ScheduleCreated e -> new Schedule(entityId, e.workingHours());
+            case ScheduleEvents.SlotBooked e -> currentState().addTimeSlot(e.timeSlot());
+            case ScheduleEvents.SlotReleased e -> currentState().removeTimeSlotByStartTime(e.startTime());
+            case ScheduleEvents.DayBlocked e -> currentState().blockSchedule();
+            case ScheduleEvents.DayCancelled e -> currentState().cancelSchedule();
+            case ScheduleEvents.DayReactivated e -> currentState().reactivate();
+        };
+    }
+}
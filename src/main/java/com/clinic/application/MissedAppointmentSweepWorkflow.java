@@ -0,0 +1,191 @@
+package com.clinic.application;
+
+import akka.Done;
+import akka.javasdk.annotations.Component;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.timer.TimerScheduler;
+import akka.javasdk.workflow.Workflow;
+import com.clinic.domain.Appointment;
+import com.clinic.domain.MissedSweepState;
+import com.typesafe.config.Config;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Marks the appointments of a past day that are still scheduled as missed. The workflow id is the date, so a day is
+ * swept once no matter how many nodes trigger it. The appointments are read page by page from
+ * {@link AppointmentsByPatientView} and marked a few at a time; the view and the past appointments are all it touches,
+ * schedules and the booking path are left alone.
+ * <p>
+ * Runs every night from a timer: {@link #scheduleNextSweep} is called on startup and whenever a sweep ends. A day
+ * whose sweep failed pauses at its cursor and is retried from there by a timer of its own, since the nightly timer
+ * moves on to the next day.
+ */
+@Component(id = "missed-appointment-sweep")
+public class MissedAppointmentSweepWorkflow extends Workflow<MissedSweepState> {
+
+    /** One timer for the whole service; scheduling it again replaces it. */
+    static final String TIMER_NAME = "missed-appointment-sweep";
+
+    /**
+     * @param runAt       time of day the previous day is swept
+     * @param pageSize    appointments read per step, the progress is saved after each page
+     * @param concurrency appointments marked at the same time
+     * @param pageTimeout time limit of a page
+     * @param retryAfter  how long a failed day waits before its sweep is resumed
+     */
+    public record Settings(LocalTime runAt, int pageSize, int concurrency, Duration pageTimeout, Duration retryAfter) {
+        public static Settings fromConfig(Config config) {
+            return new Settings(
+                    LocalTime.parse(config.getString("run-at")),
+                    config.getInt("page-size"),
+                    config.getInt("concurrency"),
+                    config.getDuration("page-timeout"),
+                    config.getDuration("retry-after"));
+        }
+
+        /** The next run after the given time. */
+        public LocalDateTime nextRun(LocalDateTime now) {
+            var today = now.toLocalDate().atTime(runAt);
+            return today.isAfter(now) ? today : today.plusDays(1);
+        }
+    }
+
+    private final ComponentClient componentClient;
+    private final Settings sweepSettings;
+
+    public MissedAppointmentSweepWorkflow(ComponentClient componentClient, Settings sweepSettings) {
+        this.componentClient = componentClient;
+        this.sweepSettings = sweepSettings;
+    }
+
+    /** Schedules the sweep of the day before the next run. */
+    public static void scheduleNextSweep(TimerScheduler timers, ComponentClient componentClient, Settings settings) {
+        var now = LocalDateTime.now();
+        var nextRun = settings.nextRun(now);
+        var day = nextRun.toLocalDate().minusDays(1);
+        timers.createSingleTimer(
+                TIMER_NAME,
+                Duration.between(now, nextRun),
+                componentClient
+                        .forWorkflow(day.toString())
+                        .method(MissedAppointmentSweepWorkflow::sweep)
+                        .deferred(day));
+    }
+
+    public Effect<Done> sweep(LocalDate date) {
+        if (currentState() != null) {
+            // already swept or sweeping, e.g. triggered by hand as well; the timer that got here still needs a successor
+            scheduleNextSweep(timers(), componentClient, sweepSettings);
+            // a failed sweep waits at its cursor, sweeping the day again continues from there
+            if (currentState().status() == MissedSweepState.Status.Failed)
+                return effects()
+                        .updateState(currentState().withStatus(MissedSweepState.Status.Sweeping))
+                        .transitionTo(MissedAppointmentSweepWorkflow::sweepPage)
+                        .thenReply(Done.getInstance());
+            return effects().reply(Done.getInstance());
+        }
+        if (!date.isBefore(LocalDate.now()))
+            return effects().error("Only past days can be swept");
+
+        return effects()
+                .updateState(MissedSweepState.initial(date))
+                .transitionTo(MissedAppointmentSweepWorkflow::sweepPage)
+                .thenReply(Done.getInstance());
+    }
+
+    public Effect<MissedSweepState> getState() {
+        if (currentState() == null)
+            return effects().error("Sweep not found");
+        return effects().reply(currentState());
+    }
+
+    /** Marks the next page of still scheduled appointments and saves the position reached. */
+    public StepEffect sweepPage() {
+        var state = currentState();
+        var page = componentClient
+                .forView()
+                .method(AppointmentsByPatientView::findPageByStatusAndDate)
+                .invoke(new AppointmentsByPatientView.FindApptStatusDatePage(
+                        Appointment.Status.SCHEDULED, state.date().toString(), state.afterTime(), state.afterId(),
+                        sweepSettings.pageSize()))
+                .appointments();
+        System.out.println("## sweep.sweepPage " + state.date() + " after " + state.afterTime() + " " + page.size());
+        if (page.isEmpty())
+            return stepEffects()
+                    .updateState(state.withStatus(MissedSweepState.Status.Completed))
+                    .thenTransitionTo(MissedAppointmentSweepWorkflow::scheduleNext);
+
+        int marked = 0;
+        for (int i = 0; i < page.size(); i += sweepSettings.concurrency()) {
+            var batch = page.subList(i, Math.min(page.size(), i + sweepSettings.concurrency()));
+            var futures = batch.stream()
+                    .map(appointment -> componentClient
+                            .forEventSourcedEntity(appointment.id())
+                            .method(AppointmentEntity::markAsMissed)
+                            .invokeAsync()
+                            .thenApply(__ -> true)
+                            .exceptionally(e -> {
+                                var cause = e instanceof CompletionException ? e.getCause() : e;
+                                // the view lags behind the entity: completed, cancelled or already marked
+                                if (cause instanceof IllegalArgumentException)
+                                    return false;
+                                // anything else retries the page
+                                throw new CompletionException(cause);
+                            })
+                            .toCompletableFuture())
+                    .toList();
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+            for (var future : futures)
+                if (future.join())
+                    marked++;
+        }
+
+        var last = page.getLast();
+        return stepEffects()
+                .updateState(state.afterPage(last.time(), last.id(), marked, page.size() - marked))
+                .thenTransitionTo(MissedAppointmentSweepWorkflow::sweepPage);
+    }
+
+    /** Pauses instead of ending, and has {@link #sweep} resume the day from the saved cursor later on. */
+    public StepEffect sweepFailed() {
+        var date = currentState().date();
+        System.out.println("## sweep.sweepFailed " + date);
+        scheduleNextSweep(timers(), componentClient, sweepSettings);
+        timers().createSingleTimer(
+                retryTimerName(date),
+                sweepSettings.retryAfter(),
+                componentClient
+                        .forWorkflow(date.toString())
+                        .method(MissedAppointmentSweepWorkflow::sweep)
+                        .deferred(date));
+        return stepEffects()
+                .updateState(currentState().withStatus(MissedSweepState.Status.Failed))
+                .thenPause();
+    }
+
+    /** Keeps the nightly timer going, also after a failed or manual sweep. */
+    public StepEffect scheduleNext() {
+        scheduleNextSweep(timers(), componentClient, sweepSettings);
+        return stepEffects().thenEnd();
+    }
+
+    /** One per failed day, next to the nightly timer. */
+    private static String retryTimerName(LocalDate date) {
+        return TIMER_NAME + "-retry-" + date;
+    }
+
+    @Override
+    public WorkflowSettings settings() {
+        return WorkflowSettingsBuilder
+                .newBuilder()
+                .stepTimeout(MissedAppointmentSweepWorkflow::sweepPage, sweepSettings.pageTimeout())
+                .stepRecovery(MissedAppointmentSweepWorkflow::sweepPage, RecoverStrategy.maxRetries(3).failoverTo(MissedAppointmentSweepWorkflow::sweepFailed))
+                .build();
+    }
+}
@@ -0,0 +1,152 @@
+package com.clinic.application;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Read-through cache of view query results on this node. An entry is served as is for {@code freshFor}; for
+ * {@code maxStale} after that it is still served while a reload runs in the background, and only older entries make
+ * the caller wait for the loader. Callers asking for a key that is being loaded share the load. At most
+ * {@code maxEntries} keys are kept, the least recently used are dropped first.
+ * <p>
+ * {@link #invalidateAll()} drops everything; loads started before it don't store their results.
+ */
+public class NearCache<K, V> {
+
+    /**
+     * @param hits        answered from a fresh entry
+     * @param staleHits   answered from a stale entry while it was reloaded
+     * @param misses      callers that waited for the loader
+     * @param reloads     background reloads of stale entries
+     * @param loadErrors  loads that failed; a failed reload keeps serving the stale entry
+     * @param size        entries cached now
+     * @param hitRatio    share of calls not waiting for the loader
+     */
+    public record Metrics(long hits, long staleHits, long misses, long reloads, long loadErrors, long invalidations,
+                          int size, double hitRatio) {
+    }
+
+    private record Entry<V>(V value, long loadedAt) {}
+
+    private final Function<K, CompletionStage<V>> loader;
+    private final long freshNanos;
+    private final long staleNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final Map<K, CompletableFuture<V>> loading = new HashMap<>();
+    /** bumped by {@link #invalidateAll()}, loads of an older generation are not stored */
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder loadErrors = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public NearCache(Function<K, CompletionStage<V>> loader, Duration freshFor, Duration maxStale, int maxEntries) {
+        this(loader, freshFor, maxStale, maxEntries, System::nanoTime);
+    }
+
+    NearCache(Function<K, CompletionStage<V>> loader, Duration freshFor, Duration maxStale, int maxEntries,
+              LongSupplier clock) {
+        this.loader = loader;
+        this.freshNanos = freshFor.toNanos();
+        this.staleNanos = maxStale.toNanos();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /** The cached value, or the loaded one when there is none young enough; loader errors are rethrown. */
+    public V get(K key) {
+        CompletableFuture<V> load;
+        synchronized (this) {
+            var entry = entries.get(key);
+            if (entry != null) {
+                var age = clock.getAsLong() - entry.loadedAt();
+                if (age < freshNanos) {
+                    hits.increment();
+                    return entry.value();
+                }
+                if (age < freshNanos + staleNanos) {
+                    staleHits.increment();
+                    if (!loading.containsKey(key)) {
+                        reloads.increment();
+                        load(key);
+                    }
+                    return entry.value();
+                }
+            }
+            misses.increment();
+            load = loading.containsKey(key) ? loading.get(key) : load(key);
+        }
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw e;
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+        loading.clear();
+        invalidations.increment();
+    }
+
+    public Metrics metrics() {
+        var hit = hits.sum();
+        var stale = staleHits.sum();
+        var miss = misses.sum();
+        var total = hit + stale + miss;
+        int size;
+        synchronized (this) {
+            size = entries.size();
+        }
+        return new Metrics(hit, stale, miss, reloads.sum(), loadErrors.sum(), invalidations.sum(), size,
+                total == 0 ? 0 : (double) (hit + stale) / total);
+    }
+
+    /** Called holding the lock. */
+    private CompletableFuture<V> load(K key) {
+        var startedIn = generation;
+        var load = new CompletableFuture<V>();
+        loading.put(key, load);
+        CompletionStage<V> loaded;
+        try {
+            loaded = loader.apply(key);
+        } catch (RuntimeException e) {
+            loaded = CompletableFuture.failedFuture(e);
+        }
+        loaded.whenComplete((value, error) -> {
+            synchronized (this) {
+                if (loading.get(key) == load)
+                    loading.remove(key);
+                if (error == null && generation == startedIn)
+                    entries.put(key, new Entry<>(value, clock.getAsLong()));
+            }
+            if (error != null) {
+                loadErrors.increment();
+                load.completeExceptionally(error);
+            } else {
+                load.complete(value);
+            }
+        });
+        return load;
+    }
+}
@@ -0,0 +1,78 @@
+package com.clinic.application;
+
+import akka.javasdk.annotations.Component;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.annotations.Query;
+import akka.javasdk.annotations.Table;
+import akka.javasdk.view.TableUpdater;
+import akka.javasdk.view.View;
+import com.clinic.domain.Occupancy;
+import com.clinic.domain.Schedule;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+
+/**
+ * One row per doctor-day with occupancy numbers computed when the schedule changes, so dashboards
+ * read O(days) rows instead of summing time slots client-side.
+ */
+@Component(id = "occupancy")
+public class OccupancyView extends View {
+
+    /**
+     * @param day       start of the date in UTC, see {@link SchedulesByDoctorView#dayOf}
+     * @param weekStart start of the Monday of the date's week in UTC
+     */
+    public record OccupancyRow(String doctorId, String date, Instant day, Instant weekStart, Schedule.Status status,
+                               long workingMinutes, long bookedMinutes, long freeMinutes, int slotCount,
+                               double utilization) {
+        public Occupancy occupancy() {
+            return new Occupancy(workingMinutes, bookedMinutes, freeMinutes, slotCount);
+        }
+    }
+
+    @Table("occupancy")
+    @Consume.FromKeyValueEntity(ScheduleEntity.class)
+    public static class Updater extends TableUpdater<OccupancyRow> {
+        public Effect<OccupancyRow> onChange(Schedule schedule) {
+            var occupancy = Occupancy.of(schedule);
+            var date = schedule.id().date();
+            var row = new OccupancyRow(
+                    schedule.id().doctorId(),
+                    date.toString(),
+                    SchedulesByDoctorView.dayOf(date),
+                    SchedulesByDoctorView.dayOf(date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))),
+                    schedule.status(),
+                    occupancy.workingMinutes(),
+                    occupancy.bookedMinutes(),
+                    occupancy.freeMinutes(),
+                    occupancy.slotCount(),
+                    occupancy.utilization());
+            if (row.equals(rowState()))
+                return effects().ignore();
+            return effects().updateRow(row);
+        }
+    }
+
+    public record OccupancyRows(List<OccupancyRow> days) {}
+
+    /**
+     * @param from inclusive
+     * @param to inclusive
+     */
+    public record FindDoctorOccupancy(String doctorId, Instant from, Instant to) {}
+
+    @Query("SELECT * AS days FROM occupancy WHERE doctorId = :doctorId AND day >= :from AND day <= :to ORDER BY day")
+    public QueryEffect<OccupancyRows> getDoctorOccupancy(FindDoctorOccupancy query) {
+        return queryResult();
+    }
+
+    public record FindWeekOccupancy(List<String> doctorIds, Instant weekStart) {}
+
+    @Query("SELECT * AS days FROM occupancy WHERE doctorId = ANY(:doctorIds) AND weekStart = :weekStart")
+    public QueryEffect<OccupancyRows> getWeekOccupancy(FindWeekOccupancy query) {
+        return queryResult();
+    }
+}
@@ -0,0 +1,79 @@
+package com.clinic.application;
+
+import akka.javasdk.annotations.Component;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.consumer.Consumer;
+import com.clinic.domain.Appointment;
+import com.clinic.domain.AppointmentEvents;
+import com.clinic.domain.PatientCalendar;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Applies appointment events to the patient calendars, so they converge to the appointments even when a workflow
+ * stopped between reserving and booking: created and rescheduled appointments hold their time, and appointments
+ * that ended one way or another release it.
+ */
+@Component(id = "patient-calendar-sync")
+@Consume.FromEventSourcedEntity(AppointmentEntity.class)
+public class PatientCalendarConsumer extends Consumer {
+    private final ComponentClient componentClient;
+
+    public PatientCalendarConsumer(ComponentClient componentClient) {
+        this.componentClient = componentClient;
+    }
+
+    public Effect onEvent(AppointmentEvents event) {
+        var appointmentId = messageContext().eventSubject().orElseThrow();
+        return switch (event) {
+            case AppointmentEvents.AppointmentCreated e -> {
+                var duration = e.duration() == null ? Appointment.DEFAULT_DURATION : e.duration();
+                reserve(e.patientId(), appointmentId, e.dateTime(), duration);
+                yield effects().done();
+            }
+            case AppointmentEvents.Rescheduled e -> {
+                appointment(appointmentId).ifPresent(appointment ->
+                        reserve(appointment.patientId(), appointmentId, e.dateTime(), appointment.duration()));
+                yield effects().done();
+            }
+            case AppointmentEvents.Cancelled e -> release(appointmentId);
+            case AppointmentEvents.Completed e -> release(appointmentId);
+            case AppointmentEvents.Missed e -> release(appointmentId);
+            default -> effects().ignore();
+        };
+    }
+
+    private Optional<Appointment> appointment(String appointmentId) {
+        return componentClient
+                .forEventSourcedEntity(appointmentId)
+                .method(AppointmentEntity::getAppointment)
+                .invoke();
+    }
+
+    private Optional<String> patientOf(String appointmentId) {
+        return appointment(appointmentId).map(Appointment::patientId);
+    }
+
+    private void reserve(String patientId, String appointmentId, LocalDateTime start, Duration duration) {
+        try {
+            componentClient
+                    .forKeyValueEntity(patientId)
+                    .method(PatientCalendarEntity::reserve)
+                    .invoke(new PatientCalendar.Booking(appointmentId, start, start.plus(duration)));
+        } catch (IllegalArgumentException e) {
+            // booked before the guard existed; the workflows refuse new overlaps
+            System.out.println("Patient calendar of " + patientId + " not updated: " + e.getMessage());
+        }
+    }
+
+    private Effect release(String appointmentId) {
+        patientOf(appointmentId).ifPresent(patientId -> componentClient
+                .forKeyValueEntity(patientId)
+                .method(PatientCalendarEntity::release)
+                .invoke(appointmentId));
+        return effects().done();
+    }
+}
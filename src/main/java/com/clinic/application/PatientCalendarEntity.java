@@ -0,0 +1,50 @@
+package com.clinic.application;
+
+import akka.Done;
+import akka.javasdk.annotations.Component;
+import akka.javasdk.keyvalueentity.KeyValueEntity;
+import akka.javasdk.keyvalueentity.KeyValueEntityContext;
+import com.clinic.domain.PatientCalendar;
+
+import java.time.LocalDateTime;
+
+/**
+ * Guards patients against overlapping appointments across doctors; the entity id is the patient id.
+ * Workflows reserve time here before booking a slot, and {@link PatientCalendarConsumer} keeps it in line with
+ * the appointment events.
+ */
+@Component(id = "patient-calendar")
+public class PatientCalendarEntity extends KeyValueEntity<PatientCalendar> {
+    private final String patientId;
+
+    public PatientCalendarEntity(KeyValueEntityContext context) {
+        this.patientId = context.entityId();
+    }
+
+    @Override
+    public PatientCalendar emptyState() {
+        return PatientCalendar.empty(patientId);
+    }
+
+    /** Reserves the time of an appointment, moving it when the appointment already has a booking. */
+    public Effect<Done> reserve(PatientCalendar.Booking booking) {
+        try {
+            var calendar = currentState()
+                    .withoutEndedBefore(LocalDateTime.now())
+                    .reserve(booking);
+            return effects().updateState(calendar).thenReply(Done.getInstance());
+        } catch (IllegalArgumentException e) {
+            return effects().error(e.getMessage());
+        }
+    }
+
+    public Effect<Done> release(String appointmentId) {
+        if (currentState().find(appointmentId).isEmpty())
+            return effects().reply(Done.getInstance());
+        return effects().updateState(currentState().release(appointmentId)).thenReply(Done.getInstance());
+    }
+
+    public Effect<PatientCalendar> getCalendar() {
+        return effects().reply(currentState());
+    }
+}
@@ -6,12 +6,10 @@ import akka.javasdk.client.ComponentClient;
 import akka.javasdk.workflow.Workflow;
 import com.clinic.domain.ReassignAppointmentState;
 
-import java.time.Duration;
 import java.time.LocalDateTime;
 
 @Component(id = "reassign-appointment")
 public class ReassignAppointmentWorkflow extends Workflow<ReassignAppointmentState> {
-    private static final Duration DEFAULT_DURATION = Duration.ofMinutes(30);
 
     private final ComponentClient componentClient;
 
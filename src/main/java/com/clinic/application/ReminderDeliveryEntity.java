@@ -0,0 +1,35 @@
+package com.clinic.application;
+
+import akka.Done;
+import akka.javasdk.annotations.Component;
+import akka.javasdk.keyvalueentity.KeyValueEntity;
+import com.clinic.domain.ReminderDeliveries;
+
+import java.util.List;
+
+/**
+ * Reminders {@link AppointmentReminderWorkflow} delivered from the page it is working on; the entity id is the date.
+ * Each reminder is recorded as soon as it is delivered, so a page that is read again after a crash skips it.
+ */
+@Component(id = "reminder-delivery")
+public class ReminderDeliveryEntity extends KeyValueEntity<ReminderDeliveries> {
+
+    @Override
+    public ReminderDeliveries emptyState() {
+        return ReminderDeliveries.empty("");
+    }
+
+    public record Delivered(String cursor, String key) {
+    }
+
+    public Effect<Done> delivered(Delivered delivered) {
+        var updated = currentState().add(delivered.cursor(), delivered.key());
+        if (updated == currentState())
+            return effects().reply(Done.getInstance());
+        return effects().updateState(updated).thenReply(Done.getInstance());
+    }
+
+    public Effect<List<String>> getDelivered(String cursor) {
+        return effects().reply(currentState().keysAt(cursor));
+    }
+}
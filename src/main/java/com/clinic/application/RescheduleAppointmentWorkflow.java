@@ -5,23 +5,23 @@ import akka.javasdk.annotations.Component;
 import akka.javasdk.client.ComponentClient;
 import akka.javasdk.workflow.Workflow;
 import com.clinic.domain.Appointment;
+import com.clinic.domain.PatientCalendar;
 import com.clinic.domain.RescheduleAppointmentState;
 import com.clinic.domain.Schedule;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.Optional;
 
 @Component(id = "reschedule-appointment")
 public class RescheduleAppointmentWorkflow extends Workflow<RescheduleAppointmentState> {
 
-    private static final Duration DEFAULT_DURATION = Duration.ofMinutes(30);
-
     private final ComponentClient componentClient;
+    private final WaitlistService waitlistService;
 
-    public RescheduleAppointmentWorkflow(ComponentClient componentClient) {
+    public RescheduleAppointmentWorkflow(ComponentClient componentClient, WaitlistService waitlistService) {
         this.componentClient = componentClient;
+        this.waitlistService = waitlistService;
     }
 
     public record RescheduleAppointmentCommand(String appointmentId, LocalDateTime newDateTime, String newDoctorId) {}
@@ -65,12 +65,56 @@ public class RescheduleAppointmentWorkflow extends Workflow<RescheduleAppointmen
         }
 
         var appt = maybeAppt.get();
-        var updated = currentState().withOld(appt.dateTime(), appt.doctorId());
+        var updated = currentState().withOld(appt.dateTime(), appt.doctorId(), appt.duration());
+
+        // the patient must be free at the new time, apart from this appointment itself
+        try {
+            componentClient
+                    .forKeyValueEntity(appt.patientId())
+                    .method(PatientCalendarEntity::reserve)
+                    .invoke(patientBooking(currentState().newDateTime(), appt.duration()));
+        } catch (IllegalArgumentException e) {
+            return stepEffects()
+                    .updateState(updated.withStatus(RescheduleAppointmentState.Status.Failed))
+                    .thenEnd();
+        }
+
+        if (updated.isSameSchedule())
+            return stepEffects()
+                    .updateState(updated)
+                    .thenTransitionTo(RescheduleAppointmentWorkflow::moveTimeSlot);
 
         return stepEffects()
                 .updateState(updated)
                 .thenTransitionTo(RescheduleAppointmentWorkflow::createNewTimeSlot);
     }
+
+    /**
+     * Same-day fast path: moves the slot within its schedule in one write, instead of creating the new slot and
+     * removing the old one separately.
+     */
+    public StepEffect moveTimeSlot() {
+        System.out.println("## reschedule.moveTimeSlot");
+
+        try {
+            componentClient
+                    .forKeyValueEntity(oldScheduleId().toString())
+                    .method(ScheduleEntity::moveAppointment)
+                    .invoke(new ScheduleEntity.MoveAppointmentData(
+                            currentState().appointmentId(),
+                            currentState().newDateTime().toLocalTime()
+                    ));
+        } catch (IllegalArgumentException e) {
+            restorePatientTime();
+            return stepEffects()
+                    .updateState(currentState().withStatus(RescheduleAppointmentState.Status.Failed))
+                    .thenEnd();
+        }
+
+        return stepEffects()
+                .updateState(currentState().withStatus(RescheduleAppointmentState.Status.SlotMoved))
+                .thenTransitionTo(RescheduleAppointmentWorkflow::rescheduleAppointmentEntity);
+    }
     /** 1) Try to create the NEW time slot. If it fails, stop (no further changes). */
     public StepEffect createNewTimeSlot() {
         System.out.println("## reschedule.createNewTimeSlot");
@@ -80,17 +124,25 @@ public class RescheduleAppointmentWorkflow extends Workflow<RescheduleAppointmen
                 currentState().newDateTime().toLocalDate()
         );
 
+        // only used when the new day has no schedule yet
+        var templateHours = componentClient
+                .forKeyValueEntity(currentState().newDoctorId())
+                .method(WeeklyTemplateEntity::getWorkingHours)
+                .invoke(currentState().newDateTime().toLocalDate());
+
         try {
             componentClient
                     .forKeyValueEntity(newScheduleId.toString())
                     .method(ScheduleEntity::scheduleAppointment)
                     .invoke(new ScheduleEntity.ScheduleAppointmentData(
                             currentState().newDateTime().toLocalTime(),
-                            DEFAULT_DURATION,
-                            currentState().appointmentId()
+                            duration(),
+                            currentState().appointmentId(),
+                            templateHours
                     ));
         } catch (IllegalArgumentException e) {
             // Could not allocate the new slot → end
+            restorePatientTime();
             return stepEffects()
                     .updateState(currentState().withStatus(RescheduleAppointmentState.Status.Failed))
                     .thenEnd();
@@ -117,10 +169,14 @@ public class RescheduleAppointmentWorkflow extends Workflow<RescheduleAppointmen
                             currentState().newDoctorId()
                     ));
         } catch (IllegalArgumentException e) {
-            // Rollback the newly created slot, best-effort
-            rollbackNewTimeSlot();
+            return undoReschedule();
+        }
+
+        // after a move the old slot is already gone
+        if (currentState().status() == RescheduleAppointmentState.Status.SlotMoved) {
+            offerOldSlotToWaitlist();
             return stepEffects()
-                    .updateState(currentState().withStatus(RescheduleAppointmentState.Status.Failed))
+                    .updateState(currentState().withStatus(RescheduleAppointmentState.Status.OldSlotRemoved))
                     .thenEnd();
         }
 
@@ -130,26 +186,19 @@ public class RescheduleAppointmentWorkflow extends Workflow<RescheduleAppointmen
     }
 
     /**
-     * 3) Remove the OLD time slot (identified by old doctor/date + old start time).
+     * 3) Remove the OLD time slot. It is found by appointment id, so a booking made at the old time in the meantime
+     * is left alone, and a retry after the slot is gone succeeds. After a same-day move there is nothing to remove.
      * If this fails (contention, transient), let workflow recovery handle retries.
      */
     public StepEffect removeOldTimeSlot() {
         System.out.println("## reschedule.removeOldTimeSlot");
 
-        var oldScheduleId = new Schedule.ScheduleId(
-                currentState().oldDoctorId(),
-                currentState().oldDateTime().toLocalDate()
-        );
-        LocalTime oldStart = currentState().oldDateTime().toLocalTime();
-
-        try {
+        if (currentState().status() != RescheduleAppointmentState.Status.SlotMoved) {
             componentClient
-                    .forKeyValueEntity(oldScheduleId.toString())
-                    .method(ScheduleEntity::cancelAppointmentByStartTime)
-                    .invoke(oldStart);
-        } catch (IllegalArgumentException e) {
-            // surface to recovery policy
-            throw e;
+                    .forKeyValueEntity(oldScheduleId().toString())
+                    .method(ScheduleEntity::cancelAppointment)
+                    .invoke(currentState().appointmentId());
+            offerOldSlotToWaitlist();
         }
 
         return stepEffects()
@@ -157,20 +206,104 @@ public class RescheduleAppointmentWorkflow extends Workflow<RescheduleAppointmen
                 .thenEnd();
     }
 
+    /** Creating the new slot or updating the appointment kept failing: undoes the new slot, or the move, and ends. */
+    public StepEffect rescheduleFailed() {
+        return undoReschedule();
+    }
+
+    /** The appointment is at its new time but its old slot couldn't be removed; ends instead of retrying forever. */
+    public StepEffect oldSlotNotRemoved() {
+        System.out.println("Old slot of appointment " + currentState().appointmentId() + " left in " + oldScheduleId());
+        return stepEffects()
+                .updateState(currentState().withStatus(RescheduleAppointmentState.Status.OldSlotLeft))
+                .thenEnd();
+    }
+
+    public StepEffect moveFailed() {
+        restorePatientTime();
+        return stepEffects()
+                .updateState(currentState().withStatus(RescheduleAppointmentState.Status.Failed))
+                .thenEnd();
+    }
+
     // ===== Helpers =====
 
-    /** Best-effort rollback of the NEW slot created in step 1. */
+    private StepEffect undoReschedule() {
+        rollbackNewTimeSlot();
+        restorePatientTime();
+        return stepEffects()
+                .updateState(currentState().withStatus(RescheduleAppointmentState.Status.Failed))
+                .thenEnd();
+    }
+
+    /** Best effort: a failed offer must not undo or retry the reschedule. */
+    private void offerOldSlotToWaitlist() {
+        try {
+            waitlistService.offer(currentState().oldDoctorId(), currentState().oldDateTime(), duration())
+                    .ifPresent(appointmentId -> System.out.println("Freed slot offered to waitlist, appointment " + appointmentId));
+        } catch (RuntimeException e) {
+            System.out.println("Waitlist offer failed: " + e.getMessage());
+        }
+    }
+
+    private PatientCalendar.Booking patientBooking(LocalDateTime start, Duration duration) {
+        return new PatientCalendar.Booking(currentState().appointmentId(), start, start.plus(duration));
+    }
+
+    /** Workflows started before durations existed don't have one in their state. */
+    private Duration duration() {
+        return currentState().duration() == null ? Appointment.DEFAULT_DURATION : currentState().duration();
+    }
+
+    /** Best effort: puts the patient's calendar back to the appointment's old time after the reschedule failed. */
+    private void restorePatientTime() {
+        try {
+            componentClient
+                    .forEventSourcedEntity(currentState().appointmentId())
+                    .method(AppointmentEntity::getAppointment)
+                    .invoke()
+                    .ifPresent(appt -> componentClient
+                            .forKeyValueEntity(appt.patientId())
+                            .method(PatientCalendarEntity::reserve)
+                            .invoke(patientBooking(currentState().oldDateTime(), appt.duration())));
+        } catch (RuntimeException e) {
+            System.out.println("Patient calendar not restored: " + e.getMessage());
+        }
+    }
+
+    private Schedule.ScheduleId oldScheduleId() {
+        return new Schedule.ScheduleId(
+                currentState().oldDoctorId(),
+                currentState().oldDateTime().toLocalDate()
+        );
+    }
+
+    /** Best-effort rollback of the NEW slot created in step 1, or of the move on the same-day path. */
     private void rollbackNewTimeSlot() {
+        if (currentState().status() == RescheduleAppointmentState.Status.SlotMoved) {
+            try {
+                componentClient
+                        .forKeyValueEntity(oldScheduleId().toString())
+                        .method(ScheduleEntity::moveAppointment)
+                        .invoke(new ScheduleEntity.MoveAppointmentData(
+                                currentState().appointmentId(),
+                                currentState().oldDateTime().toLocalTime()
+                        ));
+            } catch (Exception ignore) {
+                // best-effort rollback only
+            }
+            return;
+        }
+
         var newScheduleId = new Schedule.ScheduleId(
                 currentState().newDoctorId(),
                 currentState().newDateTime().toLocalDate()
         );
-        var start = currentState().newDateTime().toLocalTime();
         try {
             componentClient
                     .forKeyValueEntity(newScheduleId.toString())
-                    .method(ScheduleEntity::cancelAppointmentByStartTime)
-                    .invoke(start);
+                    .method(ScheduleEntity::cancelAppointment)
+                    .invoke(currentState().appointmentId());
         } catch (Exception ignore) {
             // best-effort rollback only
         }
@@ -184,9 +317,28 @@ public class RescheduleAppointmentWorkflow extends Workflow<RescheduleAppointmen
                 .newBuilder()
                 // Removing the old slot can be contended; give it time + retries.
                 .stepTimeout(RescheduleAppointmentWorkflow::removeOldTimeSlot, Duration.ofSeconds(40))
+                // a failed move leaves the original slot in place; there is no old slot to remove
+                .stepRecovery(
+                        RescheduleAppointmentWorkflow::moveTimeSlot,
+                        RecoverStrategy.maxRetries(3).failoverTo(RescheduleAppointmentWorkflow::moveFailed)
+                )
+                // the new slot may have been created before the step failed; it is in another schedule than the old
+                .stepRecovery(
+                        RescheduleAppointmentWorkflow::createNewTimeSlot,
+                        RecoverStrategy.maxRetries(3).failoverTo(RescheduleAppointmentWorkflow::rescheduleFailed)
+                )
+                // the old slot is still booked, so undo the new one (or the move) rather than remove the old one
+                .stepRecovery(
+                        RescheduleAppointmentWorkflow::rescheduleAppointmentEntity,
+                        RecoverStrategy.maxRetries(3).failoverTo(RescheduleAppointmentWorkflow::rescheduleFailed)
+                )
+                .stepRecovery(
+                        RescheduleAppointmentWorkflow::removeOldTimeSlot,
+                        RecoverStrategy.maxRetries(5).failoverTo(RescheduleAppointmentWorkflow::oldSlotNotRemoved)
+                )
                 .defaultStepRecovery(
                         RecoverStrategy.maxRetries(3)
-                                .failoverTo(RescheduleAppointmentWorkflow::removeOldTimeSlot)
+                                .failoverTo(RescheduleAppointmentWorkflow::moveFailed)
                 )
                 .build();
     }
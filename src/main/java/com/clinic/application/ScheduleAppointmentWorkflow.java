@@ -4,15 +4,19 @@ import akka.Done;
 import akka.javasdk.annotations.Component;
 import akka.javasdk.client.ComponentClient;
 import akka.javasdk.workflow.Workflow;
+import com.clinic.domain.Appointment;
+import com.clinic.domain.PatientCalendar;
 import com.clinic.domain.ScheduleAppointmentState;
 import com.clinic.domain.Schedule;
+import com.clinic.domain.Waitlist;
 import java.time.Duration;
 import java.time.LocalDateTime;
 
 @Component(id = "schedule-appointment")
 public class ScheduleAppointmentWorkflow extends Workflow<ScheduleAppointmentState> {
 
-    private static final Duration DEFAULT_DURATION = Duration.ofMinutes(30);
+    /** How long a reserved slot waits for the appointment to be created before it is freed again. */
+    private static final Duration HOLD_TTL = Duration.ofMinutes(2);
 
     private final ComponentClient componentClient;
 
@@ -20,17 +24,31 @@ public class ScheduleAppointmentWorkflow extends Workflow<ScheduleAppointmentSta
         this.componentClient = componentClient;
     }
 
-    public record ScheduleAppointmentCommand(LocalDateTime dateTime, String doctorId, String patientId, String issue) {}
+    /**
+     * @param duration      how long the appointment takes, see {@link com.clinic.domain.AppointmentTypes}
+     * @param waitlistEntry set when a freed slot is offered to the waitlist, see {@link WaitlistOfferConsumer}
+     */
+    public record ScheduleAppointmentCommand(LocalDateTime dateTime, String doctorId, String patientId, String issue,
+                                             Duration duration, Waitlist.Entry waitlistEntry) {
+        public ScheduleAppointmentCommand(LocalDateTime dateTime, String doctorId, String patientId, String issue,
+                                          Duration duration) {
+            this(dateTime, doctorId, patientId, issue, duration, null);
+        }
+
+        public ScheduleAppointmentCommand(LocalDateTime dateTime, String doctorId, String patientId, String issue) {
+            this(dateTime, doctorId, patientId, issue, Appointment.DEFAULT_DURATION);
+        }
+    }
 
     public Effect<Done> schedule(ScheduleAppointmentCommand cmd) {
         System.out.println("## schedule");
         if (currentState() != null)
             return effects().error("Appointment already exists");
 
-        var state = new ScheduleAppointmentState(cmd.dateTime, cmd.doctorId, cmd.patientId, cmd.issue, ScheduleAppointmentState.Status.Initial);
+        var state = new ScheduleAppointmentState(cmd.dateTime, cmd.doctorId, cmd.patientId, cmd.issue, ScheduleAppointmentState.Status.Initial, cmd.duration, cmd.waitlistEntry);
         return effects()
                 .updateState(state)
-                .transitionTo(ScheduleAppointmentWorkflow::createAppointment)
+                .transitionTo(ScheduleAppointmentWorkflow::reservePatientTime)
                 .thenReply(Done.getInstance());
     }
 
@@ -40,15 +58,81 @@ public class ScheduleAppointmentWorkflow extends Workflow<ScheduleAppointmentSta
 
     public Effect<Boolean> isCompleted() {
         return effects()
-                .reply(currentState().status() == ScheduleAppointmentState.Status.AppointmentScheduled || currentState().status() == ScheduleAppointmentState.Status.AppointmentCancelled);
+                .reply(currentState().status().isTerminal());
+    }
+
+    /** Refuses the booking when the patient already has an appointment at that time, with any doctor. */
+    public StepEffect reservePatientTime() {
+        System.out.println("## reservePatientTime");
+        try {
+            componentClient
+                    .forKeyValueEntity(currentState().patientId())
+                    .method(PatientCalendarEntity::reserve)
+                    .invoke(patientBooking());
+        } catch (IllegalArgumentException e) {
+            return stepEffects()
+                    .updateState(currentState().withStatus(ScheduleAppointmentState.Status.PatientUnavailable))
+                    .thenEnd();
+        }
+        return stepEffects()
+                .thenTransitionTo(ScheduleAppointmentWorkflow::reserveTimeSlot);
+    }
+
+    /**
+     * Holds the slot before anything else is written, so a request that loses the slot ends here without touching
+     * the appointment.
+     */
+    public StepEffect reserveTimeSlot() {
+        System.out.println("## reserveTimeSlot");
+        var scheduleId = scheduleId();
+        // only used when the day has no schedule yet
+        var templateHours = componentClient
+                .forKeyValueEntity(currentState().doctorId())
+                .method(WeeklyTemplateEntity::getWorkingHours)
+                .invoke(currentState().dateTime().toLocalDate());
+        try {
+            componentClient
+                    .forKeyValueEntity(scheduleId)
+                    .method(ScheduleEntity::holdSlot)
+                    .invoke(new ScheduleEntity.HoldSlotData(currentState().dateTime().toLocalTime(), currentState().duration(), commandContext().workflowId(), HOLD_TTL, templateHours));
+        } catch (IllegalArgumentException e) {
+            releasePatientTime();
+            return stepEffects()
+                    .updateState(currentState().withStatus(ScheduleAppointmentState.Status.SlotUnavailable))
+                    .thenEnd();
+        }
+
+        // free the slot, and the patient's time reserved with it, if this workflow stalls before confirming
+        timers().createSingleTimer(
+                holdTimerName(),
+                HOLD_TTL,
+                componentClient
+                        .forKeyValueEntity(scheduleId)
+                        .method(ScheduleEntity::releaseHold)
+                        .deferred(commandContext().workflowId()));
+        timers().createSingleTimer(
+                patientTimerName(),
+                HOLD_TTL,
+                componentClient
+                        .forKeyValueEntity(currentState().patientId())
+                        .method(PatientCalendarEntity::release)
+                        .deferred(commandContext().workflowId()));
+
+        return stepEffects()
+                .updateState(currentState().withStatus(ScheduleAppointmentState.Status.TimeSlotHeld))
+                .thenTransitionTo(ScheduleAppointmentWorkflow::createAppointment);
     }
 
     public StepEffect createAppointment() {
         System.out.println("## createAppointment");
-        componentClient
-                .forEventSourcedEntity(commandContext().workflowId())
-                .method(AppointmentEntity::createAppointment)
-                .invoke(new AppointmentEntity.CreateAppointmentCmd(currentState().dateTime(), currentState().doctorId(), currentState().patientId(), currentState().issue()));
+        try {
+            componentClient
+                    .forEventSourcedEntity(commandContext().workflowId())
+                    .method(AppointmentEntity::createAppointment)
+                    .invoke(new AppointmentEntity.CreateAppointmentCmd(currentState().dateTime(), currentState().doctorId(), currentState().patientId(), currentState().issue(), currentState().duration()));
+        } catch (IllegalArgumentException e) {
+            // the appointment has the workflow's id: a previous attempt created it and failed before moving on
+        }
 
         return stepEffects()
                 .updateState(currentState().withStatus(ScheduleAppointmentState.Status.AppointmentCreated))
@@ -57,16 +141,18 @@ public class ScheduleAppointmentWorkflow extends Workflow<ScheduleAppointmentSta
 
     public StepEffect scheduleTimeSlot() {
         System.out.println("## scheduleTimeSlot");
-        var scheduleId = new Schedule.ScheduleId(currentState().doctorId(), currentState().dateTime().toLocalDate());
+        // a confirmed slot keeps the patient's time; should confirming fail, cancelAppointment releases it
+        timers().delete(patientTimerName());
         try {
             componentClient
-                    .forKeyValueEntity(scheduleId.toString())
-                    .method(ScheduleEntity::scheduleAppointment)
-                    .invoke(new ScheduleEntity.ScheduleAppointmentData(currentState().dateTime().toLocalTime(), DEFAULT_DURATION, commandContext().workflowId()));
+                    .forKeyValueEntity(scheduleId())
+                    .method(ScheduleEntity::confirmHold)
+                    .invoke(new ScheduleEntity.ScheduleAppointmentData(currentState().dateTime().toLocalTime(), currentState().duration(), commandContext().workflowId()));
         } catch (IllegalArgumentException e) {
             return stepEffects()
                     .thenTransitionTo(ScheduleAppointmentWorkflow::cancelAppointment);
         }
+        timers().delete(holdTimerName());
 
         return stepEffects()
                 .updateState(currentState().withStatus(ScheduleAppointmentState.Status.TimeSlotScheduled))
@@ -88,15 +174,61 @@ public class ScheduleAppointmentWorkflow extends Workflow<ScheduleAppointmentSta
     public StepEffect cancelAppointment() {
         System.out.println("## cancelAppointment");
         componentClient
-                .forEventSourcedEntity(commandContext().workflowId())
-                .method(AppointmentEntity::cancel)
-                .invoke();
+                .forKeyValueEntity(scheduleId())
+                .method(ScheduleEntity::releaseHold)
+                .invoke(commandContext().workflowId());
+        timers().delete(holdTimerName());
+        timers().delete(patientTimerName());
+        releasePatientTime();
+
+        // cancelled whatever the status says: createAppointment may have persisted the appointment and failed before
+        // recording it, and the cancellation also releases the time PatientCalendarConsumer reserved for it
+        var created = true;
+        try {
+            componentClient
+                    .forEventSourcedEntity(commandContext().workflowId())
+                    .method(AppointmentEntity::cancel)
+                    .invoke();
+        } catch (IllegalArgumentException e) {
+            // doesn't exist, or a previous attempt of this step cancelled it already
+            created = componentClient
+                    .forEventSourcedEntity(commandContext().workflowId())
+                    .method(AppointmentEntity::getAppointment)
+                    .invoke()
+                    .isPresent();
+        }
 
         return stepEffects()
-                .updateState(currentState().withStatus(ScheduleAppointmentState.Status.AppointmentCancelled))
+                .updateState(currentState().withStatus(created
+                        ? ScheduleAppointmentState.Status.AppointmentCancelled
+                        : ScheduleAppointmentState.Status.SlotUnavailable))
                 .thenEnd();
     }
 
+    private String scheduleId() {
+        return new Schedule.ScheduleId(currentState().doctorId(), currentState().dateTime().toLocalDate()).toString();
+    }
+
+    private void releasePatientTime() {
+        componentClient
+                .forKeyValueEntity(currentState().patientId())
+                .method(PatientCalendarEntity::release)
+                .invoke(commandContext().workflowId());
+    }
+
+    private PatientCalendar.Booking patientBooking() {
+        var start = currentState().dateTime();
+        return new PatientCalendar.Booking(commandContext().workflowId(), start, start.plus(currentState().duration()));
+    }
+
+    private String holdTimerName() {
+        return "slot-hold-" + commandContext().workflowId();
+    }
+
+    private String patientTimerName() {
+        return "patient-hold-" + commandContext().workflowId();
+    }
+
     @Override
     public WorkflowSettings settings() {
         return WorkflowSettingsBuilder
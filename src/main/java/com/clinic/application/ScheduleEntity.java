@@ -7,7 +7,9 @@ import akka.javasdk.keyvalueentity.KeyValueEntityContext;
 import com.clinic.domain.Schedule;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalTime;
+import java.util.List;
 import java.util.Optional;
 
 @Component(id = "schedule")
@@ -28,23 +30,113 @@ public class ScheduleEntity extends KeyValueEntity<Schedule> {
                 .thenReply(Done.getInstance());
     }
 
-    public record ScheduleAppointmentData(LocalTime startTime, Duration duration, String appointmentId) {
+    /**
+     * @param templateHours working hours from the doctor's weekly template, used when this day has no schedule yet
+     */
+    public record ScheduleAppointmentData(LocalTime startTime, Duration duration, String appointmentId,
+                                          Optional<Schedule.WorkingHours> templateHours) {
+        public ScheduleAppointmentData(LocalTime startTime, Duration duration, String appointmentId) {
+            this(startTime, duration, appointmentId, Optional.empty());
+        }
     }
 
-
+    /** The stored schedule, or a new one from the template hours when the day has no schedule yet. */
+    private Optional<Schedule> scheduleOrTemplate(Optional<Schedule.WorkingHours> templateHours) {
+        if (currentState() != null)
+            return Optional.of(currentState());
+        return templateHours.map(workingHours -> new Schedule(entityId, workingHours));
+    }
 
     public Effect<Done> scheduleAppointment(ScheduleAppointmentData data) {
-        if (currentState() == null)
+        var schedule = scheduleOrTemplate(data.templateHours);
+        if (schedule.isEmpty())
             return effects().error("Working hours aren't defined for the selected date");
 
         try {
-            var newState = currentState()
+            var newState = schedule.get()
+                    .withoutExpiredHolds(Instant.now())
                     .scheduleAppointment(data.startTime, data.duration, data.appointmentId);
             return effects().updateState(newState).thenReply(Done.getInstance());
         } catch (IllegalArgumentException e) {
             return effects().error(e.getMessage());
         }
     }
+    /**
+     * @param ttl how long the slot stays reserved if the hold is neither confirmed nor released
+     */
+    public record HoldSlotData(LocalTime startTime, Duration duration, String appointmentId, Duration ttl,
+                               Optional<Schedule.WorkingHours> templateHours) {
+        public HoldSlotData(LocalTime startTime, Duration duration, String appointmentId, Duration ttl) {
+            this(startTime, duration, appointmentId, ttl, Optional.empty());
+        }
+    }
+
+    /**
+     * Reserves a slot before the appointment is created, so a conflict is detected without writing anything else.
+     * The first hold of a day without a schedule creates it from the template hours.
+     */
+    public Effect<Done> holdSlot(HoldSlotData data) {
+        var schedule = scheduleOrTemplate(data.templateHours);
+        if (schedule.isEmpty())
+            return effects().error("Working hours aren't defined for the selected date");
+
+        try {
+            var now = Instant.now();
+            var newState = schedule.get()
+                    .withoutExpiredHolds(now)
+                    .holdSlot(data.startTime, data.duration, data.appointmentId, now.plus(data.ttl));
+            return effects().updateState(newState).thenReply(Done.getInstance());
+        } catch (IllegalArgumentException e) {
+            return effects().error(e.getMessage());
+        }
+    }
+
+    /**
+     * Books the held slot. When the hold is already gone (expired and pruned), the slot is booked directly if it is
+     * still free.
+     */
+    public Effect<Done> confirmHold(ScheduleAppointmentData data) {
+        var schedule = scheduleOrTemplate(data.templateHours);
+        if (schedule.isEmpty())
+            return effects().error("Working hours aren't defined for the selected date");
+
+        try {
+            var current = schedule.get();
+            var newState = current.findHold(data.appointmentId).isPresent()
+                    ? current.confirmHold(data.appointmentId)
+                    : current.withoutExpiredHolds(Instant.now()).scheduleAppointment(data.startTime, data.duration, data.appointmentId);
+            return effects().updateState(newState).thenReply(Done.getInstance());
+        } catch (IllegalArgumentException e) {
+            return effects().error(e.getMessage());
+        }
+    }
+
+    /** Releases a hold; succeeds when there is nothing to release, so it is safe to call from expiry timers. */
+    public Effect<Done> releaseHold(String appointmentId) {
+        if (currentState() == null || currentState().findHold(appointmentId).isEmpty())
+            return effects().reply(Done.getInstance());
+
+        return effects().updateState(currentState().releaseHold(appointmentId)).thenReply(Done.getInstance());
+    }
+
+    public record MoveAppointmentData(String appointmentId, LocalTime newStartTime) {
+    }
+
+    /** Moves an appointment to another time of the same day in a single write. */
+    public Effect<Done> moveAppointment(MoveAppointmentData data) {
+        if (currentState() == null)
+            return effects().error("Schedule does not exist");
+
+        try {
+            var newState = currentState()
+                    .withoutExpiredHolds(Instant.now())
+                    .moveAppointment(data.appointmentId, data.newStartTime);
+            return effects().updateState(newState).thenReply(Done.getInstance());
+        } catch (IllegalArgumentException e) {
+            return effects().error(e.getMessage());
+        }
+    }
+
     public Effect<Done> cancelAppointmentByStartTime(LocalTime startTime) {
         if (currentState() == null)
             return effects().error("Schedule does not exist");
@@ -57,6 +149,20 @@ public class ScheduleEntity extends KeyValueEntity<Schedule> {
         }
     }
 
+    /**
+     * Removes the slot of an appointment, whatever time it is at now. Succeeds when there is nothing to remove, so
+     * retries and compensations can call it again.
+     */
+    public Effect<Done> cancelAppointment(String appointmentId) {
+        if (currentState() == null)
+            return effects().reply(Done.getInstance());
+
+        var newState = currentState().removeAppointment(appointmentId);
+        if (newState == currentState())
+            return effects().reply(Done.getInstance());
+        return effects().updateState(newState).thenReply(Done.getInstance());
+    }
+
     public Effect<Done> blockDay() {
         if (currentState() == null) return effects().error("Schedule does not exist");
         try {
@@ -82,8 +188,7 @@ public class ScheduleEntity extends KeyValueEntity<Schedule> {
     public Effect<Done> reactivateDay() {
         if (currentState() == null) return effects().error("Schedule does not exist");
         try {
-            var s = currentState();
-            var reopened = new Schedule(s.id(), s.workingHours(), s.timeSlots(), Schedule.Status.ACTIVE);
+            var reopened = currentState().reactivate();
             return effects().updateState(reopened).thenReply(Done.getInstance());
         } catch (IllegalArgumentException e) {
             return effects().error(e.getMessage());
@@ -92,6 +197,24 @@ public class ScheduleEntity extends KeyValueEntity<Schedule> {
 
 
 
+    /**
+     * @param templateHours as for bookings, used when the day has no schedule yet
+     * @param notBefore     earliest start to suggest, e.g. the current time when suggesting for today
+     */
+    public record SuggestStartsData(Duration duration, int limit, Optional<Schedule.WorkingHours> templateHours,
+                                    LocalTime notBefore) {
+    }
+
+    /** Free start times for an appointment of the duration, best fit first; see {@link Schedule#suggestStarts}. */
+    public Effect<List<LocalTime>> suggestStarts(SuggestStartsData data) {
+        var schedule = scheduleOrTemplate(data.templateHours);
+        if (schedule.isEmpty())
+            return effects().reply(List.of());
+        return effects().reply(schedule.get()
+                .withoutExpiredHolds(Instant.now())
+                .suggestStarts(data.duration, data.limit, data.notBefore));
+    }
+
     public Effect<Optional<Schedule>> getSchedule() {
         return effects().reply(Optional.ofNullable(currentState()));
     }
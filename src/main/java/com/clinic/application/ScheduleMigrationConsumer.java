@@ -0,0 +1,31 @@
+package com.clinic.application;
+
+import akka.javasdk.annotations.Component;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.consumer.Consumer;
+import com.clinic.domain.Schedule;
+
+/**
+ * Migration tool from the key-value {@link ScheduleEntity} to {@link EventSourcedScheduleEntity}.
+ * Consuming from the start replays the latest state of every schedule, which is converted into initial events;
+ * later changes are forwarded as the events that differ, so both stay in sync until the switch-over.
+ * Disabled unless clinic.schedule-migration.enabled is set, see {@link com.clinic.Bootstrap}.
+ */
+@Component(id = "schedule-migration")
+@Consume.FromKeyValueEntity(ScheduleEntity.class)
+public class ScheduleMigrationConsumer extends Consumer {
+    private final ComponentClient componentClient;
+
+    public ScheduleMigrationConsumer(ComponentClient componentClient) {
+        this.componentClient = componentClient;
+    }
+
+    public Effect onChange(Schedule schedule) {
+        componentClient
+                .forEventSourcedEntity(schedule.id().toString())
+                .method(EventSourcedScheduleEntity::syncFrom)
+                .invoke(schedule);
+        return effects().done();
+    }
+}
@@ -8,23 +8,83 @@ import akka.javasdk.view.TableUpdater;
 import akka.javasdk.view.View;
 import com.clinic.domain.Schedule;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Optional;
 
 @Component(id = "schedules-by-doctor")
 public class SchedulesByDoctorView extends View {
 
-    public record ScheduleRow(String doctorId, String date, List<TimeSlot> slots) {
-        public record TimeSlot(String startTime, String endTime) {}
+    /**
+     * @param date ISO date (yyyy-MM-dd), kept for display
+     * @param day  start of the date in UTC; the typed column used for range queries and ordering
+     */
+    public record ScheduleRow(String doctorId, String date, Instant day, Schedule.Status status, List<TimeSlot> slots) {
+        public record TimeSlot(String startTime, String endTime, String appointmentId) {}
+    }
+
+    /** Views have no plain date type, so a day is stored as its UTC midnight instant. */
+    public static Instant dayOf(LocalDate date) {
+        return date.atStartOfDay(ZoneOffset.UTC).toInstant();
     }
 
     @Table("schedules")
     @Consume.FromKeyValueEntity(ScheduleEntity.class)
     public static class Updater extends TableUpdater<ScheduleRow> {
         public Effect<ScheduleRow> onChange(Schedule schedule) {
-            var slots = schedule.timeSlots().stream().map(slot -> new ScheduleRow.TimeSlot(slot.startTime().toString(), slot.endTime().toString())).toList();
-            var row = new ScheduleRow(schedule.id().doctorId(), schedule.id().date().toString(), slots);
-            return effects().updateRow(row);
+            return toRow(schedule, rowState())
+                    .map(row -> effects().updateRow(row))
+                    .orElseGet(() -> effects().ignore());
+        }
+    }
+
+    /**
+     * Builds the row for a changed schedule on top of the previous one: slots that are already in the row are reused
+     * as they are, only added slots are encoded, and an unchanged list is kept as is. Empty when nothing visible
+     * changed, so the row isn't rewritten.
+     */
+    static Optional<ScheduleRow> toRow(Schedule schedule, ScheduleRow previous) {
+        if (previous == null) {
+            var slots = schedule.timeSlots().stream().map(SchedulesByDoctorView::encode).toList();
+            return Optional.of(new ScheduleRow(schedule.id().doctorId(), schedule.id().date().toString(), dayOf(schedule.id().date()), schedule.status(), slots));
+        }
+
+        var decoded = previous.slots().stream().map(SchedulesByDoctorView::decode).toList();
+        var slots = decoded.equals(schedule.timeSlots())
+                ? previous.slots()
+                : mergeSlots(schedule.timeSlots(), previous.slots(), decoded);
+        if (slots == previous.slots() && schedule.status() == previous.status())
+            return Optional.empty();
+        return Optional.of(new ScheduleRow(previous.doctorId(), previous.date(), previous.day(), schedule.status(), slots));
+    }
+
+    private static List<ScheduleRow.TimeSlot> mergeSlots(List<Schedule.TimeSlot> slots, List<ScheduleRow.TimeSlot> rowSlots,
+                                                         List<Schedule.TimeSlot> decoded) {
+        var byAppointment = new HashMap<String, Integer>();
+        for (int i = 0; i < decoded.size(); i++)
+            byAppointment.put(decoded.get(i).appointmentId(), i);
+
+        var merged = new ArrayList<ScheduleRow.TimeSlot>(slots.size());
+        for (var slot : slots) {
+            var existing = byAppointment.get(slot.appointmentId());
+            merged.add(existing != null && decoded.get(existing).equals(slot) ? rowSlots.get(existing) : encode(slot));
         }
+        return Collections.unmodifiableList(merged);
+    }
+
+    /** Reads a stored slot back into the domain type, so slots are compared by their times rather than their text. */
+    private static Schedule.TimeSlot decode(ScheduleRow.TimeSlot slot) {
+        return new Schedule.TimeSlot(LocalTime.parse(slot.startTime()), LocalTime.parse(slot.endTime()), slot.appointmentId());
+    }
+
+    private static ScheduleRow.TimeSlot encode(Schedule.TimeSlot slot) {
+        return new ScheduleRow.TimeSlot(slot.startTime().toString(), slot.endTime().toString(), slot.appointmentId());
     }
 
     public record ScheduleRows(List<ScheduleRow> schedules){}
@@ -34,13 +94,31 @@ public class SchedulesByDoctorView extends View {
         return queryResult();
     }
 
+    /**
+     * @param from inclusive
+     * @param to inclusive
+     */
+    public record FindSchedules(String doctorId, Instant from, Instant to){}
+
+    @Query("SELECT * as schedules FROM schedules WHERE doctorId = :doctorId AND day >= :from AND day <= :to ORDER BY day")
+    public QueryEffect<ScheduleRows> getSchedulesInRange(FindSchedules query) {
+        return queryResult();
+    }
 
     public record ScheduleSummary(String doctorId, String date){}
     public record ScheduleSummaries(List<ScheduleSummary> schedules){}
 
-    public record FindScheduleSummary(String doctorId, String fromDate, String toDate){}
+    /**
+     * @param fromDate inclusive
+     * @param toDate inclusive
+     */
+    public record FindScheduleSummary(String doctorId, Instant fromDate, Instant toDate){
+        public FindScheduleSummary(String doctorId, LocalDate fromDate, LocalDate toDate) {
+            this(doctorId, dayOf(fromDate), dayOf(toDate));
+        }
+    }
 
-    @Query("SELECT (doctorId, date) AS schedules FROM schedules WHERE doctorId = :doctorId AND date > :fromDate AND date < :toDate")
+    @Query("SELECT (doctorId, date) AS schedules FROM schedules WHERE doctorId = :doctorId AND day >= :fromDate AND day <= :toDate ORDER BY day")
     public QueryEffect<ScheduleSummaries> getSummaries(FindScheduleSummary query){
         return queryResult();
     }
@@ -0,0 +1,68 @@
+package com.clinic.application;
+
+import akka.javasdk.annotations.Component;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.consumer.Consumer;
+import com.clinic.domain.Doctor;
+import com.clinic.domain.Speciality;
+
+import java.util.List;
+
+/**
+ * Keeps the speciality index in line with the doctors: every speciality of a doctor is assigned on
+ * {@link DoctorSpecialityEntity}, and the ones the doctor was assigned to before but dropped are withdrawn. The keys
+ * assigned last are kept on {@link DoctorSpecialityKeysEntity} and only recorded once the index was updated, so a
+ * change that is processed again withdraws the same keys.
+ */
+@Component(id = "speciality-index")
+@Consume.FromKeyValueEntity(DoctorEntity.class)
+public class SpecialityIndexConsumer extends Consumer {
+    private final ComponentClient componentClient;
+
+    public SpecialityIndexConsumer(ComponentClient componentClient) {
+        this.componentClient = componentClient;
+    }
+
+    public Effect onChange(Doctor doctor) {
+        var specialities = Speciality.of(doctor.specialities());
+        var keys = specialities.stream().map(Speciality::key).toList();
+
+        for (var previous : previousKeys(doctor.id())) {
+            if (!keys.contains(previous))
+                componentClient
+                        .forKeyValueEntity(Speciality.Assignment.id(previous, doctor.id()))
+                        .method(DoctorSpecialityEntity::withdraw)
+                        .invoke();
+        }
+        for (var speciality : specialities) {
+            componentClient
+                    .forKeyValueEntity(Speciality.Assignment.id(speciality.key(), doctor.id()))
+                    .method(DoctorSpecialityEntity::assign)
+                    .invoke(new Speciality.Assignment(speciality.key(), speciality.name(), doctor.id(), true));
+        }
+        componentClient
+                .forKeyValueEntity(doctor.id())
+                .method(DoctorSpecialityKeysEntity::record)
+                .invoke(new Speciality.DoctorKeys(doctor.id(), keys));
+        return effects().done();
+    }
+
+    private List<String> previousKeys(String doctorId) {
+        var recorded = componentClient
+                .forKeyValueEntity(doctorId)
+                .method(DoctorSpecialityKeysEntity::getKeys)
+                .invoke();
+        if (recorded.isPresent())
+            return recorded.get().keys();
+        // indexed before the keys were recorded: the index is all there is to go by
+        return componentClient
+                .forView()
+                .method(DoctorsView::findSpecialitiesOfDoctor)
+                .invoke(doctorId)
+                .entries()
+                .stream()
+                .map(Speciality.Assignment::specialityKey)
+                .toList();
+    }
+}
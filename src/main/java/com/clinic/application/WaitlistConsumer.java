@@ -0,0 +1,28 @@
+package com.clinic.application;
+
+import akka.javasdk.annotations.Component;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.consumer.Consumer;
+import com.clinic.domain.Waitlist;
+
+import java.time.LocalDate;
+
+/**
+ * Applies waitlist changes to the {@link WaitlistIndex} of the node the consumer runs on, so its next offers have
+ * fewer entries to insert. Consumers process each change once for the cluster, the indexes of the other nodes are
+ * brought up to date by {@link WaitlistService} when they are consulted.
+ */
+@Component(id = "waitlist-index")
+@Consume.FromKeyValueEntity(WaitlistEntity.class)
+public class WaitlistConsumer extends Consumer {
+    private final WaitlistService waitlistService;
+
+    public WaitlistConsumer(WaitlistService waitlistService) {
+        this.waitlistService = waitlistService;
+    }
+
+    public Effect onChange(Waitlist waitlist) {
+        waitlistService.index().sync(waitlist.doctorId(), waitlist.entries(), LocalDate.now());
+        return effects().done();
+    }
+}
@@ -0,0 +1,52 @@
+package com.clinic.application;
+
+import akka.Done;
+import akka.javasdk.annotations.Component;
+import akka.javasdk.keyvalueentity.KeyValueEntity;
+import akka.javasdk.keyvalueentity.KeyValueEntityContext;
+import com.clinic.domain.Waitlist;
+
+import java.time.LocalDate;
+
+/** The waitlist of one doctor; the entity id is the doctor id. */
+@Component(id = "waitlist")
+public class WaitlistEntity extends KeyValueEntity<Waitlist> {
+    private final String doctorId;
+
+    public WaitlistEntity(KeyValueEntityContext context) {
+        this.doctorId = context.entityId();
+    }
+
+    @Override
+    public Waitlist emptyState() {
+        return Waitlist.empty(doctorId);
+    }
+
+    public Effect<Done> register(Waitlist.Entry entry) {
+        if (entry.to().isBefore(entry.from()))
+            return effects().error("'from' must not be after 'to'");
+        var waitlist = currentState().withoutExpired(LocalDate.now()).add(entry);
+        return effects().updateState(waitlist).thenReply(Done.getInstance());
+    }
+
+    public Effect<Done> remove(String entryId) {
+        if (currentState().find(entryId).isEmpty())
+            return effects().reply(Done.getInstance());
+        return effects().updateState(currentState().remove(entryId)).thenReply(Done.getInstance());
+    }
+
+    /**
+     * Takes an entry off the waitlist to offer it a slot. Fails when the entry is gone, e.g. claimed for another
+     * slot, so each entry is booked at most once.
+     */
+    public Effect<Waitlist.Entry> claim(String entryId) {
+        var entry = currentState().find(entryId);
+        if (entry.isEmpty())
+            return effects().error("Waitlist entry " + entryId + " not found");
+        return effects().updateState(currentState().remove(entryId)).thenReply(entry.get());
+    }
+
+    public Effect<Waitlist> getWaitlist() {
+        return effects().reply(currentState());
+    }
+}
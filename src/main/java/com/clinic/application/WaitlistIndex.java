@@ -0,0 +1,75 @@
+package com.clinic.application;
+
+import com.clinic.domain.Waitlist;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * In-memory priority queues of waitlist entries per doctor and date, so a freed slot finds its best candidate
+ * without sorting the waitlist again. Rebuilt from {@link WaitlistEntity}: {@link WaitlistService} syncs a doctor's
+ * queues with the entity on every offer, inserting only the entries that are new. The entity stays the source of
+ * truth, entries are claimed there before booking.
+ * <p>
+ * Removed entries are dropped lazily: they stay in the queues until they reach the head.
+ */
+public class WaitlistIndex {
+
+    private static final class DoctorQueues {
+        final Map<LocalDate, PriorityQueue<Waitlist.Entry>> byDate = new HashMap<>();
+        final Set<String> live = new HashSet<>();
+    }
+
+    private final Map<String, DoctorQueues> doctors = new HashMap<>();
+
+    /** Brings the queues of a doctor in line with the waitlist; only entries that are new get inserted. */
+    public synchronized void sync(String doctorId, List<Waitlist.Entry> entries, LocalDate today) {
+        var queues = doctors.computeIfAbsent(doctorId, __ -> new DoctorQueues());
+        var ids = new HashSet<String>(entries.size() * 2);
+        for (var entry : entries) {
+            ids.add(entry.id());
+            if (queues.live.contains(entry.id()))
+                continue;
+            var first = entry.from().isBefore(today) ? today : entry.from();
+            for (var date = first; !date.isAfter(entry.to()); date = date.plusDays(1))
+                queues.byDate.computeIfAbsent(date, __ -> new PriorityQueue<>(Waitlist.PRIORITY)).add(entry);
+        }
+        queues.live.clear();
+        queues.live.addAll(ids);
+        queues.byDate.keySet().removeIf(date -> date.isBefore(today));
+    }
+
+    /** The most urgent, longest waiting entry that accepts the date. */
+    public synchronized Optional<Waitlist.Entry> best(String doctorId, LocalDate date) {
+        var queues = doctors.get(doctorId);
+        if (queues == null)
+            return Optional.empty();
+        var queue = queues.byDate.get(date);
+        if (queue == null)
+            return Optional.empty();
+        while (!queue.isEmpty() && !queues.live.contains(queue.peek().id()))
+            queue.poll();
+        if (queue.isEmpty()) {
+            queues.byDate.remove(date);
+            return Optional.empty();
+        }
+        return Optional.of(queue.peek());
+    }
+
+    public synchronized void remove(String doctorId, String entryId) {
+        var queues = doctors.get(doctorId);
+        if (queues != null)
+            queues.live.remove(entryId);
+    }
+
+    public synchronized int size(String doctorId) {
+        var queues = doctors.get(doctorId);
+        return queues == null ? 0 : queues.live.size();
+    }
+}
@@ -0,0 +1,33 @@
+package com.clinic.application;
+
+import akka.javasdk.annotations.Component;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.consumer.Consumer;
+import com.clinic.domain.ScheduleAppointmentState;
+
+/**
+ * Settles waitlist offers once their booking has ended. A booked patient is withdrawn from the waitlists of the
+ * other doctors; when the slot was gone or the patient busy at that time, the entry goes back on the offering
+ * doctor's waitlist.
+ */
+@Component(id = "waitlist-offers")
+@Consume.FromWorkflow(ScheduleAppointmentWorkflow.class)
+public class WaitlistOfferConsumer extends Consumer {
+    private final WaitlistService waitlistService;
+
+    public WaitlistOfferConsumer(WaitlistService waitlistService) {
+        this.waitlistService = waitlistService;
+    }
+
+    public Effect onUpdate(ScheduleAppointmentState state) {
+        var entry = state.waitlistEntry();
+        if (entry == null || !state.status().isTerminal())
+            return effects().done();
+
+        if (state.status() == ScheduleAppointmentState.Status.AppointmentScheduled)
+            waitlistService.withdrawFromOthers(state.doctorId(), entry);
+        else
+            waitlistService.putBack(state.doctorId(), entry);
+        return effects().done();
+    }
+}
@@ -0,0 +1,138 @@
+package com.clinic.application;
+
+import akka.javasdk.client.ComponentClient;
+import com.clinic.domain.Schedule;
+import com.clinic.domain.Waitlist;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Offers freed slots to the waitlist: the best candidate from {@link WaitlistIndex} is claimed on
+ * {@link WaitlistEntity} and booked through {@link ScheduleAppointmentWorkflow}. The claimed entry travels with the
+ * workflow, {@link WaitlistOfferConsumer} settles it once the booking has succeeded or failed.
+ */
+public class WaitlistService {
+
+    /** candidates tried per freed slot when the index is ahead of the entity, e.g. entries claimed on another node */
+    private static final int MAX_CLAIM_ATTEMPTS = 5;
+
+    private final WaitlistIndex index;
+    private final ComponentClient componentClient;
+
+    public WaitlistService(WaitlistIndex index, ComponentClient componentClient) {
+        this.index = index;
+        this.componentClient = componentClient;
+    }
+
+    public WaitlistIndex index() {
+        return index;
+    }
+
+    /**
+     * Books the best waitlisted patient into the freed slot of {@code duration} starting at {@code start}, if the
+     * slot is still free. Returns the id of the new appointment.
+     */
+    public Optional<String> offer(String doctorId, LocalDateTime start, Duration duration) {
+        var date = start.toLocalDate();
+        if (date.isBefore(LocalDate.now()))
+            return Optional.empty();
+        refresh(doctorId);
+        if (index.best(doctorId, date).isEmpty() || !isFree(doctorId, start, duration))
+            return Optional.empty();
+
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+            var candidate = index.best(doctorId, date);
+            if (candidate.isEmpty())
+                return Optional.empty();
+            var entryId = candidate.get().id();
+            index.remove(doctorId, entryId);
+            Waitlist.Entry entry;
+            try {
+                entry = componentClient
+                        .forKeyValueEntity(doctorId)
+                        .method(WaitlistEntity::claim)
+                        .invoke(entryId);
+            } catch (IllegalArgumentException e) {
+                // already claimed, try the next candidate
+                continue;
+            }
+
+            // WaitlistOfferConsumer puts the entry back, or withdraws it from the other doctors, once the booking ends
+            var appointmentId = UUID.randomUUID().toString();
+            try {
+                componentClient
+                        .forWorkflow(appointmentId)
+                        .method(ScheduleAppointmentWorkflow::schedule)
+                        .invoke(new ScheduleAppointmentWorkflow.ScheduleAppointmentCommand(
+                                start, doctorId, entry.patientId(), entry.issue(), duration, entry));
+            } catch (RuntimeException e) {
+                putBack(doctorId, entry);
+                throw e;
+            }
+            return Optional.of(appointmentId);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Returns a claimed entry to the doctor's waitlist, in its old place, when its offer didn't end in a booking.
+     * An entry the other doctors no longer have was booked by one of them in the meantime and stays off.
+     */
+    public void putBack(String doctorId, Waitlist.Entry entry) {
+        if (entry.to().isBefore(LocalDate.now()))
+            return;
+        var others = entry.doctorIds().stream().filter(other -> !other.equals(doctorId)).toList();
+        var bookedElsewhere = !others.isEmpty() && others.stream().noneMatch(other -> componentClient
+                .forKeyValueEntity(other)
+                .method(WaitlistEntity::getWaitlist)
+                .invoke()
+                .find(entry.id())
+                .isPresent());
+        if (bookedElsewhere)
+            return;
+        componentClient
+                .forKeyValueEntity(doctorId)
+                .method(WaitlistEntity::register)
+                .invoke(entry);
+    }
+
+    /** The patient got an appointment, they no longer wait with the other doctors the entry was registered with. */
+    public void withdrawFromOthers(String doctorId, Waitlist.Entry entry) {
+        for (var otherDoctorId : entry.doctorIds()) {
+            if (!otherDoctorId.equals(doctorId))
+                componentClient
+                        .forKeyValueEntity(otherDoctorId)
+                        .method(WaitlistEntity::remove)
+                        .invoke(entry.id());
+        }
+    }
+
+    /**
+     * Brings the doctor's index in line with the waitlist before it is consulted. {@link WaitlistConsumer} runs on
+     * one node only, so the index of any other node would miss the registrations made after it was first loaded.
+     */
+    private void refresh(String doctorId) {
+        var waitlist = componentClient
+                .forKeyValueEntity(doctorId)
+                .method(WaitlistEntity::getWaitlist)
+                .invoke();
+        index.sync(doctorId, waitlist.entries(), LocalDate.now());
+    }
+
+    /** Claiming takes the entry off the waitlist, so only slots that can really be booked are offered. */
+    private boolean isFree(String doctorId, LocalDateTime start, Duration duration) {
+        var schedule = componentClient
+                .forKeyValueEntity(new Schedule.ScheduleId(doctorId, start.toLocalDate()).toString())
+                .method(ScheduleEntity::getSchedule)
+                .invoke();
+        if (schedule.isEmpty() || schedule.get().status() != Schedule.Status.ACTIVE)
+            return false;
+        var slot = new Schedule.TimeSlot(start.toLocalTime(), start.toLocalTime().plus(duration), "");
+        return schedule.get().timeSlots().stream().noneMatch(slot::overlaps)
+                && schedule.get().holds().stream().noneMatch(hold -> slot.overlaps(hold.slot()));
+    }
+}
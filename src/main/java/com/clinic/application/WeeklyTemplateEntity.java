@@ -0,0 +1,60 @@
+package com.clinic.application;
+
+import akka.Done;
+import akka.javasdk.annotations.Component;
+import akka.javasdk.keyvalueentity.KeyValueEntity;
+import akka.javasdk.keyvalueentity.KeyValueEntityContext;
+import com.clinic.domain.Schedule;
+import com.clinic.domain.WeeklyTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/** The weekly working hours of a doctor; the entity id is the doctor id. */
+@Component(id = "weekly-template")
+public class WeeklyTemplateEntity extends KeyValueEntity<WeeklyTemplate> {
+    private final String doctorId;
+
+    public WeeklyTemplateEntity(KeyValueEntityContext context) {
+        this.doctorId = context.entityId();
+    }
+
+    public Effect<Done> updateWeekdays(Map<DayOfWeek, Schedule.WorkingHours> weekdays) {
+        var template = currentState() == null
+                ? new WeeklyTemplate(doctorId, weekdays, List.of())
+                : currentState().withWeekdays(weekdays);
+        return effects().updateState(template).thenReply(Done.getInstance());
+    }
+
+    public Effect<Done> addException(WeeklyTemplate.DayException exception) {
+        if (currentState() == null)
+            return effects().error("Weekly template does not exist");
+        var template = currentState()
+                .withoutExceptionsBefore(LocalDate.now())
+                .withException(exception);
+        return effects().updateState(template).thenReply(Done.getInstance());
+    }
+
+    /** Marks a date as a day off; a no-op without a template, as such doctors have no bookable days anyway. */
+    public Effect<Done> closeDay(LocalDate date) {
+        if (currentState() == null || currentState().workingHoursOn(date).isEmpty())
+            return effects().reply(Done.getInstance());
+        var template = currentState()
+                .withoutExceptionsBefore(LocalDate.now())
+                .withException(new WeeklyTemplate.DayException(date, Optional.empty()));
+        return effects().updateState(template).thenReply(Done.getInstance());
+    }
+
+    public Effect<Optional<WeeklyTemplate>> getTemplate() {
+        return effects().reply(Optional.ofNullable(currentState()));
+    }
+
+    public Effect<Optional<Schedule.WorkingHours>> getWorkingHours(LocalDate date) {
+        if (currentState() == null)
+            return effects().reply(Optional.empty());
+        return effects().reply(currentState().workingHoursOn(date));
+    }
+}
@@ -0,0 +1,103 @@
+package com.clinic.application;
+
+import akka.javasdk.annotations.Component;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.annotations.Query;
+import akka.javasdk.annotations.Table;
+import akka.javasdk.view.TableUpdater;
+import akka.javasdk.view.View;
+import com.clinic.domain.CancelAppointmentState;
+import com.clinic.domain.CancelScheduleState;
+import com.clinic.domain.RescheduleAppointmentState;
+import com.clinic.domain.ScheduleAppointmentState;
+
+import java.util.List;
+
+/**
+ * Status of the booking workflows, one table per workflow type. The streaming queries push every status transition,
+ * so clients can wait for a workflow to finish without polling entities or views; the plain ones read the status once.
+ */
+@Component(id = "workflow-status")
+public class WorkflowStatusView extends View {
+
+    public record WorkflowStatus(String id, String status, boolean terminal) {}
+
+    /** At most one status, empty when the view has no row for the workflow (yet). */
+    public record WorkflowStatuses(List<WorkflowStatus> statuses) {}
+
+    @Table("schedule_appointment_status")
+    @Consume.FromWorkflow(ScheduleAppointmentWorkflow.class)
+    public static class ScheduleAppointmentUpdater extends TableUpdater<WorkflowStatus> {
+        public Effect<WorkflowStatus> onUpdate(ScheduleAppointmentState state) {
+            var id = updateContext().eventSubject().orElse("");
+            return effects().updateRow(new WorkflowStatus(id, state.status().name(), state.status().isTerminal()));
+        }
+    }
+
+    @Table("cancel_appointment_status")
+    @Consume.FromWorkflow(CancelAppointmentWorkflow.class)
+    public static class CancelAppointmentUpdater extends TableUpdater<WorkflowStatus> {
+        public Effect<WorkflowStatus> onUpdate(CancelAppointmentState state) {
+            var id = updateContext().eventSubject().orElse("");
+            return effects().updateRow(new WorkflowStatus(id, state.status().name(), state.status().isTerminal()));
+        }
+    }
+
+    @Table("cancel_schedule_status")
+    @Consume.FromWorkflow(CancelScheduleWorkflow.class)
+    public static class CancelScheduleUpdater extends TableUpdater<WorkflowStatus> {
+        public Effect<WorkflowStatus> onUpdate(CancelScheduleState state) {
+            var id = updateContext().eventSubject().orElse("");
+            return effects().updateRow(new WorkflowStatus(id, state.status().name(), state.status().isTerminal()));
+        }
+    }
+
+    @Table("reschedule_appointment_status")
+    @Consume.FromWorkflow(RescheduleAppointmentWorkflow.class)
+    public static class RescheduleAppointmentUpdater extends TableUpdater<WorkflowStatus> {
+        public Effect<WorkflowStatus> onUpdate(RescheduleAppointmentState state) {
+            var id = updateContext().eventSubject().orElse("");
+            return effects().updateRow(new WorkflowStatus(id, state.status().name(), state.status().isTerminal()));
+        }
+    }
+
+    @Query(value = "SELECT * FROM schedule_appointment_status WHERE id = :id", streamUpdates = true)
+    public QueryStreamEffect<WorkflowStatus> scheduleAppointmentUpdates(String id) {
+        return queryStreamResult();
+    }
+
+    @Query(value = "SELECT * FROM cancel_appointment_status WHERE id = :id", streamUpdates = true)
+    public QueryStreamEffect<WorkflowStatus> cancelAppointmentUpdates(String id) {
+        return queryStreamResult();
+    }
+
+    @Query(value = "SELECT * FROM cancel_schedule_status WHERE id = :id", streamUpdates = true)
+    public QueryStreamEffect<WorkflowStatus> cancelScheduleUpdates(String id) {
+        return queryStreamResult();
+    }
+
+    @Query(value = "SELECT * FROM reschedule_appointment_status WHERE id = :id", streamUpdates = true)
+    public QueryStreamEffect<WorkflowStatus> rescheduleAppointmentUpdates(String id) {
+        return queryStreamResult();
+    }
+
+    @Query("SELECT * AS statuses FROM schedule_appointment_status WHERE id = :id")
+    public QueryEffect<WorkflowStatuses> getScheduleAppointmentStatus(String id) {
+        return queryResult();
+    }
+
+    @Query("SELECT * AS statuses FROM cancel_appointment_status WHERE id = :id")
+    public QueryEffect<WorkflowStatuses> getCancelAppointmentStatus(String id) {
+        return queryResult();
+    }
+
+    @Query("SELECT * AS statuses FROM cancel_schedule_status WHERE id = :id")
+    public QueryEffect<WorkflowStatuses> getCancelScheduleStatus(String id) {
+        return queryResult();
+    }
+
+    @Query("SELECT * AS statuses FROM reschedule_appointment_status WHERE id = :id")
+    public QueryEffect<WorkflowStatuses> getRescheduleAppointmentStatus(String id) {
+        return queryResult();
+    }
+}
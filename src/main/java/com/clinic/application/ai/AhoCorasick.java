@@ -0,0 +1,82 @@
+package com.clinic.application.ai;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aho-Corasick automaton over a fixed dictionary of lowercase phrases. A scan finds every phrase occurrence in a
+ * single pass over the text, independent of the dictionary size. Matches must start and end on word boundaries,
+ * so "pain" doesn't match inside "painting".
+ */
+public final class AhoCorasick<V> {
+
+    public record Match<V>(String phrase, V value, int start, int end) {}
+
+    private static final class Node<V> {
+        final Map<Character, Node<V>> next = new HashMap<>();
+        Node<V> fail;
+        // phrases ending here, including those reachable through fail links
+        final List<Match<V>> outputs = new ArrayList<>();
+    }
+
+    private final Node<V> root = new Node<>();
+
+    public AhoCorasick(Map<String, V> phrases) {
+        phrases.forEach((phrase, value) -> {
+            var node = root;
+            var normalized = phrase.toLowerCase();
+            for (char c : normalized.toCharArray())
+                node = node.next.computeIfAbsent(c, __ -> new Node<>());
+            node.outputs.add(new Match<>(normalized, value, 0, normalized.length()));
+        });
+        buildFailLinks();
+    }
+
+    private void buildFailLinks() {
+        var queue = new ArrayDeque<Node<V>>();
+        root.fail = root;
+        for (var child : root.next.values()) {
+            child.fail = root;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            var node = queue.poll();
+            for (var entry : node.next.entrySet()) {
+                var c = entry.getKey();
+                var child = entry.getValue();
+                var fail = node.fail;
+                while (fail != root && !fail.next.containsKey(c))
+                    fail = fail.fail;
+                child.fail = fail.next.containsKey(c) && fail.next.get(c) != child ? fail.next.get(c) : root;
+                child.outputs.addAll(child.fail.outputs);
+                queue.add(child);
+            }
+        }
+    }
+
+    public List<Match<V>> findAll(String text) {
+        var matches = new ArrayList<Match<V>>();
+        var lower = text.toLowerCase();
+        var node = root;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            while (node != root && !node.next.containsKey(c))
+                node = node.fail;
+            node = node.next.getOrDefault(c, root);
+            for (var output : node.outputs) {
+                int end = i + 1;
+                int start = end - output.phrase().length();
+                if (isBoundary(lower, start - 1) && isBoundary(lower, end))
+                    matches.add(new Match<>(output.phrase(), output.value(), start, end));
+            }
+        }
+        return matches;
+    }
+
+    private static boolean isBoundary(String text, int index) {
+        return index < 0 || index >= text.length() || !Character.isLetterOrDigit(text.charAt(index));
+    }
+}
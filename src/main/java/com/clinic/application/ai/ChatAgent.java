@@ -1,17 +1,36 @@
 package com.clinic.application.ai;
 
 import akka.javasdk.agent.Agent;
+import akka.javasdk.agent.MemoryProvider;
+import akka.javasdk.agent.ModelProvider;
 import akka.javasdk.annotations.Component;
 
+import java.util.Optional;
+
 @Component(id ="chat-agent")
 public class ChatAgent extends Agent {
     private static final String SYSTEM_MESSAGE = """
             You are a chat bot""".stripIndent();
 
-    public Effect<String> ask(String issue){
-        return effects()
-                .systemMessage(SYSTEM_MESSAGE)
-                .userMessage(issue)
+    /**
+     * @param context the bounded history of the session, see {@link ChatSessionEntity}
+     * @param model   config path of the model to use, see {@link LatencyHedge}; the default model provider otherwise
+     */
+    public record ChatRequest(String message, String context, Optional<String> model) {
+    }
+
+    public Effect<String> ask(ChatRequest request){
+        var effects = request.model()
+                .map(model -> effects().model(ModelProvider.fromConfig(model)))
+                .orElseGet(this::effects);
+        var systemMessage = request.context().isEmpty()
+                ? SYSTEM_MESSAGE
+                : SYSTEM_MESSAGE + "\n\nConversation so far:\n" + request.context();
+        // the session history is kept by ChatSessionEntity, not by the built-in unbounded memory
+        return effects
+                .memory(MemoryProvider.none())
+                .systemMessage(systemMessage)
+                .userMessage(request.message())
                 .thenReply();
     }
 
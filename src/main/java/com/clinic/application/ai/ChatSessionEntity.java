@@ -0,0 +1,37 @@
+package com.clinic.application.ai;
+
+import akka.Done;
+import akka.javasdk.annotations.Component;
+import akka.javasdk.keyvalueentity.KeyValueEntity;
+import com.clinic.domain.ChatSession;
+
+/** Bounded conversation memory of a {@link ChatAgent} session, keyed by session id. */
+@Component(id = "chat-session")
+public class ChatSessionEntity extends KeyValueEntity<ChatSession> {
+
+    @Override
+    public ChatSession emptyState() {
+        return ChatSession.empty();
+    }
+
+    public record AddTurnCmd(String user, String assistant, ChatSession.Limits limits) {}
+
+    public Effect<Done> addTurn(AddTurnCmd cmd) {
+        var newState = currentState().addTurn(new ChatSession.Turn(cmd.user(), cmd.assistant()), cmd.limits());
+        return effects().updateState(newState).thenReply(Done.getInstance());
+    }
+
+    /** @param throughTurn the summary covers the session up to this turn, see {@link ChatSession#applySummary} */
+    public record ApplySummaryCmd(String summary, long throughTurn) {}
+
+    public Effect<Done> applySummary(ApplySummaryCmd cmd) {
+        var newState = currentState().applySummary(cmd.summary(), cmd.throughTurn());
+        if (newState == currentState())
+            return effects().reply(Done.getInstance());
+        return effects().updateState(newState).thenReply(Done.getInstance());
+    }
+
+    public Effect<String> getContext() {
+        return effects().reply(currentState().context());
+    }
+}
@@ -0,0 +1,26 @@
+package com.clinic.application.ai;
+
+import akka.javasdk.agent.Agent;
+import akka.javasdk.agent.MemoryProvider;
+import akka.javasdk.annotations.Component;
+
+@Component(id = "chat-summary-agent")
+public class ChatSummaryAgent extends Agent {
+    private static final String SYSTEM_MESSAGE = """
+            You maintain a running summary of a conversation between a patient and a clinic chat bot.
+            Merge the previous summary with the new turns into a single summary of at most %d words.
+            Keep facts the assistant may need later: symptoms, dates, names, requests and answers given.
+            Reply with the summary only.""".stripIndent();
+
+    public record SummaryRequest(String previousSummary, String turns, int maxTokens) {}
+
+    public Effect<String> summarize(SummaryRequest request) {
+        // roughly three words per four tokens
+        var maxWords = Math.max(20, request.maxTokens() * 3 / 4);
+        return effects()
+                .memory(MemoryProvider.none())
+                .systemMessage(SYSTEM_MESSAGE.formatted(maxWords))
+                .userMessage("Previous summary:\n" + request.previousSummary() + "\n\nNew turns:\n" + request.turns())
+                .thenReply();
+    }
+}
@@ -0,0 +1,44 @@
+package com.clinic.application.ai;
+
+import akka.javasdk.annotations.Component;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.consumer.Consumer;
+import com.clinic.domain.ChatSession;
+
+/**
+ * Folds turns evicted from a chat session's window into its summary, outside of the chat request. The summary is
+ * applied by the turn it covers up to, so one written from a state that is no longer current is dropped.
+ */
+@Component(id = "chat-summary")
+@Consume.FromKeyValueEntity(ChatSessionEntity.class)
+public class ChatSummaryConsumer extends Consumer {
+    private final ComponentClient componentClient;
+    private final ChatSession.Limits limits;
+
+    public ChatSummaryConsumer(ComponentClient componentClient, ChatSession.Limits limits) {
+        this.componentClient = componentClient;
+        this.limits = limits;
+    }
+
+    public Effect onChange(ChatSession session) {
+        if (!session.needsSummary(limits))
+            return effects().done();
+
+        var sessionId = messageContext().eventSubject().orElseThrow();
+        var turns = new StringBuilder();
+        for (var turn : session.evicted())
+            turns.append("User: ").append(turn.user()).append("\nAssistant: ").append(turn.assistant()).append("\n");
+
+        var summary = componentClient
+                .forAgent()
+                .inSession(sessionId + "-summary")
+                .method(ChatSummaryAgent::summarize)
+                .invoke(new ChatSummaryAgent.SummaryRequest(session.summary(), turns.toString(), limits.maxSummaryTokens()));
+        componentClient
+                .forKeyValueEntity(sessionId)
+                .method(ChatSessionEntity::applySummary)
+                .invoke(new ChatSessionEntity.ApplySummaryCmd(summary, session.evictedThrough()));
+        return effects().done();
+    }
+}
@@ -0,0 +1,166 @@
+package com.clinic.application.ai;
+
+import com.typesafe.config.Config;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Hedges agent calls across two configured models. The primary model is called first; when it hasn't answered
+ * within the configured percentile of its recent latencies, the same request goes to the cheaper fallback model and
+ * the first answer wins. The whole call is bounded by a latency budget. One instance per agent, since the latency
+ * distributions differ.
+ * <p>
+ * Once a call is decided, a late answer of the request that lost is dropped. The request itself runs to completion,
+ * so the primary's latency is still recorded even when the fallback won, and hedged agents must not write their
+ * answer to agent memory.
+ */
+public class LatencyHedge {
+
+    /** A model to call; {@code hedge} is true for the fallback request sent alongside a slow primary. */
+    public record Route(String model, boolean hedge) {}
+
+    public enum Decision {
+        /** primary answered before the hedge delay */
+        PRIMARY,
+        /** hedge was sent but the primary answered first */
+        PRIMARY_AFTER_HEDGE,
+        /** fallback answered first, after a slow or failed primary */
+        FALLBACK,
+        /** no answer within the budget or both failed */
+        FAILED
+    }
+
+    /**
+     * @param percentile   latency percentile of the primary after which the hedge is sent, e.g. 0.9
+     * @param minDelay     lower bound of the hedge delay
+     * @param initialDelay hedge delay used until {@code window} primary latencies were recorded
+     * @param budget       overall time limit of a call
+     */
+    public record Settings(boolean enabled, String primaryModel, String fallbackModel, double percentile,
+                           Duration minDelay, Duration initialDelay, Duration budget, int window) {
+        public static Settings fromConfig(Config config) {
+            return new Settings(
+                    config.getBoolean("enabled"),
+                    config.getString("primary-model"),
+                    config.getString("fallback-model"),
+                    config.getDouble("percentile"),
+                    config.getDuration("min-delay"),
+                    config.getDuration("initial-delay"),
+                    config.getDuration("budget"),
+                    config.getInt("window"));
+        }
+    }
+
+    private final Settings settings;
+    private final long[] latencies;
+    private long latencyCount = 0;
+    private final Map<Decision, LongAdder> decisions = new EnumMap<>(Decision.class);
+
+    public LatencyHedge(Settings settings) {
+        this.settings = settings;
+        this.latencies = new long[settings.window()];
+        for (var decision : Decision.values())
+            decisions.put(decision, new LongAdder());
+    }
+
+    public <T> CompletionStage<T> call(Function<Route, CompletionStage<T>> callModel) {
+        if (!settings.enabled())
+            return callModel.apply(new Route(settings.primaryModel(), false));
+
+        var result = new CompletableFuture<T>();
+        var decided = new AtomicBoolean(false);
+        var hedged = new AtomicBoolean(false);
+        // the primary and the (possible) hedge; a call only fails when both have failed
+        var pending = new AtomicInteger(2);
+        var start = System.nanoTime();
+
+        callModel.apply(new Route(settings.primaryModel(), false)).whenComplete((value, error) -> {
+            if (error == null) {
+                recordLatency(System.nanoTime() - start);
+                decide(result, decided, hedged.get() ? Decision.PRIMARY_AFTER_HEDGE : Decision.PRIMARY, value, null);
+            } else if (!decided.get() && hedged.compareAndSet(false, true)) {
+                // don't wait for the hedge delay when the primary already failed
+                sendHedge(callModel, result, decided, pending);
+            }
+            fail(result, decided, pending, error);
+        });
+
+        CompletableFuture.delayedExecutor(hedgeDelay().toMillis(), TimeUnit.MILLISECONDS).execute(() -> {
+            if (!decided.get() && hedged.compareAndSet(false, true))
+                sendHedge(callModel, result, decided, pending);
+        });
+
+        CompletableFuture.delayedExecutor(settings.budget().toMillis(), TimeUnit.MILLISECONDS).execute(() ->
+                decide(result, decided, Decision.FAILED, null, new TimeoutException("No answer within " + settings.budget())));
+
+        return result;
+    }
+
+    private <T> void sendHedge(Function<Route, CompletionStage<T>> callModel, CompletableFuture<T> result,
+                               AtomicBoolean decided, AtomicInteger pending) {
+        callModel.apply(new Route(settings.fallbackModel(), true)).whenComplete((value, error) -> {
+            if (error == null)
+                decide(result, decided, Decision.FALLBACK, value, null);
+            fail(result, decided, pending, error);
+        });
+    }
+
+    /** Fails the call once every request that was sent has failed. */
+    private <T> void fail(CompletableFuture<T> result, AtomicBoolean decided, AtomicInteger pending, Throwable error) {
+        if (pending.decrementAndGet() == 0 && error != null)
+            decide(result, decided, Decision.FAILED, null, error);
+    }
+
+    /**
+     * Records the decision and then completes the call, so the metrics include it once the caller has the answer.
+     * Does nothing when an answer, a failure or the budget decided the call already.
+     */
+    private <T> void decide(CompletableFuture<T> result, AtomicBoolean decided, Decision decision, T value, Throwable error) {
+        if (!decided.compareAndSet(false, true))
+            return;
+        record(decision);
+        if (error == null)
+            result.complete(value);
+        else
+            result.completeExceptionally(error);
+    }
+
+    private void record(Decision decision) {
+        decisions.get(decision).increment();
+    }
+
+    private synchronized void recordLatency(long nanos) {
+        latencies[(int) (latencyCount % latencies.length)] = nanos;
+        latencyCount++;
+    }
+
+    /** The configured percentile of the recent primary latencies, once enough were recorded. */
+    synchronized Duration hedgeDelay() {
+        if (latencyCount < latencies.length)
+            return settings.initialDelay();
+        var sorted = Arrays.copyOf(latencies, latencies.length);
+        Arrays.sort(sorted);
+        var index = Math.min(sorted.length - 1, (int) Math.ceil(settings.percentile() * sorted.length) - 1);
+        var delay = Duration.ofNanos(sorted[Math.max(0, index)]);
+        return delay.compareTo(settings.minDelay()) < 0 ? settings.minDelay() : delay;
+    }
+
+    public record Metrics(String primaryModel, String fallbackModel, long hedgeDelayMillis, Map<Decision, Long> decisions) {}
+
+    public Metrics metrics() {
+        var counts = new EnumMap<Decision, Long>(Decision.class);
+        decisions.forEach((decision, count) -> counts.put(decision, count.sum()));
+        return new Metrics(settings.primaryModel(), settings.fallbackModel(), hedgeDelay().toMillis(), counts);
+    }
+}
@@ -0,0 +1,14 @@
+package com.clinic.application.ai;
+
+import com.typesafe.config.Config;
+
+/** The {@link LatencyHedge} of each agent, configured under clinic.agent-hedging. */
+public record ModelHedges(LatencyHedge priority, LatencyHedge chat) {
+
+    public static ModelHedges fromConfig(Config config) {
+        var hedging = config.getConfig("clinic.agent-hedging");
+        return new ModelHedges(
+                new LatencyHedge(LatencyHedge.Settings.fromConfig(hedging.getConfig("priority").withFallback(hedging))),
+                new LatencyHedge(LatencyHedge.Settings.fromConfig(hedging.getConfig("chat").withFallback(hedging))));
+    }
+}
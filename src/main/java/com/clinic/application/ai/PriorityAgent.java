@@ -1,7 +1,12 @@
 package com.clinic.application.ai;
 
 import akka.javasdk.agent.Agent;
+import akka.javasdk.agent.MemoryProvider;
+import akka.javasdk.agent.ModelProvider;
 import akka.javasdk.annotations.Component;
+import com.clinic.domain.Appointment;
+
+import java.util.Optional;
 
 @Component(id = "priority-assistant")
 public class PriorityAgent extends Agent {
@@ -11,10 +16,26 @@ public class PriorityAgent extends Agent {
             Based on your analysis, you must assign an urgency level that dictates the required response priority. 
             You must classify the situation into one of the three specific categories: "high", "medium", or "low".
             Your final output for this assessment must be only one of these three exact terms.""".stripIndent();
-    public Effect<String> urgency(String issue){
-        return effects()
+
+    /**
+     * @param model config path of the model to use, see {@link LatencyHedge}; the default model provider otherwise
+     */
+    public record TriageRequest(String issue, Optional<String> model) {
+        public TriageRequest(String issue) {
+            this(issue, Optional.empty());
+        }
+    }
+
+    public Effect<Appointment.Urgency> urgency(TriageRequest request){
+        // a hedged request may lose and still be answered, so only the urgency the caller kept is recorded, on the
+        // appointment; see LatencyHedge
+        var effects = request.model()
+                .map(model -> effects().model(ModelProvider.fromConfig(model)).memory(MemoryProvider.none()))
+                .orElseGet(this::effects);
+        return effects
                 .systemMessage(SYSTEM_MESSAGE)
-                .userMessage(issue)
+                .userMessage(request.issue())
+                .map(Appointment.Urgency::parse)
                 .thenReply();
 
     }
@@ -0,0 +1,64 @@
+package com.clinic.application.ai;
+
+import com.clinic.domain.Appointment;
+import com.typesafe.config.Config;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-process pre-classifier for obvious triage cases, built from the keyword dictionary under clinic.triage.keywords.
+ * An issue is classified when a high-urgency phrase matches (erring on the side of caution), or when every matching
+ * phrase agrees on the same urgency. Anything else, including negated phrases like "no chest pain", is left to
+ * {@link PriorityAgent}.
+ */
+public class TriageRules {
+
+    private static final String[] NEGATIONS = {"no ", "not ", "without ", "denies "};
+    private static final int NEGATION_WINDOW = 12;
+
+    private final AhoCorasick<Appointment.Urgency> automaton;
+
+    public TriageRules(Map<String, Appointment.Urgency> phrases) {
+        this.automaton = new AhoCorasick<>(phrases);
+    }
+
+    public static TriageRules fromConfig(Config config) {
+        var phrases = new HashMap<String, Appointment.Urgency>();
+        var keywords = config.getConfig("clinic.triage.keywords");
+        for (var urgency : EnumSet.of(Appointment.Urgency.HIGH, Appointment.Urgency.MEDIUM, Appointment.Urgency.LOW)) {
+            var key = urgency.name().toLowerCase();
+            if (keywords.hasPath(key))
+                keywords.getStringList(key).forEach(phrase -> phrases.put(phrase, urgency));
+        }
+        return new TriageRules(phrases);
+    }
+
+    public Optional<Appointment.Urgency> classify(String issue) {
+        if (issue == null || issue.isBlank())
+            return Optional.empty();
+        var lower = issue.toLowerCase();
+        var found = EnumSet.noneOf(Appointment.Urgency.class);
+        for (var match : automaton.findAll(lower)) {
+            if (isNegated(lower, match.start()))
+                return Optional.empty();
+            found.add(match.value());
+        }
+        if (found.contains(Appointment.Urgency.HIGH))
+            return Optional.of(Appointment.Urgency.HIGH);
+        if (found.size() == 1)
+            return Optional.of(found.iterator().next());
+        return Optional.empty();
+    }
+
+    private static boolean isNegated(String text, int start) {
+        var before = text.substring(Math.max(0, start - NEGATION_WINDOW), start);
+        for (var negation : NEGATIONS) {
+            if (before.contains(negation))
+                return true;
+        }
+        return false;
+    }
+}
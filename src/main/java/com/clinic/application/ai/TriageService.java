@@ -0,0 +1,100 @@
+package com.clinic.application.ai;
+
+import akka.javasdk.client.ComponentClient;
+import com.clinic.domain.Appointment;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Triage entry point: tries {@link TriageRules} first and only asks {@link PriorityAgent} for ambiguous issues,
+ * hedged across models by {@link LatencyHedge}.
+ * Keeps counters for the rule hit ratio and an estimate of the agent latency saved by rule hits.
+ */
+public class TriageService {
+
+    private final TriageRules rules;
+    private final boolean rulesEnabled;
+    private final LatencyHedge hedge;
+    private final ComponentClient componentClient;
+
+    private final LongAdder ruleHits = new LongAdder();
+    private final LongAdder agentCalls = new LongAdder();
+    private final LongAdder ruleNanos = new LongAdder();
+    private final LongAdder agentNanos = new LongAdder();
+
+    public TriageService(TriageRules rules, boolean rulesEnabled, LatencyHedge hedge, ComponentClient componentClient) {
+        this.rules = rules;
+        this.rulesEnabled = rulesEnabled;
+        this.hedge = hedge;
+        this.componentClient = componentClient;
+    }
+
+    public CompletionStage<Appointment.Urgency> urgency(String sessionId, String issue) {
+        return byRules(issue)
+                .<CompletionStage<Appointment.Urgency>>map(CompletableFuture::completedFuture)
+                .orElseGet(() -> callAgent(sessionId, issue));
+    }
+
+    /**
+     * Like {@link #urgency(String, String)}, but the agent is only asked while {@code agentBudget} has calls left,
+     * so callers triaging many appointments at once share a bound on model calls. Issues the rules can't classify
+     * after the budget is spent are {@link Appointment.Urgency#UNKNOWN}.
+     */
+    public CompletionStage<Appointment.Urgency> urgency(String sessionId, String issue, AtomicInteger agentBudget) {
+        var classified = byRules(issue);
+        if (classified.isPresent())
+            return CompletableFuture.completedFuture(classified.get());
+        if (agentBudget.getAndUpdate(left -> Math.max(0, left - 1)) <= 0)
+            return CompletableFuture.completedFuture(Appointment.Urgency.UNKNOWN);
+        return callAgent(sessionId, issue);
+    }
+
+    private Optional<Appointment.Urgency> byRules(String issue) {
+        if (!rulesEnabled)
+            return Optional.empty();
+        var start = System.nanoTime();
+        var classified = rules.classify(issue);
+        ruleNanos.add(System.nanoTime() - start);
+        if (classified.isPresent())
+            ruleHits.increment();
+        return classified;
+    }
+
+    private CompletionStage<Appointment.Urgency> callAgent(String sessionId, String issue) {
+        agentCalls.increment();
+        var start = System.nanoTime();
+        return hedge
+                .call(route -> componentClient
+                        .forAgent()
+                        .inSession(sessionId)
+                        .method(PriorityAgent::urgency)
+                        .invokeAsync(new PriorityAgent.TriageRequest(issue, Optional.of(route.model()))))
+                .whenComplete((urgency, error) -> agentNanos.add(System.nanoTime() - start));
+    }
+
+    /**
+     * @param estimatedSavedMillis rule hits times the average agent latency, minus the time spent in the rules
+     */
+    public record Metrics(long ruleHits, long agentCalls, double hitRatio, long avgRuleMicros, long avgAgentMillis,
+                          long estimatedSavedMillis) {}
+
+    public Metrics metrics() {
+        var hits = ruleHits.sum();
+        var calls = agentCalls.sum();
+        var total = hits + calls;
+        var avgAgentNanos = calls == 0 ? 0 : agentNanos.sum() / calls;
+        var avgRuleNanos = total == 0 ? 0 : ruleNanos.sum() / total;
+        var savedNanos = Math.max(0, hits * avgAgentNanos - ruleNanos.sum());
+        return new Metrics(
+                hits,
+                calls,
+                total == 0 ? 0 : (double) hits / total,
+                avgRuleNanos / 1_000,
+                avgAgentNanos / 1_000_000,
+                savedNanos / 1_000_000);
+    }
+}
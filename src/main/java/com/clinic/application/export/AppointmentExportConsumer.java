@@ -0,0 +1,56 @@
+package com.clinic.application.export;
+
+import akka.javasdk.JsonSupport;
+import akka.javasdk.annotations.Component;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.annotations.TypeName;
+import akka.javasdk.consumer.Consumer;
+import com.clinic.application.AppointmentEntity;
+import com.clinic.domain.AppointmentEvents;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+/**
+ * Exports every appointment event as one NDJSON line, partitioned by the date the event happened (UTC). Consumed
+ * from the start of the journal, so a new deployment backfills everything; the consumer's own offset is only stored
+ * once {@link NdjsonExportWriter} has the line on disk, so a restart picks up where the export stopped. Events written
+ * just before a crash can show up twice, downstream deduplicates on {@code eventId}.
+ * <p>
+ * Has its own offset and doesn't read any view, so a backfill doesn't hold up the views.
+ * Disabled unless clinic.export.enabled is set, see {@link com.clinic.Bootstrap}.
+ */
+@Component(id = "appointment-export")
+@Consume.FromEventSourcedEntity(AppointmentEntity.class)
+public class AppointmentExportConsumer extends Consumer {
+
+    /**
+     * @param type the event's type name, e.g. "rescheduled"
+     */
+    public record ExportedEvent(String eventId, String appointmentId, String type, Instant time, AppointmentEvents event) {}
+
+    private final NdjsonExportWriter writer;
+
+    public AppointmentExportConsumer(NdjsonExportWriter writer) {
+        this.writer = writer;
+    }
+
+    public Effect onEvent(AppointmentEvents event) {
+        var cloudEvent = messageContext().metadata().asCloudEvent();
+        var time = cloudEvent.time().map(ZonedDateTime::toInstant).orElseGet(Instant::now);
+        var exported = new ExportedEvent(
+                cloudEvent.id(),
+                messageContext().eventSubject().orElseThrow(),
+                event.getClass().getAnnotation(TypeName.class).value(),
+                time,
+                event);
+        try {
+            writer.append(time.atZone(ZoneOffset.UTC).toLocalDate(), JsonSupport.getObjectMapper().writeValueAsString(exported));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot export event of " + exported.appointmentId(), e);
+        }
+        return effects().done();
+    }
+}
@@ -0,0 +1,215 @@
+package com.clinic.application.export;
+
+import com.typesafe.config.Config;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Appends NDJSON lines to gzip files partitioned by date, {@code <directory>/date=<date>/<prefix>-<writer>-<part>.ndjson.gz}.
+ * <p>
+ * Lines are committed in groups: {@link #append} blocks until its line is written, and one writer thread takes
+ * everything queued up while the previous write was in progress, so concurrent callers share a write without waiting
+ * for a batch to fill. Each partition keeps one gzip stream open and sync-flushes it after every write, which keeps
+ * compression across writes; a stream is finished, and its file complete, once the partition has been idle for
+ * {@code idleTimeout} or more than {@code maxOpenFiles} partitions are open, and all of them on {@link #close()}.
+ * Every writer instance has its own files and never rewrites them.
+ * <p>
+ * A process that dies without closing the writer leaves its open files without the gzip trailer. Each sync-flush ends
+ * on a block boundary, so every line written before is complete and decodable, but strict readers fail at the end of
+ * such a file: {@code gzip -d} reports an unexpected end of file and {@link java.util.zip.GZIPInputStream} throws
+ * {@link java.io.EOFException}. Readers treat that error at the end of a file as its end.
+ */
+public class NdjsonExportWriter implements AutoCloseable {
+
+    /**
+     * @param directory    root of the date partitions
+     * @param prefix       start of the file names, e.g. the exported entity
+     * @param fsync        force every write to disk; without it a line survives a crash of the process but not of
+     *                     the machine
+     * @param idleTimeout  partitions not written for this long get their file finished
+     * @param maxOpenFiles partition files open at the same time, e.g. while a backfill walks through the dates
+     */
+    public record Settings(Path directory, String prefix, boolean fsync, Duration idleTimeout, int maxOpenFiles) {
+        public static Settings fromConfig(Config config) {
+            return new Settings(
+                    Path.of(config.getString("directory")),
+                    config.getString("prefix"),
+                    config.getBoolean("fsync"),
+                    config.getDuration("idle-timeout"),
+                    config.getInt("max-open-files"));
+        }
+    }
+
+    private record Line(LocalDate partition, String json, CompletableFuture<Void> written) {}
+
+    /** queued by {@link #close()} to wake up and stop the writer thread */
+    private static final Line CLOSE = new Line(null, null, null);
+
+    private static final class PartitionFile {
+        final FileOutputStream out;
+        final GZIPOutputStream gzip;
+        long lastWrite;
+
+        PartitionFile(Path file) throws IOException {
+            Files.createDirectories(file.getParent());
+            this.out = new FileOutputStream(file.toFile(), true);
+            this.gzip = new GZIPOutputStream(out, 64 * 1024, true);
+        }
+
+        void finish() throws IOException {
+            try (out) {
+                gzip.finish();
+            }
+        }
+    }
+
+    private final Settings settings;
+    /** keeps the files of different processes, and of restarts, apart */
+    private final String writerId = UUID.randomUUID().toString().substring(0, 8);
+    private final LinkedBlockingQueue<Line> queue = new LinkedBlockingQueue<>();
+    /** in order of last write, oldest first; only touched by the writer thread */
+    private final LinkedHashMap<LocalDate, PartitionFile> open = new LinkedHashMap<>(16, 0.75f, true);
+    private final Thread writer;
+    private volatile boolean closed;
+
+    public NdjsonExportWriter(Settings settings) {
+        this.settings = settings;
+        this.writer = new Thread(this::run, "ndjson-export-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** Returns once the line is written; throws {@link UncheckedIOException} when its write failed. */
+    public void append(LocalDate partition, String json) {
+        if (closed)
+            throw new IllegalStateException("Export writer is closed");
+        var line = new Line(partition, json, new CompletableFuture<>());
+        queue.add(line);
+        line.written().join();
+    }
+
+    private void run() {
+        var batch = new ArrayList<Line>();
+        var closing = false;
+        while (!closing) {
+            try {
+                var first = queue.poll(Math.max(1, settings.idleTimeout().toMillis() / 2), TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch);
+                    closing = batch.removeIf(line -> line == CLOSE);
+                    write(batch);
+                    batch.clear();
+                }
+                finishIdle(false);
+            } catch (InterruptedException e) {
+                closing = true;
+            }
+        }
+        finishIdle(true);
+        // appended while closing
+        for (var line = queue.poll(); line != null; line = queue.poll()) {
+            if (line != CLOSE)
+                line.written().completeExceptionally(new IllegalStateException("Export writer is closed"));
+        }
+    }
+
+    private void write(List<Line> batch) {
+        var byPartition = new LinkedHashMap<LocalDate, List<Line>>();
+        for (var line : batch)
+            byPartition.computeIfAbsent(line.partition(), __ -> new ArrayList<>()).add(line);
+
+        for (var entry : byPartition.entrySet()) {
+            try {
+                var file = partitionFile(entry.getKey());
+                for (var line : entry.getValue()) {
+                    file.gzip.write(line.json().getBytes(StandardCharsets.UTF_8));
+                    file.gzip.write('\n');
+                }
+                file.gzip.flush();
+                if (settings.fsync())
+                    file.out.getChannel().force(false);
+                file.lastWrite = System.nanoTime();
+                entry.getValue().forEach(line -> line.written().complete(null));
+            } catch (IOException | RuntimeException e) {
+                // the stream may hold half a write; the lines are retried in a new file
+                var broken = open.remove(entry.getKey());
+                if (broken != null)
+                    closeQuietly(broken);
+                var failure = e instanceof IOException io ? new UncheckedIOException(io) : e;
+                entry.getValue().forEach(line -> line.written().completeExceptionally(failure));
+            }
+        }
+    }
+
+    private PartitionFile partitionFile(LocalDate partition) throws IOException {
+        var file = open.get(partition);
+        if (file != null)
+            return file;
+        if (open.size() >= settings.maxOpenFiles()) {
+            var oldest = open.entrySet().iterator().next();
+            open.remove(oldest.getKey());
+            closeQuietly(oldest.getValue());
+        }
+        file = new PartitionFile(nextFile(partition));
+        open.put(partition, file);
+        return file;
+    }
+
+    /** A partition that was finished and written again gets a new file, finished files stay untouched. */
+    private Path nextFile(LocalDate partition) {
+        var directory = settings.directory().resolve("date=" + partition);
+        for (int part = 0; ; part++) {
+            var file = directory.resolve(String.format("%s-%s-%03d.ndjson.gz", settings.prefix(), writerId, part));
+            if (!Files.exists(file))
+                return file;
+        }
+    }
+
+    private void finishIdle(boolean all) {
+        var writtenBefore = System.nanoTime() - settings.idleTimeout().toNanos();
+        var iterator = open.entrySet().iterator();
+        while (iterator.hasNext()) {
+            var file = iterator.next().getValue();
+            if (!all && file.lastWrite - writtenBefore > 0)
+                continue;
+            iterator.remove();
+            closeQuietly(file);
+        }
+    }
+
+    private static void closeQuietly(PartitionFile file) {
+        try {
+            file.finish();
+        } catch (IOException e) {
+            System.out.println("Export file not finished: " + e.getMessage());
+        }
+    }
+
+    /** Writes what is queued and finishes all files. */
+    @Override
+    public void close() {
+        closed = true;
+        queue.add(CLOSE);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.clinic.application.reminders;
+
+import akka.Done;
+import com.clinic.domain.Reminder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Collectors;
+
+/**
+ * Writes reminders as lines to a file, or to stdout when no file is configured. For development and tests, where no
+ * real provider is available.
+ */
+public class LogReminderSender implements ReminderSender {
+
+    private final Optional<Path> file;
+
+    public LogReminderSender(Optional<Path> file) {
+        this.file = file;
+    }
+
+    @Override
+    public synchronized CompletionStage<Done> send(Reminder reminder) {
+        var line = reminder.key() + " " + reminder.patientId() + " " + reminder.appointments().stream()
+                .map(item -> item.time() + "@" + item.doctorId())
+                .collect(Collectors.joining(",")) + System.lineSeparator();
+        if (file.isEmpty()) {
+            System.out.print(line);
+            return CompletableFuture.completedFuture(Done.getInstance());
+        }
+        try {
+            Files.writeString(file.get(), line, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            return CompletableFuture.completedFuture(Done.getInstance());
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UncheckedIOException(e));
+        }
+    }
+}
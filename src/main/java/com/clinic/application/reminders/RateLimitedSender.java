@@ -0,0 +1,43 @@
+package com.clinic.application.reminders;
+
+import akka.Done;
+import com.clinic.domain.Reminder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spaces the reminders handed to another sender evenly, at most {@code perSecond} per second on this node.
+ * Callers don't block: each send reserves the next free moment and is delayed until then.
+ */
+public class RateLimitedSender implements ReminderSender {
+
+    private final ReminderSender sender;
+    private final long intervalNanos;
+    private long nextFree = System.nanoTime();
+
+    public RateLimitedSender(ReminderSender sender, int perSecond) {
+        if (perSecond <= 0)
+            throw new IllegalArgumentException("perSecond must be positive");
+        this.sender = sender;
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / perSecond;
+    }
+
+    @Override
+    public CompletionStage<Done> send(Reminder reminder) {
+        var delay = reserve();
+        if (delay <= 0)
+            return sender.send(reminder);
+        var delayed = CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS);
+        return CompletableFuture.runAsync(() -> {}, delayed).thenCompose(__ -> sender.send(reminder));
+    }
+
+    /** Nanoseconds until the reserved moment. */
+    synchronized long reserve() {
+        var now = System.nanoTime();
+        var at = Math.max(nextFree, now);
+        nextFree = at + intervalNanos;
+        return at - now;
+    }
+}
@@ -0,0 +1,16 @@
+package com.clinic.application.reminders;
+
+import akka.Done;
+import com.clinic.domain.Reminder;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Delivers reminders to patients, e.g. by SMS or email. A failed stage is retried by the caller. The caller records
+ * delivered reminders and doesn't hand them over again; only one delivered right before a crash can come twice, so
+ * providers that take an idempotency key should be given {@link Reminder#key()}.
+ */
+public interface ReminderSender {
+
+    CompletionStage<Done> send(Reminder reminder);
+}
@@ -1,13 +1,29 @@
 package com.clinic.domain;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * @param duration how long the appointment takes; appointments created before durations existed take
+ *                 {@link #DEFAULT_DURATION}
+ */
 public record Appointment(String id, LocalDateTime dateTime, String doctorId, String patientId, String issue,
-                          Optional<String> notes, List<String> prescriptions, Optional<String> priority, Status status) {
+                          Optional<String> notes, List<String> prescriptions, Optional<Urgency> priority, Status status,
+                          Duration duration) {
+
+    public static final Duration DEFAULT_DURATION = Duration.ofMinutes(30);
+
+    public Appointment {
+        if (duration == null)
+            duration = DEFAULT_DURATION;
+    }
+
     // Enums are lists of values
     public enum Status {
         PENDING,
@@ -17,41 +33,83 @@ public record Appointment(String id, LocalDateTime dateTime, String doctorId, St
         MISSED
     }
 
+    /** Triage urgency. The sort key orders re-bookings: most urgent first, untriaged last. */
+    public enum Urgency {
+        HIGH(1),
+        MEDIUM(2),
+        LOW(3),
+        UNKNOWN(99);
+
+        private final int sortKey;
+
+        Urgency(int sortKey) {
+            this.sortKey = sortKey;
+        }
+
+        public int sortKey() {
+            return sortKey;
+        }
+
+        /**
+         * Normalizes a free-text triage answer such as "High", " low." or "\"medium\"".
+         * Also reads the lowercase strings persisted before priorities were typed.
+         */
+        @JsonCreator
+        public static Urgency parse(String text) {
+            if (text == null)
+                return UNKNOWN;
+            var normalized = text.strip().toLowerCase();
+            for (var urgency : List.of(HIGH, MEDIUM, LOW)) {
+                if (normalized.matches("\\W*" + urgency.name().toLowerCase() + "\\W*"))
+                    return urgency;
+            }
+            return UNKNOWN;
+        }
+    }
+
+    public Appointment(String id, LocalDateTime dateTime, String doctorId, String patientId, String issue, Duration duration) {
+        this(id, dateTime, doctorId, patientId, issue, Optional.empty(), List.of(), Optional.empty(), Status.PENDING, duration);
+    }
+
     public Appointment(String id, LocalDateTime dateTime, String doctorId, String patientId, String issue) {
-        this(id, dateTime, doctorId, patientId, issue, Optional.empty(), List.of(), Optional.empty(), Status.PENDING);
+        this(id, dateTime, doctorId, patientId, issue, DEFAULT_DURATION);
+    }
+
+    public LocalDateTime endTime() {
+        return dateTime.plus(duration);
     }
 
     public Appointment reschedule(LocalDateTime newDateTime, String newDoctorId) {
-        return new Appointment(id, newDateTime, newDoctorId, patientId, issue, notes, prescriptions, priority, status);
+        return new Appointment(id, newDateTime, newDoctorId, patientId, issue, notes, prescriptions, priority, status, duration);
     }
 
     public Appointment addNotes(String notes) {
-        return new Appointment(id, dateTime, doctorId, patientId, issue, Optional.of(notes), prescriptions, priority, status);
+        return new Appointment(id, dateTime, doctorId, patientId, issue, Optional.of(notes), prescriptions, priority, status, duration);
     }
 
     public Appointment addPrescription(String prescription) {
         var prescriptions = new ArrayList<>(this.prescriptions);
         prescriptions.add(prescription);
-        return new Appointment(id, dateTime, doctorId, patientId, issue, notes, Collections.unmodifiableList(prescriptions), priority, status);
+        return new Appointment(id, dateTime, doctorId, patientId, issue, notes, Collections.unmodifiableList(prescriptions), priority, status, duration);
     }
 
     public Appointment markAsScheduled() {
-        return new Appointment(id, dateTime, doctorId, patientId, issue, notes, prescriptions, priority, Status.SCHEDULED);
+        return new Appointment(id, dateTime, doctorId, patientId, issue, notes, prescriptions, priority, Status.SCHEDULED, duration);
     }
 
     public Appointment cancel() {
-        return new Appointment(id, dateTime, doctorId, patientId, issue, notes, prescriptions, priority, Status.CANCELLED);
+        return new Appointment(id, dateTime, doctorId, patientId, issue, notes, prescriptions, priority, Status.CANCELLED, duration);
     }
 
     public Appointment complete() {
-        return new Appointment(id, dateTime, doctorId, patientId, issue, notes, prescriptions, priority, Status.COMPLETED);
+        return new Appointment(id, dateTime, doctorId, patientId, issue, notes, prescriptions, priority, Status.COMPLETED, duration);
     }
 
     public Appointment markAsMissed() {
-        return new Appointment(id, dateTime, doctorId, patientId, issue, notes, prescriptions, priority, Status.MISSED);
+        return new Appointment(id, dateTime, doctorId, patientId, issue, notes, prescriptions, priority, Status.MISSED, duration);
     }
 
-    public Appointment addPriority(String priority) {
-        return new Appointment(id, dateTime, doctorId, patientId, issue, notes, prescriptions, Optional.of(priority), status);
+    public Appointment addPriority(Urgency priority) {
+        return new Appointment(id, dateTime, doctorId, patientId, issue, notes, prescriptions, Optional.of(priority), status, duration);
     }
 }
\ No newline at end of file
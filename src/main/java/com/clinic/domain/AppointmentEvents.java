@@ -2,12 +2,17 @@ package com.clinic.domain;
 
 import akka.javasdk.annotations.TypeName;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 
 public sealed interface AppointmentEvents {
+    /** @param duration null in events stored before durations existed, see {@link Appointment#DEFAULT_DURATION} */
     @TypeName("appointment-created")
     record AppointmentCreated(String id, LocalDateTime dateTime, String doctorId, String patientId,
-                              String issue) implements AppointmentEvents {
+                              String issue, Duration duration) implements AppointmentEvents {
+        public AppointmentCreated(String id, LocalDateTime dateTime, String doctorId, String patientId, String issue) {
+            this(id, dateTime, doctorId, patientId, issue, null);
+        }
     }
 
     @TypeName("added-doctor-notes")
@@ -39,5 +44,5 @@ public sealed interface AppointmentEvents {
     }
 
     @TypeName("added-priority")
-    record AddedPriority(String priority) implements AppointmentEvents {}
+    record AddedPriority(Appointment.Urgency priority) implements AppointmentEvents {}
 }
\ No newline at end of file
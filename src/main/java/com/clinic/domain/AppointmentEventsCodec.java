@@ -0,0 +1,119 @@
+package com.clinic.domain;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Compact binary form of {@link AppointmentEvents}, see {@link CompactEncoding} for the layout and the evolution
+ * rules. Each event type has a fixed tag next to its type name. {@link AppointmentEvents.AppointmentCreated} leaves
+ * out its id: it is the entity id the event is stored under, and the decoder gets it passed in.
+ */
+public final class AppointmentEventsCodec {
+
+    private AppointmentEventsCodec() {}
+
+    // tags are permanent; a retired event keeps its tag
+    static final int APPOINTMENT_CREATED = 1;      // appointment-created
+    static final int ADDED_DOCTOR_NOTES = 2;       // added-doctor-notes
+    static final int ADDED_PRESCRIPTION = 3;       // added-doctor-prescription
+    static final int RESCHEDULED = 4;              // rescheduled
+    static final int SCHEDULED = 5;                // scheduled
+    static final int CANCELLED = 6;                // cancelled
+    static final int COMPLETED = 7;                // completed
+    static final int MISSED = 8;                   // missed
+    static final int ADDED_PRIORITY = 9;           // added-priority
+
+    /** Codes of the urgencies, by position; only ever appended to. */
+    static final List<Appointment.Urgency> URGENCIES = List.of(
+            Appointment.Urgency.UNKNOWN, Appointment.Urgency.HIGH, Appointment.Urgency.MEDIUM, Appointment.Urgency.LOW);
+
+    private static final int VERSION = 1;
+
+    public static byte[] encode(AppointmentEvents event) {
+        var writer = new CompactEncoding.Writer();
+        encode(event, writer);
+        return writer.toByteArray();
+    }
+
+    public static void encode(AppointmentEvents event, CompactEncoding.Writer writer) {
+        switch (event) {
+            case AppointmentEvents.AppointmentCreated e -> {
+                var body = writer.beginRecord(APPOINTMENT_CREATED, VERSION);
+                writer.writeDateTime(e.dateTime());
+                writer.writeString(e.doctorId());
+                writer.writeString(e.patientId());
+                writer.writeString(e.issue());
+                // added with appointment durations; 0 is none, read from older bodies as well
+                writer.writeVarint(e.duration() == null ? 0 : e.duration().toMinutes());
+                writer.endRecord(body);
+            }
+            case AppointmentEvents.AddedDoctorNotes e -> {
+                var body = writer.beginRecord(ADDED_DOCTOR_NOTES, VERSION);
+                writer.writeString(e.notes());
+                writer.endRecord(body);
+            }
+            case AppointmentEvents.AddedPrescription e -> {
+                var body = writer.beginRecord(ADDED_PRESCRIPTION, VERSION);
+                writer.writeString(e.prescription());
+                writer.endRecord(body);
+            }
+            case AppointmentEvents.Rescheduled e -> {
+                var body = writer.beginRecord(RESCHEDULED, VERSION);
+                writer.writeDateTime(e.dateTime());
+                writer.writeString(e.doctorId());
+                writer.endRecord(body);
+            }
+            case AppointmentEvents.Scheduled e -> writer.endRecord(writer.beginRecord(SCHEDULED, VERSION));
+            case AppointmentEvents.Cancelled e -> writer.endRecord(writer.beginRecord(CANCELLED, VERSION));
+            case AppointmentEvents.Completed e -> writer.endRecord(writer.beginRecord(COMPLETED, VERSION));
+            case AppointmentEvents.Missed e -> writer.endRecord(writer.beginRecord(MISSED, VERSION));
+            case AppointmentEvents.AddedPriority e -> {
+                var body = writer.beginRecord(ADDED_PRIORITY, VERSION);
+                var code = URGENCIES.indexOf(e.priority());
+                if (code < 0)
+                    throw new IllegalArgumentException("Urgency " + e.priority() + " has no code");
+                writer.writeVarint(code);
+                writer.endRecord(body);
+            }
+        }
+    }
+
+    /**
+     * @param appointmentId the id of the entity the event belongs to
+     */
+    public static AppointmentEvents decode(byte[] bytes, String appointmentId) {
+        return decode(new CompactEncoding.Reader(bytes), appointmentId);
+    }
+
+    public static AppointmentEvents decode(CompactEncoding.Reader reader, String appointmentId) {
+        var header = reader.beginRecord();
+        if (header.version() > VERSION)
+            throw new IllegalArgumentException("Unknown version " + header.version() + " of event " + header.tag());
+        AppointmentEvents event = switch (header.tag()) {
+            case APPOINTMENT_CREATED -> new AppointmentEvents.AppointmentCreated(
+                    appointmentId, reader.readDateTime(), reader.readString(), reader.readString(), reader.readString(),
+                    minutes(reader));
+            case ADDED_DOCTOR_NOTES -> new AppointmentEvents.AddedDoctorNotes(reader.readString());
+            case ADDED_PRESCRIPTION -> new AppointmentEvents.AddedPrescription(reader.readString());
+            case RESCHEDULED -> new AppointmentEvents.Rescheduled(reader.readDateTime(), reader.readString());
+            case SCHEDULED -> new AppointmentEvents.Scheduled();
+            case CANCELLED -> new AppointmentEvents.Cancelled();
+            case COMPLETED -> new AppointmentEvents.Completed();
+            case MISSED -> new AppointmentEvents.Missed();
+            case ADDED_PRIORITY -> new AppointmentEvents.AddedPriority(urgency((int) reader.readVarint()));
+            default -> throw new IllegalArgumentException("Unknown event tag " + header.tag());
+        };
+        reader.endRecord(header);
+        return event;
+    }
+
+    private static Duration minutes(CompactEncoding.Reader reader) {
+        var minutes = reader.hasMore() ? reader.readVarint() : 0;
+        return minutes == 0 ? null : Duration.ofMinutes(minutes);
+    }
+
+    /** Codes added by a newer writer read as unknown. */
+    private static Appointment.Urgency urgency(int code) {
+        return code >= 0 && code < URGENCIES.size() ? URGENCIES.get(code) : Appointment.Urgency.UNKNOWN;
+    }
+}
@@ -0,0 +1,33 @@
+package com.clinic.domain;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The kinds of appointments that can be booked and how long each takes, e.g. a 15 minute consult or a 90 minute
+ * procedure. Requests without a type get {@code defaultType}.
+ */
+public record AppointmentTypes(Map<String, Duration> durations, String defaultType) {
+
+    private static final Duration MIN_DURATION = Duration.ofMinutes(5);
+
+    public AppointmentTypes {
+        durations = Map.copyOf(durations);
+        if (!durations.containsKey(defaultType))
+            throw new IllegalArgumentException("Default appointment type '" + defaultType + "' has no duration");
+        durations.forEach((type, duration) -> {
+            if (duration.compareTo(MIN_DURATION) < 0 || duration.toSecondsPart() != 0 || duration.toNanosPart() != 0)
+                throw new IllegalArgumentException("Appointment type '" + type + "' must take whole minutes, at least " + MIN_DURATION);
+        });
+    }
+
+    /** @throws IllegalArgumentException for an unknown type */
+    public Duration durationOf(Optional<String> type) {
+        var name = type.map(String::strip).filter(t -> !t.isEmpty()).orElse(defaultType);
+        var duration = durations.get(name);
+        if (duration == null)
+            throw new IllegalArgumentException("Unknown appointment type '" + name + "', expected one of " + durations.keySet());
+        return duration;
+    }
+}
@@ -12,7 +12,11 @@ public record CancelAppointmentState (
         Initial,
         AppointmentCancelled,
         SlotDeleted,
-        Failed
+        Failed;
+
+        public boolean isTerminal() {
+            return this == SlotDeleted || this == Failed;
+        }
     }
     public CancelAppointmentState withStatus(Status status) {
         return new CancelAppointmentState(appointmentId, dateTime, DoctorId, status);
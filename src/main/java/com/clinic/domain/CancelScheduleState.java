@@ -1,19 +1,28 @@
 package com.clinic.domain;
 
-import akka.actor.Status;
-
 import java.time.LocalDateTime;
 
-public record CancelScheduleState (LocalDateTime dateTime, String doctorId, Status status){
+/**
+ * @param triaged the appointments of the day were already triaged by the caller, e.g. a multi-day absence
+ */
+public record CancelScheduleState (LocalDateTime dateTime, String doctorId, Status status, boolean triaged){
     public enum Status {
         Initial,
         cancelApproved,
         scheduleBlocked,
         appointmentsRescheduled,
         scheduleCancelled,
-        Failed
+        Failed;
+
+        public boolean isTerminal() {
+            return this == scheduleCancelled || this == Failed;
+        }
     }
+    public CancelScheduleState(LocalDateTime dateTime, String doctorId, Status status){
+        this(dateTime, doctorId, status, false);
+    }
+
     public CancelScheduleState withStatus(Status status){
-        return new CancelScheduleState(dateTime, doctorId, status);
+        return new CancelScheduleState(dateTime, doctorId, status, triaged);
     }
 }
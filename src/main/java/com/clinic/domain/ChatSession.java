@@ -0,0 +1,94 @@
+package com.clinic.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bounded memory of a chat session: a compact summary of older turns plus the most recent turns within a token
+ * window. Turns pushed out of the window wait in {@code evicted} until they are folded into the summary, so the
+ * prompt built from a session stops growing after a few turns.
+ */
+public record ChatSession(String summary, List<Turn> recent, List<Turn> evicted, long summarizedTurns) {
+
+    public record Turn(String user, String assistant) {
+        public int tokens() {
+            return Tokens.estimate(user) + Tokens.estimate(assistant);
+        }
+    }
+
+    /**
+     * @param windowTokens         token budget of the recent turns sent with every prompt
+     * @param summarizeAfterTokens evicted tokens that trigger a summary
+     * @param maxSummaryTokens     token budget of the summary
+     * @param maxEvictedTokens     evicted tokens kept while a summary is pending; older ones are dropped
+     */
+    public record Limits(int windowTokens, int summarizeAfterTokens, int maxSummaryTokens, int maxEvictedTokens) {}
+
+    /** Rough token estimate, about four characters per token for English text. */
+    public static final class Tokens {
+        private Tokens() {}
+
+        public static int estimate(String text) {
+            return text == null ? 0 : (text.length() + 3) / 4;
+        }
+    }
+
+    public static ChatSession empty() {
+        return new ChatSession("", List.of(), List.of(), 0);
+    }
+
+    public ChatSession addTurn(Turn turn, Limits limits) {
+        var newRecent = new ArrayList<>(recent);
+        newRecent.add(turn);
+        var newEvicted = new ArrayList<>(evicted);
+        // always keep the latest turn, even when it alone exceeds the window
+        while (newRecent.size() > 1 && tokens(newRecent) > limits.windowTokens())
+            newEvicted.add(newRecent.removeFirst());
+        var dropped = 0;
+        while (newEvicted.size() > 1 && tokens(newEvicted) > limits.maxEvictedTokens()) {
+            newEvicted.removeFirst();
+            dropped++;
+        }
+        return new ChatSession(summary, Collections.unmodifiableList(newRecent), Collections.unmodifiableList(newEvicted), summarizedTurns + dropped);
+    }
+
+    public boolean needsSummary(Limits limits) {
+        return tokens(evicted) >= limits.summarizeAfterTokens();
+    }
+
+    /**
+     * Replaces the summary with one that covers the conversation up to turn {@code throughTurn}, counted from the
+     * start of the session like {@link #summarizedTurns}. Turns evicted while the summary was being written stay
+     * pending. A summary that covers no more than what is already summarized or dropped is stale, e.g. one written
+     * from an older state that was delivered again, and leaves the session as it is.
+     */
+    public ChatSession applySummary(String newSummary, long throughTurn) {
+        if (throughTurn <= summarizedTurns)
+            return this;
+        var count = (int) Math.min(throughTurn - summarizedTurns, evicted.size());
+        return new ChatSession(newSummary, recent, List.copyOf(evicted.subList(count, evicted.size())), summarizedTurns + count);
+    }
+
+    /** The turn the evicted turns run up to; a summary of them covers the session up to here. */
+    public long evictedThrough() {
+        return summarizedTurns + evicted.size();
+    }
+
+    /** The context sent along with a new message: the summary followed by the recent turns. */
+    public String context() {
+        var context = new StringBuilder();
+        if (!summary.isEmpty())
+            context.append("Summary of the earlier conversation: ").append(summary).append("\n\n");
+        for (var turn : recent)
+            context.append("User: ").append(turn.user()).append("\nAssistant: ").append(turn.assistant()).append("\n");
+        return context.toString();
+    }
+
+    private static int tokens(List<Turn> turns) {
+        var sum = 0;
+        for (var turn : turns)
+            sum += turn.tokens();
+        return sum;
+    }
+}
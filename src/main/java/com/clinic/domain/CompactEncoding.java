@@ -0,0 +1,252 @@
+package com.clinic.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Primitives of the compact binary format used by {@link AppointmentEventsCodec} and {@link WorkflowStateCodec}.
+ * <p>
+ * A record is written as {@code tag, version, body length, body}. The tag identifies the type and is never reused;
+ * the version lets a decoder tell layouts apart. Within a body:
+ * <ul>
+ *     <li>numbers are varints, signed ones zigzag encoded</li>
+ *     <li>strings carry their length; canonical UUIDs, the usual ids, are stored as 16 bytes</li>
+ *     <li>date-times are seconds since the epoch, as minutes when they fall on a whole minute</li>
+ *     <li>enums are stored by an explicit code, not by ordinal</li>
+ * </ul>
+ * Schema evolution: new fields are only added at the end of a body. A decoder reading an older body gets the
+ * defaults for the fields that are missing, and skips fields at the end it doesn't know. A field is never removed
+ * or retyped; the writer keeps filling it, with a default if need be. Any other change needs a new version.
+ */
+public final class CompactEncoding {
+
+    private CompactEncoding() {}
+
+    public static final class Writer {
+        private byte[] buffer;
+        private int size;
+
+        public Writer(int capacity) {
+            this.buffer = new byte[Math.max(16, capacity)];
+        }
+
+        public Writer() {
+            this(64);
+        }
+
+        /** Starts a record; its body is everything written until {@link #endRecord}. */
+        public int beginRecord(int tag, int version) {
+            writeVarint(tag);
+            writeVarint(version);
+            // body length, patched in endRecord; 2 bytes cover bodies up to 16 KB
+            ensure(2);
+            size += 2;
+            return size;
+        }
+
+        public void endRecord(int bodyStart) {
+            var length = size - bodyStart;
+            if (length < 1 << 14) {
+                buffer[bodyStart - 2] = (byte) (length & 0x7F | 0x80);
+                buffer[bodyStart - 1] = (byte) (length >>> 7);
+                return;
+            }
+            // rare: make room for a longer length
+            var lengthBytes = varintSize(length);
+            ensure(lengthBytes - 2);
+            System.arraycopy(buffer, bodyStart, buffer, bodyStart - 2 + lengthBytes, length);
+            size = bodyStart - 2;
+            writeVarint(length);
+            size += length;
+        }
+
+        public void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) (value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        public void writeSigned(long value) {
+            writeVarint(zigzag(value));
+        }
+
+        public void writeBoolean(boolean value) {
+            writeVarint(value ? 1 : 0);
+        }
+
+        /** Header 0 is null, 1 a UUID, otherwise the UTF-8 length plus 2. */
+        public void writeString(String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            if (value.length() == 36 && isCanonicalUuid(value)) {
+                var uuid = UUID.fromString(value);
+                writeVarint(1);
+                writeLong(uuid.getMostSignificantBits());
+                writeLong(uuid.getLeastSignificantBits());
+                return;
+            }
+            var bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length + 2L);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        /** Null is written as 0; whole minutes as even, other times as odd values followed by the nanoseconds. */
+        public void writeDateTime(LocalDateTime value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            var seconds = value.toEpochSecond(ZoneOffset.UTC);
+            var nanos = value.getNano();
+            if (nanos == 0 && seconds % 60 == 0) {
+                writeVarint(zigzag(seconds / 60) * 2 + 2);
+            } else {
+                writeVarint(zigzag(seconds) * 2 + 1);
+                writeVarint(nanos);
+            }
+        }
+
+        public byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8)
+                buffer[size++] = (byte) (value >>> shift);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length)
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+
+    public static final class Reader {
+        private final byte[] buffer;
+        private int position;
+        private int limit;
+
+        public Reader(byte[] buffer) {
+            this.buffer = buffer;
+            this.limit = buffer.length;
+        }
+
+        /** A record header, with the body limit the reader is bounded to until {@link #endRecord}. */
+        public record Header(int tag, int version, int end, int outerLimit) {}
+
+        public Header beginRecord() {
+            var tag = (int) readVarint();
+            var version = (int) readVarint();
+            var length = (int) readVarint();
+            if (position + length > limit)
+                throw new IllegalArgumentException("Record body exceeds the input");
+            var header = new Header(tag, version, position + length, limit);
+            limit = header.end();
+            return header;
+        }
+
+        /** Skips the fields of the body that weren't read, e.g. ones added by a newer writer. */
+        public void endRecord(Header header) {
+            position = header.end();
+            limit = header.outerLimit();
+        }
+
+        /** False once the body has no more fields; fields missing at the end take their defaults. */
+        public boolean hasMore() {
+            return position < limit;
+        }
+
+        public long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= limit)
+                    throw new IllegalArgumentException("Truncated varint");
+                var b = buffer[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return value;
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        public long readSigned() {
+            return unzigzag(readVarint());
+        }
+
+        public boolean readBoolean() {
+            return readVarint() != 0;
+        }
+
+        public String readString() {
+            var header = readVarint();
+            if (header == 0)
+                return null;
+            if (header == 1)
+                return new UUID(readLong(), readLong()).toString();
+            var length = (int) (header - 2);
+            if (position + length > limit)
+                throw new IllegalArgumentException("Truncated string");
+            var value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        public LocalDateTime readDateTime() {
+            var header = readVarint();
+            if (header == 0)
+                return null;
+            if ((header & 1) == 0)
+                return LocalDateTime.ofEpochSecond(unzigzag((header - 2) / 2) * 60, 0, ZoneOffset.UTC);
+            var seconds = unzigzag(header / 2);
+            return LocalDateTime.ofEpochSecond(seconds, (int) readVarint(), ZoneOffset.UTC);
+        }
+
+        private long readLong() {
+            if (position + 8 > limit)
+                throw new IllegalArgumentException("Truncated UUID");
+            long value = 0;
+            for (int i = 0; i < 8; i++)
+                value = value << 8 | (buffer[position++] & 0xFF);
+            return value;
+        }
+    }
+
+    static int varintSize(long value) {
+        int bytes = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            bytes++;
+        }
+        return bytes;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /** Only the lowercase form {@link UUID#toString()} produces round-trips, anything else stays a string. */
+    private static boolean isCanonicalUuid(String value) {
+        for (int i = 0; i < 36; i++) {
+            var c = value.charAt(i);
+            var dash = i == 8 || i == 13 || i == 18 || i == 23;
+            if (dash ? c != '-' : !((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f')))
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,84 @@
+package com.clinic.domain;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Progress of a multi-day doctor absence: one entry per day of the range, plus the agent calls left in the triage
+ * budget shared by all days.
+ */
+public record DoctorAbsenceState(String doctorId, LocalDate from, LocalDate to, List<Day> days, int triageBudgetLeft,
+                                 Status status) {
+
+    public enum Status {
+        Initial,
+        DaysBlocked,
+        AppointmentsTriaged,
+        Completed;
+
+        public boolean isTerminal() {
+            return this == Completed;
+        }
+    }
+
+    public enum DayStatus {
+        Pending,
+        /** the doctor has no schedule that day, nothing to cancel */
+        NoSchedule,
+        Blocked,
+        Cancelling,
+        Cancelled,
+        Failed
+    }
+
+    /** @param deadline while the day is cancelling: when it is reported as failed if not finished; null otherwise */
+    public record Day(LocalDate date, DayStatus status, Instant deadline) {
+        public Day(LocalDate date, DayStatus status) {
+            this(date, status, null);
+        }
+    }
+
+    public static DoctorAbsenceState initial(String doctorId, LocalDate from, LocalDate to, int triageBudget) {
+        var days = from.datesUntil(to.plusDays(1)).map(date -> new Day(date, DayStatus.Pending)).toList();
+        return new DoctorAbsenceState(doctorId, from, to, days, triageBudget, Status.Initial);
+    }
+
+    public DoctorAbsenceState withStatus(Status status) {
+        return new DoctorAbsenceState(doctorId, from, to, days, triageBudgetLeft, status);
+    }
+
+    public DoctorAbsenceState withTriageBudgetLeft(int triageBudgetLeft) {
+        return new DoctorAbsenceState(doctorId, from, to, days, triageBudgetLeft, status);
+    }
+
+    public DoctorAbsenceState withDayStatus(LocalDate date, DayStatus dayStatus) {
+        return withDay(new Day(date, dayStatus));
+    }
+
+    /** The day's cancellation started; it has until {@code deadline} to finish. */
+    public DoctorAbsenceState withDayCancelling(LocalDate date, Instant deadline) {
+        return withDay(new Day(date, DayStatus.Cancelling, deadline));
+    }
+
+    private DoctorAbsenceState withDay(Day newDay) {
+        var newDays = new ArrayList<Day>(days.size());
+        for (var day : days)
+            newDays.add(day.date().equals(newDay.date()) ? newDay : day);
+        return new DoctorAbsenceState(doctorId, from, to, Collections.unmodifiableList(newDays), triageBudgetLeft, status);
+    }
+
+    /** Cancelling days whose deadline passed; days from before deadlines were recorded have none and never expire. */
+    public List<LocalDate> cancellingPast(Instant now) {
+        return days.stream()
+                .filter(day -> day.status() == DayStatus.Cancelling && day.deadline() != null && now.isAfter(day.deadline()))
+                .map(Day::date)
+                .toList();
+    }
+
+    public List<LocalDate> datesWithStatus(DayStatus dayStatus) {
+        return days.stream().filter(day -> day.status() == dayStatus).map(Day::date).toList();
+    }
+}
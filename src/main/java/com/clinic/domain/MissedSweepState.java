@@ -0,0 +1,38 @@
+package com.clinic.domain;
+
+import java.time.LocalDate;
+
+/**
+ * Progress of marking a day's past scheduled appointments as missed. The cursor is the (time, id) of the last
+ * appointment handled, so a restarted sweep continues after it instead of reading the day again.
+ *
+ * @param marked  appointments marked as missed
+ * @param skipped appointments that changed on their own before the sweep got to them, e.g. completed
+ */
+public record MissedSweepState(LocalDate date, String afterTime, String afterId, int marked, int skipped,
+                               Status status) {
+
+    public enum Status {
+        Sweeping,
+        Completed,
+        /** paused at the cursor; its retry timer, or sweeping the date again, resumes it */
+        Failed;
+
+        public boolean isTerminal() {
+            return this == Completed || this == Failed;
+        }
+    }
+
+    public static MissedSweepState initial(LocalDate date) {
+        // sorts before any time and id
+        return new MissedSweepState(date, "", "", 0, 0, Status.Sweeping);
+    }
+
+    public MissedSweepState afterPage(String lastTime, String lastId, int pageMarked, int pageSkipped) {
+        return new MissedSweepState(date, lastTime, lastId, marked + pageMarked, skipped + pageSkipped, status);
+    }
+
+    public MissedSweepState withStatus(Status status) {
+        return new MissedSweepState(date, afterTime, afterId, marked, skipped, status);
+    }
+}
@@ -0,0 +1,34 @@
+package com.clinic.domain;
+
+import java.time.Duration;
+
+/**
+ * Precomputed occupancy numbers for one doctor-day, derived from the working hours and booked time slots.
+ * Only ACTIVE schedules have free minutes; a blocked or cancelled day can't take new bookings.
+ */
+public record Occupancy(long workingMinutes, long bookedMinutes, long freeMinutes, int slotCount) {
+
+    public static final Occupancy EMPTY = new Occupancy(0, 0, 0, 0);
+
+    public static Occupancy of(Schedule schedule) {
+        var workingMinutes = Duration.between(schedule.workingHours().startTime(), schedule.workingHours().endTime()).toMinutes();
+        var bookedMinutes = schedule.timeSlots().stream()
+                .mapToLong(slot -> Duration.between(slot.startTime(), slot.endTime()).toMinutes())
+                .sum();
+        var freeMinutes = schedule.status() == Schedule.Status.ACTIVE ? Math.max(0, workingMinutes - bookedMinutes) : 0;
+        return new Occupancy(workingMinutes, bookedMinutes, freeMinutes, schedule.timeSlots().size());
+    }
+
+    /** Booked share of the working time, between 0 and 1. */
+    public double utilization() {
+        return workingMinutes == 0 ? 0 : Math.min(1.0, (double) bookedMinutes / workingMinutes);
+    }
+
+    public Occupancy plus(Occupancy other) {
+        return new Occupancy(
+                workingMinutes + other.workingMinutes,
+                bookedMinutes + other.bookedMinutes,
+                freeMinutes + other.freeMinutes,
+                slotCount + other.slotCount);
+    }
+}
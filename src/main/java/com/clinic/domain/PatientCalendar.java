@@ -0,0 +1,83 @@
+package com.clinic.domain;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The active appointments of one patient as non-overlapping intervals sorted by start, so an overlap check is a
+ * binary search plus a look at both neighbours.
+ */
+public record PatientCalendar(String patientId, List<Booking> bookings) {
+
+    /**
+     * @param start inclusive
+     * @param end   exclusive
+     */
+    public record Booking(String appointmentId, LocalDateTime start, LocalDateTime end) {
+        public Booking {
+            if (!start.isBefore(end))
+                throw new IllegalArgumentException("Start must be before end");
+        }
+
+        public boolean overlaps(Booking other) {
+            return other.start().isBefore(end) && other.end().isAfter(start);
+        }
+    }
+
+    private static final Comparator<Booking> BY_START = Comparator.comparing(Booking::start);
+
+    public static PatientCalendar empty(String patientId) {
+        return new PatientCalendar(patientId, List.of());
+    }
+
+    public Optional<Booking> find(String appointmentId) {
+        return bookings.stream().filter(booking -> booking.appointmentId().equals(appointmentId)).findFirst();
+    }
+
+    /** Another appointment of the patient that overlaps the booking; the booking's own appointment is ignored. */
+    public Optional<Booking> conflict(Booking booking) {
+        var index = Collections.binarySearch(bookings, booking, BY_START);
+        var insertAt = index >= 0 ? index : -index - 1;
+        // intervals don't overlap each other, so only the neighbours around the insertion point can overlap
+        for (int i = Math.max(0, insertAt - 1); i < Math.min(bookings.size(), insertAt + 2); i++) {
+            var other = bookings.get(i);
+            if (!other.appointmentId().equals(booking.appointmentId()) && other.overlaps(booking))
+                return Optional.of(other);
+        }
+        return Optional.empty();
+    }
+
+    /** Adds the booking, replacing the previous interval of the same appointment. */
+    public PatientCalendar reserve(Booking booking) {
+        var conflict = conflict(booking);
+        if (conflict.isPresent())
+            throw new IllegalArgumentException("Patient already has appointment " + conflict.get().appointmentId()
+                    + " from " + conflict.get().start() + " to " + conflict.get().end());
+
+        var newBookings = new ArrayList<Booking>(bookings.size() + 1);
+        for (var existing : bookings) {
+            if (!existing.appointmentId().equals(booking.appointmentId()))
+                newBookings.add(existing);
+        }
+        var index = Collections.binarySearch(newBookings, booking, BY_START);
+        newBookings.add(index >= 0 ? index : -index - 1, booking);
+        return new PatientCalendar(patientId, Collections.unmodifiableList(newBookings));
+    }
+
+    public PatientCalendar release(String appointmentId) {
+        if (find(appointmentId).isEmpty())
+            return this;
+        return new PatientCalendar(patientId, bookings.stream().filter(booking -> !booking.appointmentId().equals(appointmentId)).toList());
+    }
+
+    /** Drops bookings that ended before the given time; they can't conflict with new ones. */
+    public PatientCalendar withoutEndedBefore(LocalDateTime time) {
+        if (bookings.isEmpty() || !bookings.getFirst().end().isBefore(time))
+            return this;
+        return new PatientCalendar(patientId, bookings.stream().filter(booking -> !booking.end().isBefore(time)).toList());
+    }
+}
@@ -0,0 +1,52 @@
+package com.clinic.domain;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A day-before reminder: all appointments a patient has on the date, sent as one message.
+ *
+ * @param key the same for every attempt to send this reminder, so senders can drop duplicates
+ */
+public record Reminder(String key, String patientId, LocalDate date, List<Item> appointments) {
+
+    public record Item(String appointmentId, String doctorId, LocalTime time) {}
+
+    /**
+     * @param patientId rows come ordered by patient, then appointment id
+     */
+    public record Row(String appointmentId, String patientId, String doctorId, LocalTime time) {}
+
+    /** Includes the first appointment, which is the same on every attempt since pages always restart at the cursor. */
+    public static String key(String patientId, LocalDate date, String firstAppointmentId) {
+        return "reminder:" + date + ":" + patientId + ":" + firstAppointmentId;
+    }
+
+    /**
+     * One reminder per patient, in the order of the rows. When {@code complete} is false more rows may follow for
+     * the last patient, so that patient is left for the next page unless they are the only one.
+     */
+    public static List<Reminder> byPatient(LocalDate date, List<Row> rows, boolean complete) {
+        var reminders = new ArrayList<Reminder>();
+        var items = new ArrayList<Item>();
+        for (int i = 0; i < rows.size(); i++) {
+            var row = rows.get(i);
+            items.add(new Item(row.appointmentId(), row.doctorId(), row.time()));
+            var lastOfPatient = i == rows.size() - 1 || !rows.get(i + 1).patientId().equals(row.patientId());
+            if (lastOfPatient) {
+                reminders.add(new Reminder(key(row.patientId(), date, items.getFirst().appointmentId()), row.patientId(), date, List.copyOf(items)));
+                items.clear();
+            }
+        }
+        if (!complete && reminders.size() > 1)
+            reminders.removeLast();
+        return reminders;
+    }
+
+    /** The last appointment of the reminder, where the next page continues. */
+    public Item last() {
+        return appointments.getLast();
+    }
+}
@@ -0,0 +1,35 @@
+package com.clinic.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reminders delivered from the page a reminder run is working on. Only the page at the run's cursor is kept: once
+ * the run saves its progress past the page, those reminders are never read again.
+ *
+ * @param cursor position of the run when the page was read, see {@link ReminderRunState#cursor()}
+ * @param keys   {@link Reminder#key()} of the reminders delivered from that page
+ */
+public record ReminderDeliveries(String cursor, List<String> keys) {
+
+    public static ReminderDeliveries empty(String cursor) {
+        return new ReminderDeliveries(cursor, List.of());
+    }
+
+    /** Delivered from the page at {@code cursor}; a page further on starts empty. */
+    public List<String> keysAt(String cursor) {
+        return this.cursor.equals(cursor) ? keys : List.of();
+    }
+
+    /** Adds a key of the page at {@code cursor}; a new cursor drops the keys of the previous page. */
+    public ReminderDeliveries add(String cursor, String key) {
+        var current = keysAt(cursor);
+        if (current.contains(key))
+            return this;
+        var newKeys = new ArrayList<String>(current.size() + 1);
+        newKeys.addAll(current);
+        newKeys.add(key);
+        return new ReminderDeliveries(cursor, Collections.unmodifiableList(newKeys));
+    }
+}
@@ -0,0 +1,45 @@
+package com.clinic.domain;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Progress of sending the reminders for the appointments of one date. The cursor is the (patient, appointment id)
+ * of the last appointment reminded, so a restarted run continues after it.
+ *
+ * @param deadline reminders not sent by then are given up, they would arrive too late
+ * @param failed   reminders that still failed after all attempts
+ */
+public record ReminderRunState(LocalDate date, String afterPatientId, String afterId, int sent, int failed,
+                               Instant deadline, Status status) {
+
+    public enum Status {
+        Sending,
+        Completed,
+        /** the deadline passed before all reminders were sent */
+        Expired,
+        Failed;
+
+        public boolean isTerminal() {
+            return this != Sending;
+        }
+    }
+
+    public static ReminderRunState initial(LocalDate date, Instant deadline) {
+        // sorts before any patient and id
+        return new ReminderRunState(date, "", "", 0, 0, deadline, Status.Sending);
+    }
+
+    /** Identifies the page the run is at; it only changes when the progress is saved. */
+    public String cursor() {
+        return afterPatientId + "/" + afterId;
+    }
+
+    public ReminderRunState afterPage(String lastPatientId, String lastId, int pageSent, int pageFailed) {
+        return new ReminderRunState(date, lastPatientId, lastId, sent + pageSent, failed + pageFailed, deadline, status);
+    }
+
+    public ReminderRunState withStatus(Status status) {
+        return new ReminderRunState(date, afterPatientId, afterId, sent, failed, deadline, status);
+    }
+}
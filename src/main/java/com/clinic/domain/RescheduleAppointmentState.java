@@ -1,22 +1,38 @@
 package com.clinic.domain;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 
+/** @param duration of the appointment, known once it is loaded; null before that */
 public record RescheduleAppointmentState(
         String appointmentId,
         LocalDateTime oldDateTime,
         String oldDoctorId,
         LocalDateTime newDateTime,
         String newDoctorId,
-        Status status
+        Status status,
+        Duration duration
 ) {
 
     public enum Status {
         Initial,
         NewSlotCreated,
+        /** same-day reschedule: the slot was moved within its schedule, nothing is left to remove afterwards */
+        SlotMoved,
         AppointmentRescheduled,
         OldSlotRemoved,
-        Failed
+        /** the appointment is at its new time, but its old slot couldn't be removed and stays booked */
+        OldSlotLeft,
+        Failed;
+
+        public boolean isTerminal() {
+            return this == OldSlotRemoved || this == OldSlotLeft || this == Failed;
+        }
+    }
+
+    /** True when the appointment stays with the same doctor on the same day, so its slot can be moved in place. */
+    public boolean isSameSchedule() {
+        return oldDoctorId.equals(newDoctorId) && oldDateTime.toLocalDate().equals(newDateTime.toLocalDate());
     }
 
     /** Returns a new state with updated status. */
@@ -27,19 +43,21 @@ public record RescheduleAppointmentState(
                 oldDoctorId,
                 newDateTime,
                 newDoctorId,
-                newStatus
+                newStatus,
+                duration
         );
     }
 
     /** Returns a new state with old appointment data populated. */
-    public RescheduleAppointmentState withOld(LocalDateTime oldDateTime, String oldDoctorId) {
+    public RescheduleAppointmentState withOld(LocalDateTime oldDateTime, String oldDoctorId, Duration duration) {
         return new RescheduleAppointmentState(
                 appointmentId,
                 oldDateTime,
                 oldDoctorId,
                 newDateTime,
                 newDoctorId,
-                status
+                status,
+                duration
         );
     }
 
@@ -51,7 +69,8 @@ public record RescheduleAppointmentState(
                 null,
                 newDateTime,
                 newDoctorId,
-                Status.Initial
+                Status.Initial,
+                null
         );
     }
 }
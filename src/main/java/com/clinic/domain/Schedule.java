@@ -1,13 +1,20 @@
 package com.clinic.domain;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
 
-public record Schedule(ScheduleId id, WorkingHours workingHours, List<TimeSlot> timeSlots, Status status) {
+/**
+ * @param holds slots reserved for appointments that are still being created; they block other bookings until they
+ *              are confirmed, released or expire
+ */
+public record Schedule(ScheduleId id, WorkingHours workingHours, List<TimeSlot> timeSlots, Status status, List<Hold> holds) {
 
     public enum Status {
         ACTIVE,
@@ -17,14 +24,21 @@ public record Schedule(ScheduleId id, WorkingHours workingHours, List<TimeSlot>
     private static final Duration MIN_DURATION = Duration.ofMinutes(5);
 
     public Schedule {
-        var isInWorkingHours = timeSlots
+        // schedules stored before holds existed have none
+        if (holds == null)
+            holds = List.of();
+
+        var occupied = new ArrayList<>(timeSlots);
+        holds.forEach(hold -> occupied.add(hold.slot()));
+
+        var isInWorkingHours = occupied
                 .stream()
                 .allMatch(workingHours::isInWorkingHours);
         if (!isInWorkingHours)
             throw new IllegalArgumentException("Appointment is not in working hours");
 
-        var isOverlapping = timeSlots.stream().anyMatch(slot ->
-                timeSlots.stream().anyMatch(otherSlot ->
+        var isOverlapping = occupied.stream().anyMatch(slot ->
+                occupied.stream().anyMatch(otherSlot ->
                         slot != otherSlot &&
                                 !slot.appointmentId().equals(otherSlot.appointmentId()) &&
                                 slot.overlaps(otherSlot)
@@ -35,6 +49,10 @@ public record Schedule(ScheduleId id, WorkingHours workingHours, List<TimeSlot>
 
     }
 
+    public Schedule(ScheduleId id, WorkingHours workingHours, List<TimeSlot> timeSlots, Status status) {
+        this(id, workingHours, timeSlots, status, List.of());
+    }
+
     public Schedule(ScheduleId id, WorkingHours workingHours) {
         this(id, workingHours, List.of(), Status.ACTIVE);
     }
@@ -87,6 +105,69 @@ public record Schedule(ScheduleId id, WorkingHours workingHours, List<TimeSlot>
         }
     }
 
+    public record Hold(TimeSlot slot, Instant expiresAt) {
+        public boolean isExpired(Instant now) {
+            return !expiresAt.isAfter(now);
+        }
+    }
+
+    /**
+     * A free interval within the working hours.
+     *
+     * @param startTime inclusive
+     * @param endTime exclusive
+     */
+    public record Gap(LocalTime startTime, LocalTime endTime) {
+        public Duration length() {
+            return Duration.between(startTime, endTime);
+        }
+    }
+
+    /** The free intervals between the working hours, the booked slots and the holds, in order. */
+    public List<Gap> freeGaps() {
+        var occupied = new ArrayList<>(timeSlots);
+        holds.forEach(hold -> occupied.add(hold.slot()));
+        occupied.sort(Comparator.comparing(TimeSlot::startTime));
+
+        var gaps = new ArrayList<Gap>();
+        var free = workingHours.startTime();
+        for (var slot : occupied) {
+            if (slot.startTime().isAfter(free))
+                gaps.add(new Gap(free, slot.startTime()));
+            if (slot.endTime().isAfter(free))
+                free = slot.endTime();
+        }
+        if (workingHours.endTime().isAfter(free))
+            gaps.add(new Gap(free, workingHours.endTime()));
+        return gaps;
+    }
+
+    /**
+     * Start times for an appointment of the given duration, best fit first: the gaps it leaves the least time over
+     * in come first, and within a gap the appointment starts right after what precedes it. Small gaps get filled
+     * before large ones are cut into, so the day keeps the long stretches that long appointments need. Gaps that fit
+     * equally well are suggested in time order.
+     */
+    public List<LocalTime> suggestStarts(Duration duration, int limit) {
+        return suggestStarts(duration, limit, LocalTime.MIN);
+    }
+
+    /**
+     * Like {@link #suggestStarts(Duration, int)}, for the part of the day from {@code notBefore} on: a gap that began
+     * earlier counts from {@code notBefore}, so what is left of it is still suggested.
+     */
+    public List<LocalTime> suggestStarts(Duration duration, int limit, LocalTime notBefore) {
+        if (status != Status.ACTIVE)
+            return List.of();
+        return freeGaps().stream()
+                .map(gap -> gap.startTime().isBefore(notBefore) ? new Gap(notBefore, gap.endTime()) : gap)
+                .filter(gap -> gap.startTime().isBefore(gap.endTime()) && gap.length().compareTo(duration) >= 0)
+                .sorted(Comparator.comparing((Gap gap) -> gap.length().minus(duration)).thenComparing(Gap::startTime))
+                .limit(limit)
+                .map(Gap::startTime)
+                .toList();
+    }
+
     public Schedule scheduleAppointment(LocalTime startTime, Duration duration, String appointmentId) {
         if (status != Status.ACTIVE) {
             throw new IllegalArgumentException("Schedule status is " + status + "; new bookings are not allowed");
@@ -94,7 +175,82 @@ public record Schedule(ScheduleId id, WorkingHours workingHours, List<TimeSlot>
         var newTimeSlot = new TimeSlot(startTime, startTime.plus(duration), appointmentId);
         var newSlots = new ArrayList<>(timeSlots); //copy original slots
         newSlots.add(newTimeSlot); //add a new time slot to the copy
-        return new Schedule(id, workingHours, Collections.unmodifiableList(newSlots), status);
+        return new Schedule(id, workingHours, Collections.unmodifiableList(newSlots), status, holds);
+    }
+
+    /** Adds an already validated slot regardless of status, used when replaying events. */
+    public Schedule addTimeSlot(TimeSlot timeSlot) {
+        var newSlots = new ArrayList<>(timeSlots);
+        newSlots.add(timeSlot);
+        return new Schedule(id, workingHours, Collections.unmodifiableList(newSlots), status, holds);
+    }
+
+    /**
+     * Moves the slot of an appointment to a new start time, keeping its duration. The old slot is freed in the same
+     * change, so the appointment may move onto a time that overlaps its own previous slot.
+     */
+    public Schedule moveAppointment(String appointmentId, LocalTime newStartTime) {
+        if (status != Status.ACTIVE) {
+            throw new IllegalArgumentException("Schedule status is " + status + "; new bookings are not allowed");
+        }
+        var slot = timeSlots.stream()
+                .filter(ts -> ts.appointmentId().equals(appointmentId))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No timeslot found for appointment " + appointmentId));
+        if (slot.startTime().equals(newStartTime))
+            return this;
+
+        var moved = new TimeSlot(newStartTime, newStartTime.plus(Duration.between(slot.startTime(), slot.endTime())), appointmentId);
+        var newSlots = new ArrayList<TimeSlot>(timeSlots.size());
+        for (var ts : timeSlots)
+            newSlots.add(ts == slot ? moved : ts);
+        return new Schedule(id, workingHours, Collections.unmodifiableList(newSlots), status, holds);
+    }
+
+    /**
+     * Reserves a slot for an appointment until {@code expiresAt}. Holding again for the same appointment replaces
+     * its previous hold.
+     */
+    public Schedule holdSlot(LocalTime startTime, Duration duration, String appointmentId, Instant expiresAt) {
+        if (status != Status.ACTIVE) {
+            throw new IllegalArgumentException("Schedule status is " + status + "; new bookings are not allowed");
+        }
+        var newHolds = new ArrayList<Hold>(holds.size() + 1);
+        for (var hold : holds) {
+            if (!hold.slot().appointmentId().equals(appointmentId))
+                newHolds.add(hold);
+        }
+        newHolds.add(new Hold(new TimeSlot(startTime, startTime.plus(duration), appointmentId), expiresAt));
+        return new Schedule(id, workingHours, timeSlots, status, Collections.unmodifiableList(newHolds));
+    }
+
+    public Optional<Hold> findHold(String appointmentId) {
+        return holds.stream().filter(hold -> hold.slot().appointmentId().equals(appointmentId)).findFirst();
+    }
+
+    /** Turns the hold of an appointment into a booked slot. */
+    public Schedule confirmHold(String appointmentId) {
+        if (status != Status.ACTIVE) {
+            throw new IllegalArgumentException("Schedule status is " + status + "; new bookings are not allowed");
+        }
+        var hold = findHold(appointmentId)
+                .orElseThrow(() -> new IllegalArgumentException("No hold found for appointment " + appointmentId));
+        return releaseHold(appointmentId).addTimeSlot(hold.slot());
+    }
+
+    /** Drops the hold of an appointment; a no-op when there is none. */
+    public Schedule releaseHold(String appointmentId) {
+        if (findHold(appointmentId).isEmpty())
+            return this;
+        var newHolds = holds.stream().filter(hold -> !hold.slot().appointmentId().equals(appointmentId)).toList();
+        return new Schedule(id, workingHours, timeSlots, status, newHolds);
+    }
+
+    public Schedule withoutExpiredHolds(Instant now) {
+        if (holds.stream().noneMatch(hold -> hold.isExpired(now)))
+            return this;
+        var newHolds = holds.stream().filter(hold -> !hold.isExpired(now)).toList();
+        return new Schedule(id, workingHours, timeSlots, status, newHolds);
     }
 
     public Schedule removeTimeSlotByStartTime(LocalTime startTime) {
@@ -103,13 +259,25 @@ public record Schedule(ScheduleId id, WorkingHours workingHours, List<TimeSlot>
         if (!removed) {
             throw new IllegalArgumentException("No timeslot found starting at " + startTime);
         }
-        return new Schedule(id, workingHours, Collections.unmodifiableList(newSlots), status);
+        return new Schedule(id, workingHours, Collections.unmodifiableList(newSlots), status, holds);
+    }
+    /** Drops the slot of an appointment; a no-op when it has none, e.g. because it was removed already. */
+    public Schedule removeAppointment(String appointmentId) {
+        if (timeSlots.stream().noneMatch(slot -> slot.appointmentId().equals(appointmentId)))
+            return this;
+        var newSlots = timeSlots.stream().filter(slot -> !slot.appointmentId().equals(appointmentId)).toList();
+        return new Schedule(id, workingHours, newSlots, status, holds);
     }
+
     public Schedule blockSchedule() {
-        return new Schedule(id, workingHours, timeSlots, Status.BLOCKED);
+        return new Schedule(id, workingHours, timeSlots, Status.BLOCKED, holds);
     }
 
     public Schedule cancelSchedule(){
-        return new Schedule(id, workingHours, timeSlots, Status.CANCELLED);
+        return new Schedule(id, workingHours, timeSlots, Status.CANCELLED, holds);
+    }
+
+    public Schedule reactivate() {
+        return new Schedule(id, workingHours, timeSlots, Status.ACTIVE, holds);
     }
 }
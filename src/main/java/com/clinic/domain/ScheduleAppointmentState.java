@@ -1,19 +1,56 @@
 package com.clinic.domain;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Objects;
 
-public record ScheduleAppointmentState(LocalDateTime dateTime, String doctorId, String patientId, String issue, Status status) {
+/**
+ * @param duration      null in workflows started before durations existed, see {@link Appointment#DEFAULT_DURATION}
+ * @param waitlistEntry the waitlist entry this booking was offered to, taken off the waitlist until the booking
+ *                      succeeds; null for other bookings
+ */
+public record ScheduleAppointmentState(LocalDateTime dateTime, String doctorId, String patientId, String issue, Status status,
+                                       Duration duration, Waitlist.Entry waitlistEntry) {
+
+    public ScheduleAppointmentState {
+        if (duration == null)
+            duration = Appointment.DEFAULT_DURATION;
+    }
+
+    public ScheduleAppointmentState(LocalDateTime dateTime, String doctorId, String patientId, String issue, Status status,
+                                    Duration duration) {
+        this(dateTime, doctorId, patientId, issue, status, duration, null);
+    }
 
     public enum Status {
         Initial,
+        TimeSlotHeld,
         AppointmentCreated,
         TimeSlotScheduled,
         AppointmentCancelled,
-        AppointmentScheduled
+        AppointmentScheduled,
+        /** the slot was taken or the schedule doesn't accept bookings; no appointment was created */
+        SlotUnavailable,
+        /** the patient already has another appointment at that time; nothing was booked */
+        PatientUnavailable;
+
+        public boolean isTerminal() {
+            return this == AppointmentScheduled || this == AppointmentCancelled || this == SlotUnavailable
+                    || this == PatientUnavailable;
+        }
     }
 
     public ScheduleAppointmentState withStatus(Status status) {
-        return new ScheduleAppointmentState(dateTime, doctorId, patientId, issue, status);
+        return new ScheduleAppointmentState(dateTime, doctorId, patientId, issue, status, duration, waitlistEntry);
+    }
+
+    /** True when a repeated request asks for the same booking as the one this workflow was started with. */
+    public boolean isSameRequest(LocalDateTime dateTime, String doctorId, String patientId, String issue, Duration duration) {
+        return this.dateTime.equals(dateTime)
+                && this.duration.equals(duration)
+                && Objects.equals(this.doctorId, doctorId)
+                && Objects.equals(this.patientId, patientId)
+                && Objects.equals(this.issue, issue);
     }
 
 }
\ No newline at end of file
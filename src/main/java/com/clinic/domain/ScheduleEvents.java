@@ -0,0 +1,84 @@
+package com.clinic.domain;
+
+import akka.javasdk.annotations.TypeName;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Fine-grained schedule events: each one carries only what changed, so a booking writes one slot instead of the
+ * whole day.
+ */
+public sealed interface ScheduleEvents {
+    @TypeName("schedule-created")
+    record ScheduleCreated(Schedule.WorkingHours workingHours) implements ScheduleEvents {
+    }
+
+    @TypeName("slot-booked")
+    record SlotBooked(LocalTime startTime, LocalTime endTime, String appointmentId) implements ScheduleEvents {
+        public Schedule.TimeSlot timeSlot() {
+            return new Schedule.TimeSlot(startTime, endTime, appointmentId);
+        }
+    }
+
+    @TypeName("slot-released")
+    record SlotReleased(LocalTime startTime) implements ScheduleEvents {
+    }
+
+    @TypeName("day-blocked")
+    record DayBlocked() implements ScheduleEvents {
+    }
+
+    @TypeName("day-cancelled")
+    record DayCancelled() implements ScheduleEvents {
+    }
+
+    @TypeName("day-reactivated")
+    record DayReactivated() implements ScheduleEvents {
+    }
+
+    /**
+     * The events that turn {@code from} into {@code to}. {@code from} is null for a schedule without history, which
+     * yields the initial events of a migrated key-value schedule. Working hours can't change after creation, so they
+     * are only taken from {@code to} when {@code from} is null.
+     */
+    static List<ScheduleEvents> diff(Schedule from, Schedule to) {
+        var events = new ArrayList<ScheduleEvents>();
+        var currentStatus = Schedule.Status.ACTIVE;
+        var currentSlots = new HashSet<Schedule.TimeSlot>();
+        if (from == null) {
+            events.add(new ScheduleCreated(to.workingHours()));
+        } else {
+            currentStatus = from.status();
+            currentSlots.addAll(from.timeSlots());
+        }
+
+        // reopen first so slots booked while active can be replayed
+        if (to.status() == Schedule.Status.ACTIVE && currentStatus != Schedule.Status.ACTIVE)
+            events.add(new DayReactivated());
+
+        var targetSlots = new HashSet<>(to.timeSlots());
+        // releases before bookings, so a moved slot never overlaps its old position
+        for (var slot : currentSlots) {
+            if (!targetSlots.contains(slot))
+                events.add(new SlotReleased(slot.startTime()));
+        }
+        for (var slot : to.timeSlots()) {
+            if (!currentSlots.contains(slot))
+                events.add(new SlotBooked(slot.startTime(), slot.endTime(), slot.appointmentId()));
+        }
+
+        if (to.status() != currentStatus) {
+            switch (to.status()) {
+                case BLOCKED -> events.add(new DayBlocked());
+                case CANCELLED -> events.add(new DayCancelled());
+                case ACTIVE -> {
+                    // already reopened above
+                }
+            }
+        }
+        return events;
+    }
+}
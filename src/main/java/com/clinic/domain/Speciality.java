@@ -0,0 +1,50 @@
+package com.clinic.domain;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A speciality under its normalized key: lower case, accents dropped and any punctuation or white space between
+ * words turned into a single dash, so "Cardiology", " cardiology" and "Cardiólogy" are all {@code cardiology} and
+ * "Internal  Medicine" is {@code internal-medicine}. The name keeps the spelling it was given in.
+ */
+public record Speciality(String key, String name) {
+
+    public static String key(String name) {
+        var ascii = Normalizer.normalize(name, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return ascii.toLowerCase(Locale.ROOT)
+                .replaceAll("[^a-z0-9]+", "-")
+                .replaceAll("^-|-$", "");
+    }
+
+    /** The distinct specialities of the names, the first spelling of a key wins; blank names are dropped. */
+    public static List<Speciality> of(List<String> names) {
+        var keys = new HashSet<String>();
+        var specialities = new ArrayList<Speciality>();
+        for (var name : names) {
+            var key = key(name);
+            if (!key.isEmpty() && keys.add(key))
+                specialities.add(new Speciality(key, name.strip()));
+        }
+        return specialities;
+    }
+
+    /** A doctor practising a speciality, one row of the speciality index. */
+    public record Assignment(String specialityKey, String name, String doctorId, boolean active) {
+
+        public static String id(String specialityKey, String doctorId) {
+            return specialityKey + ":" + doctorId;
+        }
+
+        public Assignment withdrawn() {
+            return new Assignment(specialityKey, name, doctorId, false);
+        }
+    }
+
+    /** The speciality keys a doctor is assigned to in the index, the ones to withdraw once the doctor drops them. */
+    public record DoctorKeys(String doctorId, List<String> keys) {
+    }
+}
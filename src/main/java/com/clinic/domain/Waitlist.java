@@ -0,0 +1,64 @@
+package com.clinic.domain;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/** Patients waiting for a freed slot with one doctor. */
+public record Waitlist(String doctorId, List<Entry> entries) {
+
+    /**
+     * @param from      first acceptable date, inclusive
+     * @param to        last acceptable date, inclusive
+     * @param doctorIds every doctor this entry was registered with, e.g. all doctors of a speciality; the entry is
+     *                  removed from the others once one of them books it
+     */
+    public record Entry(String id, String patientId, String issue, LocalDate from, LocalDate to,
+                        Appointment.Urgency urgency, Instant registeredAt, List<String> doctorIds) {
+        public boolean accepts(LocalDate date) {
+            return !date.isBefore(from) && !date.isAfter(to);
+        }
+    }
+
+    /** Most urgent first, then first come first served. */
+    public static final Comparator<Entry> PRIORITY = Comparator
+            .comparingInt((Entry entry) -> entry.urgency().sortKey())
+            .thenComparing(Entry::registeredAt)
+            .thenComparing(Entry::id);
+
+    public static Waitlist empty(String doctorId) {
+        return new Waitlist(doctorId, List.of());
+    }
+
+    public Optional<Entry> find(String entryId) {
+        return entries.stream().filter(entry -> entry.id().equals(entryId)).findFirst();
+    }
+
+    /** Adds an entry, replacing an entry with the same id. */
+    public Waitlist add(Entry entry) {
+        var newEntries = new ArrayList<Entry>(entries.size() + 1);
+        for (var existing : entries) {
+            if (!existing.id().equals(entry.id()))
+                newEntries.add(existing);
+        }
+        newEntries.add(entry);
+        return new Waitlist(doctorId, Collections.unmodifiableList(newEntries));
+    }
+
+    public Waitlist remove(String entryId) {
+        if (find(entryId).isEmpty())
+            return this;
+        return new Waitlist(doctorId, entries.stream().filter(entry -> !entry.id().equals(entryId)).toList());
+    }
+
+    /** Drops entries whose window ended before the given date. */
+    public Waitlist withoutExpired(LocalDate today) {
+        if (entries.stream().noneMatch(entry -> entry.to().isBefore(today)))
+            return this;
+        return new Waitlist(doctorId, entries.stream().filter(entry -> !entry.to().isBefore(today)).toList());
+    }
+}
@@ -0,0 +1,61 @@
+package com.clinic.domain;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A doctor's regular working hours per weekday, plus exceptions for single dates. Days without an explicit
+ * {@link Schedule} take their working hours from here; the schedule is only stored once the day gets its first booking.
+ *
+ * @param weekdays   working hours per weekday; missing weekdays are days off
+ * @param exceptions dates that deviate from their weekday
+ */
+public record WeeklyTemplate(String doctorId, Map<DayOfWeek, Schedule.WorkingHours> weekdays,
+                             List<DayException> exceptions) {
+
+    /**
+     * @param workingHours empty when the doctor doesn't work that day
+     */
+    public record DayException(LocalDate date, Optional<Schedule.WorkingHours> workingHours) {}
+
+    public WeeklyTemplate {
+        weekdays = weekdays == null ? Map.of() : Map.copyOf(weekdays);
+        exceptions = exceptions == null ? List.of() : List.copyOf(exceptions);
+    }
+
+    public Optional<Schedule.WorkingHours> workingHoursOn(LocalDate date) {
+        for (var exception : exceptions) {
+            if (exception.date().equals(date))
+                return exception.workingHours();
+        }
+        return Optional.ofNullable(weekdays.get(date.getDayOfWeek()));
+    }
+
+    public WeeklyTemplate withWeekdays(Map<DayOfWeek, Schedule.WorkingHours> newWeekdays) {
+        return new WeeklyTemplate(doctorId, newWeekdays, exceptions);
+    }
+
+    /** Adds or replaces the exception of a date. */
+    public WeeklyTemplate withException(DayException exception) {
+        var newExceptions = new ArrayList<DayException>(exceptions.size() + 1);
+        for (var existing : exceptions) {
+            if (!existing.date().equals(exception.date()))
+                newExceptions.add(existing);
+        }
+        newExceptions.add(exception);
+        newExceptions.sort(Comparator.comparing(DayException::date));
+        return new WeeklyTemplate(doctorId, weekdays, Collections.unmodifiableList(newExceptions));
+    }
+
+    /** Drops exceptions before the given date, they can't affect bookings anymore. */
+    public WeeklyTemplate withoutExceptionsBefore(LocalDate date) {
+        var kept = exceptions.stream().filter(exception -> !exception.date().isBefore(date)).toList();
+        return kept.size() == exceptions.size() ? this : new WeeklyTemplate(doctorId, weekdays, kept);
+    }
+}
@@ -0,0 +1,112 @@
+package com.clinic.domain;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Compact binary form of the workflow states, see {@link CompactEncoding} for the layout and the evolution rules.
+ * Tags continue after the ones of {@link AppointmentEventsCodec}, so both can share a stream.
+ */
+public final class WorkflowStateCodec {
+
+    private WorkflowStateCodec() {}
+
+    static final int RESCHEDULE_APPOINTMENT_STATE = 20;
+    static final int CANCEL_SCHEDULE_STATE = 21;
+
+    /** Codes of the statuses, by position; only ever appended to, a retired status keeps its place. */
+    static final List<RescheduleAppointmentState.Status> RESCHEDULE_STATUSES = List.of(
+            RescheduleAppointmentState.Status.Initial,
+            RescheduleAppointmentState.Status.NewSlotCreated,
+            RescheduleAppointmentState.Status.AppointmentRescheduled,
+            RescheduleAppointmentState.Status.OldSlotRemoved,
+            RescheduleAppointmentState.Status.Failed,
+            RescheduleAppointmentState.Status.SlotMoved,
+            RescheduleAppointmentState.Status.OldSlotLeft);
+
+    static final List<CancelScheduleState.Status> CANCEL_SCHEDULE_STATUSES = List.of(
+            CancelScheduleState.Status.Initial,
+            CancelScheduleState.Status.cancelApproved,
+            CancelScheduleState.Status.scheduleBlocked,
+            CancelScheduleState.Status.appointmentsRescheduled,
+            CancelScheduleState.Status.scheduleCancelled,
+            CancelScheduleState.Status.Failed);
+
+    private static final int VERSION = 1;
+
+    public static byte[] encode(RescheduleAppointmentState state) {
+        var writer = new CompactEncoding.Writer();
+        var body = writer.beginRecord(RESCHEDULE_APPOINTMENT_STATE, VERSION);
+        writer.writeString(state.appointmentId());
+        writer.writeDateTime(state.oldDateTime());
+        writer.writeString(state.oldDoctorId());
+        writer.writeDateTime(state.newDateTime());
+        writer.writeString(state.newDoctorId());
+        writer.writeVarint(code(RESCHEDULE_STATUSES, state.status()));
+        // added with appointment durations; 0 is none, read from older bodies as well
+        writer.writeVarint(state.duration() == null ? 0 : state.duration().toMinutes());
+        writer.endRecord(body);
+        return writer.toByteArray();
+    }
+
+    public static RescheduleAppointmentState decodeRescheduleAppointmentState(byte[] bytes) {
+        var reader = new CompactEncoding.Reader(bytes);
+        var header = begin(reader, RESCHEDULE_APPOINTMENT_STATE);
+        var appointmentId = reader.readString();
+        var oldDateTime = reader.readDateTime();
+        var oldDoctorId = reader.readString();
+        var newDateTime = reader.readDateTime();
+        var newDoctorId = reader.readString();
+        var status = status(RESCHEDULE_STATUSES, reader.readVarint());
+        var minutes = reader.hasMore() ? reader.readVarint() : 0;
+        var state = new RescheduleAppointmentState(appointmentId, oldDateTime, oldDoctorId, newDateTime, newDoctorId,
+                status, minutes == 0 ? null : Duration.ofMinutes(minutes));
+        reader.endRecord(header);
+        return state;
+    }
+
+    public static byte[] encode(CancelScheduleState state) {
+        var writer = new CompactEncoding.Writer();
+        var body = writer.beginRecord(CANCEL_SCHEDULE_STATE, VERSION);
+        writer.writeDateTime(state.dateTime());
+        writer.writeString(state.doctorId());
+        writer.writeVarint(code(CANCEL_SCHEDULE_STATUSES, state.status()));
+        // added after the first release of the workflow; an older body reads as not triaged
+        writer.writeBoolean(state.triaged());
+        writer.endRecord(body);
+        return writer.toByteArray();
+    }
+
+    public static CancelScheduleState decodeCancelScheduleState(byte[] bytes) {
+        var reader = new CompactEncoding.Reader(bytes);
+        var header = begin(reader, CANCEL_SCHEDULE_STATE);
+        var dateTime = reader.readDateTime();
+        var doctorId = reader.readString();
+        var status = status(CANCEL_SCHEDULE_STATUSES, reader.readVarint());
+        var triaged = reader.hasMore() && reader.readBoolean();
+        reader.endRecord(header);
+        return new CancelScheduleState(dateTime, doctorId, status, triaged);
+    }
+
+    private static CompactEncoding.Reader.Header begin(CompactEncoding.Reader reader, int tag) {
+        var header = reader.beginRecord();
+        if (header.tag() != tag)
+            throw new IllegalArgumentException("Expected tag " + tag + " but got " + header.tag());
+        if (header.version() > VERSION)
+            throw new IllegalArgumentException("Unknown version " + header.version() + " of tag " + tag);
+        return header;
+    }
+
+    private static <S> int code(List<S> statuses, S status) {
+        var code = statuses.indexOf(status);
+        if (code < 0)
+            throw new IllegalArgumentException("Status " + status + " has no code");
+        return code;
+    }
+
+    private static <S> S status(List<S> statuses, long code) {
+        if (code < 0 || code >= statuses.size())
+            throw new IllegalArgumentException("Unknown status code " + code);
+        return statuses.get((int) code);
+    }
+}
@@ -0,0 +1,153 @@
+package com.clinic.api;
+
+import akka.http.javadsl.model.StatusCodes;
+import akka.javasdk.http.StrictResponse;
+import akka.javasdk.testkit.TestKitSupport;
+import com.clinic.api.common.ETags;
+import com.clinic.application.AppointmentEntity;
+import com.clinic.application.ScheduleAppointmentWorkflow;
+import com.clinic.application.ScheduleEntity;
+import com.clinic.domain.Appointment;
+import com.clinic.domain.Schedule;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AppointmentEndpointIntegrationTest extends TestKitSupport {
+
+    private void createSchedule(String doctorId, String date) {
+        componentClient
+                .forKeyValueEntity(doctorId + ":" + date)
+                .method(ScheduleEntity::createSchedule)
+                .invoke(new Schedule.WorkingHours(LocalTime.parse("10:00"), LocalTime.parse("16:00")));
+    }
+
+    private AppointmentEndpoint.CreateAppointmentRequest request(String date, String startTime, String issue) {
+        return new AppointmentEndpoint.CreateAppointmentRequest("wilson", date, startTime, issue, "p-retry", Optional.empty());
+    }
+
+    @Test
+    public void retryWithTheSameKeyReturnsTheSameAppointment() {
+        createSchedule("wilson", "2031-12-01");
+
+        var first = httpClient.POST("/appointments")
+                .addHeader(AppointmentEndpoint.IDEMPOTENCY_KEY_HEADER, "key-1")
+                .withRequestBody(request("2031-12-01", "11:00", "checkup"))
+                .responseBodyAs(AppointmentEndpoint.CreateAppointmentResponse.class)
+                .invoke();
+        var retry = httpClient.POST("/appointments")
+                .addHeader(AppointmentEndpoint.IDEMPOTENCY_KEY_HEADER, "key-1")
+                .withRequestBody(request("2031-12-01", "11:00", "checkup"))
+                .responseBodyAs(AppointmentEndpoint.CreateAppointmentResponse.class)
+                .invoke();
+
+        assertEquals(StatusCodes.OK, first.status());
+        assertEquals(StatusCodes.OK, retry.status());
+        assertEquals(AppointmentEndpoint.idempotentAppointmentId("p-retry", "key-1"), first.body().id());
+        assertEquals(first.body().id(), retry.body().id());
+
+        var state = componentClient
+                .forWorkflow(first.body().id())
+                .method(ScheduleAppointmentWorkflow::getState)
+                .invoke();
+        assertEquals("checkup", state.issue());
+    }
+
+    @Test
+    public void keyReusedForADifferentAppointmentIsRejected() {
+        createSchedule("wilson", "2031-12-05");
+
+        var first = httpClient.POST("/appointments")
+                .addHeader(AppointmentEndpoint.IDEMPOTENCY_KEY_HEADER, "key-2")
+                .withRequestBody(request("2031-12-05", "13:00", "checkup"))
+                .invoke();
+        assertEquals(StatusCodes.OK, first.status());
+
+        var otherTime = httpClient.POST("/appointments")
+                .addHeader(AppointmentEndpoint.IDEMPOTENCY_KEY_HEADER, "key-2")
+                .withRequestBody(request("2031-12-05", "14:00", "checkup"))
+                .invoke();
+        assertEquals(StatusCodes.UNPROCESSABLE_ENTITY, otherTime.status());
+
+        var otherIssue = httpClient.POST("/appointments")
+                .addHeader(AppointmentEndpoint.IDEMPOTENCY_KEY_HEADER, "key-2")
+                .withRequestBody(request("2031-12-05", "13:00", "follow-up"))
+                .invoke();
+        assertEquals(StatusCodes.UNPROCESSABLE_ENTITY, otherIssue.status());
+    }
+
+    private String scheduled(String appointmentId, String date) {
+        createSchedule("wilson", date);
+        componentClient
+                .forWorkflow(appointmentId)
+                .method(ScheduleAppointmentWorkflow::schedule)
+                .invoke(new ScheduleAppointmentWorkflow.ScheduleAppointmentCommand(
+                        LocalDateTime.parse(date + "T11:00:00"), "wilson", "p-" + appointmentId, "checkup"));
+        Awaitility.await()
+                .atMost(10, TimeUnit.SECONDS)
+                .untilAsserted(() -> assertEquals(Appointment.Status.SCHEDULED, componentClient
+                        .forEventSourcedEntity(appointmentId)
+                        .method(AppointmentEntity::getAppointment)
+                        .invoke()
+                        .orElseThrow()
+                        .status()));
+        return appointmentId;
+    }
+
+    private static String etagOf(StrictResponse<?> response) {
+        return response.httpResponse().getHeader("ETag").orElseThrow().value();
+    }
+
+    @Test
+    public void matchingIfNoneMatchGetsNotModified() {
+        var id = scheduled("etag-1", "2031-12-02");
+
+        var first = httpClient.GET("/appointments/" + id).invoke();
+        assertEquals(StatusCodes.OK, first.status());
+        var etag = etagOf(first);
+
+        var again = httpClient.GET("/appointments/" + id).addHeader(ETags.IF_NONE_MATCH, etag).invoke();
+        assertEquals(StatusCodes.NOT_MODIFIED, again.status());
+        assertEquals(etag, etagOf(again));
+
+        var other = httpClient.GET("/appointments/" + id).addHeader(ETags.IF_NONE_MATCH, "\"v0\"").invoke();
+        assertEquals(StatusCodes.OK, other.status());
+    }
+
+    @Test
+    public void writeThroughTheEndpointChangesTheETag() {
+        var id = scheduled("etag-2", "2031-12-03");
+        var etag = etagOf(httpClient.GET("/appointments/" + id).invoke());
+
+        var notes = httpClient.PUT("/appointments/" + id + "/notes")
+                .withRequestBody(new AppointmentEndpoint.AddNotesRequest("knee looks fine"))
+                .invoke();
+        assertEquals(StatusCodes.OK, notes.status());
+
+        var changed = httpClient.GET("/appointments/" + id).addHeader(ETags.IF_NONE_MATCH, etag).invoke();
+        assertEquals(StatusCodes.OK, changed.status());
+        assertNotEquals(etag, etagOf(changed));
+    }
+
+    @Test
+    public void cancelShowsUpOnceTheCachedETagExpires() {
+        var id = scheduled("etag-3", "2031-12-04");
+        var etag = etagOf(httpClient.GET("/appointments/" + id).invoke());
+
+        assertEquals(StatusCodes.OK, httpClient.PUT("/appointments/" + id + "/cancel").invoke().status());
+
+        Awaitility.await()
+                .atMost(10, TimeUnit.SECONDS)
+                .untilAsserted(() -> {
+                    var response = httpClient.GET("/appointments/" + id).addHeader(ETags.IF_NONE_MATCH, etag).invoke();
+                    assertEquals(StatusCodes.OK, response.status());
+                    assertNotEquals(etag, etagOf(response));
+                });
+    }
+}
@@ -0,0 +1,70 @@
+package com.clinic.api;
+
+import akka.http.javadsl.model.StatusCodes;
+import akka.javasdk.testkit.TestKitSupport;
+import com.clinic.application.ScheduleAppointmentWorkflow;
+import com.clinic.application.ScheduleEntity;
+import com.clinic.application.WorkflowStatusView;
+import com.clinic.domain.Schedule;
+import com.clinic.domain.ScheduleAppointmentState;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorkflowEndpointIntegrationTest extends TestKitSupport {
+
+    private void schedule(String workflowId, String doctorId, String isoDateTime) {
+        var dateTime = LocalDateTime.parse(isoDateTime);
+        componentClient
+                .forKeyValueEntity(new Schedule.ScheduleId(doctorId, dateTime.toLocalDate()).toString())
+                .method(ScheduleEntity::createSchedule)
+                .invoke(new Schedule.WorkingHours(LocalTime.parse("10:00"), LocalTime.parse("16:00")));
+        componentClient
+                .forWorkflow(workflowId)
+                .method(ScheduleAppointmentWorkflow::schedule)
+                .invoke(new ScheduleAppointmentWorkflow.ScheduleAppointmentCommand(dateTime, doctorId, "p-" + workflowId, "issue"));
+    }
+
+    @Test
+    public void longPollAnswersWithTheTerminalStatus() {
+        schedule("wf-1", "hadley", "2031-11-06T11:00:00");
+
+        var response = httpClient.GET("/workflows/schedule-appointment/wf-1/status?wait=10")
+                .responseBodyAs(WorkflowStatusView.WorkflowStatus.class)
+                .invoke();
+
+        assertEquals(StatusCodes.OK, response.status());
+        assertEquals(ScheduleAppointmentState.Status.AppointmentScheduled.name(), response.body().status());
+        assertTrue(response.body().terminal());
+    }
+
+    @Test
+    public void waitZeroReadsTheCurrentStatus() {
+        schedule("wf-2", "hadley", "2031-11-07T11:00:00");
+
+        Awaitility.await()
+                .atMost(10, TimeUnit.SECONDS)
+                .untilAsserted(() -> {
+                    var response = httpClient.GET("/workflows/schedule-appointment/wf-2/status?wait=0")
+                            .responseBodyAs(WorkflowStatusView.WorkflowStatus.class)
+                            .invoke();
+                    assertEquals(StatusCodes.OK, response.status());
+                    assertEquals("wf-2", response.body().id());
+                });
+
+        var missing = httpClient.GET("/workflows/schedule-appointment/no-such-workflow/status?wait=0").invoke();
+        assertEquals(StatusCodes.NOT_FOUND, missing.status());
+    }
+
+    @Test
+    public void invalidRequestsAreRejected() {
+        assertEquals(StatusCodes.BAD_REQUEST, httpClient.GET("/workflows/no-such-type/wf-3/status?wait=0").invoke().status());
+        assertEquals(StatusCodes.BAD_REQUEST, httpClient.GET("/workflows/schedule-appointment/wf-3/status?wait=61").invoke().status());
+        assertEquals(StatusCodes.BAD_REQUEST, httpClient.GET("/workflows/schedule-appointment/wf-3/status?wait=soon").invoke().status());
+    }
+}
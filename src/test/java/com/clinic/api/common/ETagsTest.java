@@ -0,0 +1,69 @@
+package com.clinic.api.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ETagsTest {
+
+    @Test
+    public void matchesListsWildcardsAndWeakValidators() {
+        var etag = ETags.ofVersion(7);
+        assertEquals("\"v7\"", etag);
+        assertTrue(ETags.matches(Optional.of("\"v7\""), etag));
+        assertTrue(ETags.matches(Optional.of("\"v5\", \"v7\""), etag));
+        assertTrue(ETags.matches(Optional.of("W/\"v7\""), etag));
+        assertTrue(ETags.matches(Optional.of("*"), etag));
+        assertFalse(ETags.matches(Optional.of("\"v8\""), etag));
+        assertFalse(ETags.matches(Optional.of("v7"), etag));
+        assertFalse(ETags.matches(Optional.empty(), etag));
+    }
+
+    public record Body(String name, List<String> tags) {
+    }
+
+    @Test
+    public void bodyETagsFollowTheContent() {
+        var etag = ETags.ofBody(new Body("house", List.of("diagnostics")));
+        assertEquals(etag, ETags.ofBody(new Body("house", List.of("diagnostics"))));
+        assertNotEquals(etag, ETags.ofBody(new Body("house", List.of("nephrology"))));
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+    }
+
+    @Test
+    public void cachedValidatorsExpireAndCanBeDropped() throws InterruptedException {
+        var cache = new ValidatorCache(new ValidatorCache.Settings(Duration.ofMillis(50), 10));
+        cache.put("appointment:1", "\"v1\"");
+        cache.put("appointment:2", "\"v4\"");
+        assertEquals(Optional.of("\"v1\""), cache.get("appointment:1"));
+
+        cache.invalidate("appointment:1");
+        assertEquals(Optional.empty(), cache.get("appointment:1"));
+
+        Thread.sleep(80);
+        assertEquals(Optional.empty(), cache.get("appointment:2"));
+    }
+
+    @Test
+    public void leastRecentlyUsedValidatorsAreEvicted() {
+        var cache = new ValidatorCache(new ValidatorCache.Settings(Duration.ofMinutes(1), 2));
+        cache.put("doctor:a", "\"1\"");
+        cache.put("doctor:b", "\"2\"");
+        cache.get("doctor:a");
+        cache.put("doctor:c", "\"3\"");
+        assertTrue(cache.get("doctor:a").isPresent());
+        assertTrue(cache.get("doctor:b").isEmpty());
+        assertTrue(cache.get("doctor:c").isPresent());
+    }
+
+    @Test
+    public void zeroTtlCachesNothing() {
+        var cache = new ValidatorCache(new ValidatorCache.Settings(Duration.ZERO, 10));
+        cache.put("doctor:a", "\"1\"");
+        assertTrue(cache.get("doctor:a").isEmpty());
+    }
+}
@@ -0,0 +1,65 @@
+package com.clinic.application;
+
+import akka.javasdk.testkit.TestKitSupport;
+import com.clinic.domain.Appointment;
+import com.clinic.domain.ReminderRunState;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.clinic.application.DateUtils.date;
+import static com.clinic.application.DateUtils.dateTime;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AppointmentReminderWorkflowIntegrationTest extends TestKitSupport {
+
+    private void createAppointment(String id, String patientId, String dateTime, boolean scheduled) {
+        componentClient
+                .forEventSourcedEntity(id)
+                .method(AppointmentEntity::createAppointment)
+                .invoke(new AppointmentEntity.CreateAppointmentCmd(dateTime(dateTime), "house", patientId, "issue"));
+        if (scheduled)
+            componentClient
+                    .forEventSourcedEntity(id)
+                    .method(AppointmentEntity::schedule)
+                    .invoke();
+    }
+
+    @Test
+    public void remindsEachPatientOnce() {
+        createAppointment("remind-1", "remind-alice", "2031-12-01T09:00:00", true);
+        createAppointment("remind-2", "remind-alice", "2031-12-01T15:00:00", true);
+        createAppointment("remind-3", "remind-bob", "2031-12-01T10:00:00", true);
+        createAppointment("remind-4", "remind-carol", "2031-12-01T11:00:00", false);
+        createAppointment("remind-5", "remind-dave", "2031-12-02T11:00:00", true);
+
+        Awaitility.await()
+                .atMost(10, TimeUnit.SECONDS)
+                .untilAsserted(() -> {
+                    var page = componentClient
+                            .forView()
+                            .method(AppointmentsByPatientView::findPageByDateOrderedByPatient)
+                            .invoke(new AppointmentsByPatientView.FindApptByPatientPage(Appointment.Status.SCHEDULED, "2031-12-01", "", "", 10))
+                            .appointments();
+                    assertEquals(3, page.size());
+                });
+
+        componentClient
+                .forWorkflow("2031-12-01")
+                .method(AppointmentReminderWorkflow::remind)
+                .invoke(date("2031-12-01"));
+
+        Awaitility.await()
+                .atMost(20, TimeUnit.SECONDS)
+                .untilAsserted(() -> {
+                    var state = componentClient
+                            .forWorkflow("2031-12-01")
+                            .method(AppointmentReminderWorkflow::getState)
+                            .invoke();
+                    assertEquals(ReminderRunState.Status.Completed, state.status());
+                    assertEquals(2, state.sent());
+                    assertEquals(0, state.failed());
+                });
+    }
+}
@@ -0,0 +1,147 @@
+package com.clinic.application;
+
+import akka.javasdk.testkit.TestKitSupport;
+import com.clinic.domain.Appointment;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static com.clinic.application.DateUtils.dateTime;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AppointmentsByPatientViewIntegrationTest extends TestKitSupport {
+
+    private static final List<Appointment.Status> SCHEDULED = List.of(Appointment.Status.SCHEDULED);
+
+    private void createAppointment(String id, String dateTime, String doctorId, String patientId,
+                                   Optional<Appointment.Urgency> priority, boolean scheduled) {
+        componentClient
+                .forEventSourcedEntity(id)
+                .method(AppointmentEntity::createAppointment)
+                .invoke(new AppointmentEntity.CreateAppointmentCmd(dateTime(dateTime), doctorId, patientId, "issue " + id));
+        priority.ifPresent(urgency -> componentClient
+                .forEventSourcedEntity(id)
+                .method(AppointmentEntity::addPriority)
+                .invoke(urgency));
+        if (scheduled)
+            componentClient
+                    .forEventSourcedEntity(id)
+                    .method(AppointmentEntity::schedule)
+                    .invoke();
+    }
+
+    @Test
+    public void priorityFiltersSplitTheDay() {
+        createAppointment("vp-1", "2032-02-02T09:00:00", "foreman", "p-vp1", Optional.of(Appointment.Urgency.HIGH), true);
+        createAppointment("vp-2", "2032-02-02T10:00:00", "foreman", "p-vp2", Optional.empty(), true);
+        createAppointment("vp-3", "2032-02-02T11:00:00", "foreman", "p-vp3", Optional.empty(), false);
+        createAppointment("vp-4", "2032-02-03T09:00:00", "foreman", "p-vp4", Optional.empty(), true);
+
+        var query = new AppointmentsByPatientView.FindApptDoctorDateStatus("foreman", "2032-02-02", SCHEDULED);
+        Awaitility.await()
+                .atMost(10, TimeUnit.SECONDS)
+                .untilAsserted(() -> {
+                    var withPriority = componentClient
+                            .forView()
+                            .method(AppointmentsByPatientView::findWithPriority)
+                            .invoke(query)
+                            .appointments();
+                    assertEquals(List.of("vp-1"), withPriority.stream().map(AppointmentsByPatientView.AppointmentRow::id).toList());
+                    assertEquals(Optional.of(Appointment.Urgency.HIGH), withPriority.getFirst().priority());
+
+                    var withoutPriority = componentClient
+                            .forView()
+                            .method(AppointmentsByPatientView::findWithoutPriority)
+                            .invoke(query)
+                            .appointments();
+                    assertEquals(List.of("vp-2"), withoutPriority.stream().map(AppointmentsByPatientView.AppointmentRow::id).toList());
+
+                    var issues = componentClient
+                            .forView()
+                            .method(AppointmentsByPatientView::findIssuesWithoutPriority)
+                            .invoke(query)
+                            .appointments();
+                    assertEquals(List.of(new AppointmentsByPatientView.AppointmentIssue("vp-2", "issue vp-2")), issues);
+                });
+    }
+
+    @Test
+    public void slotsAreOrderedByUrgencyThenTime() {
+        createAppointment("vs-1", "2032-02-04T09:00:00", "foreman", "p-vs1", Optional.of(Appointment.Urgency.LOW), true);
+        createAppointment("vs-2", "2032-02-04T10:00:00", "foreman", "p-vs2", Optional.empty(), true);
+        createAppointment("vs-3", "2032-02-04T12:00:00", "foreman", "p-vs3", Optional.of(Appointment.Urgency.HIGH), true);
+        createAppointment("vs-4", "2032-02-04T11:00:00", "foreman", "p-vs4", Optional.of(Appointment.Urgency.HIGH), true);
+        createAppointment("vs-5", "2032-02-04T08:00:00", "foreman", "p-vs5", Optional.of(Appointment.Urgency.HIGH), false);
+
+        Awaitility.await()
+                .atMost(10, TimeUnit.SECONDS)
+                .untilAsserted(() -> {
+                    var slots = componentClient
+                            .forView()
+                            .method(AppointmentsByPatientView::findSlotsByDoctorDateAndStatus)
+                            .invoke(new AppointmentsByPatientView.FindApptDoctorDateStatus("foreman", "2032-02-04", SCHEDULED))
+                            .appointments();
+                    assertEquals(List.of("vs-4", "vs-3", "vs-1", "vs-2"), slots.stream().map(AppointmentsByPatientView.AppointmentSlot::id).toList());
+                    assertEquals(new AppointmentsByPatientView.AppointmentSlot("vs-4", "foreman", "11:00", Optional.of(Appointment.Urgency.HIGH)),
+                            slots.getFirst());
+                    assertEquals(Optional.empty(), slots.getLast().priority());
+                });
+    }
+
+    @Test
+    public void pagesByTimeStartAfterTheLastRow() {
+        createAppointment("vt-3", "2032-02-05T10:00:00", "foreman", "p-vt3", Optional.empty(), true);
+        createAppointment("vt-1", "2032-02-05T09:00:00", "foreman", "p-vt1", Optional.empty(), true);
+        createAppointment("vt-2", "2032-02-05T10:00:00", "wilson", "p-vt2", Optional.empty(), true);
+        createAppointment("vt-4", "2032-02-05T11:00:00", "foreman", "p-vt4", Optional.empty(), false);
+
+        Awaitility.await()
+                .atMost(10, TimeUnit.SECONDS)
+                .untilAsserted(() -> {
+                    var first = componentClient
+                            .forView()
+                            .method(AppointmentsByPatientView::findPageByStatusAndDate)
+                            .invoke(new AppointmentsByPatientView.FindApptStatusDatePage(Appointment.Status.SCHEDULED, "2032-02-05", "", "", 2))
+                            .appointments();
+                    assertEquals(List.of("vt-1", "vt-2"), first.stream().map(AppointmentsByPatientView.AppointmentRef::id).toList());
+
+                    var last = first.getLast();
+                    var second = componentClient
+                            .forView()
+                            .method(AppointmentsByPatientView::findPageByStatusAndDate)
+                            .invoke(new AppointmentsByPatientView.FindApptStatusDatePage(Appointment.Status.SCHEDULED, "2032-02-05", last.time(), last.id(), 2))
+                            .appointments();
+                    assertEquals(List.of(new AppointmentsByPatientView.AppointmentRef("vt-3", "10:00")), second);
+                });
+    }
+
+    @Test
+    public void pagesByPatientKeepEachPatientTogether() {
+        createAppointment("vq-1", "2032-02-06T09:00:00", "foreman", "p-vq-b", Optional.empty(), true);
+        createAppointment("vq-2", "2032-02-06T10:00:00", "foreman", "p-vq-a", Optional.empty(), true);
+        createAppointment("vq-3", "2032-02-06T11:00:00", "wilson", "p-vq-b", Optional.empty(), true);
+        createAppointment("vq-4", "2032-02-06T12:00:00", "foreman", "p-vq-a", Optional.empty(), false);
+
+        Awaitility.await()
+                .atMost(10, TimeUnit.SECONDS)
+                .untilAsserted(() -> {
+                    var first = componentClient
+                            .forView()
+                            .method(AppointmentsByPatientView::findPageByDateOrderedByPatient)
+                            .invoke(new AppointmentsByPatientView.FindApptByPatientPage(Appointment.Status.SCHEDULED, "2032-02-06", "", "", 2))
+                            .appointments();
+                    assertEquals(List.of("vq-2", "vq-1"), first.stream().map(AppointmentsByPatientView.PatientAppointment::id).toList());
+
+                    var last = first.getLast();
+                    var second = componentClient
+                            .forView()
+                            .method(AppointmentsByPatientView::findPageByDateOrderedByPatient)
+                            .invoke(new AppointmentsByPatientView.FindApptByPatientPage(Appointment.Status.SCHEDULED, "2032-02-06", last.patientId(), last.id(), 2))
+                            .appointments();
+                    assertEquals(List.of(new AppointmentsByPatientView.PatientAppointment("vq-3", "p-vq-b", "wilson", "11:00")), second);
+                });
+    }
+}
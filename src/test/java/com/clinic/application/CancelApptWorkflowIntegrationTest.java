@@ -4,9 +4,14 @@ import akka.javasdk.testkit.TestKitSupport;
 import com.clinic.domain.Appointment;
 import com.clinic.domain.CancelAppointmentState;
 import com.clinic.domain.Schedule;
+import com.clinic.domain.Waitlist;
 import org.awaitility.Awaitility;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
@@ -124,7 +129,7 @@ public class CancelApptWorkflowIntegrationTest extends TestKitSupport {
     }
 
     @Test
-    public void cancelNonexistentAppointment_leavesInitial_andNotCompleted() {
+    public void cancelNonexistentAppointment_endsFailed_andCompleted() {
         // Given no appointment exists with this id
         String missingId = "no-such-appt";
 
@@ -138,19 +143,113 @@ public class CancelApptWorkflowIntegrationTest extends TestKitSupport {
                         "house"
                 ));
 
-        // Then: updateAppointment catches the error and ends; state remains Initial (per workflow code)
-        var wfState = componentClient
-                .forWorkflow(missingId)
-                .method(CancelAppointmentWorkflow::getState)
-                .invoke();
-        assertEquals(CancelAppointmentState.Status.Initial, wfState.status());
+        // Then: updateAppointment catches the error and ends as Failed, so status readers see it has ended
+        Awaitility.await()
+                .atMost(10, TimeUnit.SECONDS)
+                .untilAsserted(() -> {
+                    var wfState = componentClient
+                            .forWorkflow(missingId)
+                            .method(CancelAppointmentWorkflow::getState)
+                            .invoke();
+                    assertEquals(CancelAppointmentState.Status.Failed, wfState.status());
+                });
 
-        // And isCompleted = false (only Failed or SlotDeleted are terminal in isCompleted())
+        // And isCompleted = true (Failed and SlotDeleted are terminal)
         var completed = componentClient
                 .forWorkflow(missingId)
                 .method(CancelAppointmentWorkflow::isCompleted)
                 .invoke();
-        assertFalse(completed);
+        assertTrue(completed);
+    }
+
+    private void cancel(String appointmentId, String doctorId, String isoDateTime) {
+        componentClient
+                .forWorkflow(appointmentId)
+                .method(CancelAppointmentWorkflow::cancel)
+                .invoke(new CancelAppointmentWorkflow.CancelAppointmentCommand(appointmentId, dateTime(isoDateTime), doctorId));
+        Awaitility.await()
+                .atMost(10, TimeUnit.SECONDS)
+                .untilAsserted(() -> assertEquals(CancelAppointmentState.Status.SlotDeleted, componentClient
+                        .forWorkflow(appointmentId)
+                        .method(CancelAppointmentWorkflow::getState)
+                        .invoke()
+                        .status()));
+    }
+
+    private Waitlist.Entry waitFor(String entryId, String patientId, String... doctorIds) {
+        var entry = new Waitlist.Entry(entryId, patientId, "follow-up", LocalDate.of(2031, 11, 1), LocalDate.of(2031, 11, 30),
+                Appointment.Urgency.HIGH, Instant.parse("2031-01-01T00:00:00Z"), List.of(doctorIds));
+        for (var doctorId : doctorIds)
+            componentClient.forKeyValueEntity(doctorId).method(WaitlistEntity::register).invoke(entry);
+        return entry;
+    }
+
+    private boolean isWaiting(String doctorId, String entryId) {
+        return componentClient.forKeyValueEntity(doctorId).method(WaitlistEntity::getWaitlist).invoke()
+                .find(entryId).isPresent();
+    }
+
+    @Test
+    public void freedSlotBookedFromWaitlist_withdrawsTheOtherDoctorsEntries() {
+        createSchedule("cuddy", "2031-11-03", "10:00", "16:00");
+        scheduleAppointmentViaWorkflow("appt-300", "cuddy", "2031-11-03T11:00:00", "p-3", "checkup");
+        waitFor("w-300", "p-w300", "cuddy", "chase");
+
+        cancel("appt-300", "cuddy", "2031-11-03T11:00:00");
+
+        Awaitility.await()
+                .atMost(10, TimeUnit.SECONDS)
+                .untilAsserted(() -> {
+                    var schedule = componentClient.forKeyValueEntity("cuddy:2031-11-03").method(ScheduleEntity::getSchedule).invoke();
+                    assertEquals(1, schedule.get().timeSlots().size());
+                    assertFalse(isWaiting("chase", "w-300"));
+                });
+        assertFalse(isWaiting("cuddy", "w-300"));
+    }
+
+    @Test
+    public void offerToABusyPatient_putsTheEntryBack() {
+        createSchedule("foreman", "2031-11-04", "10:00", "16:00");
+        createSchedule("cameron", "2031-11-04", "10:00", "16:00");
+        scheduleAppointmentViaWorkflow("appt-400", "foreman", "2031-11-04T11:00:00", "p-4", "checkup");
+        // the waiting patient already sees another doctor at that time
+        scheduleAppointmentViaWorkflow("appt-401", "cameron", "2031-11-04T11:00:00", "p-w400", "checkup");
+        waitFor("w-400", "p-w400", "foreman", "cameron");
+
+        cancel("appt-400", "foreman", "2031-11-04T11:00:00");
+
+        Awaitility.await()
+                .atMost(10, TimeUnit.SECONDS)
+                .untilAsserted(() -> assertTrue(isWaiting("foreman", "w-400")));
+        assertTrue(isWaiting("cameron", "w-400"));
+        var schedule = componentClient.forKeyValueEntity("foreman:2031-11-04").method(ScheduleEntity::getSchedule).invoke();
+        assertTrue(schedule.get().timeSlots().isEmpty());
     }
 
+    @Test
+    public void freedShortSlotIsOfferedWithItsOwnDuration() {
+        createSchedule("kutner", "2031-11-05", "10:00", "16:00");
+        componentClient
+                .forWorkflow("appt-500")
+                .method(ScheduleAppointmentWorkflow::schedule)
+                .invoke(new ScheduleAppointmentWorkflow.ScheduleAppointmentCommand(
+                        dateTime("2031-11-05T11:00:00"), "kutner", "p-5", "consult", Duration.ofMinutes(15)));
+        // right after it, so a slot of the default length at 11:00 would not fit
+        scheduleAppointmentViaWorkflow("appt-501", "kutner", "2031-11-05T11:15:00", "p-6", "checkup");
+        scheduleAppointmentViaWorkflow("appt-502", "kutner", "2031-11-05T10:30:00", "p-7", "checkup");
+        waitFor("w-500", "p-w500", "kutner");
+
+        cancel("appt-500", "kutner", "2031-11-05T11:00:00");
+
+        Awaitility.await()
+                .atMost(10, TimeUnit.SECONDS)
+                .untilAsserted(() -> {
+                    var slots = componentClient.forKeyValueEntity("kutner:2031-11-05").method(ScheduleEntity::getSchedule).invoke()
+                            .get().timeSlots();
+                    assertEquals(3, slots.size());
+                    assertTrue(slots.stream().anyMatch(slot ->
+                            slot.startTime().equals(time("11:00")) && slot.endTime().equals(time("11:15"))));
+                });
+        assertFalse(isWaiting("kutner", "w-500"));
+    }
 }
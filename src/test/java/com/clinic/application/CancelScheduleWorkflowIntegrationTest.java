@@ -0,0 +1,51 @@
+package com.clinic.application;
+
+import akka.javasdk.testkit.TestKitSupport;
+import com.clinic.domain.CancelScheduleState;
+import com.clinic.domain.Schedule;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static com.clinic.application.DateUtils.date;
+import static com.clinic.application.DateUtils.dateTime;
+import static com.clinic.application.DateUtils.time;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CancelScheduleWorkflowIntegrationTest extends TestKitSupport {
+
+    @Test
+    public void dayOnlyInTheTemplateIsClosedThere() {
+        componentClient
+                .forKeyValueEntity("taub")
+                .method(WeeklyTemplateEntity::updateWeekdays)
+                .invoke(Map.of(DayOfWeek.MONDAY, new Schedule.WorkingHours(time("09:00"), time("17:00"))));
+
+        componentClient
+                .forWorkflow("taub:2031-11-10")
+                .method(CancelScheduleWorkflow::cancelSchedule)
+                .invoke(new CancelScheduleWorkflow.CancelScheduleCommand(dateTime("2031-11-10T00:00:00"), "taub", true));
+
+        Awaitility.await()
+                .atMost(10, TimeUnit.SECONDS)
+                .untilAsserted(() -> assertEquals(CancelScheduleState.Status.scheduleCancelled, componentClient
+                        .forWorkflow("taub:2031-11-10")
+                        .method(CancelScheduleWorkflow::getState)
+                        .invoke()
+                        .status()));
+
+        assertEquals(Optional.empty(), componentClient
+                .forKeyValueEntity("taub")
+                .method(WeeklyTemplateEntity::getWorkingHours)
+                .invoke(date("2031-11-10")));
+        assertTrue(componentClient
+                .forKeyValueEntity("taub:2031-11-10")
+                .method(ScheduleEntity::getSchedule)
+                .invoke()
+                .isEmpty());
+    }
+}
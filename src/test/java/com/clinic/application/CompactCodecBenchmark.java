@@ -0,0 +1,106 @@
+package com.clinic.application;
+
+import akka.javasdk.JsonSupport;
+import com.clinic.domain.Appointment;
+import com.clinic.domain.AppointmentEvents;
+import com.clinic.domain.AppointmentEventsCodec;
+import com.clinic.domain.CancelScheduleState;
+import com.clinic.domain.RescheduleAppointmentState;
+import com.clinic.domain.WorkflowStateCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares {@link AppointmentEventsCodec} and {@link WorkflowStateCodec} with the JSON the SDK stores today: size of
+ * a typical appointment's journal and encode/decode time per event.
+ */
+public class CompactCodecBenchmark {
+
+    private static final int APPOINTMENTS = 20_000;
+
+    private final ObjectMapper mapper = JsonSupport.getObjectMapper();
+
+    /** The events of one appointment: created, triaged, scheduled, rescheduled once, completed. */
+    private List<AppointmentEvents> journal(String appointmentId, int i) {
+        var start = LocalDateTime.of(2031, 1, 1, 8, 0).plusMinutes(30L * (i % 5000));
+        return List.of(
+                new AppointmentEvents.AppointmentCreated(appointmentId, start, "doctor-" + (i % 500), UUID.randomUUID().toString(), "Persistent cough and mild fever"),
+                new AppointmentEvents.AddedPriority(Appointment.Urgency.MEDIUM),
+                new AppointmentEvents.Scheduled(),
+                new AppointmentEvents.Rescheduled(start.plusDays(1), "doctor-" + (i % 500)),
+                new AppointmentEvents.Completed());
+    }
+
+    @Test
+    public void sizeAndSpeed() throws Exception {
+        var ids = new ArrayList<String>();
+        var journals = new ArrayList<List<AppointmentEvents>>();
+        for (int i = 0; i < APPOINTMENTS; i++) {
+            var id = UUID.randomUUID().toString();
+            ids.add(id);
+            journals.add(journal(id, i));
+        }
+
+        long jsonBytes = 0, compactBytes = 0;
+        for (var journal : journals) {
+            for (var event : journal) {
+                jsonBytes += mapper.writeValueAsBytes(event).length;
+                compactBytes += AppointmentEventsCodec.encode(event).length;
+            }
+        }
+        var events = APPOINTMENTS * journals.getFirst().size();
+        System.out.printf("appointment events: JSON %.1f bytes/event, compact %.1f bytes/event (%.0f%% smaller)%n",
+                (double) jsonBytes / events, (double) compactBytes / events, 100.0 - 100.0 * compactBytes / jsonBytes);
+        assertTrue(compactBytes * 2 < jsonBytes);
+
+        // warm up both paths
+        for (int i = 0; i < 3; i++) {
+            runJson(journals);
+            runCompact(journals, ids);
+        }
+        var json = runJson(journals);
+        var compact = runCompact(journals, ids);
+        System.out.printf("encode+decode per event: JSON %d ns, compact %d ns (%d events)%n",
+                json / events, compact / events, events);
+
+        var reschedule = RescheduleAppointmentState.initial(ids.getFirst(), LocalDateTime.of(2031, 1, 2, 9, 0), "doctor-1")
+                .withOld(LocalDateTime.of(2031, 1, 1, 9, 0), "doctor-1", Duration.ofMinutes(30))
+                .withStatus(RescheduleAppointmentState.Status.AppointmentRescheduled);
+        var cancel = new CancelScheduleState(LocalDateTime.of(2031, 1, 1, 0, 0), "doctor-1", CancelScheduleState.Status.scheduleBlocked, true);
+        System.out.printf("workflow state: reschedule JSON %d bytes, compact %d bytes; cancel schedule JSON %d bytes, compact %d bytes%n",
+                mapper.writeValueAsBytes(reschedule).length, WorkflowStateCodec.encode(reschedule).length,
+                mapper.writeValueAsBytes(cancel).length, WorkflowStateCodec.encode(cancel).length);
+    }
+
+    private long runJson(List<List<AppointmentEvents>> journals) throws Exception {
+        var start = System.nanoTime();
+        for (var journal : journals) {
+            for (var event : journal) {
+                var decoded = mapper.readValue(mapper.writeValueAsBytes(event), event.getClass());
+                if (decoded == null)
+                    fail();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private long runCompact(List<List<AppointmentEvents>> journals, List<String> ids) {
+        var start = System.nanoTime();
+        for (int i = 0; i < journals.size(); i++) {
+            for (var event : journals.get(i)) {
+                var decoded = AppointmentEventsCodec.decode(AppointmentEventsCodec.encode(event), ids.get(i));
+                if (decoded == null)
+                    fail();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,53 @@
+package com.clinic.application;
+
+import akka.javasdk.testkit.TestKitSupport;
+import com.clinic.domain.DoctorAbsenceState;
+import com.clinic.domain.Schedule;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.clinic.application.DateUtils.date;
+import static com.clinic.application.DateUtils.time;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DoctorAbsenceWorkflowIntegrationTest extends TestKitSupport {
+
+    @Test
+    public void cancelsEveryScheduledDay() {
+        for (var day : List.of("2031-11-03", "2031-11-05")) {
+            componentClient
+                    .forKeyValueEntity("house:" + day)
+                    .method(ScheduleEntity::createSchedule)
+                    .invoke(new Schedule.WorkingHours(time("10:00"), time("16:00")));
+        }
+
+        componentClient
+                .forWorkflow("house:2031-11-03:2031-11-05")
+                .method(DoctorAbsenceWorkflow::cancelAbsence)
+                .invoke(new DoctorAbsenceWorkflow.CancelAbsenceCommand("house", date("2031-11-03"), date("2031-11-05")));
+
+        Awaitility.await()
+                .atMost(20, TimeUnit.SECONDS)
+                .untilAsserted(() -> {
+                    var state = componentClient
+                            .forWorkflow("house:2031-11-03:2031-11-05")
+                            .method(DoctorAbsenceWorkflow::getState)
+                            .invoke();
+                    assertEquals(DoctorAbsenceState.Status.Completed, state.status());
+                    assertEquals(List.of(
+                            new DoctorAbsenceState.Day(date("2031-11-03"), DoctorAbsenceState.DayStatus.Cancelled),
+                            new DoctorAbsenceState.Day(date("2031-11-04"), DoctorAbsenceState.DayStatus.NoSchedule),
+                            new DoctorAbsenceState.Day(date("2031-11-05"), DoctorAbsenceState.DayStatus.Cancelled)
+                    ), state.days());
+                });
+
+        var schedule = componentClient
+                .forKeyValueEntity("house:2031-11-05")
+                .method(ScheduleEntity::getSchedule)
+                .invoke();
+        assertEquals(Schedule.Status.CANCELLED, schedule.get().status());
+    }
+}
@@ -0,0 +1,27 @@
+package com.clinic.application;
+
+import com.clinic.domain.Speciality;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DoctorDirectoryTest {
+
+    private static Speciality.Assignment assignment(String name, String doctorId) {
+        return new Speciality.Assignment(Speciality.key(name), name, doctorId, true);
+    }
+
+    @Test
+    public void catalogCountsDoctorsPerKeyUnderTheCommonSpelling() {
+        var catalog = DoctorDirectory.catalogOf(List.of(
+                assignment("Neurology", "house"),
+                assignment("cardiology", "wilson"),
+                assignment("Cardiology", "cuddy"),
+                assignment("Cardiology", "chase")));
+        assertEquals(List.of(
+                new DoctorDirectory.CatalogEntry("cardiology", "Cardiology", 3),
+                new DoctorDirectory.CatalogEntry("neurology", "Neurology", 1)), catalog);
+    }
+}
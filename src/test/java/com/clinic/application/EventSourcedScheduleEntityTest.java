@@ -0,0 +1,58 @@
+package com.clinic.application;
+
+import akka.javasdk.testkit.EventSourcedTestKit;
+import com.clinic.domain.Schedule;
+import com.clinic.domain.ScheduleEvents;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static com.clinic.application.DateUtils.date;
+import static com.clinic.application.DateUtils.time;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventSourcedScheduleEntityTest {
+
+    private final Schedule.WorkingHours workingHours = new Schedule.WorkingHours(time("10:00"), time("16:00"));
+
+    @Test
+    public void bookingPersistsOnlyTheSlot() {
+        var testKit = EventSourcedTestKit.of("house:2031-10-20", EventSourcedScheduleEntity::new);
+        testKit.method(EventSourcedScheduleEntity::createSchedule).invoke(workingHours);
+
+        var result = testKit
+                .method(EventSourcedScheduleEntity::scheduleAppointment)
+                .invoke(new ScheduleEntity.ScheduleAppointmentData(time("11:00"), Duration.ofMinutes(30), "a1"));
+        assertTrue(result.isReply());
+        assertEquals(List.of(new ScheduleEvents.SlotBooked(time("11:00"), time("11:30"), "a1")), result.getAllEvents());
+
+        var overlapping = testKit
+                .method(EventSourcedScheduleEntity::scheduleAppointment)
+                .invoke(new ScheduleEntity.ScheduleAppointmentData(time("11:15"), Duration.ofMinutes(30), "a2"));
+        assertTrue(overlapping.isError());
+        assertTrue(overlapping.getAllEvents().isEmpty());
+    }
+
+    @Test
+    public void migratesKeyValueState() {
+        var id = new Schedule.ScheduleId("house", date("2031-10-21"));
+        var keyValueState = new Schedule(id, workingHours)
+                .scheduleAppointment(time("10:00"), Duration.ofMinutes(30), "a1")
+                .scheduleAppointment(time("12:00"), Duration.ofMinutes(30), "a2")
+                .blockSchedule();
+
+        var testKit = EventSourcedTestKit.of(id.toString(), EventSourcedScheduleEntity::new);
+        var result = testKit.method(EventSourcedScheduleEntity::syncFrom).invoke(keyValueState);
+        assertEquals(4, result.getAllEvents().size());
+        assertEquals(keyValueState, testKit.getState());
+
+        // replaying the same state again is a no-op
+        var again = testKit.method(EventSourcedScheduleEntity::syncFrom).invoke(keyValueState);
+        assertTrue(again.getAllEvents().isEmpty());
+
+        // a single release is forwarded as a single event
+        var released = testKit.method(EventSourcedScheduleEntity::syncFrom).invoke(keyValueState.removeTimeSlotByStartTime(time("12:00")));
+        assertEquals(List.of(new ScheduleEvents.SlotReleased(time("12:00"))), released.getAllEvents());
+    }
+}
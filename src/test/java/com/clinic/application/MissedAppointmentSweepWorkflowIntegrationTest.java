@@ -0,0 +1,102 @@
+package com.clinic.application;
+
+import akka.javasdk.testkit.TestKit;
+import akka.javasdk.testkit.TestKitSupport;
+import com.clinic.domain.Appointment;
+import com.clinic.domain.MissedSweepState;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+import static com.clinic.application.DateUtils.date;
+import static com.clinic.application.DateUtils.dateTime;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MissedAppointmentSweepWorkflowIntegrationTest extends TestKitSupport {
+
+    @Override
+    protected TestKit.Settings testKitSettings() {
+        // small pages, so a sweep has to continue from its cursor
+        return TestKit.Settings.DEFAULT.withAdditionalConfig("clinic.missed-sweep.page-size = 2");
+    }
+
+    private void createAppointment(String id, String dateTime, boolean scheduled) {
+        componentClient
+                .forEventSourcedEntity(id)
+                .method(AppointmentEntity::createAppointment)
+                .invoke(new AppointmentEntity.CreateAppointmentCmd(dateTime(dateTime), "house", "p-" + id, "issue"));
+        if (scheduled)
+            componentClient
+                    .forEventSourcedEntity(id)
+                    .method(AppointmentEntity::schedule)
+                    .invoke();
+    }
+
+    private Appointment.Status status(String id) {
+        return componentClient
+                .forEventSourcedEntity(id)
+                .method(AppointmentEntity::getAppointment)
+                .invoke()
+                .orElseThrow()
+                .status();
+    }
+
+    @Test
+    public void marksScheduledAppointmentsOfTheDayAsMissed() {
+        for (int i = 0; i < 5; i++)
+            createAppointment("sweep-" + i, "2020-03-02T" + LocalTime.of(9 + i, 0), true);
+        createAppointment("sweep-pending", "2020-03-02T15:00:00", false);
+        createAppointment("sweep-other-day", "2020-03-03T09:00:00", true);
+        componentClient
+                .forEventSourcedEntity("sweep-0")
+                .method(AppointmentEntity::complete)
+                .invoke();
+
+        Awaitility.await()
+                .atMost(10, TimeUnit.SECONDS)
+                .untilAsserted(() -> {
+                    var page = componentClient
+                            .forView()
+                            .method(AppointmentsByPatientView::findPageByStatusAndDate)
+                            .invoke(new AppointmentsByPatientView.FindApptStatusDatePage(Appointment.Status.SCHEDULED, "2020-03-02", "", "", 10))
+                            .appointments();
+                    assertEquals(4, page.size());
+                });
+
+        componentClient
+                .forWorkflow("2020-03-02")
+                .method(MissedAppointmentSweepWorkflow::sweep)
+                .invoke(date("2020-03-02"));
+
+        Awaitility.await()
+                .atMost(20, TimeUnit.SECONDS)
+                .untilAsserted(() -> {
+                    var state = componentClient
+                            .forWorkflow("2020-03-02")
+                            .method(MissedAppointmentSweepWorkflow::getState)
+                            .invoke();
+                    assertEquals(MissedSweepState.Status.Completed, state.status());
+                    assertEquals(4, state.marked());
+                    // the cursor went past the second page
+                    assertEquals("sweep-4", state.afterId());
+                });
+
+        for (int i = 1; i < 5; i++)
+            assertEquals(Appointment.Status.MISSED, status("sweep-" + i));
+        assertEquals(Appointment.Status.COMPLETED, status("sweep-0"));
+        assertEquals(Appointment.Status.PENDING, status("sweep-pending"));
+        assertEquals(Appointment.Status.SCHEDULED, status("sweep-other-day"));
+    }
+
+    @Test
+    public void refusesTodayAndLater() {
+        var today = LocalDate.now();
+        assertThrows(RuntimeException.class, () -> componentClient
+                .forWorkflow(today.toString())
+                .method(MissedAppointmentSweepWorkflow::sweep)
+                .invoke(today));
+    }
+}
@@ -0,0 +1,116 @@
+package com.clinic.application;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NearCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private CompletionStage<String> load(String key) {
+        return CompletableFuture.completedFuture(key + "-" + loads.incrementAndGet());
+    }
+
+    private NearCache<String, String> cache(int maxEntries) {
+        return new NearCache<>(this::load, Duration.ofSeconds(30), Duration.ofMinutes(5), maxEntries, now::get);
+    }
+
+    private void advance(Duration duration) {
+        now.addAndGet(duration.toNanos());
+    }
+
+    @Test
+    public void freshEntriesAreServedWithoutLoading() {
+        var cache = cache(10);
+        assertEquals("cardiology-1", cache.get("cardiology"));
+        advance(Duration.ofSeconds(29));
+        assertEquals("cardiology-1", cache.get("cardiology"));
+        assertEquals(1, loads.get());
+
+        var metrics = cache.metrics();
+        assertEquals(1, metrics.hits());
+        assertEquals(1, metrics.misses());
+        assertEquals(0.5, metrics.hitRatio());
+    }
+
+    @Test
+    public void staleEntriesAreServedWhileReloading() {
+        var pending = new CompletableFuture<String>();
+        var cache = new NearCache<String, String>(
+                key -> loads.incrementAndGet() == 1 ? CompletableFuture.completedFuture("old") : pending,
+                Duration.ofSeconds(30), Duration.ofMinutes(5), 10, now::get);
+        cache.get("cardiology");
+        advance(Duration.ofMinutes(1));
+
+        assertEquals("old", cache.get("cardiology"));
+        // the reload in flight is shared
+        assertEquals("old", cache.get("cardiology"));
+        assertEquals(2, loads.get());
+
+        pending.complete("new");
+        assertEquals("new", cache.get("cardiology"));
+        assertEquals(2, cache.metrics().staleHits());
+        assertEquals(1, cache.metrics().reloads());
+    }
+
+    @Test
+    public void entriesPastMaxStaleAreLoadedAgain() {
+        var cache = cache(10);
+        cache.get("cardiology");
+        advance(Duration.ofMinutes(6));
+        assertEquals("cardiology-2", cache.get("cardiology"));
+        assertEquals(2, cache.metrics().misses());
+    }
+
+    @Test
+    public void failedReloadsKeepTheStaleEntry() {
+        var cache = new NearCache<String, String>(
+                key -> loads.incrementAndGet() == 1
+                        ? CompletableFuture.completedFuture("old")
+                        : CompletableFuture.failedFuture(new IllegalStateException("view unavailable")),
+                Duration.ofSeconds(30), Duration.ofMinutes(5), 10, now::get);
+        cache.get("cardiology");
+        advance(Duration.ofMinutes(1));
+        assertEquals("old", cache.get("cardiology"));
+        assertEquals("old", cache.get("cardiology"));
+        assertEquals(2, cache.metrics().loadErrors());
+
+        advance(Duration.ofMinutes(5));
+        assertThrows(IllegalStateException.class, () -> cache.get("cardiology"));
+    }
+
+    @Test
+    public void invalidationDropsEntriesAndLoadsInFlight() {
+        var pending = new CompletableFuture<String>();
+        var cache = new NearCache<String, String>(
+                key -> loads.incrementAndGet() == 1 ? CompletableFuture.completedFuture("old") : pending,
+                Duration.ofSeconds(30), Duration.ofMinutes(5), 10, now::get);
+        cache.get("cardiology");
+        advance(Duration.ofMinutes(1));
+        cache.get("cardiology");
+
+        cache.invalidateAll();
+        pending.complete("reloaded before the change");
+        assertEquals(0, cache.metrics().size());
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreDropped() {
+        var cache = cache(2);
+        cache.get("cardiology");
+        cache.get("neurology");
+        cache.get("cardiology");
+        cache.get("oncology");
+        assertEquals(2, cache.metrics().size());
+        assertEquals("cardiology-1", cache.get("cardiology"));
+        assertEquals("neurology-4", cache.get("neurology"));
+    }
+}
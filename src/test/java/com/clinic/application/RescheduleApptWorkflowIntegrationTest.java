@@ -113,6 +113,45 @@ public class RescheduleApptWorkflowIntegrationTest extends TestKitSupport {
         assertEquals(RescheduleAppointmentState.Status.OldSlotRemoved, wfState.status());
     }
 
+    @Test
+    public void rescheduleSameDayMovesTheSlot() {
+        createScheduleFor("house", "2031-10-24");
+        scheduleAppointmentViaWorkflow("appt-4", "house", "2031-10-24T10:00:00", "p-4", "checkup");
+
+        // the new time overlaps the appointment's own slot, which is fine for a move
+        componentClient
+                .forWorkflow("res-4")
+                .method(RescheduleAppointmentWorkflow::reschedule)
+                .invoke(new RescheduleAppointmentWorkflow.RescheduleAppointmentCommand(
+                        "appt-4",
+                        dateTime("2031-10-24T10:15:00"),
+                        "house"
+                ));
+
+        Awaitility.await()
+                .atMost(10, TimeUnit.SECONDS)
+                .untilAsserted(() -> {
+                    var wfState = componentClient
+                            .forWorkflow("res-4")
+                            .method(RescheduleAppointmentWorkflow::getState)
+                            .invoke();
+                    assertEquals(RescheduleAppointmentState.Status.OldSlotRemoved, wfState.status());
+                });
+
+        var appt = componentClient
+                .forEventSourcedEntity("appt-4")
+                .method(AppointmentEntity::getAppointment)
+                .invoke();
+        assertEquals(dateTime("2031-10-24T10:15:00"), appt.get().dateTime());
+
+        var houseSchedule = componentClient
+                .forKeyValueEntity("house:2031-10-24")
+                .method(ScheduleEntity::getSchedule)
+                .invoke();
+        assertEquals(1, houseSchedule.get().timeSlots().size());
+        assertEquals(time("10:15"), houseSchedule.get().timeSlots().getFirst().startTime());
+    }
+
     @Test
     public void rescheduleMissingAppointment() {
         // Given: no appointment with id 'missing-appt'
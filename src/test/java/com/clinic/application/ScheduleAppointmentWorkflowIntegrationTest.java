@@ -8,6 +8,8 @@ import org.awaitility.Awaitility;
 import org.junit.jupiter.api.Test;
 
 import javax.swing.text.html.Option;
+import java.time.DayOfWeek;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
@@ -125,18 +127,25 @@ public class ScheduleAppointmentWorkflowIntegrationTest extends TestKitSupport {
                         "overlap"
                 ));
 
-        // Wait to ensure workflow ends, but appointment should NOT be scheduled
+        // the losing request ends at the hold, without creating an appointment
         Awaitility.await()
                 .atMost(10, TimeUnit.SECONDS)
                 .untilAsserted(() -> {
-                    var appt = componentClient
-                            .forEventSourcedEntity("21")
-                            .method(AppointmentEntity::getAppointment)
-                            .invoke();
-                    // appointment entity exists but should have been cancelled
-                    assertTrue(appt.isPresent());
-                    assertEquals(Appointment.Status.CANCELLED, appt.get().status());
+                    var workflowState = componentClient.forWorkflow("21").method(ScheduleAppointmentWorkflow::getState).invoke();
+                    assertEquals(ScheduleAppointmentState.Status.SlotUnavailable, workflowState.status());
                 });
+        var appt = componentClient
+                .forEventSourcedEntity("21")
+                .method(AppointmentEntity::getAppointment)
+                .invoke();
+        assertTrue(appt.isEmpty());
+
+        var schedule = componentClient
+                .forKeyValueEntity("house:2031-10-22")
+                .method(ScheduleEntity::getSchedule)
+                .invoke();
+        assertEquals(1, schedule.get().timeSlots().size());
+        assertTrue(schedule.get().holds().isEmpty());
     }
 
     @Test
@@ -153,21 +162,125 @@ public class ScheduleAppointmentWorkflowIntegrationTest extends TestKitSupport {
                 ));
         Awaitility.await()
                 .atMost(10, TimeUnit.SECONDS)
-                        .untilAsserted(() -> {
-                            Optional<Appointment> appointment = componentClient
-                                    .forEventSourcedEntity("30")
-                                    .method(AppointmentEntity::getAppointment)
-                                    .invoke();
-                            assertTrue(appointment.isPresent());
-                            assertEquals(Appointment.Status.CANCELLED, appointment.get().status());
-                        });
-        var workflowState = componentClient
-                .forWorkflow("30")
-                        .method(ScheduleAppointmentWorkflow::getState)
-                                .invoke();
-        assertEquals(ScheduleAppointmentState.Status.AppointmentCancelled, workflowState.status());
+                .untilAsserted(() -> {
+                    var workflowState = componentClient
+                            .forWorkflow("30")
+                            .method(ScheduleAppointmentWorkflow::getState)
+                            .invoke();
+                    assertEquals(ScheduleAppointmentState.Status.SlotUnavailable, workflowState.status());
+                });
+        Optional<Appointment> appointment = componentClient
+                .forEventSourcedEntity("30")
+                .method(AppointmentEntity::getAppointment)
+                .invoke();
+        assertTrue(appointment.isEmpty());
 
     }
 
+    @Test
+    public void firstBookingCreatesScheduleFromTemplate() {
+        // 2031-10-27 is a Monday; no schedule is created for it
+        componentClient
+                .forKeyValueEntity("cuddy")
+                .method(WeeklyTemplateEntity::updateWeekdays)
+                .invoke(Map.of(DayOfWeek.MONDAY, new Schedule.WorkingHours(time("09:00"), time("13:00"))));
 
-}
\ No newline at end of file
+        componentClient
+                .forWorkflow("40")
+                .method(ScheduleAppointmentWorkflow::schedule)
+                .invoke(new ScheduleAppointmentWorkflow.ScheduleAppointmentCommand(dateTime("2031-10-27T09:30:00"), "cuddy", "11", "checkup"));
+
+        Awaitility.await()
+                .atMost(10, TimeUnit.SECONDS)
+                .untilAsserted(() -> {
+                    var workflowState = componentClient.forWorkflow("40").method(ScheduleAppointmentWorkflow::getState).invoke();
+                    assertEquals(ScheduleAppointmentState.Status.AppointmentScheduled, workflowState.status());
+                });
+
+        var schedule = componentClient
+                .forKeyValueEntity("cuddy:2031-10-27")
+                .method(ScheduleEntity::getSchedule)
+                .invoke();
+        assertEquals(time("13:00"), schedule.get().workingHours().endTime());
+        assertEquals(1, schedule.get().timeSlots().size());
+    }
+
+    @Test
+    public void patientCantBeBookedTwiceAtTheSameTime() {
+        componentClient
+                .forKeyValueEntity("house:2031-10-28")
+                .method(ScheduleEntity::createSchedule)
+                .invoke(new Schedule.WorkingHours(time("10:00"), time("16:00")));
+        componentClient
+                .forKeyValueEntity("wilson:2031-10-28")
+                .method(ScheduleEntity::createSchedule)
+                .invoke(new Schedule.WorkingHours(time("10:00"), time("16:00")));
+
+        componentClient
+                .forWorkflow("50")
+                .method(ScheduleAppointmentWorkflow::schedule)
+                .invoke(new ScheduleAppointmentWorkflow.ScheduleAppointmentCommand(dateTime("2031-10-28T11:00:00"), "house", "12", "first"));
+        Awaitility.await()
+                .atMost(10, TimeUnit.SECONDS)
+                .untilAsserted(() -> {
+                    var workflowState = componentClient.forWorkflow("50").method(ScheduleAppointmentWorkflow::getState).invoke();
+                    assertEquals(ScheduleAppointmentState.Status.AppointmentScheduled, workflowState.status());
+                });
+
+        // same patient, another doctor, overlapping time
+        componentClient
+                .forWorkflow("51")
+                .method(ScheduleAppointmentWorkflow::schedule)
+                .invoke(new ScheduleAppointmentWorkflow.ScheduleAppointmentCommand(dateTime("2031-10-28T11:15:00"), "wilson", "12", "second"));
+        Awaitility.await()
+                .atMost(10, TimeUnit.SECONDS)
+                .untilAsserted(() -> {
+                    var workflowState = componentClient.forWorkflow("51").method(ScheduleAppointmentWorkflow::getState).invoke();
+                    assertEquals(ScheduleAppointmentState.Status.PatientUnavailable, workflowState.status());
+                });
+
+        var schedule = componentClient
+                .forKeyValueEntity("wilson:2031-10-28")
+                .method(ScheduleEntity::getSchedule)
+                .invoke();
+        assertTrue(schedule.get().timeSlots().isEmpty());
+        assertTrue(schedule.get().holds().isEmpty());
+
+        var calendar = componentClient
+                .forKeyValueEntity("12")
+                .method(PatientCalendarEntity::getCalendar)
+                .invoke();
+        assertEquals(1, calendar.bookings().size());
+        assertEquals("50", calendar.bookings().getFirst().appointmentId());
+    }
+
+    @Test
+    public void appointmentCreatedByAnEarlierAttemptIsKept() {
+        componentClient
+                .forKeyValueEntity("house:2031-10-29")
+                .method(ScheduleEntity::createSchedule)
+                .invoke(new Schedule.WorkingHours(time("10:00"), time("16:00")));
+        // as left behind by a createAppointment attempt that persisted the appointment and then timed out
+        componentClient
+                .forEventSourcedEntity("60")
+                .method(AppointmentEntity::createAppointment)
+                .invoke(new AppointmentEntity.CreateAppointmentCmd(dateTime("2031-10-29T11:00:00"), "house", "13", "issue"));
+
+        componentClient
+                .forWorkflow("60")
+                .method(ScheduleAppointmentWorkflow::schedule)
+                .invoke(new ScheduleAppointmentWorkflow.ScheduleAppointmentCommand(dateTime("2031-10-29T11:00:00"), "house", "13", "issue"));
+        Awaitility.await()
+                .atMost(10, TimeUnit.SECONDS)
+                .untilAsserted(() -> {
+                    var workflowState = componentClient.forWorkflow("60").method(ScheduleAppointmentWorkflow::getState).invoke();
+                    assertEquals(ScheduleAppointmentState.Status.AppointmentScheduled, workflowState.status());
+                });
+
+        var appointment = componentClient
+                .forEventSourcedEntity("60")
+                .method(AppointmentEntity::getAppointment)
+                .invoke();
+        assertEquals(Appointment.Status.SCHEDULED, appointment.get().status());
+    }
+}
@@ -4,6 +4,8 @@ import akka.javasdk.testkit.KeyValueEntityTestKit;
 import com.clinic.domain.Schedule;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+
 import static com.clinic.application.DateUtils.time;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -27,4 +29,25 @@ public class ScheduleEntityTest {
             assertFalse(result.stateWasUpdated());
         }
     }
+
+    @Test
+    public void cancelAppointmentById() {
+        var testKit = KeyValueEntityTestKit.of("house:2031-10-20", ScheduleEntity::new);
+        testKit.method(ScheduleEntity::createSchedule).invoke(new Schedule.WorkingHours(time("10:00"), time("16:00")));
+        testKit.method(ScheduleEntity::scheduleAppointment)
+                .invoke(new ScheduleEntity.ScheduleAppointmentData(time("11:00"), Duration.ofMinutes(30), "a1"));
+        testKit.method(ScheduleEntity::scheduleAppointment)
+                .invoke(new ScheduleEntity.ScheduleAppointmentData(time("12:00"), Duration.ofMinutes(30), "a2"));
+
+        var result = testKit.method(ScheduleEntity::cancelAppointment).invoke("a1");
+        assertTrue(result.isReply());
+        var slots = ((Schedule) result.getUpdatedState()).timeSlots();
+        assertEquals(1, slots.size());
+        assertEquals("a2", slots.getFirst().appointmentId());
+
+        // a retry after the slot is gone succeeds without touching the schedule
+        var retry = testKit.method(ScheduleEntity::cancelAppointment).invoke("a1");
+        assertTrue(retry.isReply());
+        assertFalse(retry.stateWasUpdated());
+    }
 }
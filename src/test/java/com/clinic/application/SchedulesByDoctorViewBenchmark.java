@@ -0,0 +1,123 @@
+package com.clinic.application;
+
+import com.clinic.domain.Schedule;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.clinic.application.DateUtils.date;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Replays days being booked through {@link SchedulesByDoctorView#toRow} and through re-encoding every slot as the
+ * updater did before. {@code updateRow} always stores the whole row, so the saving is not in the size of a write but in
+ * the writes that are skipped and the slots that are no longer encoded; both are counted next to the time taken, which
+ * includes parsing the stored slots back to compare them and so can exceed a full rebuild in process.
+ * Every state is delivered twice, as a redelivered or otherwise invisible change would be.
+ */
+public class SchedulesByDoctorViewBenchmark {
+
+    private static final int DAYS = 200;
+    private static final int SLOTS_PER_DAY = 48;
+
+    /** Every intermediate state of a day being booked in 10-minute slots from 08:00, each one twice. */
+    private List<Schedule> bookings(int day) {
+        var id = new Schedule.ScheduleId("house", date("2031-01-01").plusDays(day));
+        var schedule = new Schedule(id, new Schedule.WorkingHours(LocalTime.of(8, 0), LocalTime.of(16, 0)));
+        var states = new ArrayList<Schedule>();
+        states.add(schedule);
+        states.add(schedule);
+        for (int i = 0; i < SLOTS_PER_DAY; i++) {
+            schedule = schedule.scheduleAppointment(LocalTime.of(8, 0).plusMinutes(10L * i), Duration.ofMinutes(10), "a" + i);
+            states.add(schedule);
+            states.add(schedule);
+        }
+        return states;
+    }
+
+    private record Run(long rowsWritten, long slotsEncoded, long nanos) {}
+
+    private static SchedulesByDoctorView.ScheduleRow fullRebuild(Schedule schedule) {
+        var slots = schedule.timeSlots().stream()
+                .map(slot -> new SchedulesByDoctorView.ScheduleRow.TimeSlot(slot.startTime().toString(), slot.endTime().toString(), slot.appointmentId()))
+                .toList();
+        return new SchedulesByDoctorView.ScheduleRow(schedule.id().doctorId(), schedule.id().date().toString(),
+                SchedulesByDoctorView.dayOf(schedule.id().date()), schedule.status(), slots);
+    }
+
+    private Run runFull(List<List<Schedule>> days) {
+        long rows = 0;
+        long slots = 0;
+        var start = System.nanoTime();
+        for (var states : days) {
+            for (var state : states) {
+                slots += fullRebuild(state).slots().size();
+                rows++;
+            }
+        }
+        return new Run(rows, slots, System.nanoTime() - start);
+    }
+
+    private Run runIncremental(List<List<Schedule>> days) {
+        var written = new ArrayList<SchedulesByDoctorView.ScheduleRow>();
+        var start = System.nanoTime();
+        for (var states : days) {
+            SchedulesByDoctorView.ScheduleRow row = null;
+            for (var state : states) {
+                var next = SchedulesByDoctorView.toRow(state, row);
+                if (next.isPresent()) {
+                    row = next.get();
+                    written.add(row);
+                }
+            }
+        }
+        var nanos = System.nanoTime() - start;
+
+        long slots = 0;
+        SchedulesByDoctorView.ScheduleRow previous = null;
+        for (var row : written) {
+            var sameDay = previous != null && previous.date().equals(row.date());
+            slots += encoded(sameDay ? previous : null, row);
+            previous = row;
+        }
+        return new Run(written.size(), slots, nanos);
+    }
+
+    /** Slots of the new row that are not carried over as is from the previous one. */
+    private static long encoded(SchedulesByDoctorView.ScheduleRow previous, SchedulesByDoctorView.ScheduleRow row) {
+        if (previous == null)
+            return row.slots().size();
+        return row.slots().stream()
+                .filter(slot -> previous.slots().stream().noneMatch(kept -> kept == slot))
+                .count();
+    }
+
+    @Test
+    public void costPerBooking() {
+        var days = new ArrayList<List<Schedule>>();
+        for (int d = 0; d < DAYS; d++)
+            days.add(bookings(d));
+
+        // warm up both paths
+        for (int i = 0; i < 3; i++) {
+            runFull(days);
+            runIncremental(days);
+        }
+
+        var bookings = (long) DAYS * SLOTS_PER_DAY;
+        var full = runFull(days);
+        var incremental = runIncremental(days);
+        System.out.printf("view update per booking: full rebuild %d ns, %d rows written, %d slots encoded; "
+                        + "incremental %d ns, %d rows written, %d slots encoded (%d bookings)%n",
+                full.nanos() / bookings, full.rowsWritten(), full.slotsEncoded(),
+                incremental.nanos() / bookings, incremental.rowsWritten(), incremental.slotsEncoded(), bookings);
+
+        assertEquals(DAYS * (SLOTS_PER_DAY + 1L), incremental.rowsWritten(), "one write per visible change");
+        assertEquals(bookings, incremental.slotsEncoded(), "each booked slot encoded once");
+        assertEquals(2 * incremental.rowsWritten(), full.rowsWritten());
+        assertTrue(full.slotsEncoded() > incremental.slotsEncoded() * SLOTS_PER_DAY / 2);
+    }
+}
@@ -0,0 +1,67 @@
+package com.clinic.application;
+
+import akka.javasdk.testkit.TestKitSupport;
+import com.clinic.domain.Schedule;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static com.clinic.application.DateUtils.date;
+import static com.clinic.application.DateUtils.time;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SchedulesByDoctorViewIntegrationTest extends TestKitSupport {
+
+    private void createSchedule(String doctorId, String ymd) {
+        componentClient
+                .forKeyValueEntity(doctorId + ":" + ymd)
+                .method(ScheduleEntity::createSchedule)
+                .invoke(new Schedule.WorkingHours(time("10:00"), time("16:00")));
+    }
+
+    @Test
+    public void summariesIncludeBothBounds() {
+        createSchedule("cuddy", "2031-11-01");
+        createSchedule("cuddy", "2031-11-15");
+        createSchedule("cuddy", "2031-11-30");
+        createSchedule("cuddy", "2031-12-01");
+
+        Awaitility.await()
+                .atMost(10, TimeUnit.SECONDS)
+                .untilAsserted(() -> {
+                    var summaries = componentClient
+                            .forView()
+                            .method(SchedulesByDoctorView::getSummaries)
+                            .invoke(new SchedulesByDoctorView.FindScheduleSummary("cuddy", date("2031-11-01"), date("2031-11-30")))
+                            .schedules();
+                    assertEquals(3, summaries.size());
+                    assertEquals("2031-11-01", summaries.get(0).date());
+                    assertEquals("2031-11-30", summaries.get(2).date());
+                });
+    }
+
+    @Test
+    public void rangeQueryReturnsSlots() {
+        createSchedule("chase", "2031-11-03");
+        componentClient
+                .forKeyValueEntity("chase:2031-11-03")
+                .method(ScheduleEntity::scheduleAppointment)
+                .invoke(new ScheduleEntity.ScheduleAppointmentData(time("11:00"), Duration.ofMinutes(30), "a1"));
+
+        Awaitility.await()
+                .atMost(10, TimeUnit.SECONDS)
+                .untilAsserted(() -> {
+                    var query = new SchedulesByDoctorView.FindSchedules("chase",
+                            SchedulesByDoctorView.dayOf(date("2031-11-03")), SchedulesByDoctorView.dayOf(date("2031-11-03")));
+                    var rows = componentClient
+                            .forView()
+                            .method(SchedulesByDoctorView::getSchedulesInRange)
+                            .invoke(query)
+                            .schedules();
+                    assertEquals(1, rows.size());
+                    assertEquals(1, rows.get(0).slots().size());
+                });
+    }
+}
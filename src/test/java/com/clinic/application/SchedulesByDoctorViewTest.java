@@ -0,0 +1,74 @@
+package com.clinic.application;
+
+import com.clinic.domain.Schedule;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalTime;
+
+import static com.clinic.application.DateUtils.date;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SchedulesByDoctorViewTest {
+
+    private Schedule bookedDay(int slots) {
+        var schedule = new Schedule(new Schedule.ScheduleId("house", date("2031-01-01")),
+                new Schedule.WorkingHours(LocalTime.of(8, 0), LocalTime.of(16, 0)));
+        for (int i = 0; i < slots; i++)
+            schedule = schedule.scheduleAppointment(LocalTime.of(8, 0).plusMinutes(10L * i), Duration.ofMinutes(10), "a" + i);
+        return schedule;
+    }
+
+    @Test
+    public void firstChangeEncodesEverySlot() {
+        var row = SchedulesByDoctorView.toRow(bookedDay(3), null).orElseThrow();
+
+        assertEquals("house", row.doctorId());
+        assertEquals("2031-01-01", row.date());
+        assertEquals(SchedulesByDoctorView.dayOf(date("2031-01-01")), row.day());
+        assertEquals(3, row.slots().size());
+        assertEquals(new SchedulesByDoctorView.ScheduleRow.TimeSlot("08:10", "08:20", "a1"), row.slots().get(1));
+    }
+
+    @Test
+    public void noOpChangesAreSkipped() {
+        var schedule = bookedDay(48);
+        var row = SchedulesByDoctorView.toRow(schedule, null).orElseThrow();
+
+        assertTrue(SchedulesByDoctorView.toRow(schedule, row).isEmpty());
+
+        var blocked = SchedulesByDoctorView.toRow(schedule.blockSchedule(), row).orElseThrow();
+        assertEquals(Schedule.Status.BLOCKED, blocked.status());
+        assertSame(row.slots(), blocked.slots());
+
+        var released = SchedulesByDoctorView.toRow(schedule.removeTimeSlotByStartTime(LocalTime.of(8, 0)), row).orElseThrow();
+        assertEquals(47, released.slots().size());
+        assertSame(row.slots().get(1), released.slots().get(0));
+    }
+
+    @Test
+    public void onlyAddedSlotsAreEncoded() {
+        var schedule = bookedDay(2);
+        var row = SchedulesByDoctorView.toRow(schedule, null).orElseThrow();
+
+        var booked = SchedulesByDoctorView.toRow(
+                schedule.scheduleAppointment(LocalTime.of(12, 0), Duration.ofMinutes(30), "late"), row).orElseThrow();
+
+        assertEquals(3, booked.slots().size());
+        assertSame(row.slots().get(0), booked.slots().get(0));
+        assertSame(row.slots().get(1), booked.slots().get(1));
+        assertEquals(new SchedulesByDoctorView.ScheduleRow.TimeSlot("12:00", "12:30", "late"), booked.slots().get(2));
+    }
+
+    @Test
+    public void slotsAreComparedByTheirParsedTimes() {
+        var schedule = bookedDay(0).scheduleAppointment(LocalTime.of(9, 0, 30), Duration.ofMinutes(10), "odd");
+        var row = SchedulesByDoctorView.toRow(schedule, null).orElseThrow();
+        assertEquals("09:00:30", row.slots().get(0).startTime());
+        assertTrue(SchedulesByDoctorView.toRow(schedule, row).isEmpty());
+
+        var moved = SchedulesByDoctorView.toRow(
+                bookedDay(0).scheduleAppointment(LocalTime.of(9, 0), Duration.ofMinutes(10), "odd"), row).orElseThrow();
+        assertEquals("09:00", moved.slots().get(0).startTime());
+    }
+}
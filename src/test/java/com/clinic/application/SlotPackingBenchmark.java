@@ -0,0 +1,125 @@
+package com.clinic.application;
+
+import com.clinic.domain.Occupancy;
+import com.clinic.domain.Schedule;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static com.clinic.application.DateUtils.date;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Simulates doctor-days booked with a mix of appointment types, with some bookings cancelled along the way, and
+ * compares the utilization reached by the ways of picking a start time: the time the patient asked for, the earliest
+ * that fits, and {@link Schedule#suggestStarts} best fit.
+ */
+public class SlotPackingBenchmark {
+
+    private static final int DAYS = 2_000;
+    private static final int REQUESTS_PER_DAY = 16;
+    private static final double CANCEL_RATE = 0.1;
+    private static final Schedule.WorkingHours HOURS = new Schedule.WorkingHours(LocalTime.of(9, 0), LocalTime.of(17, 0));
+    /** consult, standard, extended, procedure; weighted towards the short ones */
+    private static final List<Duration> TYPES = List.of(
+            Duration.ofMinutes(15), Duration.ofMinutes(15), Duration.ofMinutes(15),
+            Duration.ofMinutes(30), Duration.ofMinutes(30), Duration.ofMinutes(30),
+            Duration.ofMinutes(45), Duration.ofMinutes(90));
+
+    /** A booking request, then possibly the cancellation of one of the day's bookings. */
+    private record Request(Duration duration, LocalTime requested, boolean cancels, double cancelled) {}
+
+    private enum Strategy { REQUESTED_TIME, FIRST_FIT, BEST_FIT }
+
+    private record Result(Occupancy occupancy, int rejected, int rejectedProcedures, long nanos) {}
+
+    private static List<List<Request>> days(Random random) {
+        var quarters = (int) Duration.between(HOURS.startTime(), HOURS.endTime()).toMinutes() / 15;
+        var days = new ArrayList<List<Request>>(DAYS);
+        for (int day = 0; day < DAYS; day++) {
+            var requests = new ArrayList<Request>(REQUESTS_PER_DAY);
+            for (int i = 0; i < REQUESTS_PER_DAY; i++)
+                requests.add(new Request(
+                        TYPES.get(random.nextInt(TYPES.size())),
+                        HOURS.startTime().plusMinutes(15L * random.nextInt(quarters)),
+                        random.nextDouble() < CANCEL_RATE,
+                        random.nextDouble()));
+            days.add(requests);
+        }
+        return days;
+    }
+
+    private static Optional<LocalTime> start(Schedule schedule, Request request, Strategy strategy) {
+        return switch (strategy) {
+            case REQUESTED_TIME -> fits(schedule, request.requested(), request.duration())
+                    ? Optional.of(request.requested())
+                    : start(schedule, request, Strategy.FIRST_FIT);
+            case FIRST_FIT -> schedule.freeGaps().stream()
+                    .filter(gap -> gap.length().compareTo(request.duration()) >= 0)
+                    .map(Schedule.Gap::startTime)
+                    .findFirst();
+            case BEST_FIT -> schedule.suggestStarts(request.duration(), 1).stream().findFirst();
+        };
+    }
+
+    private static boolean fits(Schedule schedule, LocalTime start, Duration duration) {
+        var end = start.plus(duration);
+        return !end.isBefore(start) && schedule.freeGaps().stream()
+                .anyMatch(gap -> !start.isBefore(gap.startTime()) && !end.isAfter(gap.endTime()));
+    }
+
+    private static Result simulate(List<List<Request>> days, Strategy strategy) {
+        var occupancy = Occupancy.EMPTY;
+        int rejected = 0;
+        int rejectedProcedures = 0;
+        var started = System.nanoTime();
+        for (int day = 0; day < days.size(); day++) {
+            var schedule = new Schedule(new Schedule.ScheduleId("house", date("2031-01-01").plusDays(day)), HOURS);
+            int booked = 0;
+            for (var request : days.get(day)) {
+                var start = start(schedule, request, strategy);
+                if (start.isPresent()) {
+                    schedule = schedule.scheduleAppointment(start.get(), request.duration(), "a" + booked++);
+                } else {
+                    rejected++;
+                    if (request.duration().toMinutes() >= 90)
+                        rejectedProcedures++;
+                }
+                if (request.cancels() && !schedule.timeSlots().isEmpty()) {
+                    var slots = schedule.timeSlots();
+                    schedule = schedule.removeTimeSlotByStartTime(slots.get((int) (request.cancelled() * slots.size())).startTime());
+                }
+            }
+            occupancy = occupancy.plus(Occupancy.of(schedule));
+        }
+        return new Result(occupancy, rejected, rejectedProcedures, System.nanoTime() - started);
+    }
+
+    private static void print(Strategy strategy, Result result) {
+        System.out.printf("%-14s utilization %.1f%%, %d requests rejected (%d procedures), %d ms for %d doctor-days%n",
+                strategy, result.occupancy().utilization() * 100, result.rejected(), result.rejectedProcedures(),
+                Duration.ofNanos(result.nanos()).toMillis(), DAYS);
+    }
+
+    @Test
+    public void bestFitBooksAtLeastAsMuchAsTheAlternatives() {
+        var days = days(new Random(50));
+        var requested = simulate(days, Strategy.REQUESTED_TIME);
+        var firstFit = simulate(days, Strategy.FIRST_FIT);
+        var bestFit = simulate(days, Strategy.BEST_FIT);
+
+        print(Strategy.REQUESTED_TIME, requested);
+        print(Strategy.FIRST_FIT, firstFit);
+        print(Strategy.BEST_FIT, bestFit);
+
+        assertTrue(bestFit.occupancy().bookedMinutes() >= requested.occupancy().bookedMinutes(),
+                "best fit booked less than requested times");
+        assertTrue(bestFit.occupancy().bookedMinutes() >= firstFit.occupancy().bookedMinutes(),
+                "best fit booked less than first fit");
+    }
+}
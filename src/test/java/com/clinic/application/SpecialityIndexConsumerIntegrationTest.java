@@ -0,0 +1,58 @@
+package com.clinic.application;
+
+import akka.javasdk.testkit.TestKitSupport;
+import com.clinic.domain.Doctor;
+import com.clinic.domain.Speciality;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SpecialityIndexConsumerIntegrationTest extends TestKitSupport {
+
+    private static Doctor doctor(String id, String... specialities) {
+        return new Doctor(id, id, id, List.of(specialities), "", Optional.empty());
+    }
+
+    private List<String> indexedKeys(String doctorId) {
+        return componentClient
+                .forView()
+                .method(DoctorsView::findSpecialitiesOfDoctor)
+                .invoke(doctorId)
+                .entries()
+                .stream()
+                .map(Speciality.Assignment::specialityKey)
+                .sorted()
+                .toList();
+    }
+
+    @Test
+    public void droppedSpecialityIsWithdrawn() {
+        componentClient
+                .forKeyValueEntity("thirteen")
+                .method(DoctorEntity::create)
+                .invoke(doctor("thirteen", "Cardiology", "Internal Medicine"));
+        Awaitility.await()
+                .atMost(10, TimeUnit.SECONDS)
+                .untilAsserted(() -> assertEquals(List.of("cardiology", "internal-medicine"), indexedKeys("thirteen")));
+
+        componentClient
+                .forKeyValueEntity("thirteen")
+                .method(DoctorEntity::update)
+                .invoke(doctor("thirteen", "internal medicine"));
+        Awaitility.await()
+                .atMost(10, TimeUnit.SECONDS)
+                .untilAsserted(() -> {
+                    assertEquals(List.of("internal-medicine"), indexedKeys("thirteen"));
+                    var recorded = componentClient
+                            .forKeyValueEntity("thirteen")
+                            .method(DoctorSpecialityKeysEntity::getKeys)
+                            .invoke();
+                    assertEquals(Optional.of(new Speciality.DoctorKeys("thirteen", List.of("internal-medicine"))), recorded);
+                });
+    }
+}
@@ -0,0 +1,49 @@
+package com.clinic.application;
+
+import com.clinic.domain.Waitlist;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Throughput of {@link WaitlistIndex} with thousands of waitlisted patients per doctor: loading the queues and
+ * picking (and claiming) the best candidate for freed slots. Correctness is covered by {@link WaitlistIndexTest}.
+ */
+public class WaitlistIndexBenchmark {
+
+    private static final int PATIENTS = 5_000;
+    private static final int DAYS = 60;
+
+    @Test
+    public void offersPerSecond() {
+        var random = new Random(7);
+        var doctors = new HashMap<String, List<Waitlist.Entry>>();
+        for (int d = 0; d < 20; d++)
+            doctors.put("doctor-" + d, WaitlistIndexTest.entries(random, PATIENTS, DAYS));
+
+        var index = new WaitlistIndex();
+        var loadStart = System.nanoTime();
+        doctors.forEach((doctorId, entries) -> index.sync(doctorId, entries, WaitlistIndexTest.TODAY));
+        var loadNanos = System.nanoTime() - loadStart;
+
+        var doctorIds = new ArrayList<>(doctors.keySet());
+        var offers = 100_000;
+        var booked = 0;
+        var start = System.nanoTime();
+        for (int i = 0; i < offers; i++) {
+            var doctorId = doctorIds.get(random.nextInt(doctorIds.size()));
+            var best = index.best(doctorId, WaitlistIndexTest.TODAY.plusDays(random.nextInt(DAYS)));
+            if (best.isPresent()) {
+                index.remove(doctorId, best.get().id());
+                booked++;
+            }
+        }
+        var offerNanos = System.nanoTime() - start;
+
+        System.out.printf("waitlist index: loaded %d entries in %d ms, %d offers (%d booked) in %d ms, %d ns per offer%n",
+                doctors.size() * PATIENTS, loadNanos / 1_000_000, offers, booked, offerNanos / 1_000_000, offerNanos / offers);
+    }
+}
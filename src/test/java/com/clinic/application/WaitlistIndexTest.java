@@ -0,0 +1,76 @@
+package com.clinic.application;
+
+import com.clinic.domain.Appointment;
+import com.clinic.domain.Waitlist;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static com.clinic.application.DateUtils.date;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WaitlistIndexTest {
+
+    static final LocalDate TODAY = date("2031-01-01");
+
+    /** Entries with random urgencies and windows of up to two weeks starting within {@code days} of today. */
+    static List<Waitlist.Entry> entries(Random random, int patients, int days) {
+        var urgencies = Appointment.Urgency.values();
+        var entries = new ArrayList<Waitlist.Entry>(patients);
+        for (int i = 0; i < patients; i++) {
+            var from = TODAY.plusDays(random.nextInt(days));
+            var to = from.plusDays(random.nextInt(14));
+            entries.add(new Waitlist.Entry("e" + i, "p" + i, "issue", from, to,
+                    urgencies[random.nextInt(urgencies.length)], Instant.ofEpochSecond(random.nextInt(1_000_000)), List.of("house")));
+        }
+        return entries;
+    }
+
+    /** The best entry by brute force over the entries still waiting. */
+    private static Optional<Waitlist.Entry> expectedBest(List<Waitlist.Entry> waiting, LocalDate date) {
+        return waiting.stream().filter(entry -> entry.accepts(date)).min(Waitlist.PRIORITY);
+    }
+
+    @Test
+    public void picksMostUrgentLongestWaiting() {
+        var random = new Random(41);
+        var entries = entries(random, 5_000, 60);
+        var index = new WaitlistIndex();
+        index.sync("house", entries, TODAY);
+        assertEquals(entries.size(), index.size("house"));
+
+        var waiting = new ArrayList<>(entries);
+        for (int i = 0; i < 500; i++) {
+            var date = TODAY.plusDays(random.nextInt(60));
+            var best = index.best("house", date);
+            assertEquals(expectedBest(waiting, date), best);
+            best.ifPresent(entry -> {
+                index.remove("house", entry.id());
+                waiting.remove(entry);
+            });
+        }
+
+        // removals coming from the entity are applied on the next sync
+        var removed = waiting.removeFirst();
+        index.sync("house", waiting, TODAY);
+        assertTrue(index.best("house", removed.from()).map(entry -> !entry.id().equals(removed.id())).orElse(true));
+    }
+
+    @Test
+    public void laterRegistrationsJoinOnTheNextSync() {
+        var entries = entries(new Random(48), 100, 10);
+        var index = new WaitlistIndex();
+        index.sync("house", entries.subList(0, 50), TODAY);
+
+        // registered after this node loaded the doctor, e.g. through a consumer running on another node
+        index.sync("house", entries, TODAY);
+        assertEquals(entries.size(), index.size("house"));
+        for (int day = 0; day < 10; day++)
+            assertEquals(expectedBest(entries, TODAY.plusDays(day)), index.best("house", TODAY.plusDays(day)));
+    }
+}
@@ -0,0 +1,75 @@
+package com.clinic.application;
+
+import akka.javasdk.testkit.TestKitSupport;
+import akka.stream.javadsl.Sink;
+import com.clinic.domain.Schedule;
+import com.clinic.domain.ScheduleAppointmentState;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.clinic.application.DateUtils.dateTime;
+import static com.clinic.application.DateUtils.time;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorkflowStatusViewIntegrationTest extends TestKitSupport {
+
+    @Test
+    public void streamEndsWithTheTerminalStatus() throws Exception {
+        componentClient
+                .forKeyValueEntity("park:2031-11-06")
+                .method(ScheduleEntity::createSchedule)
+                .invoke(new Schedule.WorkingHours(time("10:00"), time("16:00")));
+
+        var updates = componentClient
+                .forView()
+                .stream(WorkflowStatusView::scheduleAppointmentUpdates)
+                .source("status-1")
+                .takeWhile(status -> !status.terminal(), true)
+                .runWith(Sink.seq(), testKit.getMaterializer());
+
+        componentClient
+                .forWorkflow("status-1")
+                .method(ScheduleAppointmentWorkflow::schedule)
+                .invoke(new ScheduleAppointmentWorkflow.ScheduleAppointmentCommand(dateTime("2031-11-06T11:00:00"), "park", "p-s1", "issue"));
+
+        var statuses = updates.toCompletableFuture().get(10, TimeUnit.SECONDS);
+        var last = statuses.getLast();
+        assertEquals("status-1", last.id());
+        assertEquals(ScheduleAppointmentState.Status.AppointmentScheduled.name(), last.status());
+        assertTrue(last.terminal());
+        assertTrue(statuses.subList(0, statuses.size() - 1).stream().noneMatch(WorkflowStatusView.WorkflowStatus::terminal));
+    }
+
+    @Test
+    public void statusIsReadOnce() {
+        assertTrue(componentClient
+                .forView()
+                .method(WorkflowStatusView::getCancelAppointmentStatus)
+                .invoke("no-such-workflow")
+                .statuses()
+                .isEmpty());
+
+        componentClient
+                .forKeyValueEntity("park:2031-11-07")
+                .method(ScheduleEntity::createSchedule)
+                .invoke(new Schedule.WorkingHours(time("10:00"), time("16:00")));
+        componentClient
+                .forWorkflow("status-2")
+                .method(ScheduleAppointmentWorkflow::schedule)
+                .invoke(new ScheduleAppointmentWorkflow.ScheduleAppointmentCommand(dateTime("2031-11-07T11:00:00"), "park", "p-s2", "issue"));
+
+        Awaitility.await()
+                .atMost(10, TimeUnit.SECONDS)
+                .untilAsserted(() -> {
+                    var statuses = componentClient
+                            .forView()
+                            .method(WorkflowStatusView::getScheduleAppointmentStatus)
+                            .invoke("status-2")
+                            .statuses();
+                    assertEquals(1, statuses.size());
+                    assertTrue(statuses.getFirst().terminal());
+                });
+    }
+}
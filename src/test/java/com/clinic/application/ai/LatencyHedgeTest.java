@@ -0,0 +1,84 @@
+package com.clinic.application.ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHedgeTest {
+
+    private static final LatencyHedge.Settings SETTINGS = new LatencyHedge.Settings(
+            true, "slow", "fast", 0.9, Duration.ofMillis(20), Duration.ofMillis(100), Duration.ofSeconds(2), 10);
+
+    /** Local fake model providers: answer with their name after a fixed delay, or fail. */
+    private static Function<LatencyHedge.Route, CompletionStage<String>> providers(long slowMillis, long fastMillis, boolean slowFails) {
+        return route -> {
+            var delay = route.model().equals("slow") ? slowMillis : fastMillis;
+            var executor = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS);
+            if (route.model().equals("slow") && slowFails)
+                return CompletableFuture.supplyAsync(() -> { throw new IllegalStateException("provider down"); }, executor);
+            return CompletableFuture.supplyAsync(route::model, executor);
+        };
+    }
+
+    private static String await(CompletionStage<String> stage) throws Exception {
+        return stage.toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void fastPrimaryIsNotHedged() throws Exception {
+        var hedge = new LatencyHedge(SETTINGS);
+        assertEquals("slow", await(hedge.call(providers(10, 10, false))));
+        assertEquals(1, hedge.metrics().decisions().get(LatencyHedge.Decision.PRIMARY));
+    }
+
+    @Test
+    public void slowPrimaryIsHedgedAndFallbackWins() throws Exception {
+        var hedge = new LatencyHedge(SETTINGS);
+        assertEquals("fast", await(hedge.call(providers(1000, 10, false))));
+        assertEquals(1, hedge.metrics().decisions().get(LatencyHedge.Decision.FALLBACK));
+    }
+
+    @Test
+    public void failedPrimaryGoesToFallbackRightAway() throws Exception {
+        var hedge = new LatencyHedge(SETTINGS);
+        var start = System.nanoTime();
+        assertEquals("fast", await(hedge.call(providers(1, 10, true))));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < SETTINGS.initialDelay().toMillis());
+    }
+
+    @Test
+    public void hedgeDelayFollowsPrimaryPercentile() throws Exception {
+        var hedge = new LatencyHedge(SETTINGS);
+        for (int i = 0; i < SETTINGS.window(); i++)
+            await(hedge.call(providers(40, 1000, false)));
+        var delay = hedge.hedgeDelay().toMillis();
+        assertTrue(delay >= 40 && delay < SETTINGS.initialDelay().toMillis(), "delay was " + delay);
+    }
+
+    @Test
+    public void primaryThatLostStillCountsTowardsTheHedgeDelay() throws Exception {
+        var hedge = new LatencyHedge(SETTINGS);
+        for (int i = 0; i < SETTINGS.window(); i++)
+            assertEquals("fast", await(hedge.call(providers(150, 10, false))));
+        // the late primaries finish after the calls returned
+        Thread.sleep(200);
+        var delay = hedge.hedgeDelay().toMillis();
+        assertTrue(delay >= 150, "delay was " + delay);
+        assertEquals(SETTINGS.window(), hedge.metrics().decisions().get(LatencyHedge.Decision.FALLBACK));
+    }
+
+    @Test
+    public void failsWhenBothFail() {
+        var hedge = new LatencyHedge(SETTINGS);
+        Function<LatencyHedge.Route, CompletionStage<String>> failing =
+                route -> CompletableFuture.failedFuture(new IllegalStateException(route.model() + " down"));
+        assertThrows(ExecutionException.class, () -> await(hedge.call(failing)));
+    }
+}
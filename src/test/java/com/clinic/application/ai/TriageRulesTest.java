@@ -0,0 +1,47 @@
+package com.clinic.application.ai;
+
+import com.clinic.domain.Appointment;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TriageRulesTest {
+
+    private final TriageRules rules = TriageRules.fromConfig(ConfigFactory.parseString("""
+            clinic.triage.keywords {
+              high = ["chest pain", "shortness of breath"]
+              medium = ["fever"]
+              low = ["prescription refill", "refill", "checkup"]
+            }
+            """));
+
+    @Test
+    public void findsOverlappingPhrasesOnWordBoundaries() {
+        var automaton = new AhoCorasick<>(Map.of("he", 1, "she", 2, "hers", 3, "pain", 4));
+        var phrases = automaton.findAll("She said hers").stream().map(AhoCorasick.Match::phrase).toList();
+        assertEquals(List.of("she", "hers"), phrases);
+        assertTrue(automaton.findAll("painting").isEmpty());
+    }
+
+    @Test
+    public void classifiesObviousIssues() {
+        assertEquals(Optional.of(Appointment.Urgency.HIGH), rules.classify("Sudden CHEST PAIN since this morning"));
+        assertEquals(Optional.of(Appointment.Urgency.LOW), rules.classify("I need a prescription refill"));
+        assertEquals(Optional.of(Appointment.Urgency.MEDIUM), rules.classify("fever for two days"));
+        // high always wins
+        assertEquals(Optional.of(Appointment.Urgency.HIGH), rules.classify("checkup, but some shortness of breath"));
+    }
+
+    @Test
+    public void leavesAmbiguousIssuesToTheAgent() {
+        assertTrue(rules.classify("my knee hurts").isEmpty());
+        assertTrue(rules.classify("fever, also wanted a checkup").isEmpty());
+        assertTrue(rules.classify("no chest pain, just tired").isEmpty());
+        assertTrue(rules.classify("").isEmpty());
+    }
+}
@@ -0,0 +1,126 @@
+package com.clinic.application.export;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NdjsonExportWriterTest {
+
+    private static final LocalDate DAY = LocalDate.of(2031, 2, 3);
+
+    @TempDir
+    Path directory;
+
+    private NdjsonExportWriter writer(Duration idleTimeout, int maxOpenFiles) {
+        return new NdjsonExportWriter(new NdjsonExportWriter.Settings(directory, "events", false, idleTimeout, maxOpenFiles));
+    }
+
+    private List<String> readPartition(LocalDate partition) throws IOException {
+        var lines = new ArrayList<String>();
+        try (var files = Files.list(directory.resolve("date=" + partition))) {
+            for (var file : files.sorted().toList()) {
+                try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+                    new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().forEach(lines::add);
+                }
+            }
+        }
+        return lines;
+    }
+
+    @Test
+    public void writesLinesPartitionedByDate() throws IOException {
+        try (var writer = writer(Duration.ofMinutes(1), 8)) {
+            writer.append(DAY, "{\"n\":1}");
+            writer.append(DAY.plusDays(1), "{\"n\":2}");
+            writer.append(DAY, "{\"n\":3}");
+        }
+        assertEquals(List.of("{\"n\":1}", "{\"n\":3}"), readPartition(DAY));
+        assertEquals(List.of("{\"n\":2}"), readPartition(DAY.plusDays(1)));
+    }
+
+    @Test
+    public void partitionsWrittenAgainAfterFinishingGetANewFile() throws IOException {
+        try (var writer = writer(Duration.ofMinutes(1), 1)) {
+            writer.append(DAY, "a");
+            // only one file may be open, this finishes the first day's
+            writer.append(DAY.plusDays(1), "b");
+            writer.append(DAY, "c");
+        }
+        try (var files = Files.list(directory.resolve("date=" + DAY))) {
+            assertEquals(2, files.count());
+        }
+        assertEquals(List.of("a", "c"), readPartition(DAY));
+    }
+
+    /** Reads a file the way the writer's docs ask for: an unexpected end of the stream ends the file. */
+    private static String readLeniently(Path file) throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            var buffer = new byte[8192];
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer))
+                out.write(buffer, 0, n);
+        } catch (EOFException e) {
+            // no trailer, the writer didn't finish the file
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void unfinishedFileKeepsEveryWrittenLine() throws IOException {
+        try (var writer = writer(Duration.ofMinutes(1), 8)) {
+            writer.append(DAY, "{\"n\":1}");
+            writer.append(DAY, "{\"n\":2}");
+
+            // as a crash would leave it: open, never finished
+            try (var files = Files.list(directory.resolve("date=" + DAY))) {
+                var file = files.findFirst().orElseThrow();
+                assertThrows(EOFException.class, () -> {
+                    try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+                        in.readAllBytes();
+                    }
+                });
+                assertEquals(List.of("{\"n\":1}", "{\"n\":2}"), readLeniently(file).lines().toList());
+            }
+        }
+    }
+
+    @Test
+    public void concurrentAppendsShareWrites() throws Exception {
+        int lines = 200_000;
+        var start = System.nanoTime();
+        try (var writer = writer(Duration.ofMinutes(1), 8);
+             var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var futures = IntStream.range(0, 64)
+                    .mapToObj(thread -> executor.submit(() -> {
+                        for (int i = thread; i < lines; i += 64)
+                            writer.append(DAY.plusDays(i % 3), "{\"appointmentId\":\"appointment-" + i + "\",\"type\":\"scheduled\"}");
+                    }))
+                    .toList();
+            for (var future : futures)
+                future.get();
+        }
+        var millis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        System.out.println("Exported " + lines + " lines in " + millis + " ms");
+
+        int read = 0;
+        for (int day = 0; day < 3; day++)
+            read += readPartition(DAY.plusDays(day)).size();
+        assertEquals(lines, read);
+    }
+}
@@ -0,0 +1,24 @@
+package com.clinic.domain;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AppointmentTest {
+
+    @Test
+    public void parseUrgency() {
+        assertEquals(Appointment.Urgency.HIGH, Appointment.Urgency.parse("high"));
+        assertEquals(Appointment.Urgency.HIGH, Appointment.Urgency.parse(" High.\n"));
+        assertEquals(Appointment.Urgency.MEDIUM, Appointment.Urgency.parse("\"medium\""));
+        assertEquals(Appointment.Urgency.LOW, Appointment.Urgency.parse("LOW"));
+        assertEquals(Appointment.Urgency.UNKNOWN, Appointment.Urgency.parse("not high at all"));
+        assertEquals(Appointment.Urgency.UNKNOWN, Appointment.Urgency.parse(null));
+    }
+
+    @Test
+    public void urgencyOrder() {
+        assertEquals(1, Appointment.Urgency.HIGH.sortKey());
+        assertEquals(99, Appointment.Urgency.UNKNOWN.sortKey());
+    }
+}
@@ -0,0 +1,35 @@
+package com.clinic.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AppointmentTypesTest {
+
+    private final AppointmentTypes types = new AppointmentTypes(
+            Map.of("consult", Duration.ofMinutes(15), "standard", Duration.ofMinutes(30), "procedure", Duration.ofMinutes(90)),
+            "standard");
+
+    @Test
+    public void durationOfType() {
+        assertEquals(Duration.ofMinutes(15), types.durationOf(Optional.of("consult")));
+        assertEquals(Duration.ofMinutes(90), types.durationOf(Optional.of(" procedure ")));
+        assertEquals(Duration.ofMinutes(30), types.durationOf(Optional.empty()));
+        assertEquals(Duration.ofMinutes(30), types.durationOf(Optional.of("")));
+        assertThrows(IllegalArgumentException.class, () -> types.durationOf(Optional.of("surgery")));
+    }
+
+    @Test
+    public void durationsAreWholeMinutes() {
+        assertThrows(IllegalArgumentException.class, () ->
+                new AppointmentTypes(Map.of("quick", Duration.ofMinutes(4)), "quick"));
+        assertThrows(IllegalArgumentException.class, () ->
+                new AppointmentTypes(Map.of("odd", Duration.ofSeconds(20 * 60 + 30)), "odd"));
+        assertThrows(IllegalArgumentException.class, () ->
+                new AppointmentTypes(Map.of("consult", Duration.ofMinutes(15)), "standard"));
+    }
+}
@@ -0,0 +1,106 @@
+package com.clinic.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChatSessionTest {
+
+    private final ChatSession.Limits limits = new ChatSession.Limits(200, 100, 50, 1000);
+
+    /** Stands in for the summary agent: keeps the summary within its token budget. */
+    private ChatSession summarize(ChatSession session) {
+        var summary = (session.summary() + " " + session.evicted().size() + " more turns about knees").strip();
+        var maxChars = limits.maxSummaryTokens() * 4;
+        if (summary.length() > maxChars)
+            summary = summary.substring(summary.length() - maxChars);
+        return session.applySummary(summary, session.evictedThrough());
+    }
+
+    @Test
+    public void promptSizePlateaus() {
+        var session = ChatSession.empty();
+        var promptTokens = new ArrayList<Integer>();
+        for (int i = 0; i < 200; i++) {
+            var message = "Turn " + i + ": my knee still hurts when I climb the stairs, what should I do?";
+            promptTokens.add(ChatSession.Tokens.estimate(session.context()) + ChatSession.Tokens.estimate(message));
+            session = session.addTurn(new ChatSession.Turn(message, "Rest it, use ice, and book a visit if it persists."), limits);
+            if (session.needsSummary(limits))
+                session = summarize(session);
+        }
+
+        // the window and summary budgets, plus role labels and the new message
+        var bound = 2 * (limits.windowTokens() + limits.maxSummaryTokens());
+        assertTrue(promptTokens.stream().allMatch(tokens -> tokens <= bound), promptTokens.toString());
+        // late turns cost the same as turns right after the window filled up
+        var afterWarmUp = promptTokens.subList(50, promptTokens.size());
+        var min = afterWarmUp.stream().mapToInt(Integer::intValue).min().orElseThrow();
+        var max = afterWarmUp.stream().mapToInt(Integer::intValue).max().orElseThrow();
+        assertTrue(max - min <= 60, "prompt size still growing: " + min + " .. " + max);
+        assertEquals(200, session.summarizedTurns() + session.evicted().size() + session.recent().size());
+    }
+
+    @Test
+    public void latestTurnIsAlwaysKept() {
+        var longReply = "x".repeat(2000);
+        var session = ChatSession.empty().addTurn(new ChatSession.Turn("hi", longReply), limits);
+        assertEquals(1, session.recent().size());
+        assertTrue(session.evicted().isEmpty());
+    }
+
+    @Test
+    public void turnsEvictedDuringSummaryStayPending() {
+        var session = ChatSession.empty();
+        for (int i = 0; i < 20; i++)
+            session = session.addTurn(new ChatSession.Turn("question " + i + " ".repeat(40), "answer " + i + " ".repeat(40)), limits);
+        var pending = session.evicted().size();
+        assertTrue(pending > 1);
+
+        var summarized = session.applySummary("summary", session.evictedThrough() - 1);
+        assertEquals(1, summarized.evicted().size());
+        assertEquals("summary", summarized.summary());
+    }
+
+    @Test
+    public void staleSummaryIsNotApplied() {
+        var session = ChatSession.empty();
+        for (int i = 0; i < 20; i++)
+            session = session.addTurn(new ChatSession.Turn("question " + i + " ".repeat(40), "answer " + i + " ".repeat(40)), limits);
+        var through = session.evictedThrough();
+
+        var summarized = session.applySummary("first", through);
+        // the same state delivered again, summarized a second time
+        assertSame(summarized, summarized.applySummary("again", through));
+        assertEquals("first", summarized.summary());
+
+        // a summary of a state before more turns were evicted only covers the ones it saw
+        var later = summarized
+                .addTurn(new ChatSession.Turn("question 20" + " ".repeat(40), "answer 20" + " ".repeat(40)), limits)
+                .addTurn(new ChatSession.Turn("question 21" + " ".repeat(40), "answer 21" + " ".repeat(40)), limits);
+        var pending = later.evicted().size();
+        var caughtUp = later.applySummary("second", later.evictedThrough() - 1);
+        assertEquals(pending - 1, later.evicted().size() - caughtUp.evicted().size());
+        assertEquals(later.evicted().getLast(), caughtUp.evicted().getFirst());
+    }
+
+    @Test
+    public void summaryCountsTurnsDroppedWhileItWasWritten() {
+        var tight = new ChatSession.Limits(60, 1000, 50, 60);
+        var session = ChatSession.empty();
+        for (int i = 0; i < 3; i++)
+            session = session.addTurn(new ChatSession.Turn("question " + i + " ".repeat(40), "answer " + i + " ".repeat(40)), tight);
+        var through = session.evictedThrough();
+
+        // more turns push the oldest evicted ones out before the summary arrives
+        var moved = session;
+        for (int i = 3; i < 6; i++)
+            moved = moved.addTurn(new ChatSession.Turn("question " + i + " ".repeat(40), "answer " + i + " ".repeat(40)), tight);
+        assertTrue(moved.summarizedTurns() > session.summarizedTurns());
+
+        var summarized = moved.applySummary("summary", through);
+        assertEquals(Math.max(through, moved.summarizedTurns()), summarized.summarizedTurns());
+        assertEquals(moved.evictedThrough(), summarized.evictedThrough());
+    }
+}
@@ -0,0 +1,102 @@
+package com.clinic.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactCodecTest {
+
+    private static final String ID = UUID.randomUUID().toString();
+
+    static List<AppointmentEvents> allEvents(String appointmentId) {
+        return List.of(
+                new AppointmentEvents.AppointmentCreated(appointmentId, LocalDateTime.of(2031, 10, 20, 11, 0), "house", "patient-7", "Headache for three days", Duration.ofMinutes(90)),
+                new AppointmentEvents.AddedDoctorNotes("Rest, fluids; ünïcode notes"),
+                new AppointmentEvents.AddedPrescription("ibuprofen 400mg"),
+                new AppointmentEvents.Rescheduled(LocalDateTime.of(2031, 10, 21, 9, 30, 15, 500), "wilson"),
+                new AppointmentEvents.Scheduled(),
+                new AppointmentEvents.Cancelled(),
+                new AppointmentEvents.Completed(),
+                new AppointmentEvents.Missed(),
+                new AppointmentEvents.AddedPriority(Appointment.Urgency.HIGH));
+    }
+
+    @Test
+    public void everyEventRoundTrips() {
+        var events = allEvents(ID);
+        assertEquals(AppointmentEvents.class.getPermittedSubclasses().length, events.size());
+        for (var event : events)
+            assertEquals(event, AppointmentEventsCodec.decode(AppointmentEventsCodec.encode(event), ID));
+    }
+
+    @Test
+    public void idsAndDatesAreStoredCompactly() {
+        var created = new AppointmentEvents.AppointmentCreated(ID, LocalDateTime.of(2031, 10, 20, 11, 0), UUID.randomUUID().toString(), UUID.randomUUID().toString(), "");
+        // tag, version, 2 length bytes, 4 date bytes, 2 UUIDs of 17 bytes, empty string, no duration
+        assertEquals(4 + 4 + 2 * 17 + 1 + 1, AppointmentEventsCodec.encode(created).length);
+
+        var notUuid = new AppointmentEvents.Rescheduled(LocalDateTime.of(2031, 1, 1, 0, 0), ID.toUpperCase());
+        assertEquals(notUuid, AppointmentEventsCodec.decode(AppointmentEventsCodec.encode(notUuid), ID));
+    }
+
+    @Test
+    public void workflowStatesRoundTrip() {
+        var reschedule = RescheduleAppointmentState.initial(ID, LocalDateTime.of(2031, 10, 20, 11, 0), "house");
+        assertEquals(reschedule, WorkflowStateCodec.decodeRescheduleAppointmentState(WorkflowStateCodec.encode(reschedule)));
+        var moved = reschedule.withOld(LocalDateTime.of(2031, 10, 20, 9, 0), "house", Duration.ofMinutes(45)).withStatus(RescheduleAppointmentState.Status.SlotMoved);
+        assertEquals(moved, WorkflowStateCodec.decodeRescheduleAppointmentState(WorkflowStateCodec.encode(moved)));
+
+        var cancel = new CancelScheduleState(LocalDateTime.of(2031, 10, 20, 0, 0), "house", CancelScheduleState.Status.scheduleBlocked, true);
+        assertEquals(cancel, WorkflowStateCodec.decodeCancelScheduleState(WorkflowStateCodec.encode(cancel)));
+
+        for (var status : RescheduleAppointmentState.Status.values())
+            assertTrue(WorkflowStateCodec.RESCHEDULE_STATUSES.contains(status), status + " has no code");
+        for (var status : CancelScheduleState.Status.values())
+            assertTrue(WorkflowStateCodec.CANCEL_SCHEDULE_STATUSES.contains(status), status + " has no code");
+        for (var urgency : Appointment.Urgency.values())
+            assertTrue(AppointmentEventsCodec.URGENCIES.contains(urgency), urgency + " has no code");
+    }
+
+    @Test
+    public void olderBodiesGetDefaultsAndNewerFieldsAreSkipped() {
+        // a cancel-schedule body from before 'triaged' was added
+        var writer = new CompactEncoding.Writer();
+        var body = writer.beginRecord(WorkflowStateCodec.CANCEL_SCHEDULE_STATE, 1);
+        writer.writeDateTime(LocalDateTime.of(2031, 10, 20, 0, 0));
+        writer.writeString("house");
+        writer.writeVarint(WorkflowStateCodec.CANCEL_SCHEDULE_STATUSES.indexOf(CancelScheduleState.Status.Initial));
+        writer.endRecord(body);
+        var old = WorkflowStateCodec.decodeCancelScheduleState(writer.toByteArray());
+        assertFalse(old.triaged());
+
+        // a rescheduled event from a newer writer with one more field, followed by another event
+        writer = new CompactEncoding.Writer();
+        body = writer.beginRecord(AppointmentEventsCodec.RESCHEDULED, 1);
+        writer.writeDateTime(LocalDateTime.of(2031, 10, 21, 9, 30));
+        writer.writeString("wilson");
+        writer.writeString("a field this version doesn't know");
+        writer.endRecord(body);
+        AppointmentEventsCodec.encode(new AppointmentEvents.Missed(), writer);
+
+        var reader = new CompactEncoding.Reader(writer.toByteArray());
+        assertEquals(new AppointmentEvents.Rescheduled(LocalDateTime.of(2031, 10, 21, 9, 30), "wilson"), AppointmentEventsCodec.decode(reader, ID));
+        assertEquals(new AppointmentEvents.Missed(), AppointmentEventsCodec.decode(reader, ID));
+    }
+
+    @Test
+    public void longBodiesAndBadInput() {
+        var notes = "x".repeat(100_000);
+        var event = new AppointmentEvents.AddedDoctorNotes(notes);
+        assertEquals(event, AppointmentEventsCodec.decode(AppointmentEventsCodec.encode(event), ID));
+
+        var bytes = AppointmentEventsCodec.encode(allEvents(ID).getFirst());
+        assertThrows(IllegalArgumentException.class, () -> AppointmentEventsCodec.decode(Arrays.copyOf(bytes, bytes.length - 3), ID));
+        assertThrows(IllegalArgumentException.class, () -> AppointmentEventsCodec.decode(new byte[]{99, 1, 0}, ID));
+    }
+}
@@ -0,0 +1,55 @@
+package com.clinic.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PatientCalendarTest {
+
+    private PatientCalendar.Booking booking(String appointmentId, String start, String end) {
+        return new PatientCalendar.Booking(appointmentId, LocalDateTime.parse(start), LocalDateTime.parse(end));
+    }
+
+    @Test
+    public void keepsBookingsSortedAndRejectsOverlaps() {
+        var calendar = PatientCalendar.empty("p1")
+                .reserve(booking("b", "2031-01-01T11:00", "2031-01-01T11:30"))
+                .reserve(booking("a", "2031-01-01T09:00", "2031-01-01T09:30"))
+                .reserve(booking("c", "2031-01-01T11:30", "2031-01-01T12:00"));
+        assertEquals(List.of("a", "b", "c"), calendar.bookings().stream().map(PatientCalendar.Booking::appointmentId).toList());
+
+        assertEquals("b", calendar.conflict(booking("x", "2031-01-01T10:45", "2031-01-01T11:15")).orElseThrow().appointmentId());
+        assertEquals("c", calendar.conflict(booking("x", "2031-01-01T11:45", "2031-01-01T12:15")).orElseThrow().appointmentId());
+        assertTrue(calendar.conflict(booking("x", "2031-01-01T09:30", "2031-01-01T11:00")).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> calendar.reserve(booking("x", "2031-01-01T11:00", "2031-01-01T11:30")));
+    }
+
+    @Test
+    public void reservingAgainMovesTheAppointment() {
+        var calendar = PatientCalendar.empty("p1")
+                .reserve(booking("a", "2031-01-01T10:00", "2031-01-01T10:30"))
+                .reserve(booking("b", "2031-01-01T10:30", "2031-01-01T11:00"));
+
+        // overlaps its own old interval only
+        var moved = calendar.reserve(booking("a", "2031-01-01T09:45", "2031-01-01T10:15"));
+        assertEquals(LocalDateTime.parse("2031-01-01T09:45"), moved.find("a").orElseThrow().start());
+        assertEquals(2, moved.bookings().size());
+
+        assertThrows(IllegalArgumentException.class, () -> calendar.reserve(booking("a", "2031-01-01T10:15", "2031-01-01T10:45")));
+    }
+
+    @Test
+    public void releaseAndPrune() {
+        var calendar = PatientCalendar.empty("p1")
+                .reserve(booking("a", "2031-01-01T10:00", "2031-01-01T10:30"))
+                .reserve(booking("b", "2031-01-02T10:00", "2031-01-02T10:30"));
+
+        assertSame(calendar, calendar.release("x"));
+        assertEquals(List.of("b"), calendar.release("a").bookings().stream().map(PatientCalendar.Booking::appointmentId).toList());
+        assertEquals(1, calendar.withoutEndedBefore(LocalDateTime.parse("2031-01-02T00:00")).bookings().size());
+        assertSame(calendar, calendar.withoutEndedBefore(LocalDateTime.parse("2031-01-01T09:00")));
+    }
+}
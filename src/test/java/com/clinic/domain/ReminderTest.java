@@ -0,0 +1,56 @@
+package com.clinic.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReminderTest {
+
+    private static final LocalDate DATE = LocalDate.of(2031, 5, 6);
+
+    private Reminder.Row row(String appointmentId, String patientId) {
+        return new Reminder.Row(appointmentId, patientId, "house", LocalTime.of(10, 0));
+    }
+
+    @Test
+    public void oneReminderPerPatient() {
+        var rows = List.of(row("a1", "alice"), row("a2", "alice"), row("b1", "bob"), row("c1", "carol"));
+
+        var reminders = Reminder.byPatient(DATE, rows, true);
+        assertEquals(List.of("alice", "bob", "carol"), reminders.stream().map(Reminder::patientId).toList());
+        assertEquals(2, reminders.getFirst().appointments().size());
+        assertEquals("a2", reminders.getFirst().last().appointmentId());
+        assertEquals(Reminder.key("alice", DATE, "a1"), reminders.getFirst().key());
+    }
+
+    @Test
+    public void lastPatientOfAnIncompletePageWaitsForTheNextPage() {
+        var rows = List.of(row("a1", "alice"), row("b1", "bob"), row("b2", "bob"));
+        assertEquals(List.of("alice"), Reminder.byPatient(DATE, rows, false).stream().map(Reminder::patientId).toList());
+
+        // a patient filling a whole page is sent anyway, the rest follows with its own key
+        var single = Reminder.byPatient(DATE, List.of(row("b1", "bob"), row("b2", "bob")), false);
+        assertEquals(1, single.size());
+        assertNotEquals(Reminder.key("bob", DATE, "b3"), single.getFirst().key());
+    }
+
+    @Test
+    public void deliveriesAreKeptForThePageAtTheCursor() {
+        var page = ReminderRunState.initial(DATE, Instant.EPOCH);
+        var deliveries = ReminderDeliveries.empty("")
+                .add(page.cursor(), "k1")
+                .add(page.cursor(), "k2");
+        assertSame(deliveries, deliveries.add(page.cursor(), "k1"));
+        assertEquals(List.of("k1", "k2"), deliveries.keysAt(page.cursor()));
+
+        // once the progress is saved the next page starts empty
+        var next = page.afterPage("bob", "b1", 2, 0);
+        assertEquals(List.of(), deliveries.keysAt(next.cursor()));
+        assertEquals(List.of("k3"), deliveries.add(next.cursor(), "k3").keys());
+    }
+}
@@ -5,8 +5,10 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -111,6 +113,126 @@ public class ScheduleTest {
         assertEquals(0, schedule.timeSlots().size());
     }
 
+    @Test
+    public void holdBlocksOtherBookingsUntilConfirmed() {
+        var now = Instant.parse("2021-01-01T09:00:00Z");
+        var held = new Schedule(houseScheduleId, defaultWorkingHours)
+                .holdSlot(LocalTime.of(10, 30), Duration.ofMinutes(30), "a1", now.plusSeconds(120));
+        assertTrue(held.timeSlots().isEmpty());
+
+        assertThrows(IllegalArgumentException.class, () ->
+                held.holdSlot(LocalTime.of(10, 45), Duration.ofMinutes(30), "a2", now.plusSeconds(120)));
+        assertThrows(IllegalArgumentException.class, () ->
+                held.scheduleAppointment(LocalTime.of(10, 30), Duration.ofMinutes(30), "a2"));
+
+        var confirmed = held.confirmHold("a1");
+        assertEquals(1, confirmed.timeSlots().size());
+        assertTrue(confirmed.holds().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> confirmed.confirmHold("a1"));
+    }
+
+    @Test
+    public void expiredHoldFreesTheSlot() {
+        var now = Instant.parse("2021-01-01T09:00:00Z");
+        var held = new Schedule(houseScheduleId, defaultWorkingHours)
+                .holdSlot(LocalTime.of(10, 30), Duration.ofMinutes(30), "a1", now.plusSeconds(120));
+
+        assertSame(held, held.withoutExpiredHolds(now.plusSeconds(60)));
+        var expired = held.withoutExpiredHolds(now.plusSeconds(120));
+        assertTrue(expired.holds().isEmpty());
+        assertDoesNotThrow(() -> expired.holdSlot(LocalTime.of(10, 30), Duration.ofMinutes(30), "a2", now.plusSeconds(240)));
+
+        assertTrue(held.releaseHold("a1").holds().isEmpty());
+        assertSame(held, held.releaseHold("a2"));
+    }
+
+    @Test
+    public void moveAppointmentKeepsDuration() {
+        var schedule = new Schedule(houseScheduleId, defaultWorkingHours)
+                .scheduleAppointment(LocalTime.of(10, 0), Duration.ofMinutes(30), "a1")
+                .scheduleAppointment(LocalTime.of(11, 0), Duration.ofMinutes(30), "a2");
+
+        var moved = schedule.moveAppointment("a1", LocalTime.of(10, 15));
+        assertEquals(2, moved.timeSlots().size());
+        assertEquals(new Schedule.TimeSlot(LocalTime.of(10, 15), LocalTime.of(10, 45), "a1"), moved.timeSlots().getFirst());
+
+        assertThrows(IllegalArgumentException.class, () -> schedule.moveAppointment("a1", LocalTime.of(10, 45)));
+        assertThrows(IllegalArgumentException.class, () -> schedule.moveAppointment("a3", LocalTime.of(12, 0)));
+        assertSame(schedule, schedule.moveAppointment("a1", LocalTime.of(10, 0)));
+    }
+
+    @Test
+    public void freeGapsSkipBookingsAndHolds() {
+        var schedule = new Schedule(houseScheduleId, defaultWorkingHours)
+                .scheduleAppointment(LocalTime.of(10, 0), Duration.ofMinutes(30), "a1")
+                .scheduleAppointment(LocalTime.of(12, 0), Duration.ofMinutes(60), "a2")
+                .holdSlot(LocalTime.of(17, 30), Duration.ofMinutes(30), "a3", Instant.parse("2021-01-01T09:00:00Z"));
+
+        assertEquals(List.of(
+                new Schedule.Gap(LocalTime.of(10, 30), LocalTime.of(12, 0)),
+                new Schedule.Gap(LocalTime.of(13, 0), LocalTime.of(17, 30))), schedule.freeGaps());
+        assertEquals(List.of(new Schedule.Gap(LocalTime.of(10, 0), LocalTime.of(18, 0))),
+                new Schedule(houseScheduleId, defaultWorkingHours).freeGaps());
+    }
+
+    @Test
+    public void suggestStartsFillsTheTightestGapFirst() {
+        var schedule = new Schedule(houseScheduleId, defaultWorkingHours)
+                .scheduleAppointment(LocalTime.of(10, 45), Duration.ofMinutes(60), "a1")
+                .scheduleAppointment(LocalTime.of(12, 15), Duration.ofMinutes(90), "a2")
+                .scheduleAppointment(LocalTime.of(14, 15), Duration.ofMinutes(45), "a3");
+
+        // gaps: 10:00-10:45, 11:45-12:15, 13:45-14:15, 15:00-18:00
+        assertEquals(List.of(LocalTime.of(11, 45), LocalTime.of(13, 45), LocalTime.of(10, 0), LocalTime.of(15, 0)),
+                schedule.suggestStarts(Duration.ofMinutes(30), 10));
+        assertEquals(List.of(LocalTime.of(10, 0)), schedule.suggestStarts(Duration.ofMinutes(45), 1));
+        assertEquals(List.of(LocalTime.of(15, 0)), schedule.suggestStarts(Duration.ofMinutes(90), 10));
+        assertEquals(List.of(), schedule.suggestStarts(Duration.ofMinutes(240), 10));
+        assertEquals(List.of(), schedule.blockSchedule().suggestStarts(Duration.ofMinutes(30), 10));
+    }
+
+    @Test
+    public void suggestStartsCountsGapsFromNotBefore() {
+        var schedule = new Schedule(houseScheduleId, defaultWorkingHours)
+                .scheduleAppointment(LocalTime.of(10, 45), Duration.ofMinutes(60), "a1");
+
+        // gaps: 10:00-10:45, 11:45-18:00; the afternoon has begun
+        assertEquals(List.of(LocalTime.of(14, 10)), schedule.suggestStarts(Duration.ofMinutes(30), 10, LocalTime.of(14, 10)));
+        assertEquals(List.of(LocalTime.of(10, 20), LocalTime.of(11, 45)),
+                schedule.suggestStarts(Duration.ofMinutes(15), 10, LocalTime.of(10, 20)));
+        assertEquals(List.of(), schedule.suggestStarts(Duration.ofMinutes(30), 10, LocalTime.of(17, 45)));
+        assertEquals(List.of(), schedule.suggestStarts(Duration.ofMinutes(30), 10, LocalTime.of(19, 0)));
+    }
+
+    @Test
+    public void removeAppointmentLeavesOtherBookingsAtItsTime() {
+        var schedule = new Schedule(houseScheduleId, defaultWorkingHours)
+                .scheduleAppointment(LocalTime.of(10, 0), Duration.ofMinutes(30), "a1")
+                .scheduleAppointment(LocalTime.of(11, 0), Duration.ofMinutes(30), "a2");
+
+        var moved = schedule.moveAppointment("a1", LocalTime.of(12, 0))
+                .scheduleAppointment(LocalTime.of(10, 0), Duration.ofMinutes(30), "a3");
+        var removed = moved.removeAppointment("a1");
+        assertEquals(List.of("a2", "a3"), removed.timeSlots().stream().map(Schedule.TimeSlot::appointmentId).sorted().toList());
+        assertSame(removed, removed.removeAppointment("a1"));
+    }
+
+    @Test
+    public void occupancy() {
+        var schedule = new Schedule(houseScheduleId, defaultWorkingHours)
+                .scheduleAppointment(LocalTime.of(10, 0), Duration.ofMinutes(30), "a1")
+                .scheduleAppointment(LocalTime.of(11, 0), Duration.ofMinutes(90), "a2");
+
+        var occupancy = Occupancy.of(schedule);
+        assertEquals(480, occupancy.workingMinutes());
+        assertEquals(120, occupancy.bookedMinutes());
+        assertEquals(360, occupancy.freeMinutes());
+        assertEquals(2, occupancy.slotCount());
+        assertEquals(0.25, occupancy.utilization());
+
+        assertEquals(0, Occupancy.of(schedule.blockSchedule()).freeMinutes());
+    }
+
     @Test
     public void serializeId() {
         assertEquals("house:2021-01-01", houseScheduleId.toString());
@@ -0,0 +1,28 @@
+package com.clinic.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpecialityTest {
+
+    @Test
+    public void spellingVariantsShareAKey() {
+        assertEquals("cardiology", Speciality.key("Cardiology"));
+        assertEquals("cardiology", Speciality.key("  cardiology "));
+        assertEquals("cardiology", Speciality.key("CARDIÓLOGY"));
+        assertEquals("internal-medicine", Speciality.key("Internal  Medicine"));
+        assertEquals("internal-medicine", Speciality.key("internal-medicine"));
+        assertEquals("ear-nose-throat", Speciality.key("Ear, Nose & Throat"));
+    }
+
+    @Test
+    public void specialitiesAreDistinctByKey() {
+        var specialities = Speciality.of(List.of("Cardiology", "cardiology", " Internal Medicine", "", "--"));
+        assertEquals(List.of(
+                new Speciality("cardiology", "Cardiology"),
+                new Speciality("internal-medicine", "Internal Medicine")), specialities);
+    }
+}
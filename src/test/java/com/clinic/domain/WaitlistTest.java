@@ -0,0 +1,42 @@
+package com.clinic.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WaitlistTest {
+
+    private Waitlist.Entry entry(String id, Appointment.Urgency urgency, long registeredAt, LocalDate to) {
+        return new Waitlist.Entry(id, "p-" + id, "issue", LocalDate.of(2031, 1, 1), to, urgency,
+                Instant.ofEpochSecond(registeredAt), List.of("house"));
+    }
+
+    @Test
+    public void urgentFirstThenFirstComeFirstServed() {
+        var to = LocalDate.of(2031, 1, 31);
+        var lowEarly = entry("a", Appointment.Urgency.LOW, 1, to);
+        var highLate = entry("b", Appointment.Urgency.HIGH, 3, to);
+        var highEarly = entry("c", Appointment.Urgency.HIGH, 2, to);
+
+        var sorted = List.of(lowEarly, highLate, highEarly).stream().sorted(Waitlist.PRIORITY).toList();
+        assertEquals(List.of(highEarly, highLate, lowEarly), sorted);
+    }
+
+    @Test
+    public void addRemoveAndExpire() {
+        var waitlist = Waitlist.empty("house")
+                .add(entry("a", Appointment.Urgency.LOW, 1, LocalDate.of(2031, 1, 10)))
+                .add(entry("b", Appointment.Urgency.LOW, 2, LocalDate.of(2031, 1, 20)))
+                .add(entry("a", Appointment.Urgency.HIGH, 3, LocalDate.of(2031, 1, 10)));
+        assertEquals(2, waitlist.entries().size());
+        assertEquals(Appointment.Urgency.HIGH, waitlist.find("a").orElseThrow().urgency());
+
+        assertEquals(List.of("b"), waitlist.withoutExpired(LocalDate.of(2031, 1, 11)).entries().stream().map(Waitlist.Entry::id).toList());
+        assertSame(waitlist, waitlist.remove("x"));
+        assertEquals(1, waitlist.remove("a").entries().size());
+    }
+}
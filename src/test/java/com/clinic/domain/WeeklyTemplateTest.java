@@ -0,0 +1,48 @@
+package com.clinic.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WeeklyTemplateTest {
+
+    private final Schedule.WorkingHours morning = new Schedule.WorkingHours(LocalTime.of(8, 0), LocalTime.of(12, 0));
+    private final Schedule.WorkingHours fullDay = new Schedule.WorkingHours(LocalTime.of(9, 0), LocalTime.of(17, 0));
+
+    private final WeeklyTemplate template = new WeeklyTemplate("house",
+            Map.of(DayOfWeek.MONDAY, fullDay, DayOfWeek.FRIDAY, morning), List.of());
+
+    @Test
+    public void workingHoursFollowTheWeekday() {
+        assertEquals(Optional.of(fullDay), template.workingHoursOn(LocalDate.of(2031, 11, 3)));
+        assertEquals(Optional.of(morning), template.workingHoursOn(LocalDate.of(2031, 11, 7)));
+        assertEquals(Optional.empty(), template.workingHoursOn(LocalDate.of(2031, 11, 4)));
+    }
+
+    @Test
+    public void exceptionsOverrideTheWeekday() {
+        var monday = LocalDate.of(2031, 11, 3);
+        var tuesday = LocalDate.of(2031, 11, 4);
+        var withExceptions = template
+                .withException(new WeeklyTemplate.DayException(monday, Optional.empty()))
+                .withException(new WeeklyTemplate.DayException(tuesday, Optional.of(morning)));
+
+        assertEquals(Optional.empty(), withExceptions.workingHoursOn(monday));
+        assertEquals(Optional.of(morning), withExceptions.workingHoursOn(tuesday));
+        assertEquals(Optional.of(fullDay), withExceptions.workingHoursOn(monday.plusWeeks(1)));
+
+        // replacing an exception keeps a single entry per date
+        var reopened = withExceptions.withException(new WeeklyTemplate.DayException(monday, Optional.of(morning)));
+        assertEquals(2, reopened.exceptions().size());
+        assertEquals(Optional.of(morning), reopened.workingHoursOn(monday));
+
+        assertEquals(1, reopened.withoutExceptionsBefore(tuesday).exceptions().size());
+    }
+}